@@ -17,9 +17,11 @@ package org.brailleblaster.archiver2
 
 import jakarta.xml.bind.DatatypeConverter
 import nu.xom.Document
+import nu.xom.ParsingException
 import org.brailleblaster.bbx.BookToBBXConverter
 import org.brailleblaster.exceptions.BBNotifyException
 import org.brailleblaster.utd.internal.xml.XMLHandler
+import org.brailleblaster.utd.internal.xml.XMLRootSniffer
 import org.slf4j.LoggerFactory
 import java.io.IOException
 import java.nio.file.Files
@@ -65,13 +67,23 @@ object ArchiverFactory {
 
     fun load(path: Path): Archiver2 {
         log.info("Loading file $path")
-        val parseData: ParseData
+        var parseData: ParseData
         try {
             parseData = detectFileType(path)
             log.info("Parsed file {} as {}", path, parseData)
-            val archiver = loaders[parseData.type]?.firstNotNullOfOrNull { curLoader ->
-                log.info("Attempting to load {} with loader {}", path, curLoader)
-                curLoader.tryLoad(path, parseData)
+            var archiver = try {
+                tryLoaders(path, parseData)
+            } catch (e: Exception) {
+                if (!parseData.isMalformed) {
+                    throw e
+                }
+                null
+            }
+            if (archiver == null && parseData.isMalformed) {
+                // Only the root element was sniffed, text or BRF can start like a tag
+                log.warn("Failed to parse {} as an XML file, trying as text", path)
+                parseData = ParseData(Types.OTHER)
+                archiver = tryLoaders(path, parseData)
             }
             if (archiver != null) {
                 return archiver
@@ -100,6 +112,12 @@ object ArchiverFactory {
         }
     }
 
+    private fun tryLoaders(path: Path, parseData: ParseData): Archiver2? =
+        loaders[parseData.type]?.firstNotNullOfOrNull { curLoader ->
+            log.info("Attempting to load {} with loader {}", path, curLoader)
+            curLoader.tryLoad(path, parseData)
+        }
+
     /**
      * Guess the format of the document so only relevant loaders try, otherwise
      * mangled XML may cause the TextArchiveLoader to run
@@ -114,22 +132,22 @@ object ArchiverFactory {
         // try to load with pandoc types
         val testpath = path.toString().lowercase(Locale.getDefault())
         if (testpath.endsWith(".docx")) {
-            return ParseData(Types.DOCX, null)
+            return ParseData(Types.DOCX)
         } else if (testpath.endsWith(".epub")) {
-            return ParseData(Types.EPUB, null)
+            return ParseData(Types.EPUB)
         } else if (testpath.endsWith(".html")
             || testpath.endsWith(".htm")
             || testpath.endsWith(".xhtml")
             || testpath.endsWith(".xhtm")
             || testpath.endsWith(".xht")
         ) {
-            return ParseData(Types.HTML, null)
+            return ParseData(Types.HTML)
         } else if (testpath.endsWith(".odt")) {
-            return ParseData(Types.ODT, null)
+            return ParseData(Types.ODT)
         } else if (testpath.endsWith(".md")) {
-            return ParseData(Types.MD, null)
+            return ParseData(Types.MD)
         } else if (testpath.endsWith(".tex")) {
-            return ParseData(Types.TEX, null)
+            return ParseData(Types.TEX)
         } else {
             log.warn("File {} not of pandoc type", path)
         }
@@ -140,7 +158,7 @@ object ArchiverFactory {
      * though the ZipFileSystem has data.
      */
         if (ZipHandles.has(path)) {
-            return ParseData(Types.ZIP, null)
+            return ParseData(Types.ZIP)
         }
         Files.newInputStream(path, StandardOpenOption.READ).use { rawInput ->
             // ZIP format header signature
@@ -150,7 +168,7 @@ object ArchiverFactory {
             if (header[0].toInt() == 0x50 && header[1].toInt() == 0x4b) {
                 log.trace("Detected zip")
                 if (header[2].toInt() == 0x03 && header[3].toInt() == 0x04) {
-                    return ParseData(Types.ZIP, null)
+                    return ParseData(Types.ZIP)
                 } else if (header[2].toInt() == 0x05 && header[3].toInt() == 0x06) {
                     throw BBNotifyException("Cannot open empty ZIP file")
                 } else if (header[2].toInt() == 0x07 && header[3].toInt() == 0x08) {
@@ -164,16 +182,21 @@ object ArchiverFactory {
         // not zip, try XML
         /*
          * NOTE: Do not use XMLStreamReader due to JDK-8153781 and exceptions loading
-         * some files that XOM can load
+         * some files that XOM can load. Only the root element is read here, the loader
+         * parses the document once through ParseData.doc
          */
         try {
-            return ParseData(Types.XML, FileLoader.loadXML(path))
+            val root = XMLRootSniffer.sniff(path)
+            if (root != null) {
+                return ParseData(Types.XML, root, path)
+            }
+            log.warn("File {} does not start with an XML root element", path)
         } catch (e: Exception) {
-            log.warn("Failed to load {} as an XML file", path, e)
+            log.warn("Failed to read {} as an XML file", path, e)
         }
 
         // not XML or zip or pandoc type, presumably regular text
-        return ParseData(Types.OTHER, null)
+        return ParseData(Types.OTHER)
     }
 
     private val supportedExtensions: Collection<String>
@@ -235,10 +258,32 @@ object ArchiverFactory {
         ZIP, XML, DOCX, EPUB, HTML, MD, ODT, TEX, OTHER
     }
 
-    class ParseData(val type: Types, val doc: Document?) {
+    /**
+     * @param root Root element of XML files, read without parsing the document
+     */
+    class ParseData @JvmOverloads constructor(
+        val type: Types,
+        val root: XMLRootSniffer.Root? = null,
+        private val xmlFile: Path? = null
+    ) {
+        /**
+         * The parsed XML document, loaded on first use so only the loader that accepts the
+         * file pays for the parse
+         */
+        val doc: Document?
+            get() = parsed.getOrThrow()
+
+        /**
+         * True if the file looked like XML but the document failed to parse
+         */
+        val isMalformed: Boolean
+            get() = xmlFile != null && generateSequence(parsed.exceptionOrNull()) { it.cause }
+                .any { it is ParsingException }
+
+        private val parsed: Result<Document?> by lazy { runCatching { xmlFile?.let { FileLoader.loadXML(it) } } }
 
         override fun toString(): String {
-            return "ParseData{type=$type, doc=$doc}"
+            return "ParseData{type=$type, root=${root?.qualifiedName}}"
         }
     }
 
@@ -28,12 +28,12 @@ class BBXArchiverLoader : ArchiverFactory.FileLoader {
 
     @Throws(Exception::class)
     override fun tryLoad(file: Path, fileData: ArchiverFactory.ParseData): Archiver2? {
-        val rootName = fileData.doc!!.rootElement.localName
+        val rootName = fileData.root!!.localName
         return if (rootName == BBX.DOCUMENT_ROOT_NAME) {
             log.debug("Detected BBX")
             val arch: Archiver2 = BBZArchiver.createImportedBBZ(
                 file,
-                fileData.doc
+                fileData.doc!!
             )
             var fileStr = file.fileName.toString()
             if (fileStr.lowercase(Locale.getDefault()).endsWith(".bbx")) {
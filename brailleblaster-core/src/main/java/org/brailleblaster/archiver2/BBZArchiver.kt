@@ -149,10 +149,15 @@ class BBZArchiver(
         if (options.contains(BBZSaveOptions.IncludeBRF)) {
             val brfPath = destZipFS.getPath("/document.brf")
             try {
-                Files.newBufferedWriter(
+                Files.newByteChannel(
                     brfPath, StandardOpenOption.CREATE,
                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
-                ).use { writer -> engine.toBRF(doc, writer, BRFWriter.OPTS_DEFAULT, BRFWriter.EMPTY_PAGE_LISTENER) }
+                ).use { channel ->
+                    engine.toBRF(
+                        doc, channel, BRFWriter.OPTS_DEFAULT, BRFWriter.EMPTY_PAGE_LISTENER,
+                        convertLineEndings = false, convertToBrfChars = false
+                    )
+                }
             } catch (e: IOException) {
                 throw RuntimeException("Failed to create and insert the BRF into the BBZ.", e)
             }
@@ -28,11 +28,11 @@ object NimasFileArchiverLoader : ArchiverFactory.FileLoader {
 
     @Throws(Exception::class)
     override fun tryLoad(file: Path, fileData: ArchiverFactory.ParseData): Archiver2? {
-        val rootName = fileData.doc!!.rootElement.localName
+        val rootName = fileData.root!!.localName
         return if (rootName == "dtbook") {
             val archiver: Archiver2 = BBZArchiver.createImportedBBZ(
                 file,
-                convert(file, "nimas")
+                convert(file, fileData.doc, "nimas")
             )
             // Set the recommended save as new file name
             var fileStr = file.toString()
@@ -24,6 +24,7 @@ import org.brailleblaster.archiver2.OPFUtils.getManifestItems
 import org.brailleblaster.archiver2.ZipHandles.open
 import org.brailleblaster.utd.exceptions.NodeException
 import org.brailleblaster.utd.internal.xml.XMLHandler
+import org.brailleblaster.utd.internal.xml.XMLRootSniffer
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import java.nio.file.Files
@@ -93,7 +94,7 @@ class NimasZipArchiverLoader : ArchiverFactory.FileLoader {
                     .filter { curPath: Path? -> curPath!!.fileName.toString().endsWith(".xml") }
                     .filter { curPath: Path ->
                         try {
-                            return@filter XMLHandler().load(curPath).rootElement.localName == "dtbook"
+                            return@filter XMLRootSniffer.sniff(curPath)?.localName == "dtbook"
                         } catch (e: Exception) {
                             log.warn("Failed to detect xml root element of {}", curPath, e)
                             return@filter false
@@ -20,6 +20,7 @@ import org.brailleblaster.pandoc.FixImage
 import org.brailleblaster.pandoc.FixMathML
 import org.brailleblaster.pandoc.FixNestedList
 import org.brailleblaster.pandoc.Fixer
+import org.brailleblaster.pandoc.PandocCache
 import org.brailleblaster.util.PANDOC_CMD
 import org.slf4j.LoggerFactory
 import java.io.*
@@ -107,48 +108,55 @@ object PandocArchiverLoader : ArchiverFactory.FileLoader {
                 command.add("--lua-filter=list-paragraph-style.lua")
             }
 
-            command.addAll(
-                listOf(
-                    "--to=bbx.lua",
-                    "--output=" + bbFile.absolutePath,
-                    filename
+            // Re-importing an unchanged file reuses the previous pandoc output
+            val cacheKey = try {
+                PandocCache.key(Paths.get(filename), command.drop(1), wrkDir.toPath())
+            } catch (e: IOException) {
+                log.warn("Unable to hash {} for the pandoc cache", filename, e)
+                null
+            }
+            if (cacheKey == null || !PandocCache.get(cacheKey, bbFile.toPath())) {
+                command.addAll(
+                    listOf(
+                        "--to=bbx.lua",
+                        "--output=" + bbFile.absolutePath,
+                        filename
+                    )
                 )
-            )
 
-            val pb = ProcessBuilder(command)
-                .directory(wrkDir)
-                .redirectError(ProcessBuilder.Redirect.INHERIT)
-                .redirectErrorStream(true)
-                .redirectOutput(outFile)
-            pb.environment()["PANDOCCMD"] = PANDOC_CMD
-            log.debug(
-                """
-                    ***** PandocArchiverLoader *****
-                    ${pb.command()}
+                val pb = ProcessBuilder(command)
+                    .directory(wrkDir)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .redirectErrorStream(true)
+                    .redirectOutput(outFile)
+                pb.environment()["PANDOCCMD"] = PANDOC_CMD
+                log.debug(
+                    """
+                        ***** PandocArchiverLoader *****
+                        ${pb.command()}
                     
-                    input file:$filename
-                    output file:$newFilename
+                        input file:$filename
+                        output file:$newFilename
                     
-                    ********************************
-                """.trimIndent()
-            )
-            val proc = pb.start()
-            val status = proc.waitFor()
-            log.debug("***** pandoc done *****\n")
-            //  if the status is not 0 then make sure the process is gone
-            if (status != 0) {
-                log.error("pandocImport: unable to import file:$filename, pandoc gave exit code $status")
-                proc.destroyForcibly()
-                throw Exception("pandocImport: unable to import file:$filename")
+                        ********************************
+                    """.trimIndent()
+                )
+                val proc = pb.start()
+                val status = proc.waitFor()
+                log.debug("***** pandoc done *****\n")
+                //  if the status is not 0 then make sure the process is gone
+                if (status != 0) {
+                    log.error("pandocImport: unable to import file:$filename, pandoc gave exit code $status")
+                    proc.destroyForcibly()
+                    throw Exception("pandocImport: unable to import file:$filename")
+                }
+                cacheKey?.let { PandocCache.put(it, bbFile.toPath()) }
             }
             // run fixers on the document
-            val fixNestedList = FixNestedList()
-            val fixImage = FixImage()
-            val fixMath = FixMathML()
             val fixer = Fixer(newFilename)
-            fixer.addFixer(fixMath)
-            fixer.addFixer(fixNestedList)
-            fixer.addFixer(fixImage)
+            fixer.addFixer(FixMathML())
+            fixer.addFixer(FixNestedList())
+            fixer.addFixer(FixImage())
             fixer.processFixers()
         } catch (ex: Exception) {
             val strWriter = StringWriter()
@@ -21,10 +21,11 @@ import nu.xom.Text
 import org.brailleblaster.BBIni
 import org.brailleblaster.bbx.BBX
 import org.slf4j.LoggerFactory
+import java.io.Reader
+import java.nio.file.Files
 import java.nio.file.Path
 import java.nio.file.Paths
 import java.util.*
-import kotlin.io.path.readLines
 
 open class TextArchiveLoader : ArchiverFactory.FileLoader {
     @Throws(Exception::class)
@@ -32,12 +33,17 @@ open class TextArchiveLoader : ArchiverFactory.FileLoader {
         val bbxDoc = BBX.newDocument()
         val root = BBX.SECTION.ROOT.create()
         bbxDoc.rootElement.appendChild(root)
-        file.readLines(BBIni.charset).flatMap { it.split('\u000c') }.filter { it.isNotBlank() }
-            .mapNotNull { getUsableText(it) }.fold(root) { r, v ->
-            r.also {
-                it.appendChild(createBlock(v))
+        val startTime = System.currentTimeMillis()
+        val blocks = Files.newBufferedReader(file, BBIni.charset).use { reader ->
+            var nextReport = PROGRESS_INTERVAL
+            appendBlocks(reader, root) { charsRead ->
+                if (charsRead >= nextReport) {
+                    log.debug("Imported {} chars of {}", charsRead, file)
+                    nextReport = charsRead + PROGRESS_INTERVAL
+                }
             }
         }
+        log.info("Imported {} blocks from {} in {} ms", blocks, file, System.currentTimeMillis() - startTime)
         val archiver: Archiver2 = BBZArchiver.createImportedBBZ(file, bbxDoc)
         var fileStr = file.toString()
         fileStr =
@@ -46,6 +52,55 @@ open class TextArchiveLoader : ArchiverFactory.FileLoader {
         return archiver
     }
 
+    /**
+     * Read paragraphs from the reader a chunk at a time, appending a block to root for each
+     * non-blank line or form feed separated part of a line.
+     *
+     * Only the current chunk and paragraph are held besides the appended blocks.
+     *
+     * @param progress called after each chunk with the total number of chars read
+     * @return number of blocks appended
+     */
+    @JvmOverloads
+    fun appendBlocks(reader: Reader, root: Element, progress: ((Long) -> Unit)? = null): Int {
+        val buffer = CharArray(CHUNK_SIZE)
+        val paragraph = StringBuilder()
+        var charsRead = 0L
+        var blocks = 0
+
+        fun endParagraph() {
+            if (paragraph.isNotBlank()) {
+                getUsableText(paragraph.toString())?.let {
+                    root.appendChild(createBlock(it))
+                    blocks++
+                }
+            }
+            paragraph.setLength(0)
+        }
+
+        while (true) {
+            val read = reader.read(buffer)
+            if (read < 0) {
+                break
+            }
+            var start = 0
+            for (i in 0 until read) {
+                val c = buffer[i]
+                // \r\n ends a paragraph at \r, the \n then ends an empty one which is skipped
+                if (c == '\n' || c == '\r' || c == FORM_FEED) {
+                    paragraph.append(buffer, start, i - start)
+                    endParagraph()
+                    start = i + 1
+                }
+            }
+            paragraph.append(buffer, start, read - start)
+            charsRead += read
+            progress?.invoke(charsRead)
+        }
+        endParagraph()
+        return blocks
+    }
+
     /**
      * Overridable callback
      *
@@ -62,6 +117,8 @@ open class TextArchiveLoader : ArchiverFactory.FileLoader {
         private val log = LoggerFactory.getLogger(TextArchiveLoader::class.java)
         val INSTANCE = TextArchiveLoader()
         const val FORM_FEED = 0x0c.toChar()
+        private const val CHUNK_SIZE = 8192
+        private const val PROGRESS_INTERVAL = 1024L * 1024
 
         /**
          * Get string usable for XML 1.0
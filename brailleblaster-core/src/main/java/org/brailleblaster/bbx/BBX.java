@@ -19,7 +19,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -242,6 +244,32 @@ public static int getFormatVersion(@NonNull Document doc) {
         _ATTRIB_TYPE.set(elem, destType.name);
     }
 
+    /**
+     * Replace the parsed bb:type value of a BBX element with the name of its subtype,
+     * so {@link SubType#isA(Node)} matches by reference instead of comparing characters
+     *
+     * @return true if the value was replaced
+     */
+    public static boolean internType(@NonNull Node node) {
+        if (!(node instanceof Element elem)) {
+            return false;
+        }
+        CoreType coreType = getTypeOrNull(elem);
+        if (coreType == null || !NamespacesKt.BB_NS.equals(elem.getNamespaceURI())) {
+            return false;
+        }
+        Attribute typeAttrib = elem.getAttribute(_ATTRIB_TYPE.name, NamespacesKt.BB_NS);
+        if (typeAttrib == null) {
+            return false;
+        }
+        SubType subType = coreType.getSubTypeOrNull(typeAttrib.getValue());
+        if (subType == null || typeAttrib.getValue() == subType.name) {
+            return false;
+        }
+        typeAttrib.setValue(subType.name);
+        return true;
+    }
+
     // ----------------- Definitions -------------------------
     public static final @NonNull SectionElement SECTION = new SectionElement();
 
@@ -1324,8 +1352,9 @@ public static final @NonNull BlockElement BLOCK = new BlockElement();
     }
 
     public static @Nullable CoreType getTypeOrNull(@NonNull Element elem) {
+        String localName = elem.getLocalName();
         for (CoreType coreType : CORE_TYPES) {
-            if (coreType.name.equals(elem.getLocalName())) {
+            if (coreType.name.equals(localName)) {
                 return coreType;
             }
         }
@@ -1375,6 +1404,7 @@ public static final @NonNull BlockElement BLOCK = new BlockElement();
         // So this workaround was used so getSubType works, is performant, can
         // still use final, just a bit more verbose
         protected List<@NonNull SubType> subTypes;
+        private volatile Map<String, SubType> subTypesByName;
 
         public CoreType(String name, boolean textChildrenValid) {
             if (StringUtils.isBlank(name)) {
@@ -1387,21 +1417,49 @@ public static final @NonNull BlockElement BLOCK = new BlockElement();
         public abstract boolean isValidChild(CoreType child);
 
         public SubType getSubType(Node sectionNode) {
-            assertIsA(sectionNode);
+            if (!isA(sectionNode)) {
+                assertIsA(sectionNode);
+            }
 
             String subtypeName = _ATTRIB_TYPE.get((Element) sectionNode);
-            for (SubType subType : subTypes) {
-                if (subType.name.equals(subtypeName)) {
-                    return subType;
+            SubType subType = getSubTypeOrNull(subtypeName);
+            if (subType == null) {
+                throw new NodeException("Missing subtype " + subtypeName + " for", sectionNode);
+            }
+            return subType;
+        }
+
+        public @Nullable SubType getSubTypeOrNull(String subtypeName) {
+            Map<String, SubType> byName = subTypesByName;
+            if (byName == null) {
+                // subTypes is only set at the end of the subclass constructor
+                byName = new HashMap<>();
+                for (SubType subType : subTypes) {
+                    byName.putIfAbsent(subType.name, subType);
                 }
+                subTypesByName = byName;
             }
-            throw new NodeException("Missing subtype " + subtypeName + " for", sectionNode);
+            return byName.get(subtypeName);
         }
 
         public List<@NonNull SubType> getSubTypes() {
             return subTypes;
         }
 
+        /**
+         * Same result as {@link #validate(Node)} but without building the failure message
+         */
+        @Override
+        public boolean isA(Node node) {
+            if (node == null) {
+                throw new NullPointerException("node");
+            }
+            // Local name first as it rejects most elements
+            return node instanceof Element element
+                    && name.equals(element.getLocalName())
+                    && NamespacesKt.BB_NS.equals(element.getNamespaceURI());
+        }
+
         @Override
         public final String validate(Node node) {
             if (node == null) {
@@ -1485,7 +1543,15 @@ public static final @NonNull BlockElement BLOCK = new BlockElement();
 
         @Override
         public boolean isA(Node node) {
-            return coreType.isA(node) && this.name.equals(_ATTRIB_TYPE.get((Element) node));
+            if (!coreType.isA(node)) {
+                return false;
+            }
+            String nodeType = ((Element) node).getAttributeValue(_ATTRIB_TYPE.name, NamespacesKt.BB_NS);
+            if (nodeType == null) {
+                throw new NodeException("Cannot find attribute " + _ATTRIB_TYPE.name, node);
+            }
+            // Values set by BBX or BBX.internType are this name, which equals checks first
+            return name.equals(nodeType);
         }
 
         @Override
@@ -24,7 +24,7 @@ import org.brailleblaster.bbx.fixers.ImportFixerMap
 import org.brailleblaster.bbx.fixers2.BBXTo4Upgrader
 import org.brailleblaster.bbx.fixers2.BBXTo5Upgrader
 import org.brailleblaster.bbx.fixers2.BBXTo6Upgrader
-import org.brailleblaster.bbx.fixers2.LiveFixer.fix
+import org.brailleblaster.bbx.fixers2.BBXUpgradePipeline
 import org.brailleblaster.bbx.parsers.ImportParser.OldDocumentAction
 import org.brailleblaster.bbx.parsers.ImportParserMap
 import org.brailleblaster.document.BBDocument
@@ -263,30 +263,34 @@ class BookToBBXConverter(
                 log.info("BBX version {} is up to date", formatVersion)
             }
             val styleDefs = loadStyleDefinitions(preferredFormatStandard)
+            val pipeline = BBXUpgradePipeline()
+            // First so the type checks of later visitors match by reference
+            pipeline.onNode("intern bb:type") { BBX.internType(it) }
             if (formatVersion < 3) {
                 log.info("Upgrading BBX format from 2 to 3")
-                BookToBBXConverter(
-                    null,
-                    ImportFixerMap.load(BBIni.loadAutoProgramDataFile("utd", "bbx2to3.fixerMap.xml")),
-                    styleDefs
-                ).doUpgrade(doc, "Upgrade from 2 to 3", 3)
+                pipeline.beforeWalk("upgrade from 2 to 3") {
+                    BookToBBXConverter(
+                        null,
+                        ImportFixerMap.load(BBIni.loadAutoProgramDataFile("utd", "bbx2to3.fixerMap.xml")),
+                        styleDefs
+                    ).doUpgrade(doc, "Upgrade from 2 to 3", 3)
+                }
             }
             if (formatVersion < 4) {
                 log.info("Upgrading BBX format from 3 to 4")
-                BBXTo4Upgrader.upgrade(doc)
+                BBXTo4Upgrader.register(pipeline, doc)
             }
             if (formatVersion < 5) {
                 log.info("Upgrading BBX format from 4 to 5")
-                BBXTo5Upgrader.upgrade(doc)
+                BBXTo5Upgrader.register(pipeline, doc)
             }
             if (formatVersion < 6) {
                 log.info("Upgrading BBX format from 5 to 6")
-                BBXTo6Upgrader.upgrade(doc)
+                BBXTo6Upgrader.register(pipeline, doc)
             }
-            log.info("Running LiveFixer, final upgrade")
-            fix(BBX.getRoot(doc))
-
-            BBXValidator.validateDocument(doc, styleDefs)
+            // LiveFixer always runs as the final upgrade
+            pipeline.afterLiveFixer("validate") { BBXValidator.validateDocument(doc, styleDefs) }
+            pipeline.run(doc)
         }
 
         private fun matchDescendantRecursive(root: Element, matcher: INodeMatcher, namespaceMap: NamespaceMap): Node? {
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.bbx
+
+import nu.xom.Document
+import nu.xom.Element
+import org.brailleblaster.bbx.BBX.PreFormatterMarker
+import org.brailleblaster.bbx.BBX.PreFormatterMarker.ATTRIB_PRE_FORMATTER_MARKER
+import org.brailleblaster.utd.internal.xml.FastXPath
+import java.util.Collections
+import java.util.IdentityHashMap
+
+/**
+ * Elements given a [PreFormatterMarker] since markers were last cleared, so clearing them before
+ * the next translation does not walk the whole document.
+ *
+ * The first clear of a document it has not seen, eg a newly opened document or one replaced by
+ * undo, still scans the document as it may contain markers that were never registered.
+ */
+class PreFormatterMarkerRegistry {
+    private val marked: MutableSet<Element> = Collections.newSetFromMap(IdentityHashMap())
+    private var document: Document? = null
+
+    fun mark(element: Element, marker: PreFormatterMarker) {
+        ATTRIB_PRE_FORMATTER_MARKER[element] = marker
+        marked.add(element)
+    }
+
+    /**
+     * Register an element that got its marker elsewhere, eg copied from a marked element
+     */
+    fun track(element: Element) {
+        if (ATTRIB_PRE_FORMATTER_MARKER.has(element)) {
+            marked.add(element)
+        }
+    }
+
+    /**
+     * Remove every marker in the document
+     *
+     * @return number of markers removed
+     */
+    fun clear(doc: Document): Int {
+        val candidates: Iterable<Element> = if (doc !== document) {
+            document = doc
+            FastXPath.descendant(doc).filterIsInstance<Element>().asIterable()
+        } else {
+            marked
+        }
+        var cleared = 0
+        for (element in candidates) {
+            if (ATTRIB_PRE_FORMATTER_MARKER.has(element)) {
+                ATTRIB_PRE_FORMATTER_MARKER.detach(element)
+                cleared++
+            }
+        }
+        marked.clear()
+        return cleared
+    }
+}
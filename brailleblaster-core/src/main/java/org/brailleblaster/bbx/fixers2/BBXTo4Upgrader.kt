@@ -22,46 +22,50 @@ import org.brailleblaster.bbx.BBX.SubType
 import org.brailleblaster.perspectives.braille.searcher.Searcher
 import org.brailleblaster.utd.IStyle
 import org.brailleblaster.utd.exceptions.NodeException
-import org.brailleblaster.utd.internal.xml.FastXPath
 import org.brailleblaster.utd.internal.xml.XMLHandler
 
 object BBXTo4Upgrader {
-    fun upgrade(doc: Document) {
+    fun register(pipeline: BBXUpgradePipeline, doc: Document) {
         if (BBX.getFormatVersion(doc) != 4) {
-            fixStyleExtend(doc)
-            fixPageSpanInBlockIssue5975(doc)
+            pipeline.onNode("fixStyleExtend") {
+                if (it is Element && Searcher.Filters.noUTDAncestor(it)) {
+                    fixStyleExtend(it)
+                }
+            }
+            val pageSpans = ArrayList<Element>()
+            pipeline.onNode("findPageSpans") {
+                if (BBX.SPAN.PAGE_NUM.isA(it)) {
+                    pageSpans.add(it as Element)
+                }
+            }
+            pipeline.afterWalk("fixPageSpanInBlockIssue5975") { fixPageSpanInBlockIssue5975(pageSpans) }
         }
-        BBX.setFormatVersion(doc, 4)
+        pipeline.afterWalk("format version 4") { BBX.setFormatVersion(doc, 4) }
     }
 
     /**
      * Issue #6032
      */
-    private fun fixStyleExtend(doc: Document?) {
-        FastXPath.descendant(doc)
-            .filterIsInstance<Element>()
-            .filter { Searcher.Filters.noUTDAncestor(it) }
-            .forEach {
-                val origStyle = ImportFixerCommon.UTD_ENGINE.getStyle(it)
-                    ?: ImportFixerCommon.UTD_ENGINE.styleDefinitions.defaultStyle!!
-                if (BBX._ATTRIB_OVERRIDE_STYLE.has(it)) {
-                    val overrideAttrib = BBX._ATTRIB_OVERRIDE_STYLE.detach(it)
-                    val newStyle = ImportFixerCommon.UTD_ENGINE.getStyle(it)
-                    if (newStyle == null || newStyle != origStyle) {
-                        val coreType = BBX.getType(it)
-                        val oldType = coreType.getSubType(it)
-                        val newType = fixStyleExtendFindSubtypeWithStyle(oldType, origStyle, it)
-                        if (newType == null) {
-                            // skip, re-adding old attribute
-                            //			log.debug("skip, re-adding old attribute");
-                            BBX.transform(it, oldType)
-                            it.addAttribute(overrideAttrib)
-                        } else {
-                            BBX.transform(it, newType)
-                        }
-                    }
+    private fun fixStyleExtend(elem: Element) {
+        val origStyle = ImportFixerCommon.UTD_ENGINE.getStyle(elem)
+            ?: ImportFixerCommon.UTD_ENGINE.styleDefinitions.defaultStyle!!
+        if (BBX._ATTRIB_OVERRIDE_STYLE.has(elem)) {
+            val overrideAttrib = BBX._ATTRIB_OVERRIDE_STYLE.detach(elem)
+            val newStyle = ImportFixerCommon.UTD_ENGINE.getStyle(elem)
+            if (newStyle == null || newStyle != origStyle) {
+                val coreType = BBX.getType(elem)
+                val oldType = coreType.getSubType(elem)
+                val newType = fixStyleExtendFindSubtypeWithStyle(oldType, origStyle, elem)
+                if (newType == null) {
+                    // skip, re-adding old attribute
+                    //			log.debug("skip, re-adding old attribute");
+                    BBX.transform(elem, oldType)
+                    elem.addAttribute(overrideAttrib)
+                } else {
+                    BBX.transform(elem, newType)
                 }
             }
+        }
     }
 
     private fun fixStyleExtendFindSubtypeWithStyle(oldType: SubType, origStyle: IStyle, elem: Element): SubType? {
@@ -91,10 +95,8 @@ object BBXTo4Upgrader {
         return newType
     }
 
-    private fun fixPageSpanInBlockIssue5975(doc: Document?) {
-        FastXPath.descendant(doc)
-            .filter { node -> BBX.SPAN.PAGE_NUM.isA(node) }
-            .map { node -> Searcher.Mappers.toElement(node) }
+    private fun fixPageSpanInBlockIssue5975(pageSpans: List<Element>) {
+        pageSpans
             .filter { curPage -> curPage.parent.childCount == 1 }
             .forEach { curPage ->
                 val ancestorBlock =
@@ -105,4 +107,4 @@ object BBXTo4Upgrader {
                 XMLHandler.unwrapElement(curPage)
             }
     }
-}
\ No newline at end of file
+}
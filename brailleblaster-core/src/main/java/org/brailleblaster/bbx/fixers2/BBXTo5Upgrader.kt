@@ -22,38 +22,44 @@ import org.brailleblaster.bbx.BBX
 import org.brailleblaster.bbx.fixers.TableImportFixer
 import org.brailleblaster.bbx.fixers.TableImportFixer.Companion.detectTableTypeUntranslated
 import org.brailleblaster.utd.config.DocumentUTDConfig
-import org.brailleblaster.utd.internal.xml.FastXPath
 import org.brailleblaster.utd.utils.TableUtils
 
 object BBXTo5Upgrader {
-    fun upgrade(doc: Document) {
-        tableCleanup(doc)
-        BBX.setFormatVersion(doc, 5)
+    fun register(pipeline: BBXUpgradePipeline, doc: Document) {
+        // this is Expensive, only run once
+        if (BBX.getFormatVersion(doc) != 5) {
+            val tables = ArrayList<Element>()
+            pipeline.onNode("findTables") {
+                if (BBX.CONTAINER.TABLE.isA(it)) {
+                    tables.add(it as Element)
+                }
+            }
+            pipeline.afterWalk("remove tableCleanup6163") {
+                // Remove old ugly way
+                DocumentUTDConfig.NIMAS.getConfigElement(doc, "tableCleanup6163")?.detach()
+            }
+            pipeline.afterLiveFixer("tableCleanup") { tableCleanup(tables) }
+        }
+        pipeline.afterWalk("format version 5") { BBX.setFormatVersion(doc, 5) }
     }
 
     /**
-     * Issue #6163: Tables were mangled by LiveFixer
-     * @param doc
+     * Issue #6163: Tables were mangled by LiveFixer, runs after the LiveFixer potentially mangled
+     * the document
+     *
+     * @param tables all tables in the document before the LiveFixer
      */
-    private fun tableCleanup(doc: Document) {
-        if (BBX.getFormatVersion(doc) == 5) {
-            // this is Expensive, only run once
-            return
+    private fun tableCleanup(tables: List<Element>) {
+        val stripped = ArrayList<Node>()
+        for (table in tables) {
+            if (table.document == null || detectTableTypeUntranslated(table) != TableUtils.TableTypes.NONTABLE) {
+                continue
+            }
+            val parent = table.parent
+            TableImportFixer.stripTable(table)
+            stripped.add(parent)
         }
-
-        // Remove old ugly way
-        val oldCleanupElem = DocumentUTDConfig.NIMAS.getConfigElement(doc, "tableCleanup6163")
-        oldCleanupElem?.detach()
-
-        // Let the LiveFixer potentially mangle the document
-        LiveFixer.fix(BBX.getRoot(doc))
-        FastXPath.descendant(doc)
-            .filter { node: Node? -> BBX.CONTAINER.TABLE.isA(node) }
-            .map { node: Node? -> node as Element }
-            .filter { table ->
-                detectTableTypeUntranslated(
-                    table
-                ) == TableUtils.TableTypes.NONTABLE
-            }.forEach { TableImportFixer.stripTable(it) }
+        // The rest of the document was already fixed
+        LiveFixer.fixChanged(stripped)
     }
-}
\ No newline at end of file
+}
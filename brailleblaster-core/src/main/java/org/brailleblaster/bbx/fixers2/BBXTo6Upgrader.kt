@@ -18,23 +18,23 @@ package org.brailleblaster.bbx.fixers2
 import nu.xom.Document
 import nu.xom.Text
 import org.brailleblaster.bbx.BBX
-import org.brailleblaster.utd.internal.xml.FastXPath
 
 object BBXTo6Upgrader {
-	fun upgrade(doc: Document) {
-        tabCleanup(doc)
-        BBX.setFormatVersion(doc, 6)
+	fun register(pipeline: BBXUpgradePipeline, doc: Document) {
+        pipeline.onNode("tabCleanup") {
+            if (it is Text) {
+                tabCleanup(it)
+            }
+        }
+        pipeline.afterWalk("format version 6") { BBX.setFormatVersion(doc, 6) }
     }
 
     /**
      * Issue #6629: Tabs may mangle physical embosser output
-     *
-     * @param doc
      */
-    private fun tabCleanup(doc: Document) {
-        FastXPath.descendant(doc)
-            .filterIsInstance<Text>()
-            .filter { text: Text -> text.value.contains("\t") }
-            .forEach { text: Text -> text.value = text.value.replace('\t',' ') }
+    private fun tabCleanup(text: Text) {
+        if (text.value.contains("\t")) {
+            text.value = text.value.replace('\t', ' ')
+        }
     }
-}
\ No newline at end of file
+}
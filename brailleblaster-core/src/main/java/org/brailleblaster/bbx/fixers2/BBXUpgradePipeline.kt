@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.bbx.fixers2
+
+import nu.xom.Document
+import nu.xom.Node
+import org.brailleblaster.bbx.BBX
+import org.brailleblaster.utd.internal.xml.FastXPath
+import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
+
+/**
+ * Upgrade an older BBX document in as few walks of the document as the upgrades allow.
+ *
+ * Upgraders register node visitors, which all run in a single walk, and whole document stages
+ * which run in registration order either before the walk, after the walk or after the
+ * [LiveFixer]. Visitors may change text and attributes but not the tree, collect nodes in the
+ * walk and change them in a later stage. The time of each stage is logged and kept in [timings].
+ */
+class BBXUpgradePipeline {
+    fun interface NodeVisitor {
+        fun visit(node: Node)
+    }
+
+    private class Stage(val name: String, val action: () -> Unit)
+
+    private val beforeWalk = ArrayList<Stage>()
+    private val visitorNames = ArrayList<String>()
+    private val visitors = ArrayList<NodeVisitor>()
+    private val afterWalk = ArrayList<Stage>()
+    private val afterLiveFixer = ArrayList<Stage>()
+
+    /**
+     * Nanoseconds taken by each stage of the last run
+     */
+    val timings = LinkedHashMap<String, Long>()
+
+    fun beforeWalk(name: String, action: () -> Unit) {
+        beforeWalk.add(Stage(name, action))
+    }
+
+    fun onNode(name: String, visitor: NodeVisitor) {
+        visitorNames.add(name)
+        visitors.add(visitor)
+    }
+
+    fun afterWalk(name: String, action: () -> Unit) {
+        afterWalk.add(Stage(name, action))
+    }
+
+    fun afterLiveFixer(name: String, action: () -> Unit) {
+        afterLiveFixer.add(Stage(name, action))
+    }
+
+    fun run(doc: Document) {
+        timings.clear()
+        beforeWalk.forEach { timed(it.name, it.action) }
+        if (visitors.isNotEmpty()) {
+            timed("walk " + visitorNames.joinToString()) {
+                for (node in FastXPath.descendant(doc)) {
+                    for (visitor in visitors) {
+                        visitor.visit(node)
+                    }
+                }
+            }
+        }
+        afterWalk.forEach { timed(it.name, it.action) }
+        timed("LiveFixer") { LiveFixer.fix(BBX.getRoot(doc)) }
+        afterLiveFixer.forEach { timed(it.name, it.action) }
+    }
+
+    private fun timed(name: String, action: () -> Unit) {
+        val start = System.nanoTime()
+        action()
+        val nanos = System.nanoTime() - start
+        timings[name] = nanos
+        log.info("Upgrade stage {} took {} ms", name, TimeUnit.NANOSECONDS.toMillis(nanos))
+    }
+
+    companion object {
+        private val log = LoggerFactory.getLogger(BBXUpgradePipeline::class.java)
+    }
+}
@@ -40,8 +40,16 @@ object ImportFixerCommon {
 
     @SafeVarargs
     fun applyToDescendantBlocks(root: Element?, vararg onBlock: ApplyToDescendantBlocks) {
+        applyToBlocks(FastXPath.descendant(root), *onBlock)
+    }
+
+    /**
+     * Same as [applyToDescendantBlocks] for the blocks in nodes
+     */
+    @SafeVarargs
+    fun applyToBlocks(nodes: Sequence<Node>, vararg onBlock: ApplyToDescendantBlocks) {
         val nodesToDetach: MutableList<Node> = mutableListOf()
-        for (descendantNode in FastXPath.descendant(root)) {
+        for (descendantNode in nodes) {
             if (BBX.BLOCK.isA(descendantNode)) {
                 val textChildren = FastXPath.descendant(descendantNode)
                     .filterIsInstance<Text>()
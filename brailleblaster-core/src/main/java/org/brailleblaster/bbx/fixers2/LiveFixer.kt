@@ -19,6 +19,7 @@ import nu.xom.Element
 import nu.xom.Node
 import nu.xom.Text
 import org.brailleblaster.bbx.BBX
+import org.brailleblaster.utd.internal.DocumentOrderKeys
 import org.brailleblaster.utd.internal.xml.FastXPath
 import org.brailleblaster.utd.internal.xml.XMLHandler
 import org.brailleblaster.util.PILCROW
@@ -28,16 +29,67 @@ import org.brailleblaster.util.PILCROW
  */
 object LiveFixer {
     const val NEWPAGE_PLACEHOLDER_ATTRIB = "newPagePlaceholder"
+    private val BLOCK_FIXES = arrayOf(
+        ImportFixerCommon.ApplyToDescendantBlocks(::detachEmptyBlocks),
+        ImportFixerCommon.ApplyToDescendantBlocks(::trimBlockText),
+        ImportFixerCommon.ApplyToDescendantBlocks(::cleanupNewPagePlaceholder),
+        ImportFixerCommon.ApplyToDescendantBlocks(::detachEmptyTextNodes)
+    )
+
     @JvmStatic
 	fun fix(root: Element) {
-        ImportFixerCommon.applyToDescendantBlocks(
-            root,
-            ::detachEmptyBlocks,
-            ::trimBlockText,
-            ::cleanupNewPagePlaceholder,
-            ::detachEmptyTextNodes
-        )
-        removeEmptyContainers(root)
+        val containers = FastXPath.descendant(root).filterIsInstance<Element>().filter { BBX.CONTAINER.isA(it) }.toList()
+        ImportFixerCommon.applyToDescendantBlocks(root, *BLOCK_FIXES)
+        removeEmptyContainers(containers, root)
+    }
+
+    /**
+     * Fix only around the changed nodes: the outermost block containing each node, or every block
+     * under it when it is not in a block, then containers left empty there or up the container
+     * chain.
+     *
+     * Fixing is idempotent, so when the rest of the section has not changed since it was last
+     * fixed this gives the same result as [fix] on the section without visiting all of it.
+     */
+    @JvmStatic
+    fun fixChanged(changedNodes: Collection<Node>) {
+        // XOM nodes use identity equality
+        val regionSet = LinkedHashSet<Element>()
+        for (node in changedNodes) {
+            if (node.document != null) {
+                dirtyRegion(node)?.let { regionSet.add(it) }
+            }
+        }
+        // Nested regions are fixed as part of the outer region
+        val regions = regionSet.filter { region -> FastXPath.ancestor(region).none { it in regionSet } }.toMutableList()
+        if (regions.isEmpty()) {
+            return
+        }
+        DocumentOrderKeys.sortInDocumentOrder(regions)
+
+        // Before fixing blocks as an emptied region may be detached
+        val containers = LinkedHashSet<Element>()
+        for (region in regions) {
+            FastXPath.ancestor(region).filterTo(containers) { BBX.CONTAINER.isA(it) }
+            FastXPath.descendantOrSelf(region).filterIsInstance<Element>().filterTo(containers) { BBX.CONTAINER.isA(it) }
+        }
+        ImportFixerCommon.applyToBlocks(regions.asSequence().flatMap { FastXPath.descendantOrSelf(it) }, *BLOCK_FIXES)
+        removeEmptyContainers(containers, null)
+    }
+
+    /**
+     * @return outermost block containing the node, otherwise the node's element
+     */
+    private fun dirtyRegion(node: Node): Element? {
+        var region = node as? Element ?: node.parent as? Element
+        var cur: Node? = node
+        while (cur != null) {
+            if (BBX.BLOCK.isA(cur)) {
+                region = cur as Element
+            }
+            cur = cur.parent
+        }
+        return region
     }
 
     private fun detachEmptyBlocks(
@@ -135,17 +187,23 @@ object LiveFixer {
         }
     }
 
-    private fun removeEmptyContainers(root: Element) {
-        val toDetach = FastXPath.descendant(root)
-            .filter { node -> BBX.CONTAINER.isA(node) }
-            .filter { container ->
-                !BBX.CONTAINER.IMAGE.isA(container) && !BBX.CONTAINER.TPAGE_SECTION.isA(
-                    container
-                )
+    /**
+     * Detach empty containers, and their ancestor containers left empty, up to but excluding root
+     */
+    private fun removeEmptyContainers(containers: Collection<Element>, root: Element?) {
+        for (candidate in containers) {
+            var container: Element = candidate
+            while (container !== root && isRemovableEmptyContainer(container)) {
+                val parent = container.parent
+                container.detach()
+                container = parent as? Element ?: break
             }
-            .filter { container -> container.childCount == 0 }
-        for (node in toDetach) {
-            node.detach()
         }
     }
-}
\ No newline at end of file
+
+    private fun isRemovableEmptyContainer(node: Element): Boolean =
+        node.childCount == 0
+                && BBX.CONTAINER.isA(node)
+                && !BBX.CONTAINER.IMAGE.isA(node)
+                && !BBX.CONTAINER.TPAGE_SECTION.isA(node)
+}
@@ -52,6 +52,7 @@ import org.brailleblaster.utd.Style
 import org.brailleblaster.utd.exceptions.NodeException
 import org.brailleblaster.utd.internal.xml.FastXPath
 import org.brailleblaster.utd.internal.xml.XMLHandler
+import org.brailleblaster.utd.properties.UTDElements
 import org.brailleblaster.utd.toc.TOCAttributes
 import org.brailleblaster.utd.toc.TOCAttributes.Companion.removeAll
 import org.brailleblaster.utils.xom.childNodes
@@ -114,6 +115,9 @@ class TOCBuilderBBX(private var manager: Manager) : CheckMenuTool, MenuToolModul
         getInstance().buildToolBar()
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(BuildMenuEvent::class.java, BuildToolBarEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent && DebugModule.enabled) {
             this.manager = event.manager.manager
@@ -1065,53 +1069,15 @@ class TOCBuilderBBX(private var manager: Manager) : CheckMenuTool, MenuToolModul
 
         val modifiedElements: MutableList<Element> = ArrayList()
 
-        //Step 1: Strip all existing autogenerated TOC so search doesn't find them
-        //TODO: This is probably slow as all volume TOCs must be retranslated
-        val volumeTocContainers: MutableList<Element> = ArrayList()
-        for (curVolume: Element in volumes.dropLast(1)) {
-            val tocContainer: Element = getOrCreateTOC(curVolume)
-            tocContainer.removeChildren()
-            log.debug("toc container: {}",
-                XMLHandler.toXMLSimple(tocContainer)
-            )
-
-            volumeTocContainers.add(tocContainer)
-        }
-
-        //Step 2: Find all TOC elements
-        val volumeData: List<VolumeData> = getVolumeNames(volumes)
-        val volumeDataItr: Iterator<VolumeData> = volumeData.iterator()
-        var tocElements: List<Element> = FastXPath.descendantFindList(doc
-        ) { results: List<Element>, curNode: Node? ->
-            if (curNode !is Element) {
-                return@descendantFindList false
-            }
-            val curElem: Element = curNode
-
-            if (BBX.BLOCK.TOC_VOLUME_SPLIT.isA(curElem)) {
-                //Step 2.1: Update all TOC Volume Splits removing potential placeholder/out of date text
-                if (!volumeDataItr.hasNext()) {
-                    return@descendantFindList false
-                }
-
-                curElem.removeChildren()
-
-                // Issue #5468: Formats 2016 requires transcriber note indicators
-                // which are now added by wrapping the word in an transcriber note emphasis
-                curElem.appendChild(BBXUtils.wrapAsTransNote(volumeDataItr.next().nameLong))
-                modifiedElements.add(curElem)
-                return@descendantFindList true
-            }
-
-            if (TOCAttributes.TYPE.getAttribute(curElem) == null) {
-                return@descendantFindList false
-            }
-            !XMLHandler.ancestorElementIs(
-                curElem
-            ) { o: Element -> results.contains(o) }
-        }
+        //Step 1: Find all TOC elements, skipping the generated volume TOCs so they are left in
+        //place and only changed entries need to be retranslated
+        val volumeTocContainers: List<Element> = volumes.dropLast(1).map { getOrCreateTOC(it) }
+        val entries = TOCEntries(getVolumeNames(volumes).iterator())
+        collectTOCEntries(doc.rootElement, entries, false)
+        modifiedElements.addAll(entries.changedVolumeSplits)
+        var tocElements: List<Element> = entries.elements
 
-        //Step 3: Copy TOC entries to subsequent volumes
+        //Step 2: Copy TOC entries to subsequent volumes
         //Remove first volume's elements as they are not copied to the second volume
         tocElements.forEach(Consumer { tocElement: Element -> log.info("before toc element: {}", tocElement.toXML()) })
         tocElements = tocElements.subList(
@@ -1131,39 +1097,39 @@ class TOCBuilderBBX(private var manager: Manager) : CheckMenuTool, MenuToolModul
         })
         val tocItr: PeekingIterator<Element> = peekingIterator(tocElements.iterator())
 
-        for (i in volumes.indices) {
-            if (!tocItr.hasNext()) {
-                break
-            }
-
-            val tocContainer: Element = volumeTocContainers[i]
-            modifiedElements.add(tocContainer)
-            tocContainer.removeChildren()
-            log.info("toc {}", tocContainer.toXML())
-
-            //Also copy pagenum tags to retain origional print page
-            var previousPageNum: Element? = findAndAppendPrecedingPageNumber(tocItr.peek(), tocContainer, null)
-
-            //Copy volume split if exists or first element of volume if not due to TOCSplitsSize != VolumeSize
-            run {
-                val volumeSplit: Element = tocItr.next()
-                // Formats § 2.10.10 b
-                if (!BBX.BLOCK.TOC_VOLUME_SPLIT.isA(volumeSplit)) {
-                    tocContainer.appendChild(volumeSplit.copy())
+        for ((i, tocContainer) in volumeTocContainers.withIndex()) {
+            val volumeEntries: MutableList<Element> = ArrayList()
+            val lastContainer = i == volumeTocContainers.size - 1
+            var previousPageNum: Element? = null
+            while (tocItr.hasNext()) {
+                //Also copy pagenum tags to retain origional print page
+                previousPageNum = appendPrecedingPageNumber(tocItr.peek(), volumeEntries, previousPageNum, entries)
+
+                //Copy volume split if exists or first element of volume if not due to TOCSplitsSize != VolumeSize
+                run {
+                    val volumeSplit: Element = tocItr.next()
+                    // Formats § 2.10.10 b
+                    if (!BBX.BLOCK.TOC_VOLUME_SPLIT.isA(volumeSplit)) {
+                        volumeEntries.add(volumeSplit.copy())
+                    }
                 }
-            }
 
-            while (tocItr.hasNext() && !BBX.BLOCK.TOC_VOLUME_SPLIT.isA(tocItr.peek())) {
-                previousPageNum = findAndAppendPrecedingPageNumber(tocItr.peek(), tocContainer, previousPageNum)
-                val nextTOCEntry: Element = tocItr.next().copy()
-                tocContainer.appendChild(nextTOCEntry)
+                while (tocItr.hasNext() && !BBX.BLOCK.TOC_VOLUME_SPLIT.isA(tocItr.peek())) {
+                    previousPageNum = appendPrecedingPageNumber(tocItr.peek(), volumeEntries, previousPageNum, entries)
+                    volumeEntries.add(tocItr.next().copy())
+                }
+                //Additional TOC volumes are added to the last available volume
+                if (!lastContainer) {
+                    break
+                }
             }
+            updateTOCContainer(tocContainer, volumeEntries, modifiedElements)
         }
 
-        modifiedElements.addAll(
-            tocElements
-                .filter { node: Element? -> BBX.BLOCK.TOC_VOLUME_SPLIT.isA(node) }
-        )
+        if (modifiedElements.isEmpty()) {
+            log.debug("TOC unchanged")
+            return
+        }
         manager.simpleManager.dispatchEvent(
             org.brailleblaster.perspectives.mvc.events.ModifyEvent(
                 Sender.TOC,
@@ -1173,32 +1139,121 @@ class TOCBuilderBBX(private var manager: Manager) : CheckMenuTool, MenuToolModul
         )
     }
 
-    private fun findAndAppendPrecedingPageNumber(
-        tocEntry: Element,
-        tocContainer: Element,
-        previousPageNum: Element?
-    ): Element? {
-        val previousPageNumQuery: Nodes = XMLHandler.query(
-            tocEntry,
-            "preceding::*[@{}:{}='{}'][1]",
-            BBX._ATTRIB_TYPE.nsPrefix,
-            BBX._ATTRIB_TYPE.name,  //Will also work for BBX.BLOCK.PAGE_NUM
-            BBX.SPAN.PAGE_NUM.name
-        )
-        if (previousPageNumQuery.size() != 0) {
-            val pageNumElem: Element = previousPageNumQuery.get(0) as Element
-            if (pageNumElem === previousPageNum) {
-                return previousPageNum
+    /**
+     * TOC elements found in a single walk of the document
+     */
+    private class TOCEntries(val volumeData: Iterator<VolumeData>) {
+        val elements: MutableList<Element> = ArrayList()
+        val changedVolumeSplits: MutableList<Element> = ArrayList()
+
+        /**
+         * Print page number preceding each TOC element, same as preceding::*[@bb:type='PAGE_NUM'][1]
+         */
+        val precedingPageNums: MutableMap<Element, Element> = IdentityHashMap()
+        var lastPageNum: Element? = null
+    }
+
+    private fun collectTOCEntries(parent: Element, entries: TOCEntries, inEntry: Boolean) {
+        for (curElem in parent.childElements) {
+            if (BBX.CONTAINER.VOLUME_TOC.isA(curElem)) {
+                continue
             }
-            val pageNumToAppend: Element = pageNumElem.copy()
-            if (BBX.SPAN.PAGE_NUM.isA(pageNumElem)) {
-                BBX.transform(pageNumToAppend, BBX.BLOCK.PAGE_NUM)
+            var isEntry = false
+            if (BBX.BLOCK.TOC_VOLUME_SPLIT.isA(curElem)) {
+                if (entries.volumeData.hasNext()) {
+                    //Update TOC Volume Splits removing potential placeholder/out of date text
+                    // Issue #5468: Formats 2016 requires transcriber note indicators
+                    // which are now added by wrapping the word in an transcriber note emphasis
+                    val volumeName = BBXUtils.wrapAsTransNote(entries.volumeData.next().nameLong)
+                    if (tocKey(curElem.childNodes.toList()) != tocKey(listOf(volumeName))) {
+                        curElem.removeChildren()
+                        curElem.appendChild(volumeName)
+                        entries.changedVolumeSplits.add(curElem)
+                    }
+                    isEntry = true
+                }
+            } else if (!inEntry && TOCAttributes.TYPE.getAttribute(curElem) != null) {
+                isEntry = true
             }
-            tocContainer.appendChild(pageNumToAppend)
-            return pageNumElem
-        } else {
+            if (isEntry) {
+                entries.elements.add(curElem)
+                entries.lastPageNum?.let { entries.precedingPageNums[curElem] = it }
+            }
+
+            collectTOCEntries(curElem, entries, inEntry || isEntry)
+
+            //After descendants as preceding:: excludes ancestors
+            if (BBX._ATTRIB_TYPE.has(curElem) && BBX._ATTRIB_TYPE[curElem] == BBX.SPAN.PAGE_NUM.name) {
+                entries.lastPageNum = curElem
+            }
+        }
+    }
+
+    private fun appendPrecedingPageNumber(
+        tocEntry: Element,
+        volumeEntries: MutableList<Element>,
+        previousPageNum: Element?,
+        entries: TOCEntries
+    ): Element? {
+        val pageNumElem: Element = entries.precedingPageNums[tocEntry] ?: return previousPageNum
+        if (pageNumElem === previousPageNum) {
             return previousPageNum
         }
+        val pageNumToAppend: Element = pageNumElem.copy()
+        if (BBX.SPAN.PAGE_NUM.isA(pageNumElem)) {
+            BBX.transform(pageNumToAppend, BBX.BLOCK.PAGE_NUM)
+        }
+        volumeEntries.add(pageNumToAppend)
+        return pageNumElem
+    }
+
+    /**
+     * Replace only the run of entries that differs from the wanted entries. Unchanged entries
+     * at the start and end of the volume TOC keep their braille.
+     */
+    private fun updateTOCContainer(
+        tocContainer: Element,
+        wanted: List<Element>,
+        modifiedElements: MutableList<Element>
+    ) {
+        val existing: List<Element> = tocContainer.childElements.toList()
+        val existingKeys: List<String> = existing.map { tocKey(listOf(it)) }
+        val wantedKeys: List<String> = wanted.map { tocKey(listOf(it)) }
+
+        var prefix = 0
+        while (prefix < existing.size && prefix < wanted.size && existingKeys[prefix] == wantedKeys[prefix]) {
+            prefix++
+        }
+        if (prefix == existing.size && prefix == wanted.size) {
+            return
+        }
+        var suffix = 0
+        while (suffix < existing.size - prefix && suffix < wanted.size - prefix
+            && existingKeys[existing.size - 1 - suffix] == wantedKeys[wanted.size - 1 - suffix]
+        ) {
+            suffix++
+        }
+        log.debug(
+            "Replacing {} of {} entries in volume TOC with {} entries",
+            existing.size - prefix - suffix, existing.size, wanted.size - prefix - suffix
+        )
+
+        val insertIndex: Int = if (prefix == 0) 0 else tocContainer.indexOf(existing[prefix - 1]) + 1
+        for (removed in existing.subList(prefix, existing.size - suffix)) {
+            removed.detach()
+        }
+        val added: List<Element> = wanted.subList(prefix, wanted.size - suffix)
+        for ((i, entry) in added.withIndex()) {
+            tocContainer.insertChild(entry, insertIndex + i)
+        }
+
+        when {
+            added.isNotEmpty() -> modifiedElements.addAll(added)
+            //Only removed entries, reformat from a neighbouring entry
+            prefix > 0 -> modifiedElements.add(existing[prefix - 1])
+            suffix > 0 -> modifiedElements.add(existing[existing.size - suffix])
+            else -> modifiedElements.add(tocContainer)
+        }
     }
 
     private val uTDManager: UTDManager
@@ -1314,5 +1369,26 @@ class TOCBuilderBBX(private var manager: Manager) : CheckMenuTool, MenuToolModul
             val tocTypeAttrib: Attribute? = TOCAttributes.TYPE.getAttribute(curNode)
             return tocTypeAttrib != null && tocTypeAttrib.value == key
         }
+
+        /**
+         * Content of TOC nodes without their translation, to compare generated entries with the
+         * current volume TOC
+         */
+        private fun tocKey(nodes: List<Node>): String {
+            val key = StringBuilder()
+            for (node in nodes) {
+                if (node is Element) {
+                    if (UTDElements.BRL.isA(node)) {
+                        continue
+                    }
+                    val copy: Element = node.copy()
+                    copy.stripUTDRecursive()
+                    key.append(copy.toXML())
+                } else {
+                    key.append(node.toXML())
+                }
+            }
+            return key.toString()
+        }
     }
 }
@@ -16,13 +16,12 @@
 package org.brailleblaster.pandoc
 
 import nu.xom.Element
-import nu.xom.XPathContext
 import org.brailleblaster.math.mathml.MathModuleUtils
 import org.brailleblaster.utils.xml.MATHML_NS
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 
-class FixMathML : FixerInf {
+class FixMathML : ElementFixer {
 
     private var bbUri: String? = null
     private var rootElement: Element? = null
@@ -32,19 +31,19 @@ class FixMathML : FixerInf {
     }
 
     override fun process() {
-        val xpathContext = XPathContext().apply {
-            addNamespace("m", MATHML_NS)
-            addNamespace("bb", bbUri)
-        }
-        val mathElements = rootElement!!.query("descendant-or-self::m:math", xpathContext)
-        mathElements.forEach {
+        Fixer.walk(rootElement!!, listOf(this))
+    }
+
+    override fun enter(element: Element) {
+        if (element.localName == "math" && element.namespaceURI == MATHML_NS) {
             try {
-                MathModuleUtils.setASCIIText(it as Element)
+                MathModuleUtils.setASCIIText(element)
             } catch(e: Exception) {
                 logger.error("Problem generating ASCIIMath", e)
             }
         }
     }
+
     companion object {
         val logger: Logger = LoggerFactory.getLogger(FixMathML::class.java)
     }
@@ -18,7 +18,7 @@ package org.brailleblaster.pandoc
 import nu.xom.*
 import kotlin.math.max
 
-class FixNestedList : FixerInf {
+class FixNestedList : ElementFixer {
     private var bbUri: String? = null
     private var rootElem: Element? = null
     override fun setFixer(fixer: Fixer) {
@@ -28,23 +28,17 @@ class FixNestedList : FixerInf {
 
     @Throws(Exception::class)
     override fun process() {
-        unnest(rootElem)
+        Fixer.walk(rootElem!!, listOf(this))
     }
 
     // processes lists so that they are not nested and
-    // adjacent lists are merged 
-    @Throws(Exception::class)
-    private fun unnest(elem: Element?) {
-        var parent: ParentNode
-        val node: Node?
-        var listCtr = 0
-        var isList: Boolean
-        var isListItem: Boolean
-        if (isList(elem)) {
-            node = elem
-            parent = node!!.parent
-            isList = isList(parent)
-            isListItem = isListItem(parent)
+    // adjacent lists are merged
+    override fun enter(element: Element) {
+        if (isList(element)) {
+            var listCtr = 0
+            var parent = element.parent
+            var isList = isList(parent)
+            var isListItem = isListItem(parent)
             while (isList || isListItem) {
                 if (isList) {
                     listCtr++
@@ -53,20 +47,19 @@ class FixNestedList : FixerInf {
                 isList = isList(parent)
                 isListItem = isListItem(parent)
             }
-            setListAttributes(elem, listCtr.toString())
-        }
-        val elems = elem!!.childElements
-        for (i in 0 until elems.size()) {
-            unnest(elems[i])
+            setListAttributes(element, listCtr.toString())
         }
-        parent = elem.parent
+    }
+
+    override fun exit(element: Element) {
+        val parent = element.parent
         if (isListItem(parent)) {
-            moveListItems(elem, parent)
+            moveListItems(element, parent)
         }
-        if (isList(elem) &&
+        if (isList(element) &&
             !isListItem(parent)
         ) {
-            checkAndMergeLists(elem, parent)
+            checkAndMergeLists(element, parent)
         }
     }
 
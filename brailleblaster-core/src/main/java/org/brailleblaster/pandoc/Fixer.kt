@@ -49,12 +49,38 @@ class Fixer(filename: String) {
 
     @Throws(Exception::class)
     fun processFixers() {
+        val elementFixers = fixers.filterIsInstance<ElementFixer>()
+        if (elementFixers.isNotEmpty()) {
+            walk(rootElement, elementFixers)
+        }
         for (f in fixers) {
-            f.process()
+            if (f !is ElementFixer) {
+                f.process()
+            }
         }
         val fos = FileOutputStream(file)
         val osw = OutputStreamWriter(fos, StandardCharsets.UTF_8)
         osw.write(document.toXML())
         osw.close()
     }
+
+    companion object {
+        /**
+         * Visit every element under and including element with each fixer
+         */
+        @Throws(Exception::class)
+        fun walk(element: Element, fixers: List<ElementFixer>) {
+            for (f in fixers) {
+                f.enter(element)
+            }
+            // Snapshot, fixers may move children
+            val children = element.childElements
+            for (i in 0 until children.size()) {
+                walk(children[i], fixers)
+            }
+            for (f in fixers) {
+                f.exit(element)
+            }
+        }
+    }
 }
\ No newline at end of file
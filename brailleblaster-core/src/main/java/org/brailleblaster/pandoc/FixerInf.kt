@@ -15,9 +15,31 @@
  */
 package org.brailleblaster.pandoc
 
+import nu.xom.Element
+
 interface FixerInf {
     fun setFixer(fixer: Fixer)
 
     @Throws(Exception::class)
     fun process()
-}
\ No newline at end of file
+}
+
+/**
+ * Fixer applied one element at a time. [Fixer.processFixers] runs all of these in a single walk
+ * of the document instead of calling [process] on each.
+ */
+interface ElementFixer : FixerInf {
+    /**
+     * Called before the children of the element are visited
+     */
+    @Throws(Exception::class)
+    fun enter(element: Element) {
+    }
+
+    /**
+     * Called after the children of the element are visited, the element may be moved or removed
+     */
+    @Throws(Exception::class)
+    fun exit(element: Element) {
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.pandoc
+
+import org.brailleblaster.BBIni
+import org.brailleblaster.util.PANDOC_CMD
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.attribute.FileTime
+import java.security.DigestInputStream
+import java.security.MessageDigest
+import kotlin.io.path.getLastModifiedTime
+import kotlin.io.path.isRegularFile
+import kotlin.io.path.listDirectoryEntries
+
+/**
+ * Pandoc output of previously imported files, keyed by a hash of the source file contents and
+ * everything else the output depends on, so re-importing an unchanged file does not run pandoc.
+ *
+ * Entries are the raw pandoc output before the [Fixer]s run. Cache failures are logged and
+ * otherwise ignored, the import then runs pandoc as usual.
+ */
+object PandocCache {
+    private val log = LoggerFactory.getLogger(PandocCache::class.java)
+    internal const val MAX_ENTRIES = 50
+    private const val EXTENSION = ".bbx"
+
+    /**
+     * Directory the cache is kept under, replaced in tests
+     */
+    internal var userProgramDataPath: () -> Path = { BBIni.userProgramDataPath }
+
+    val cacheDir: Path
+        get() = userProgramDataPath().resolve("pandoc-cache")
+
+    /**
+     * @param arguments pandoc arguments besides the input and output files
+     * @param luaDir filters and writers in this directory are part of the key
+     */
+    @Throws(IOException::class)
+    fun key(source: Path, arguments: List<String>, luaDir: Path): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        // A different pandoc binary may produce different output
+        val pandoc = Path.of(PANDOC_CMD)
+        if (pandoc.isRegularFile()) {
+            digest.update("${Files.size(pandoc)}:${pandoc.getLastModifiedTime().toMillis()}".toByteArray())
+        }
+        arguments.forEach { digest.updateField(it.toByteArray()) }
+        luaDir.listDirectoryEntries("*.lua").sorted().forEach {
+            digest.updateField(it.fileName.toString().toByteArray())
+            digest.updateField(Files.readAllBytes(it))
+        }
+        DigestInputStream(Files.newInputStream(source), digest).use { input ->
+            val buffer = ByteArray(8192)
+            while (input.read(buffer) >= 0) {
+                // digested as it is read
+            }
+        }
+        return digest.digest().joinToString("") { "%02x".format(it) }
+    }
+
+    /**
+     * Length prefixed so adjacent fields cannot run together, eg "ab","c" and "a","bc"
+     */
+    private fun MessageDigest.updateField(bytes: ByteArray) {
+        update(ByteBuffer.allocate(Int.SIZE_BYTES).putInt(bytes.size).array())
+        update(bytes)
+    }
+
+    /**
+     * Copy the cached output for the key to output
+     *
+     * @return false when there is no entry
+     */
+    fun get(key: String, output: Path): Boolean {
+        val entry = cacheDir.resolve(key + EXTENSION)
+        return try {
+            if (!entry.isRegularFile()) {
+                return false
+            }
+            Files.copy(entry, output, StandardCopyOption.REPLACE_EXISTING)
+            // Last modified is the last use for pruning
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()))
+            log.debug("Using cached pandoc output {}", entry)
+            true
+        } catch (e: IOException) {
+            log.warn("Unable to read cached pandoc output {}", entry, e)
+            false
+        }
+    }
+
+    fun put(key: String, output: Path) {
+        try {
+            val dir = Files.createDirectories(cacheDir)
+            // Copy then move so a partial entry is never used
+            val tmp = Files.createTempFile(dir, key, ".tmp")
+            Files.copy(output, tmp, StandardCopyOption.REPLACE_EXISTING)
+            Files.move(tmp, dir.resolve(key + EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            prune(dir)
+        } catch (e: IOException) {
+            log.warn("Unable to cache pandoc output {}", output, e)
+        }
+    }
+
+    /**
+     * Remove the least recently used entries over [MAX_ENTRIES]
+     */
+    private fun prune(dir: Path) {
+        val entries = dir.listDirectoryEntries("*$EXTENSION")
+        if (entries.size <= MAX_ENTRIES) {
+            return
+        }
+        entries.sortedByDescending { it.getLastModifiedTime() }.drop(MAX_ENTRIES).forEach {
+            Files.deleteIfExists(it)
+        }
+    }
+}
@@ -35,8 +35,8 @@ import org.brailleblaster.perspectives.braille.document.BrailleDocument;
 import org.brailleblaster.perspectives.braille.eventQueue.EventFrame;
 import org.brailleblaster.perspectives.braille.mapping.elements.*;
 import org.brailleblaster.perspectives.braille.mapping.maps.MapList;
+import org.brailleblaster.perspectives.braille.mapping.maps.PageNumberIndex;
 import org.brailleblaster.perspectives.braille.messages.*;
-import org.brailleblaster.perspectives.braille.searcher.Searcher;
 import org.brailleblaster.perspectives.braille.stylers.*;
 import org.brailleblaster.perspectives.braille.viewInitializer.NimasInitializer;
 import org.brailleblaster.perspectives.braille.viewInitializer.ViewFactory;
@@ -46,6 +46,9 @@ import org.brailleblaster.perspectives.braille.views.tree.BookTreeDialog;
 import org.brailleblaster.perspectives.braille.views.wp.BrailleView;
 import org.brailleblaster.perspectives.braille.views.wp.TextView;
 import org.brailleblaster.perspectives.mvc.BBSimpleManager;
+import org.brailleblaster.perspectives.mvc.EditProfiler;
+import org.brailleblaster.perspectives.mvc.EditStage;
+import org.brailleblaster.perspectives.mvc.LatencyStats;
 import org.brailleblaster.perspectives.mvc.SimpleEvent;
 import org.brailleblaster.perspectives.mvc.ViewManager;
 import org.brailleblaster.perspectives.mvc.events.ModifyEvent;
@@ -63,6 +66,7 @@ import org.brailleblaster.utd.actions.IAction;
 import org.brailleblaster.utd.exceptions.NodeException;
 import org.brailleblaster.utd.exceptions.UTDInterruption;
 import org.brailleblaster.utd.internal.DocumentOrderComparator;
+import org.brailleblaster.utd.internal.DocumentOrderKeys;
 import org.brailleblaster.utd.internal.xml.FastXPath;
 import org.brailleblaster.utd.internal.xml.XMLHandler;
 import org.brailleblaster.utd.properties.UTDElements;
@@ -103,7 +107,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.StreamSupport;
 
 //This class manages each document in an MDI environment. It controls the braille View and the daisy View.
 public class Manager extends Controller {
@@ -127,6 +130,7 @@ public class Manager extends Controller {
     private final FontManager fontManager;
     private MapList list;
     private final List<String> ignoreList = new Vector<>();
+    private final PageNumberIndex pageNumberIndex = new PageNumberIndex();
 
     private final Reformatter reformatter;
     private CountDownLatch finishFormattingLatch, rebuiltSectionLatch, rebuiltSectionMapLatch;
@@ -139,6 +143,10 @@ public class Manager extends Controller {
     private final BBSimpleManager simpleManager;
     private boolean isDocumentEdited = false;
     private Document lastCopiedDoc = null;
+    /**
+     * Time from a ModifyEvent reaching the core module to its blocks being translated and reformatted
+     */
+    private final LatencyStats editLatency = new LatencyStats("edit");
     private static RuntimeException formatterException = null;
     /**
      * DO NOT USE, ONLY getArchiver() IS ACCURATE!!! Internal use for
@@ -198,41 +206,46 @@ public class Manager extends Controller {
         // This must be first as the event must be translated
         simpleManager.registerModule((SimpleEvent event) -> {
             if (event instanceof ModifyEvent mEvent) {
+                long editStart = System.nanoTime();
+                long handlerStart = EditProfiler.start();
                 stopFormatting();
 
                 mEvent.changedNodes.removeIf(n -> n.getDocument() == null);
 
                 if (mEvent.translate) {
-                    List<Element> changedNodes = new ArrayList<>();
+                    // Set as large edits such as replace all can change thousands of blocks
+                    Set<Element> changedNodes = new LinkedHashSet<>();
 
                     // Used to communicate information before a formatting stage
                     // Can't just apply to mEvent.changedNodes as these might be added to a parent
-                    StreamSupport.stream(((Iterable<Node>)FastXPath.descendant(getDoc())::iterator).spliterator(), false).filter(Searcher.Filters::isElement)
-                            .map(Searcher.Mappers::toElement)
-                            .filter(BBX.PreFormatterMarker.ATTRIB_PRE_FORMATTER_MARKER::has).forEach(BBX.PreFormatterMarker.ATTRIB_PRE_FORMATTER_MARKER::detach);
+                    int clearedMarkers = getDocument().getSettingsManager().getPreFormatterMarkers().clear(getDoc());
+                    logger.debug("Cleared {} pre-formatter markers", clearedMarkers);
+
+                    // Issue #6022 #5947: cleanup document to prevent weird state or formatting
+                    // Only around the changed nodes, the rest of their sections was fixed by earlier edits
+                    List<Node> liveFixNodes = new ArrayList<>();
+                    for (Node n : mEvent.changedNodes) {
+                        if (n.getDocument() != null && !(n instanceof Document) && n.getDocument().getRootElement() != n
+                                && XMLHandler.Companion.ancestorVisitorElement(n, BBX.SECTION::isA) != null) {
+                            liveFixNodes.add(n);
+                        }
+                    }
+                    long fixStart = EditProfiler.start();
+                    LiveFixer.fixChanged(liveFixNodes);
+                    EditProfiler.record(EditStage.LIVE_FIXER, fixStart);
 
-                    Set<Element> liveFixedSections = new HashSet<>();
                     for (Node n : mEvent.changedNodes) {
                         if (n.getDocument() == null) {
+                            // was removed by fixer
                             continue;
                         }
                         if (n instanceof Document || n.getDocument().getRootElement() == n) {
+                            long documentFixStart = EditProfiler.start();
                             LiveFixer.fix(Objects.requireNonNull(XMLHandler.nodeToElementOrParentOrDocRoot(n)));
+                            EditProfiler.record(EditStage.LIVE_FIXER, documentFixStart);
                             refresh(false);
                             changedNodes.clear();
                             continue;
-                        } else {
-                            // Issue #6022 #5947: cleanup document to prevent weird state or formatting
-                            Element section = XMLHandler.Companion.ancestorVisitorElement(n, BBX.SECTION::isA);
-                            if (section != null && !liveFixedSections.contains(section)) {
-                                LiveFixer.fix(section);
-                                liveFixedSections.add(section);
-
-                                if (n.getDocument() == null) {
-                                    // was removed by fixer
-                                    continue;
-                                }
-                            }
                         }
                         Element tableParent = XMLHandler.Companion.ancestorVisitorElement(n,
                                 BBX.CONTAINER.TABLE::isA);
@@ -275,8 +288,10 @@ public class Manager extends Controller {
                         }
                         getDocument().getSettingsManager().getEngine().expectedTranslate = true;
                         try {
+                            long translateStart = EditProfiler.start();
                             List<Element> newChangedNodes = getDocument().getSettingsManager().getEngine()
-                                    .translateAndReplace(changedNodes);
+                                    .translateAndReplace(new ArrayList<>(changedNodes));
+                            EditProfiler.record(EditStage.TRANSLATE, translateStart);
                             getDocument().getSettingsManager().getEngine().expectedTranslate = false;
                             for (Element newChangedNode : newChangedNodes) {
                                 logger.debug("Retranslated block: {}", newChangedNode.toXML());
@@ -300,12 +315,14 @@ public class Manager extends Controller {
                  *  Without this, StyleEditorTest.imageDescriber_insideTableCopy_rt4566() fails
                  */
 
-                mEvent.changedNodes.sort(new DocumentOrderComparator());
+                DocumentOrderKeys.sortInDocumentOrder(mEvent.changedNodes);
                 if (!mEvent.changedNodes.isEmpty() && list.findNode(mEvent.changedNodes.getFirst()) == null) {
                     reformat(mEvent.changedNodes.getFirst());
                 } else {
                     reformat();
                 }
+                editLatency.recordSince(editStart);
+                EditProfiler.record(EditStage.MODIFY_HANDLER, handlerStart);
             }
         });
         //The following should only be visible in the menus in debugging mode:
@@ -971,12 +988,14 @@ public class Manager extends Controller {
         if (finishFormattingLatch == null)
             finishFormattingLatch = new CountDownLatch(1);
         rebuiltSectionLatch = new CountDownLatch(1);
+        long formatStart = EditProfiler.start();
         reformatter.startFormat(newPage, printPageNum);
         try {
             rebuiltSectionLatch.await();
         } catch (InterruptedException e) {
             // Shh it's ok
         }
+        EditProfiler.record(EditStage.FORMAT, formatStart);
         if (formatterException != null) {
             RuntimeException prevException = formatterException;
             formatterException = null;
@@ -1112,7 +1131,9 @@ public class Manager extends Controller {
         stopFormatting();
         removeReformattingCallback();
         try {
+            long formatStart = EditProfiler.start();
             document.getEngine().format(doc.getRootElement());
+            EditProfiler.record(EditStage.FORMAT, formatStart);
             updateFormatting();
         } catch (RuntimeException e) {
             FormatterException newException = new FormatterException("An error occurred while reformatting", e);
@@ -1212,6 +1233,7 @@ public class Manager extends Controller {
         logger.debug("Begin updateFormatting");
         StopWatch sw = new StopWatch();
         sw.start();
+        long rebuildStart = EditProfiler.start();
         text.setListenerLock(true);
         int sectionIndex = viewInitializer.getStartIndex();
         int pos;
@@ -1246,6 +1268,7 @@ public class Manager extends Controller {
         setTextCaret(newPos);
         text.setListenerLock(false);
         containerSash.setRedraw(true);
+        EditProfiler.record(EditStage.VIEW_REBUILD, rebuildStart);
         sw.stop();
         logger.debug("Completed refreshFormat in: {}", sw);
     }
@@ -1530,31 +1553,18 @@ public class Manager extends Controller {
         // This will not work if you have your print pages painted in the bottom
         // (different setting)
         List<PageIndicator> pages = text.paintedElements.getPageIndicators();
-        if (!pages.isEmpty()) {
-            int index = -1;
-            for (int i = 0; i < pages.size() && line > pages.get(i).getLine(); i++) {
-                index = i;
-            }
-
-            if (index > -1 && pages.get(index).getPrintPageNum() != null)
-                return pages.get(index);
-        }
+        int index = text.paintedElements.firstPageIndicatorIndex(line) - 1;
+        if (index > -1 && pages.get(index).getPrintPageNum() != null)
+            return pages.get(index);
 
         return null;
     }
 
     private @Nullable PageIndicator findBraillePage(int line) {
         List<PageIndicator> pages = text.paintedElements.getPageIndicators();
-        if (!pages.isEmpty()) {
-            int index = -1;
-            for (int i = 0; i < pages.size() && line > pages.get(i).getLine(); i++)
-                index = i;
-
-            index++;
-
-            if (index < pages.size() && pages.get(index).getBraillePageNum() != null)
-                return pages.get(index);
-        }
+        int index = text.paintedElements.firstPageIndicatorIndex(line);
+        if (index < pages.size() && pages.get(index).getBraillePageNum() != null)
+            return pages.get(index);
         return null;
     }
 
@@ -1713,87 +1723,22 @@ public class Manager extends Controller {
      * @return Index of section this page number was found in, the TextMapElement
      */
     public @Nullable Pair<Integer, TextMapElement> getPrintPageElement(String printPageNumber) {
-        for (SectionElement curSection : viewInitializer.getSectionList()) {
-            for (TextMapElement curElement : curSection.list) {
-                if (!(curElement instanceof PageIndicatorTextMapElement))
-                    continue;
-
-                // PageMapElement's brailleList should be the brlOnly tag
-                Node brl = curElement.brailleList.getFirst().getNode();
-                while (!UTDElements.BRL.isA(brl)) {
-                    brl = brl.getParent();
-                }
-                String brlPageNum = ((Element) brl).getAttributeValue("printPage");
-                if (pageNumberEquals(brlPageNum, printPageNumber)) {
-                    return new Pair<>(viewInitializer.getSectionList().indexOf(curSection), curElement);
-                }
-            }
-        }
-
-        // Not found, try searching the PrintPageElements
-        // TODO: This can put the cursor at a paragraph that continues onto the
-        // next page,
-        // any way to detect this?
-        for (SectionElement curSection : viewInitializer.getSectionList()) {
-            for (TextMapElement curElement : curSection.list) {
-                for (BrailleMapElement curBrailleElement : curElement.brailleList) {
-                    if (!(curBrailleElement instanceof PrintPageBrlMapElement))
-                        continue;
-                    // Check both the origional page and the translated braille
-                    // equivelent
-                    String origPage = ((Element) curBrailleElement.getNode()).getAttributeValue("printPage");
-                    String braillePage = curBrailleElement.getNode().getValue();
-                    if (pageNumberEquals(origPage, printPageNumber) || pageNumberEquals(braillePage, printPageNumber))
-                        return new Pair<>(viewInitializer.getSectionList().indexOf(curSection), curElement);
-                }
-            }
-        }
-
-        // Not found
-        return null;
-    }
-
-    private static boolean pageNumberEquals(String orig, String compareTo) {
-        if (orig.equalsIgnoreCase(compareTo)) {
-            return true;
-        } else if (orig.contains("-")) {
-            // Issue #3814: Temporary way to find combined pages
-            String[] parts = orig.split("-", 2);
-            return parts[0].equals(compareTo) || parts[1].equals(compareTo);
-        } else {
-            return false;
-        }
+        // Not found as a page indicator, the print page brl can put the cursor at a paragraph
+        // that continues onto the next page
+        return pageNumberIndex.findPrintPage(viewInitializer.getSectionList(), printPageNumber);
     }
 
-    // Corey 10/10/2016: Commenting this out because it's not used but not sure
-    // if it will ever be needed
-
     @Nullable
     public Pair<Integer, TextMapElement> getBraillePageElementByUntranslatedPage(
             String untranslatedBraillePage, @Nullable Text startNode) {
-        boolean afterStartNode = false;
-        for (SectionElement curSection : viewInitializer.getSectionList()) {
-            for (TextMapElement curElement : curSection.list) {
-                if (startNode != null && !afterStartNode) {
-                    if (curElement.getNode() == startNode) {
-                        afterStartNode = true;
-                    } else {
-                        continue;
-                    }
-                }
-
-                for (BrailleMapElement curBrailleElement : curElement.brailleList) {
-                    if (!(curBrailleElement instanceof NewPageBrlMapElement))
-                        continue;
-                    String page = ((Element) curBrailleElement.getNode()).getAttributeValue("untranslated");
-                    if (untranslatedBraillePage.equalsIgnoreCase(page))
-                        return new Pair<>(viewInitializer.getSectionList().indexOf(curSection), curElement);
-                }
+        Pair<Integer, Integer> start = null;
+        if (startNode != null) {
+            start = getNodeIndexAllSections(startNode);
+            if (start == null) {
+                return null;
             }
         }
-
-        // Not found
-        return null;
+        return pageNumberIndex.findUntranslatedBraillePage(viewInitializer.getSectionList(), untranslatedBraillePage, start);
     }
 
     /**
@@ -1805,21 +1750,7 @@ public class Manager extends Controller {
      */
     @Nullable
     public Pair<Integer, TextMapElement> getBraillePageElement(int rawPageIndex) {
-        int counter = 0;
-        for (SectionElement curSection : viewInitializer.getSectionList()) {
-            for (TextMapElement curElement : curSection.list) {
-                for (BrailleMapElement curBrailleElement : curElement.brailleList) {
-                    if (!(curBrailleElement instanceof BraillePageBrlMapElement))
-                        continue;
-                    if (counter == rawPageIndex)
-                        return new Pair<>(viewInitializer.getSectionList().indexOf(curSection), curElement);
-                    counter++;
-                }
-            }
-        }
-
-        // Not found
-        return null;
+        return pageNumberIndex.findBraillePage(viewInitializer.getSectionList(), rawPageIndex);
     }
 
     public Element getVolumeAtCursor() {
@@ -1863,6 +1794,10 @@ public class Manager extends Controller {
         return lastCopiedDoc;
     }
 
+    public LatencyStats getEditLatency() {
+        return editLatency;
+    }
+
     public void openBookTree() {
         checkForUpdatedViews();
         waitForFormatting(true);
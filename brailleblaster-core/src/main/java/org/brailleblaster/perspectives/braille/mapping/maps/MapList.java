@@ -508,6 +508,13 @@ public class MapList extends LinkedList<@NonNull TextMapElement> {
         return -1;
     }
 
+    /**
+     * Changes whenever elements are added or removed, used to tell when derived indexes are stale
+     */
+    public int getModificationCount() {
+        return modCount;
+    }
+
     public void clearList() {
         this.clear();
         this.current = null;
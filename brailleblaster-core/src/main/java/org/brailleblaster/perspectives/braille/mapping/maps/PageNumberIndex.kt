@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.braille.mapping.maps
+
+import nu.xom.Element
+import nu.xom.Node
+import org.brailleblaster.perspectives.braille.mapping.elements.BraillePageBrlMapElement
+import org.brailleblaster.perspectives.braille.mapping.elements.NewPageBrlMapElement
+import org.brailleblaster.perspectives.braille.mapping.elements.PageIndicatorTextMapElement
+import org.brailleblaster.perspectives.braille.mapping.elements.PrintPageBrlMapElement
+import org.brailleblaster.perspectives.braille.mapping.elements.SectionElement
+import org.brailleblaster.perspectives.braille.mapping.elements.TextMapElement
+import org.brailleblaster.utd.properties.UTDElements
+import java.util.Locale
+
+/**
+ * Print page, braille page and braille page ordinal lookup to the section and map element they
+ * are in, replacing scans over every map element of every section.
+ *
+ * Pages are collected per section and only re-collected when that section's [MapList] was
+ * replaced or modified, so after a partial reformat only the reformatted sections are scanned.
+ */
+class PageNumberIndex {
+    private class PageEntry(val listIndex: Int, val element: TextMapElement)
+
+    private class SectionPages(val list: MapList) {
+        val modificationCount = list.modificationCount
+
+        /** Page indicators keyed by the printPage attribute of their brl */
+        val printPageIndicators = PageMap()
+
+        /** Print page brl, keyed by both the original and the braille page */
+        val printPages = PageMap()
+        val untranslatedBraillePages = HashMap<String, MutableList<PageEntry>>()
+        val braillePages = ArrayList<TextMapElement>()
+
+        init {
+            list.forEachIndexed { listIndex, curElement ->
+                if (curElement is PageIndicatorTextMapElement && curElement.brailleList.isNotEmpty()) {
+                    // PageMapElement's brailleList should be the brlOnly tag
+                    var brl: Node? = curElement.brailleList.first.node
+                    while (brl != null && !UTDElements.BRL.isA(brl)) {
+                        brl = brl.parent
+                    }
+                    (brl as Element?)?.getAttributeValue("printPage")?.let {
+                        printPageIndicators.add(it, PageEntry(listIndex, curElement))
+                    }
+                }
+                for (curBrailleElement in curElement.brailleList) {
+                    when (curBrailleElement) {
+                        is PrintPageBrlMapElement -> {
+                            val entry = PageEntry(listIndex, curElement)
+                            (curBrailleElement.node as Element).getAttributeValue("printPage")?.let {
+                                printPages.add(it, entry)
+                            }
+                            printPages.add(curBrailleElement.node.value, entry)
+                        }
+
+                        is NewPageBrlMapElement -> (curBrailleElement.node as Element)
+                            .getAttributeValue("untranslated")
+                            ?.let {
+                                untranslatedBraillePages.getOrPut(it.lowercase(Locale.ROOT)) { ArrayList() }
+                                    .add(PageEntry(listIndex, curElement))
+                            }
+
+                        is BraillePageBrlMapElement -> braillePages.add(curElement)
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * First entry for each page number, matched case-insensitively or by either half of a
+     * combined page (Issue #3814)
+     */
+    private class PageMap {
+        private val ignoreCase = HashMap<String, PageEntry>()
+        private val combinedParts = HashMap<String, PageEntry>()
+
+        fun add(page: String, entry: PageEntry) {
+            ignoreCase.putIfAbsent(page.lowercase(Locale.ROOT), entry)
+            if (page.contains("-")) {
+                for (part in page.split("-", limit = 2)) {
+                    combinedParts.putIfAbsent(part, entry)
+                }
+            }
+        }
+
+        fun find(page: String): PageEntry? {
+            val byName = ignoreCase[page.lowercase(Locale.ROOT)]
+            val byPart = combinedParts[page]
+            return if (byName == null || (byPart != null && byPart.listIndex < byName.listIndex)) byPart else byName
+        }
+    }
+
+    private var sections: Array<SectionPages?> = emptyArray()
+    private var sectionList: List<SectionElement>? = null
+
+    /**
+     * Braille page ordinal of the first page in each section, for binary search
+     */
+    private var braillePageStarts = IntArray(1)
+
+    /**
+     * Re-collect pages of any section whose map list changed since the last lookup
+     */
+    private fun update(sectionList: List<SectionElement>) {
+        if (sectionList !== this.sectionList || sectionList.size != sections.size) {
+            this.sectionList = sectionList
+            sections = arrayOfNulls(sectionList.size)
+        }
+        var changed = false
+        for ((i, section) in sectionList.withIndex()) {
+            val pages = sections[i]
+            if (pages == null || pages.list !== section.list || pages.modificationCount != section.list.modificationCount) {
+                sections[i] = SectionPages(section.list)
+                changed = true
+            }
+        }
+        if (changed || braillePageStarts.size != sections.size + 1) {
+            braillePageStarts = IntArray(sections.size + 1)
+            for (i in sections.indices) {
+                braillePageStarts[i + 1] = braillePageStarts[i] + sections[i]!!.braillePages.size
+            }
+        }
+    }
+
+    fun findPrintPage(sectionList: List<SectionElement>, printPage: String): Pair<Int, TextMapElement>? {
+        update(sectionList)
+        // Page indicators anywhere take priority over print page brl
+        return findFirst { it.printPageIndicators.find(printPage) }
+            ?: findFirst { it.printPages.find(printPage) }
+    }
+
+    /**
+     * @param start When not null only pages at or after this section and map list index are found
+     */
+    fun findUntranslatedBraillePage(
+        sectionList: List<SectionElement>,
+        untranslatedBraillePage: String,
+        start: Pair<Int, Int>?
+    ): Pair<Int, TextMapElement>? {
+        update(sectionList)
+        val key = untranslatedBraillePage.lowercase(Locale.ROOT)
+        for (i in (start?.first ?: 0) until sections.size) {
+            val entries = sections[i]!!.untranslatedBraillePages[key] ?: continue
+            val entry = if (start != null && i == start.first) {
+                entries.firstOrNull { it.listIndex >= start.second }
+            } else {
+                entries.first()
+            }
+            if (entry != null) {
+                return Pair(i, entry.element)
+            }
+        }
+        return null
+    }
+
+    /**
+     * @param rawPageIndex 0-based ordinal of the braille page in the whole document
+     */
+    fun findBraillePage(sectionList: List<SectionElement>, rawPageIndex: Int): Pair<Int, TextMapElement>? {
+        update(sectionList)
+        if (rawPageIndex < 0 || rawPageIndex >= braillePageStarts.last()) {
+            return null
+        }
+        // Last section starting at or before the page, sections without braille pages share the
+        // start of the next section so are never picked
+        var low = 0
+        var high = sections.size - 1
+        while (low < high) {
+            val mid = (low + high + 1) ushr 1
+            if (braillePageStarts[mid] <= rawPageIndex) low = mid else high = mid - 1
+        }
+        return Pair(low, sections[low]!!.braillePages[rawPageIndex - braillePageStarts[low]])
+    }
+
+    private inline fun findFirst(find: (SectionPages) -> PageEntry?): Pair<Int, TextMapElement>? {
+        for ((i, pages) in sections.withIndex()) {
+            val entry = find(pages!!)
+            if (entry != null) {
+                return Pair(i, entry.element)
+            }
+        }
+        return null
+    }
+}
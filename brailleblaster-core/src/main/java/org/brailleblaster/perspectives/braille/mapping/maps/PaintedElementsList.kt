@@ -20,6 +20,42 @@ import org.brailleblaster.perspectives.braille.mapping.elements.PaintedElement
 import java.util.*
 
 class PaintedElementsList : LinkedList<PaintedElement>() {
+    private var pageIndicatorsModCount = -1
+    private var cachedPageIndicators: List<PageIndicator> = emptyList()
+
+    /**
+     * Cached until the list is next modified, this is read on every caret move
+     */
     val pageIndicators: List<PageIndicator>
-        get() = this.filterIsInstance<PageIndicator>()
+        get() {
+            if (pageIndicatorsModCount != modCount) {
+                cachedPageIndicators = this.filterIsInstance<PageIndicator>()
+                pageIndicatorsModCount = modCount
+            }
+            return cachedPageIndicators
+        }
+
+    /**
+     * Binary search for the first page indicator on or after the given line, page indicators are
+     * painted in line order
+     *
+     * @return index into [pageIndicators], or its size if there are none
+     */
+    fun firstPageIndicatorIndex(line: Int): Int = firstIndexOnOrAfter(pageIndicators, line) { it.line }
+
+    companion object {
+        /**
+         * @param items sorted by line
+         * @return index of the first item on or after the line, or the size of items if none
+         */
+        internal inline fun <T> firstIndexOnOrAfter(items: List<T>, line: Int, lineOf: (T) -> Int): Int {
+            var low = 0
+            var high = items.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (lineOf(items[mid]) < line) low = mid + 1 else high = mid
+            }
+            return low
+        }
+    }
 }
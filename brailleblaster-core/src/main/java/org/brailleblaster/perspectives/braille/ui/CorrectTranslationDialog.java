@@ -27,6 +27,7 @@ import org.brailleblaster.perspectives.mvc.menu.TopMenu;
 import org.brailleblaster.settings.TableExceptions;
 import org.brailleblaster.tools.MenuToolModule;
 import org.brailleblaster.utd.UTDTranslationEngine;
+import org.brailleblaster.utd.utils.PageDecorationTranslator;
 import org.brailleblaster.util.FileUtils;
 import org.brailleblaster.util.Notify;
 import org.brailleblaster.wordprocessor.WPManager;
@@ -539,6 +540,7 @@ public class CorrectTranslationDialog extends Dialog implements MenuToolModule {
      */
     public void refreshTranslation() {
         engine.getBrailleTranslator().close();
+        PageDecorationTranslator.invalidate(engine);
         man.refresh();
     }
 
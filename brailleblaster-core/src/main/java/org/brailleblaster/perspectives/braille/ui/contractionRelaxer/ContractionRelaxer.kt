@@ -21,6 +21,7 @@ import org.brailleblaster.perspectives.mvc.menu.TopMenu
 import org.brailleblaster.settings.TableExceptions
 import org.brailleblaster.settings.TableExceptions.getCurrentExceptionFile
 import org.brailleblaster.tools.MenuToolModule
+import org.brailleblaster.utd.utils.PageDecorationTranslator
 import org.brailleblaster.util.LINE_BREAK
 import org.brailleblaster.utils.swt.EasySWT
 import org.eclipse.swt.SWT
@@ -172,6 +173,7 @@ class ContractionRelaxer(parent: Shell) : Dialog(parent, SWT.NONE), MenuToolModu
     BBIni.propertyFileManager.saveAsInt(UNIT_TOGGLE_PROPERTY, unitToggle)
     //println("UnitToggle saved. Attempting to refresh document and translator.")
     bbData.manager.document.engine.brailleTranslator.close()
+    PageDecorationTranslator.invalidate(bbData.manager.document.engine)
     bbData.manager.refresh()
   }
 
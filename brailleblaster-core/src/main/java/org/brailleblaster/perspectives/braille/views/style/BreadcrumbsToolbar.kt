@@ -55,6 +55,9 @@ import java.util.*
 class BreadcrumbsToolbar(private val manager: Manager) : SimpleListener {
     private var wrapper: Composite? = null
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(BuildToolBarEvent::class.java, XMLCaretEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildToolBarEvent) {
             if (enabled) {
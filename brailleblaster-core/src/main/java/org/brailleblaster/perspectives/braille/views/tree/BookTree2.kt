@@ -33,15 +33,32 @@ import org.eclipse.swt.events.KeyAdapter
 import org.eclipse.swt.events.KeyEvent
 import org.eclipse.swt.widgets.Tree
 import org.eclipse.swt.widgets.TreeItem
+import java.util.IdentityHashMap
 
 class BookTree2(val manager: Manager, val dialog: BookTreeDialog) {
     private var headings: List<String>? = null
 
+    /**
+     * A section shown in the tree, found in one walk of the document when the dialog opens.
+     * Tree items are only created when their parent is expanded.
+     */
+    private class OutlineNode(val section: Element?, val heading: Text?, val parent: OutlineNode?, val index: Int) {
+        val children: MutableList<OutlineNode> = ArrayList()
+    }
+
+    private val sections: MutableMap<Element, OutlineNode> = IdentityHashMap()
+    private val itemNodes: MutableMap<TreeItem, OutlineNode> = IdentityHashMap()
+
     @JvmField
     val tree: Tree = Tree(dialog.shell, SWT.VIRTUAL or SWT.BORDER)
     var root: TreeItem? = null
 
     init {
+        tree.addListener(SWT.SetData) { event ->
+            val item = event.item as TreeItem
+            val parentNode = item.parentItem?.let { itemNodes[it] } ?: return@addListener
+            populate(item, parentNode.children[event.index])
+        }
         setRoot(manager.document.rootElement)
         setInitialLocation(manager.mapList.current.node)
         initializeListeners()
@@ -60,54 +77,59 @@ class BookTree2(val manager: Manager, val dialog: BookTreeDialog) {
 
     private fun setRoot(e: Element) {
         val root = TreeItem(tree, SWT.LEFT or SWT.BORDER)
+        this.root = root
         headings = DEFAULT_HEADING_LIST
 
         root.text = BBXUtils.getDocumentTitle(manager)
 
-        setTree(e, root)
+        val rootNode = OutlineNode(null, null, null, 0)
+        buildOutline(e, rootNode)
+        itemNodes[root] = rootNode
+        root.itemCount = rootNode.children.size
 
         // User will expand first anyway
         root.expanded = true
     }
 
-    private fun setTree(e: Element, item: TreeItem?) {
-        val els = e.childElements
-
-        for (i in 0 until els.size()) {
-            if (isSection(els[i])) {
-                if (hasBlocks(e)) {
-                    val childItem = TreeItem(item, SWT.LEFT or SWT.BORDER)
+    private fun buildOutline(e: Element, node: OutlineNode) {
+        // Only check once for all sections of this element, it searches every descendant
+        val parentHasBlocks by lazy { hasBlocks(e) }
 
-                    setNewItemData(childItem, els[i])
-                    setTree(els[i], childItem)
+        for (child in e.childElements) {
+            if (isSection(child)) {
+                if (parentHasBlocks) {
+                    val childNode = OutlineNode(child, getText(child), node, node.children.size)
+                    node.children.add(childNode)
+                    sections[child] = childNode
+                    buildOutline(child, childNode)
                 } else  // TODO: Should we really display empty sections?
-                    setTree(els[i], item)
-            } else if (els[i].localName != "brl") setTree(els[i], item)
+                    buildOutline(child, node)
+            } else if (child.localName != "brl") buildOutline(child, node)
         }
     }
 
-    private fun setInitialLocation(n: Node?) {
-        if (n != null) {
-            val section = getSection(n)
-            val item = findElement(section, tree.getItem(0))
-            if (item != null) tree.setSelection(item)
-        }
+    /**
+     * Fill in a virtual tree item when it is first shown
+     */
+    private fun populate(item: TreeItem, node: OutlineNode) {
+        itemNodes[item] = node
+        setNewItemData(item, node)
+        item.itemCount = node.children.size
     }
 
-    private fun findElement(e: Element, item: TreeItem): TreeItem? {
-        val count = item.itemCount
-        for (i in 0 until count) {
-            val t = getText(e)
-            if (t != null && item.items[i].data == t) return item.getItem(i)
-            else if (item.items[i].data == e) return item.getItem(i)
-            else if (item.getItem(i).itemCount > 0) {
-                val item2 = findElement(e, item.getItem(i))
-
-                if (item2 != null) return item2
+    private fun setInitialLocation(n: Node?) {
+        if (n != null) {
+            val node = sections[getSection(n)] ?: return
+            val path = generateSequence(node) { it.parent }.takeWhile { it.parent != null }.toList().asReversed()
+            var item = tree.getItem(0)
+            for (pathNode in path) {
+                item = item.getItem(pathNode.index)
+                if (!itemNodes.containsKey(item)) {
+                    populate(item, pathNode)
+                }
             }
+            tree.setSelection(item)
         }
-
-        return null
     }
 
     private fun getSection(n: Node): Element {
@@ -117,14 +139,14 @@ class BookTree2(val manager: Manager, val dialog: BookTreeDialog) {
         return p as Element
     }
 
-    //Finds text for tree item and sets corresponding data
-    private fun setNewItemData(item: TreeItem, e: Element) {
-        val t = getText(e)
+    //Sets text for tree item and corresponding data
+    private fun setNewItemData(item: TreeItem, node: OutlineNode) {
+        val t = node.heading
         if (t != null) {
             item.data = t
             item.text = t.value
         } else {
-            item.data = e
+            item.data = node.section
             item.text = "SECTION"
         }
     }
@@ -188,11 +188,18 @@ open class Renderer(@JvmField protected var manager: Manager, private val wpView
     }
 
     protected fun handleNewPageElement(offset: Int, newPage: Element?, view: WPView) {
+        view.paintedElements.add(createPageIndicator(offset, newPage, view))
+    }
+
+    /**
+     * Create a page indicator and start painting it, the caller adds it to the painted elements
+     */
+    protected fun createPageIndicator(offset: Int, newPage: Element?, view: WPView): PageIndicator {
         val line = view.view.getLineAtOffset(offset)
         val pageIndicator = PageIndicator(manager, line)
         if (view !is BrailleView) pageIndicator.findPageNums(newPage)
-        view.paintedElements.add(pageIndicator)
         pageIndicator.startListener(view)
+        return pageIndicator
     }
 
     protected fun addLastPageIndicator(list: MapList, view: WPView) {
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.braille.views.wp
+
+import org.eclipse.swt.custom.StyleRange
+import org.eclipse.swt.custom.StyledText
+import java.util.TreeSet
+
+/**
+ * Collects style ranges for a whole render and applies them to the StyledText in one call.
+ *
+ * Ranges may overlap, a range replaces the style of any range added before it where they overlap,
+ * the same as calling StyledText.setStyleRange for each range in order. Setting each range on the
+ * widget individually makes it merge its style array and redraw every time.
+ */
+class StyleRangeBuilder {
+    private val ranges = ArrayList<StyleRange>()
+
+    fun add(range: StyleRange) {
+        if (range.length > 0) {
+            ranges.add(range)
+        }
+    }
+
+    fun addAll(ranges: Iterable<StyleRange>) {
+        ranges.forEach { add(it) }
+    }
+
+    fun addAll(ranges: Array<StyleRange>) {
+        ranges.forEach { add(it) }
+    }
+
+    /**
+     * @return sorted, non-overlapping ranges
+     */
+    fun build(): Array<StyleRange> {
+        if (isSortedAndDisjoint()) {
+            return ranges.toTypedArray()
+        }
+
+        // Sweep the range boundaries, each segment between boundaries gets the style of the most
+        // recently added range covering it
+        val count = ranges.size
+        val starts = (0 until count).sortedBy { ranges[it].start }
+        val ends = (0 until count).sortedBy { end(it) }
+        val active = TreeSet<Int>()
+        val result = ArrayList<StyleRange>()
+        var lastSource = -1
+        var s = 0
+        var e = 0
+        var pos = 0
+        while (e < count) {
+            val next = if (s < count) minOf(ranges[starts[s]].start, end(ends[e])) else end(ends[e])
+            if (active.isNotEmpty() && next > pos) {
+                val top = active.last()
+                val last = result.lastOrNull()
+                if (top == lastSource && last != null && last.start + last.length == pos) {
+                    last.length += next - pos
+                } else {
+                    val segment = ranges[top].clone() as StyleRange
+                    segment.start = pos
+                    segment.length = next - pos
+                    result.add(segment)
+                    lastSource = top
+                }
+            }
+            while (e < count && end(ends[e]) == next) {
+                active.remove(ends[e++])
+            }
+            while (s < count && ranges[starts[s]].start == next) {
+                active.add(starts[s++])
+            }
+            pos = next
+        }
+        return result.toTypedArray()
+    }
+
+    /**
+     * Replace all styles between start and start + length with the built ranges
+     *
+     * @return number of ranges applied
+     */
+    fun apply(view: StyledText, start: Int, length: Int): Int {
+        val built = build()
+        view.replaceStyleRanges(start, length, built)
+        return built.size
+    }
+
+    private fun end(index: Int): Int = ranges[index].start + ranges[index].length
+
+    private fun isSortedAndDisjoint(): Boolean {
+        for (i in 1 until ranges.size) {
+            if (ranges[i].start < end(i - 1)) {
+                return false
+            }
+        }
+        return true
+    }
+}
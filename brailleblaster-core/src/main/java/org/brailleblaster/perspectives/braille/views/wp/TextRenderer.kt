@@ -33,6 +33,7 @@ import org.eclipse.swt.SWT
 import org.eclipse.swt.custom.StyleRange
 import org.eclipse.swt.custom.StyledText
 import org.eclipse.swt.widgets.Display
+import org.slf4j.LoggerFactory
 import java.util.function.Consumer
 
 class TextRenderer(manager: Manager, private val textView: TextView) : Renderer(manager, textView) {
@@ -44,6 +45,18 @@ class TextRenderer(manager: Manager, private val textView: TextView) : Renderer(
     private var lastTab: TabTextMapElement? = null
     private var lastPageBreak: PageBreakWhiteSpaceElement? = null
 
+    /**
+     * Number of style ranges applied by the last render
+     */
+    var styleRangeCount = 0
+        private set
+
+    /**
+     * Time taken to build and apply style ranges in the last render
+     */
+    var styleRangeNanos = 0L
+        private set
+
     init {
         pastFirstNewPage = false
         pastLastNewPage = false
@@ -467,6 +480,7 @@ class TextRenderer(manager: Manager, private val textView: TextView) : Renderer(
     }
 
     private fun renderEmphasis() {
+        val startTime = System.nanoTime()
         textView.ranges.clear()
         val emphasisList = state.emphasis
         for (e in emphasisList) {
@@ -480,36 +494,30 @@ class TextRenderer(manager: Manager, private val textView: TextView) : Renderer(
                 textView.setFontStyleRange(e.start, e.end - e.start, manager.getAction(e.inlineNode), e.inlineNode)
             }
         }
-        //Convert list to array
-        textView.view.styleRanges = textView.ranges.toTypedArray()
-
-        // Highlight nbsp. Loop to prevent out of order errors or conflicts with existing style rnages
-        for (curStyleRange in setNonBreakingSpaceEmphasis(
-            textView.view, 0, textView.view.charCount
-        )) {
-            textView.view.setStyleRange(curStyleRange)
-        }
+        val styleRanges = StyleRangeBuilder()
+        styleRanges.addAll(textView.ranges)
+        // Highlight nbsp, replacing any emphasis on those characters
+        styleRanges.addAll(setNonBreakingSpaceEmphasis(textView.view, 0, textView.view.charCount))
+        styleRangeCount = styleRanges.apply(textView.view, 0, textView.view.charCount)
+        styleRangeNanos = System.nanoTime() - startTime
+        log.debug("Applied {} style ranges in {} ms", styleRangeCount, styleRangeNanos / 1_000_000)
     }
 
     private fun renderNewPages() {
-        val newPages = state.newPages
-        for ((first, second) in newPages) {
-            handleNewPageElement(first, second, textView)
-        }
+        val pageIndicators = state.newPages.map { (first, second) -> createPageIndicator(first, second, textView) }
+        textView.paintedElements.addAll(pageIndicators)
     }
 
     private fun renderLineNumbers() {
+        textView.paintedElements.addAll(lineNumberList.map { it.second })
         for ((first, second) in lineNumberList) {
-            handleLineNumber(second, first)
+            second.startListener(manager, textView, first)
         }
     }
 
-    private fun handleLineNumber(g: LineNumberBrlMapElement, insertPos: Int) {
-        textView.paintedElements.add(g)
-        g.startListener(manager, textView, insertPos)
-    }
-
     companion object {
+        private val log = LoggerFactory.getLogger(TextRenderer::class.java)
+
         const val NON_BREAKING_SPACE = '\u00A0'
         const val NON_BREAKING_SPACE_COLOR = SWT.COLOR_BLACK
 
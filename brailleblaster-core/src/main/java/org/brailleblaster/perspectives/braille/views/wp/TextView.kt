@@ -1078,23 +1078,15 @@ class TextView(manager: Manager, sash: Composite) : WPView(manager, sash) {
 
     private fun getPreviousPageIndicator(caretOffset: Int): PageIndicator? {
         val line = view.getLineAtOffset(caretOffset)
-        var prevIndicator =
-            manager.text.paintedElements.pageIndicators.firstOrNull()
-        for (pi in manager.text.paintedElements.pageIndicators) {
-            if (pi.line >= line) {
-                return prevIndicator
-            }
-            prevIndicator = pi
-        }
-        return prevIndicator
+        val paintedElements = manager.text.paintedElements
+        val index = paintedElements.firstPageIndicatorIndex(line)
+        return paintedElements.pageIndicators.getOrNull((index - 1).coerceAtLeast(0))
     }
 
     private fun getNextPageIndicator(caretOffset: Int): PageIndicator? {
         val line = view.getLineAtOffset(caretOffset)
-        for (pi in manager.text.paintedElements.pageIndicators) {
-            if (pi.line >= line) return pi
-        }
-        return null
+        val paintedElements = manager.text.paintedElements
+        return paintedElements.pageIndicators.getOrNull(paintedElements.firstPageIndicatorIndex(line))
     }
 
     private fun setStateObject() {
@@ -32,6 +32,7 @@ import org.eclipse.swt.widgets.Menu
 import org.eclipse.swt.widgets.Shell
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
 
 abstract class BBSimpleManager {
     private var privCurrentSelection: XMLSelection? = null
@@ -66,8 +67,30 @@ abstract class BBSimpleManager {
     val listeners: List<SimpleListener>
         get() = listenersByClass.values.flatten()
 
+    /**
+     * Listeners for each concrete event class in dispatch order, built on first use of that event class
+     */
+    private val dispatchTable: MutableMap<Class<out SimpleEvent>, List<ListenerTiming>> = HashMap()
+    private val timingsByListener: MutableMap<SimpleListener, ListenerTiming> = LinkedHashMap()
+
+    /**
+     * Time spent in each listener, for finding slow handlers
+     */
+    val listenerTimings: Collection<ListenerTiming>
+        get() = timingsByListener.values
+
+    private fun listenersFor(eventClass: Class<out SimpleEvent>): List<ListenerTiming> =
+        dispatchTable.getOrPut(eventClass) {
+            listeners.filter { listener -> listener.subscribedEvents.any { it.isAssignableFrom(eventClass) } }
+                .map { listener -> timingsByListener.getOrPut(listener) { ListenerTiming(listener) } }
+        }
+
     fun dispatchEvent(event: SimpleEvent) {
-        log.debug("Event: {}", event, RuntimeException("event"))
+        if (log.isTraceEnabled) {
+            log.trace("Event: {}", event, RuntimeException("event"))
+        } else {
+            log.debug("Event: {}", event)
+        }
         event.manager = this
 
         //TODO: validation
@@ -82,8 +105,25 @@ abstract class BBSimpleManager {
         }
 
 
-        listeners.filter { it !is AbstractModule || !(it.self(event.sender)) || event is ModifyEvent }.forEach {
-            it.onEvent(event)
+        val profiled = event is ModifyEvent && EditProfiler.isActive &&
+                EditProfiler.beginEdit("ModifyEvent from ${event.sender}, ${event.changedNodes.size} changed nodes")
+        try {
+            for (timing in listenersFor(event.javaClass)) {
+                val listener = timing.listener
+                if (listener is AbstractModule && listener.self(event.sender) && event !is ModifyEvent) {
+                    continue
+                }
+                val start = System.nanoTime()
+                try {
+                    listener.onEvent(event)
+                } finally {
+                    timing.record(event, System.nanoTime() - start)
+                }
+            }
+        } finally {
+            if (profiled) {
+                EditProfiler.endEdit()
+            }
         }
     }
 
@@ -94,6 +134,7 @@ abstract class BBSimpleManager {
     fun registerModule(eventHandler: SimpleListener) {
         log.trace("Registered listener: ${eventHandler.javaClass.simpleName}")
         listenersByClass.getOrPut(eventHandler.javaClass, ::mutableListOf).add(eventHandler)
+        dispatchTable.clear()
     }
 
     fun <N : SimpleListener> getModule(clazz: Class<N>): N? {
@@ -113,6 +154,45 @@ abstract class BBSimpleManager {
 
     fun interface SimpleListener {
         fun onEvent(event: SimpleEvent)
+
+        /**
+         * Event classes (including subclasses) this listener handles, it will not be called for
+         * any other event. Caret events fire on every keystroke so only subscribe to what is used.
+         */
+        val subscribedEvents: Set<Class<out SimpleEvent>>
+            get() = ALL_EVENTS
+    }
+
+    /**
+     * Per-listener dispatch counters
+     */
+    class ListenerTiming(val listener: SimpleListener) {
+        var calls: Long = 0
+            private set
+        var totalNanos: Long = 0
+            private set
+        var maxNanos: Long = 0
+            private set
+
+        fun record(event: SimpleEvent, nanos: Long) {
+            calls++
+            totalNanos += nanos
+            if (nanos > maxNanos) {
+                maxNanos = nanos
+            }
+            if (nanos > SLOW_LISTENER_NANOS) {
+                log.info(
+                    "Slow listener {} took {} ms for {}",
+                    listener.javaClass.name,
+                    TimeUnit.NANOSECONDS.toMillis(nanos),
+                    event.javaClass.simpleName
+                )
+            }
+        }
+
+        override fun toString(): String =
+            "${listener.javaClass.name} calls $calls total ${TimeUnit.NANOSECONDS.toMillis(totalNanos)} ms" +
+                    " max ${TimeUnit.NANOSECONDS.toMillis(maxNanos)} ms"
     }
 
     val isSelectionNotSet: Boolean
@@ -120,5 +200,18 @@ abstract class BBSimpleManager {
 
     companion object {
         private val log: Logger = LoggerFactory.getLogger(BBSimpleManager::class.java)
+        private val SLOW_LISTENER_NANOS = TimeUnit.MILLISECONDS.toNanos(100)
+
+        @JvmField
+        val ALL_EVENTS: Set<Class<out SimpleEvent>> = setOf(SimpleEvent::class.java)
+
+        @JvmField
+        val NO_EVENTS: Set<Class<out SimpleEvent>> = emptySet()
+
+        @JvmField
+        val MENU_EVENTS: Set<Class<out SimpleEvent>> = setOf(BuildMenuEvent::class.java)
+
+        @JvmField
+        val CARET_EVENTS: Set<Class<out SimpleEvent>> = setOf(XMLCaretEvent::class.java)
     }
 }
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.mvc
+
+import jdk.jfr.Category
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.Recording
+import jdk.jfr.StackTrace
+import jdk.jfr.Timespan
+import org.eclipse.swt.widgets.Display
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.nio.file.Path
+import java.util.Locale
+import java.util.concurrent.TimeUnit
+import kotlin.math.ceil
+
+/**
+ * Stages of handling an edit, see [EditProfiler]
+ */
+enum class EditStage(val label: String) {
+    MODIFY_HANDLER("ModifyEvent handler"),
+    LIVE_FIXER("LiveFixer"),
+    TRANSLATE("Retranslation"),
+    FORMAT("Formatting"),
+    VIEW_REBUILD("View rebuild"),
+
+    /** Everything else during the ModifyEvent dispatch, mostly the listeners after the core handler */
+    LISTENERS("Other listeners"),
+
+    /** From the end of the dispatch until the UI thread next runs queued work, after the repaint */
+    RENDER("SWT rendering")
+}
+
+/**
+ * Time spent in each stage of one edit, stages only count their own time, not nested stages
+ */
+class EditProfile internal constructor(val id: Long, val description: String, val startMillis: Long) {
+    internal val stageNanos = LongArray(EditStage.entries.size)
+
+    fun nanos(stage: EditStage): Long = stageNanos[stage.ordinal]
+
+    val totalNanos: Long
+        get() = stageNanos.sum()
+}
+
+/**
+ * JFR event for the self time of one stage of an edit
+ */
+@Name("org.brailleblaster.EditStage")
+@Label("Edit Stage")
+@Category("BrailleBlaster")
+@StackTrace(false)
+internal class EditStageEvent : Event() {
+    @field:Label("Edit")
+    @JvmField
+    var edit: Long = 0
+
+    @field:Label("Stage")
+    @JvmField
+    var stage: String? = null
+
+    @field:Label("Self Time")
+    @field:Timespan(Timespan.NANOSECONDS)
+    @JvmField
+    var nanos: Long = 0
+}
+
+/**
+ * Per-edit breakdown of where the time of a ModifyEvent goes, for attaching to slow editing
+ * bug reports. Edits are the outermost ModifyEvent dispatch, the last [MAX_EDITS] are kept.
+ *
+ * Stages are measured with [start] and [record] on the UI thread. When disabled [start] returns 0
+ * without reading the clock, so the instrumentation costs a field read per stage.
+ */
+object EditProfiler {
+    private val log: Logger = LoggerFactory.getLogger(EditProfiler::class.java)
+    const val MAX_EDITS = 500
+
+    /**
+     * Upper bounds in ms of the histogram buckets, the last bucket is everything slower
+     */
+    private val BUCKETS_MS = longArrayOf(1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024)
+
+    /**
+     * Set by the Profile Edits menu item, a JFR recording profiles edits without changing this
+     */
+    @Volatile
+    @JvmStatic
+    var enabled = false
+
+    /**
+     * True while edits are profiled, either [enabled] or a recording is running
+     */
+    val isActive: Boolean
+        get() = enabled || recording != null
+
+    private var current: EditProfile? = null
+    private var depth = 0
+    private var editStart = 0L
+    private var attributedNanos = 0L
+    private val openSpans = ArrayDeque<Long>()
+    private val edits = ArrayDeque<EditProfile>()
+    private var nextId = 1L
+    @Volatile
+    private var recording: Recording? = null
+
+    /**
+     * Start profiling an edit, nested edits are part of the outer edit
+     *
+     * @return true when profiling, [endEdit] must then be called
+     */
+    @JvmStatic
+    fun beginEdit(description: String): Boolean {
+        if (current != null) {
+            depth++
+            return true
+        }
+        if (!isActive) {
+            return false
+        }
+        current = EditProfile(nextId++, description, System.currentTimeMillis())
+        depth = 0
+        attributedNanos = 0
+        openSpans.clear()
+        editStart = System.nanoTime()
+        return true
+    }
+
+    @JvmStatic
+    fun endEdit() {
+        if (depth > 0) {
+            depth--
+            return
+        }
+        val profile = current ?: return
+        current = null
+        val dispatchNanos = System.nanoTime() - editStart
+        profile.stageNanos[EditStage.LISTENERS.ordinal] += (dispatchNanos - attributedNanos).coerceAtLeast(0)
+        commitEvent(profile, EditStage.LISTENERS)
+        synchronized(edits) {
+            edits.addLast(profile)
+            if (edits.size > MAX_EDITS) {
+                edits.removeFirst()
+            }
+        }
+        val display = Display.getCurrent() ?: return
+        val renderStart = System.nanoTime()
+        display.asyncExec {
+            profile.stageNanos[EditStage.RENDER.ordinal] = System.nanoTime() - renderStart
+            commitEvent(profile, EditStage.RENDER)
+        }
+    }
+
+    /**
+     * @return start of a stage for [record], 0 when no edit is being profiled
+     */
+    @JvmStatic
+    fun start(): Long {
+        if (current == null) {
+            return 0
+        }
+        openSpans.addLast(attributedNanos)
+        return System.nanoTime()
+    }
+
+    /**
+     * Record a stage started by [start], excluding the time of stages recorded inside it
+     */
+    @JvmStatic
+    fun record(stage: EditStage, startNanos: Long) {
+        if (startNanos == 0L) {
+            return
+        }
+        val profile = current ?: return
+        val nanos = System.nanoTime() - startNanos
+        val nestedNanos = attributedNanos - (openSpans.removeLastOrNull() ?: attributedNanos)
+        val selfNanos = (nanos - nestedNanos).coerceAtLeast(0)
+        profile.stageNanos[stage.ordinal] += selfNanos
+        attributedNanos += selfNanos
+        commitEvent(profile, stage, selfNanos)
+    }
+
+    private fun commitEvent(profile: EditProfile, stage: EditStage, nanos: Long = profile.nanos(stage)) {
+        val event = EditStageEvent()
+        if (event.shouldCommit()) {
+            event.edit = profile.id
+            event.stage = stage.label
+            event.nanos = nanos
+            event.commit()
+        }
+    }
+
+    fun edits(): List<EditProfile> = synchronized(edits) { edits.toList() }
+
+    fun clear() {
+        synchronized(edits) { edits.clear() }
+    }
+
+    /**
+     * Start a JFR recording of edit stage events, edits are profiled until [stopRecording]
+     */
+    fun startRecording() {
+        if (recording != null) {
+            return
+        }
+        recording = Recording().apply {
+            name = "BrailleBlaster edits"
+            enable(EditStageEvent::class.java)
+            start()
+        }
+    }
+
+    val isRecording: Boolean
+        get() = recording != null
+
+    /**
+     * Stop the JFR recording and write it to file
+     */
+    fun stopRecording(file: Path?) {
+        val recording = recording ?: return
+        this.recording = null
+        recording.use {
+            it.stop()
+            if (file != null) {
+                it.dump(file)
+                log.info("Wrote edit profile recording to {}", file)
+            }
+        }
+    }
+
+    /**
+     * Percentiles and histogram of each stage over the kept edits, then the slowest edits
+     */
+    fun report(): String {
+        val edits = edits()
+        val report = StringBuilder()
+        report.append("Edit profile of the last ").append(edits.size).append(" edits, times in ms\n\n")
+        if (edits.isEmpty()) {
+            return report.append(if (isActive) "No edits yet\n" else "Profiling is disabled\n").toString()
+        }
+
+        report.append(String.format(Locale.ROOT, "%-20s %8s %8s %8s %8s %8s %8s%n",
+            "Stage", "total", "mean", "p50", "p90", "p99", "max"))
+        val rows = EditStage.entries.map { stage -> stage.label to edits.map { it.nanos(stage) } } +
+                ("Total" to edits.map { it.totalNanos })
+        for ((label, nanos) in rows) {
+            val sorted = nanos.sorted()
+            report.append(String.format(Locale.ROOT, "%-20s %8s %8s %8s %8s %8s %8s%n",
+                label,
+                millis(sorted.sum()),
+                millis(sorted.sum() / sorted.size),
+                millis(percentile(sorted, 50.0)),
+                millis(percentile(sorted, 90.0)),
+                millis(percentile(sorted, 99.0)),
+                millis(sorted.last())))
+        }
+
+        report.append("\nHistogram, edits per bucket\n")
+        report.append(String.format(Locale.ROOT, "%-20s", "Stage"))
+        BUCKETS_MS.forEach { report.append(String.format(Locale.ROOT, " %5s", "<$it")) }
+        report.append(String.format(Locale.ROOT, " %5s%n", ">=" + BUCKETS_MS.last()))
+        for ((label, nanos) in rows) {
+            val counts = IntArray(BUCKETS_MS.size + 1)
+            for (n in nanos) {
+                val ms = TimeUnit.NANOSECONDS.toMillis(n)
+                val bucket = BUCKETS_MS.indexOfFirst { ms < it }
+                counts[if (bucket == -1) BUCKETS_MS.size else bucket]++
+            }
+            report.append(String.format(Locale.ROOT, "%-20s", label))
+            counts.forEach { report.append(String.format(Locale.ROOT, " %5d", it)) }
+            report.append('\n')
+        }
+
+        report.append("\nSlowest edits\n")
+        for (edit in edits.sortedByDescending { it.totalNanos }.take(10)) {
+            report.append("#").append(edit.id).append(' ').append(edit.description)
+                .append(": ").append(millis(edit.totalNanos)).append(" ms\n")
+            for (stage in EditStage.entries) {
+                if (edit.nanos(stage) > 0) {
+                    report.append("    ").append(stage.label).append(' ').append(millis(edit.nanos(stage))).append('\n')
+                }
+            }
+        }
+        return report.toString()
+    }
+
+    private fun percentile(sorted: List<Long>, percent: Double): Long =
+        sorted[(ceil(percent / 100 * sorted.size).toInt() - 1).coerceIn(sorted.indices)]
+
+    private fun millis(nanos: Long): String = String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0)
+}
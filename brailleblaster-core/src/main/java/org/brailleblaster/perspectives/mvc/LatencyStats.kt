@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.mvc
+
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.util.concurrent.TimeUnit
+
+/**
+ * Call count, total, max and last duration of some repeated operation, eg handling an edit
+ *
+ * @param slowNanos durations over this are logged
+ */
+class LatencyStats @JvmOverloads constructor(
+    val name: String,
+    private val slowNanos: Long = TimeUnit.MILLISECONDS.toNanos(100)
+) {
+    var calls: Long = 0
+        private set
+    var totalNanos: Long = 0
+        private set
+    var maxNanos: Long = 0
+        private set
+    var lastNanos: Long = 0
+        private set
+
+    val meanNanos: Long
+        get() = if (calls == 0L) 0 else totalNanos / calls
+
+    fun record(nanos: Long) {
+        calls++
+        totalNanos += nanos
+        lastNanos = nanos
+        if (nanos > maxNanos) {
+            maxNanos = nanos
+        }
+        if (nanos > slowNanos) {
+            log.info("Slow {} took {} ms", name, TimeUnit.NANOSECONDS.toMillis(nanos))
+        }
+    }
+
+    /**
+     * Record the time since startNanos, a value from [System.nanoTime]
+     */
+    fun recordSince(startNanos: Long) {
+        record(System.nanoTime() - startNanos)
+    }
+
+    fun reset() {
+        calls = 0
+        totalNanos = 0
+        maxNanos = 0
+        lastNanos = 0
+    }
+
+    override fun toString(): String =
+        "$name calls $calls mean ${TimeUnit.NANOSECONDS.toMillis(meanNanos)} ms" +
+                " max ${TimeUnit.NANOSECONDS.toMillis(maxNanos)} ms last ${TimeUnit.NANOSECONDS.toMillis(lastNanos)} ms"
+
+    companion object {
+        private val log: Logger = LoggerFactory.getLogger(LatencyStats::class.java)
+    }
+}
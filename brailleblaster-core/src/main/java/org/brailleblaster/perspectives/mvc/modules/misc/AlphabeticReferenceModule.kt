@@ -13,6 +13,9 @@ import org.brailleblaster.perspectives.mvc.modules.views.DebugModule
 import org.brailleblaster.util.UncontractedGlossary
 
 class AlphabeticReferenceModule(var manager: Manager) : BBSimpleManager.SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent && DebugModule.enabled) {
             val smb = SubMenuBuilder(
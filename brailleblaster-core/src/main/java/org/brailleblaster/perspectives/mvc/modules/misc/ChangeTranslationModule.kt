@@ -15,6 +15,7 @@
  */
 package org.brailleblaster.perspectives.mvc.modules.misc
 
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BuildMenuEvent
@@ -25,6 +26,9 @@ import org.brailleblaster.utd.properties.EmphasisType
 import org.eclipse.swt.SWT
 
 class ChangeTranslationModule : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             val smb = SubMenuBuilder(
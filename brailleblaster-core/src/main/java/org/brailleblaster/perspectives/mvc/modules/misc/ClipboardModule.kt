@@ -71,6 +71,9 @@ import kotlin.math.min
 class ClipboardModule(private val manager: BBSimpleManager) : SimpleListener {
     val paste: Paste = Paste()
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             add(CutTool(this))
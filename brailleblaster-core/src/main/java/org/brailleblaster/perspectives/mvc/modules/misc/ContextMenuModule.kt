@@ -50,6 +50,9 @@ class ContextMenuModule(private val manager: Manager) : SimpleListener {
     private var items: List<ContextItem>? = null
     private var moduleInitialized = false
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(BuildMenuEvent::class.java, XMLCaretEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             items = buildItems()
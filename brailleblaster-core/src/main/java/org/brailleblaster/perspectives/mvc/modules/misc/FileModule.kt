@@ -22,6 +22,7 @@ import org.brailleblaster.archiver2.ArchiverRecoverThread
 import org.brailleblaster.archiver2.BBZArchiver.BBZSaveOptions
 import org.brailleblaster.archiver2.SaveOptions
 import org.brailleblaster.perspectives.braille.Manager
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BuildMenuEvent
@@ -41,6 +42,9 @@ import kotlin.io.path.isDirectory
 import kotlin.io.path.nameWithoutExtension
 
 class FileModule : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             MenuManager.add(NewFileTool)
@@ -16,6 +16,7 @@
 package org.brailleblaster.perspectives.mvc.modules.misc
 
 import org.brailleblaster.utils.localization.LocaleHandler.Companion.getDefault
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.menu.MenuManager
 import org.brailleblaster.perspectives.mvc.menu.BBSelectionData
@@ -30,6 +31,9 @@ import org.eclipse.swt.SWT
 private val localeHandler = getDefault()
 
 object FontSizeModule : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             MenuManager.add(IncreaseFontSizeTool)
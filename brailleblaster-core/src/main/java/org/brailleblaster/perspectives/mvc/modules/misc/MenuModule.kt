@@ -15,6 +15,7 @@
  */
 package org.brailleblaster.perspectives.mvc.modules.misc
 
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.menu.MenuManager
 import org.brailleblaster.perspectives.mvc.menu.EnableListener
@@ -22,6 +23,9 @@ import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.XMLCaretEvent
 
 class MenuModule : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.CARET_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is XMLCaretEvent) {
             //For demonstration purposes only
@@ -18,6 +18,7 @@ package org.brailleblaster.perspectives.mvc.modules.misc
 import org.brailleblaster.abstractClasses.BBEditorView
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.views.wp.WPView
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BBViewListener
@@ -27,6 +28,9 @@ import org.eclipse.swt.custom.VerifyKeyListener
 import org.eclipse.swt.events.VerifyEvent
 
 class PageDownUpModule(private val manager: Manager) : SimpleListener, VerifyKeyListener, BBViewListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.NO_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
 //		if (event instanceof BuildMenuEvent) {
 //			MenuManager.addMenuItem(TopMenu.NAVIGATE, "Next Page",  SWT.PAGE_DOWN, e -> nextPage(e.manager), null);
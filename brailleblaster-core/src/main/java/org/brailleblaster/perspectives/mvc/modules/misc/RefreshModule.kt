@@ -17,6 +17,7 @@ package org.brailleblaster.perspectives.mvc.modules.misc
 
 import org.brailleblaster.abstractClasses.BBEditorView
 import org.brailleblaster.perspectives.braille.Manager
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BBViewListener
@@ -25,6 +26,9 @@ import org.eclipse.swt.custom.VerifyKeyListener
 import org.eclipse.swt.events.VerifyEvent
 
 class RefreshModule(private val manager: Manager) : SimpleListener, VerifyKeyListener, BBViewListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.NO_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
 //		MenuManager.addMenuItem(TopMenu.VIEW, LocaleHandler.get("&RefreshTranslation"), SWT.F5, e -> e.manager.refresh(), SharedItem.REFRESH);
     }
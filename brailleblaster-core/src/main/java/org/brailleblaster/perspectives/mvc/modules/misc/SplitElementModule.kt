@@ -35,6 +35,9 @@ class SplitElementModule : SimpleListener {
     //so put the shortcut in the menu name
     //	private final static String MENU_ITEM_NAME = "Split Element\tEnter";
     //	private final static int ACCELERATOR = 0;
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.NO_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
 //		if(event instanceof BuildMenuEvent){
 //			MenuManager.addMenuItem(TopMenu.EDIT, MENU_ITEM_NAME, ACCELERATOR, e -> splitElement(e.manager.getSimpleManager()), null);
@@ -30,6 +30,7 @@ import org.brailleblaster.math.mathml.MathModuleUtils.isMath
 import org.brailleblaster.math.mathml.MathModuleUtils.isSpatialMath
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.messages.Sender
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.XMLNodeCaret
@@ -95,6 +96,9 @@ class StylesMenuModule(private val m: Manager) : SimpleListener {
      */
     private var lastStyleId: String? = null
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             MenuManager.add(RepeatStyleTool())
@@ -20,6 +20,7 @@ import nu.xom.Node
 import nu.xom.Text
 import org.brailleblaster.bbx.BBX
 import org.brailleblaster.perspectives.braille.Manager
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.XMLNodeCaret.CursorPosition
@@ -32,6 +33,9 @@ class TableSelectionModule(private val manager: Manager) : SimpleListener {
     var isTableSelected = false
         private set
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.CARET_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is XMLCaretEvent) {
             val selection = manager.simpleManager.currentSelection
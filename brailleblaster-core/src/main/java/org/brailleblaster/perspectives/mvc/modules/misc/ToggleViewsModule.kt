@@ -18,6 +18,7 @@ package org.brailleblaster.perspectives.mvc.modules.misc
 import org.brailleblaster.BBIni
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.views.style.BreadcrumbsToolbar
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.ViewManager
@@ -57,6 +58,9 @@ class ToggleViewsModule(private val m: Manager) : SimpleListener {
         checkViews()
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             val tool = ToggleViewTool.TogglePrintViewTool(
@@ -16,6 +16,7 @@
 package org.brailleblaster.perspectives.mvc.modules.misc
 
 import org.brailleblaster.perspectives.braille.toolbar.ToolBarSettings
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.menu.MenuManager
 import org.brailleblaster.perspectives.mvc.menu.BBSelectionData
@@ -28,6 +29,9 @@ import org.eclipse.swt.widgets.MenuItem
 import java.util.*
 
 class ToolBarModule(private val wp: WPManager) : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             val smb =
@@ -86,6 +86,9 @@ class UndoRedoModule(m: Manager) : SimpleListener {
         newThread.start()
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(BuildMenuEvent::class.java, ModifyEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             MenuManager.add(UndoTool(this))
@@ -25,6 +25,7 @@ import org.brailleblaster.frontmatter.VolumeUtils.getVolumeNames
 import org.brailleblaster.frontmatter.VolumeUtils.updateEndOfVolume
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.messages.Sender
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.menu.MenuManager
 import org.brailleblaster.perspectives.mvc.SimpleEvent
@@ -38,6 +39,9 @@ import org.brailleblaster.util.YesNoChoice.Companion.ask
 import org.eclipse.swt.SWT
 
 class VolumeChangeModule(private val manager: Manager) : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent && DebugModule.enabled) {
             val volumeManagerMenu = SubMenuBuilder(
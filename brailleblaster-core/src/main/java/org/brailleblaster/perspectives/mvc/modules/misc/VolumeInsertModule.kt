@@ -31,6 +31,7 @@ import org.brailleblaster.frontmatter.VolumeUtils.updateEndOfVolume
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.mapping.elements.WhiteSpaceElement
 import org.brailleblaster.perspectives.braille.messages.Sender
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BuildMenuEvent
@@ -47,6 +48,9 @@ import org.brailleblaster.util.WorkingDialog
 import org.brailleblaster.utils.localization.LocaleHandler.Companion.getDefault
 
 class VolumeInsertModule : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent && DebugModule.enabled) {
             val volumeManagerMenu = SubMenuBuilder(
@@ -43,6 +43,9 @@ class BrailleViewModule(private val manager: Manager) : AbstractModule(), CheckM
     override fun onRun(bbData: BBSelectionData) {
         bbData.manager.fontManager.toggleBrailleFont((bbData.widget as MenuItem).selection)
     }
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(BuildMenuEvent::class.java, XMLCaretEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is XMLCaretEvent) {
             //TODO: selection
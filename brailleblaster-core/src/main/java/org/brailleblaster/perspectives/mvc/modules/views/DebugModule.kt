@@ -19,6 +19,7 @@ import org.brailleblaster.BBIni
 import org.brailleblaster.abstractClasses.BBEditorView
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.messages.Sender
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BBViewListener
@@ -32,6 +33,9 @@ class DebugModule(private val currentEditor: Manager) : AbstractModule(), Simple
         sender = Sender.DEBUG
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.NO_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
     }
 
@@ -61,6 +61,9 @@ object EmphasisModule : AbstractModule(), SimpleListener {
         sender = Sender.EMPHASIS
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             MenuManager.add(BoldTool)
@@ -44,6 +44,9 @@ class TextViewModule(private val manager: Manager) : AbstractModule(), SimpleLis
         sender = Sender.TEXT
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(ModifyEvent::class.java, XMLCaretEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is ModifyEvent) {
             manager.text.resetSelectionObject()
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.printers
+
+import org.brailleblaster.utd.BRFWriter
+import org.brailleblaster.utd.BRFWriter.OutputCharStream
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.CancellationException
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Page offset index over a BRF as it is generated.
+ *
+ * Characters are fed in through [OutputCharStream] (usually from a background thread), each
+ * completed page is spooled to a temporary file and only its offsets are kept in memory. The
+ * preview then reads back the handful of pages it is showing through a small page cache.
+ *
+ * Offsets are "total" character offsets across all pages, with page separators excluded, so page
+ * ranges are contiguous.
+ */
+class BrfPageIndex(private val onPageAdded: (pageCount: Int) -> Unit = {}) : OutputCharStream, AutoCloseable {
+    private val lock = ReentrantLock()
+    private val pageAdded = lock.newCondition()
+    private val spoolFile: Path = Files.createTempFile("bbPreview", ".brf")
+    private val spool: FileChannel = FileChannel.open(
+        spoolFile,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.DELETE_ON_CLOSE
+    )
+
+    /** Page N occupies chars pageCharStarts[N] until pageCharStarts[N+1] */
+    private var pageCharStarts = IntArray(64)
+    private var pageByteStarts = LongArray(64)
+    private var pages = 0
+    private var spoolLength = 0L
+    private val brlPageOffsets: MutableMap<String, Int> = LinkedHashMap()
+
+    /**
+     * Contains both braille and orig versions of page number
+     */
+    private val printPageOffsets: MutableMap<String, Int> = LinkedHashMap()
+    private val currentPage = StringBuilder()
+    private var currentPageStart = 0
+
+    private val pageCache = object : LinkedHashMap<Int, String>(PAGE_CACHE_SIZE, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, String>?): Boolean =
+            size > PAGE_CACHE_SIZE
+    }
+
+    @Volatile
+    private var cancelled = false
+
+    @Volatile
+    var isComplete = false
+        private set
+
+    @Volatile
+    private var failure: Throwable? = null
+
+    /**
+     * Number of pages generated so far, only final once [isComplete]
+     */
+    val pageCount: Int
+        get() = lock.withLock { pages }
+
+    /**
+     * Total offset of the text currently being generated, for use by page listeners
+     */
+    val currentOffset: Int
+        get() = currentPageStart + currentPage.length
+
+    /**
+     * Total length of all generated pages, only final once [isComplete]
+     */
+    val length: Int
+        get() = lock.withLock { pageCharStarts[pages] }
+
+    override fun accept(curChar: Char) {
+        if (cancelled) {
+            throw CancellationException("BRF preview generation cancelled")
+        }
+        if (curChar == BRFWriter.PAGE_SEPARATOR) {
+            // Don't include page separator text so dual view doesn't have to strip them out
+            flushPage()
+        } else {
+            currentPage.append(curChar)
+        }
+    }
+
+    fun onBrlPageNum(brlPageOrig: String) {
+        lock.withLock { brlPageOffsets[brlPageOrig] = currentOffset }
+    }
+
+    fun onPrintPageNum(printPageOrig: String) {
+        lock.withLock { printPageOffsets[printPageOrig] = currentOffset }
+    }
+
+    private fun flushPage() {
+        val bytes = ByteBuffer.wrap(currentPage.toString().toByteArray(Charsets.UTF_8))
+        val bytesStart = spoolLength
+        while (bytes.hasRemaining()) {
+            spoolLength += spool.write(bytes, spoolLength)
+        }
+        lock.withLock {
+            if (pages + 1 == pageCharStarts.size) {
+                pageCharStarts = pageCharStarts.copyOf(pageCharStarts.size * 2)
+                pageByteStarts = pageByteStarts.copyOf(pageByteStarts.size * 2)
+            }
+            pageCharStarts[pages] = currentPageStart
+            pageByteStarts[pages] = bytesStart
+            pages++
+            currentPageStart += currentPage.length
+            pageCharStarts[pages] = currentPageStart
+            pageByteStarts[pages] = spoolLength
+            pageAdded.signalAll()
+        }
+        currentPage.setLength(0)
+        onPageAdded(pageCount)
+    }
+
+    /**
+     * Mark generation as finished. Trailing text without a page separator (eg BRF files without a
+     * final form feed, Issue #6469) becomes the last page.
+     */
+    fun finish() {
+        if (currentPage.isNotBlank() || pageCount == 0) {
+            flushPage()
+        }
+        lock.withLock {
+            isComplete = true
+            pageAdded.signalAll()
+        }
+    }
+
+    fun fail(e: Throwable) {
+        lock.withLock {
+            failure = e
+            isComplete = true
+            pageAdded.signalAll()
+        }
+    }
+
+    /**
+     * Block until the given page exists or generation has finished
+     *
+     * @return true if the page exists
+     */
+    fun awaitPage(pageIndex: Int): Boolean {
+        lock.withLock {
+            while (pages <= pageIndex && !isComplete) {
+                pageAdded.await()
+            }
+            failure?.let { throw RuntimeException("Failed to generate BRF", it) }
+            return pageIndex < pages
+        }
+    }
+
+    fun awaitComplete() {
+        awaitPage(Int.MAX_VALUE - 1)
+    }
+
+    fun pageRange(pageIndex: Int): IntRange {
+        check(awaitPage(pageIndex)) { "Page $pageIndex does not exist, total ${pageCount}" }
+        return lock.withLock { pageCharStarts[pageIndex]..pageCharStarts[pageIndex + 1] }
+    }
+
+    fun pageText(pageIndex: Int): String {
+        check(awaitPage(pageIndex)) { "Page $pageIndex does not exist, total ${pageCount}" }
+        return lock.withLock {
+            pageCache.getOrPut(pageIndex) {
+                val bytes = ByteBuffer.allocate((pageByteStarts[pageIndex + 1] - pageByteStarts[pageIndex]).toInt())
+                var position = pageByteStarts[pageIndex]
+                while (bytes.hasRemaining()) {
+                    position += spool.read(bytes, position)
+                }
+                String(bytes.array(), Charsets.UTF_8)
+            }
+        }
+    }
+
+    /**
+     * Binary search for the page containing the given total offset, waiting for generation
+     * if it is not yet available
+     */
+    fun pageIndexOfOffset(totalOffset: Int): Int {
+        while (true) {
+            lock.withLock {
+                if (totalOffset < pageCharStarts[pages] || isComplete) {
+                    var low = 0
+                    var high = pages - 1
+                    while (low < high) {
+                        val mid = (low + high + 1) ushr 1
+                        if (pageCharStarts[mid] <= totalOffset) low = mid else high = mid - 1
+                    }
+                    if (totalOffset >= pageCharStarts[pages] && totalOffset != 0) {
+                        throw RuntimeException("Offset $totalOffset not found, total: ${pageCharStarts[pages]}")
+                    }
+                    return low
+                }
+            }
+            awaitPage(pageCount)
+        }
+    }
+
+    /**
+     * Go to page lookup by braille page number, case-insensitive
+     */
+    fun brlPageOffset(label: String): Int? = labelOffset(brlPageOffsets, label)
+
+    /**
+     * Go to page lookup by print page number, case-insensitive
+     */
+    fun printPageOffset(label: String): Int? = labelOffset(printPageOffsets, label)
+
+    private fun labelOffset(offsets: Map<String, Int>, label: String): Int? {
+        fun find() = lock.withLock { offsets.entries.firstOrNull { it.key.equals(label, ignoreCase = true) }?.value }
+        // Page might just not have been generated yet
+        return find() ?: run {
+            awaitComplete()
+            find()
+        }
+    }
+
+    /**
+     * Find the last braille or print page number that starts before the end of the page
+     * containing the given offset
+     */
+    fun pageLabelAt(totalOffset: Int, braille: Boolean): String? {
+        val pageEnd = pageRange(pageIndexOfOffset(totalOffset)).last
+        return lock.withLock {
+            (if (braille) brlPageOffsets else printPageOffsets).entries
+                .lastOrNull { (_, v) -> v <= pageEnd }
+                ?.key
+        }
+    }
+
+    /**
+     * Search forward a page at a time, matches do not span pages
+     */
+    fun indexOf(needle: String, startOffset: Int): Int {
+        if (!awaitPage(0)) return -1
+        var pageIndex = if (startOffset >= length && isComplete) return -1 else pageIndexOfOffset(startOffset)
+        while (awaitPage(pageIndex)) {
+            val range = pageRange(pageIndex)
+            val found = pageText(pageIndex).indexOf(needle, (startOffset - range.first).coerceAtLeast(0))
+            if (found != -1) {
+                return range.first + found
+            }
+            pageIndex++
+        }
+        return -1
+    }
+
+    /**
+     * Search backward a page at a time for a match that starts before the end offset
+     */
+    fun lastIndexOf(needle: String, endOffset: Int): Int {
+        if (!awaitPage(0)) return -1
+        var pageIndex = pageIndexOfOffset(endOffset.coerceAtMost(length - 1).coerceAtLeast(0))
+        while (pageIndex >= 0) {
+            val range = pageRange(pageIndex)
+            val text = pageText(pageIndex)
+            val searchable = text.substring(0, (endOffset - range.first).coerceIn(0, text.length))
+            val found = searchable.lastIndexOf(needle)
+            if (found != -1) {
+                return range.first + found
+            }
+            pageIndex--
+        }
+        return -1
+    }
+
+    /**
+     * Stop generation on the next character and release the spool file
+     */
+    override fun close() {
+        cancelled = true
+        lock.withLock {
+            isComplete = true
+            pageCache.clear()
+            pageAdded.signalAll()
+        }
+        try {
+            spool.close()
+        } catch (e: Exception) {
+            log.warn("Failed to close preview spool {}", spoolFile, e)
+        }
+    }
+
+    companion object {
+        private val log: Logger = LoggerFactory.getLogger(BrfPageIndex::class.java)
+        private const val PAGE_CACHE_SIZE = 8
+    }
+}
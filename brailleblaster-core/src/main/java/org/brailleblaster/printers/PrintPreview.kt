@@ -46,6 +46,7 @@ import org.brailleblaster.wordprocessor.FontManager.Companion.newBrailleFont
 import org.brailleblaster.wordprocessor.FontManager.Companion.newTextFont
 import org.brailleblaster.wordprocessor.WPManager
 import org.eclipse.swt.SWT
+import org.eclipse.swt.custom.BusyIndicator
 import org.eclipse.swt.custom.StyledText
 import org.eclipse.swt.events.*
 import org.eclipse.swt.graphics.Color
@@ -59,8 +60,10 @@ import java.io.IOException
 import java.math.BigDecimal
 import java.math.RoundingMode
 import java.nio.file.Path
+import java.util.concurrent.CancellationException
 import java.util.function.BiFunction
-import kotlin.io.path.readText
+import kotlin.concurrent.thread
+import kotlin.io.path.bufferedReader
 import kotlin.math.max
 
 class PrintPreview private constructor(
@@ -70,13 +73,11 @@ class PrintPreview private constructor(
     private val viewColorDefault: Color
     private val viewColorDisabled: Color
     private val shell: Shell
-    private val pageStartOffsets: MutableList<Int> = ArrayList()
-    private val brlPageOffsets: MutableMap<String, Int> = LinkedHashMap()
 
     /**
-     * Contains both braille and orig versions of page number
+     * Page index of the BRF, generated in the background so only the displayed pages are held in memory
      */
-    private val printPageOffsets: MutableMap<String, Int> = LinkedHashMap()
+    private var pages = BrfPageIndex()
     private val viewLeft: StyledText
     private val viewRight: StyledText
     private var lastFocusedView: StyledText? = null
@@ -89,9 +90,8 @@ class PrintPreview private constructor(
     private val dualViewMenuItem: MenuItem
     private val unicodeMenuItem: MenuItem
     private val curPage: Text
+    private val pageTotal: Label
     private val searchText: Text
-    private lateinit var brfOutput: String
-    private val pageRanges: MutableList<IntRange> = mutableListOf()
     private var currentViewMode: ViewMode
     private val dualViewMode: ViewMode
     private val singleViewMode: ViewMode
@@ -177,7 +177,7 @@ class PrintPreview private constructor(
             val pageOf = Label(pageNavPanel, SWT.NONE)
             pageOf.text = "of"
 
-            val pageTotal = Label(pageNavPanel, SWT.NONE)
+            pageTotal = Label(pageNavPanel, SWT.NONE)
 
             previousPageButton = Button(pageNavPanel, SWT.NONE)
             previousPageButton.text = "Previous Page"
@@ -261,16 +261,15 @@ class PrintPreview private constructor(
                         showMessage("$raw is not a number")
                         return@addTraverseListener
                     }
-                    if (requestedPage > pageStartOffsets.size) {
+                    if (requestedPage < 1 || !awaitingPages { pages.awaitPage(requestedPage - 1) }) {
                         showMessage("Page $requestedPage is too big")
                         return@addTraverseListener
                     }
 
                     // Get the line and scroll to it (requested page is 1 based)
-                    offset = pageStartOffsets[requestedPage - 1]
+                    offset = pages.pageRange(requestedPage - 1).first
                 } else if (brlPageButton.selection) {
-                    val result =
-                        brlPageOffsets.filterKeys { key -> key.equals(raw, ignoreCase = true) }.values.firstOrNull()
+                    val result = awaitingPages { pages.brlPageOffset(raw) }
                     if (result == null) {
                         showMessage("Braille page {} does not exist", raw)
                         return@addTraverseListener
@@ -278,8 +277,7 @@ class PrintPreview private constructor(
                     offset = result
                 } else {
                     // Print page
-                    val result =
-                        printPageOffsets.filterKeys { key -> key.equals(raw, ignoreCase = true) }.values.firstOrNull()
+                    val result = awaitingPages { pages.printPageOffset(raw) }
                     if (result == null) {
                         showMessage("Print page {} does not exist", raw)
                         return@addTraverseListener
@@ -388,7 +386,7 @@ class PrintPreview private constructor(
 
             // Update page nav
             curPage.text = "1"
-            pageTotal.text = "" + pageStartOffsets.size
+            updatePageTotal()
 
             if (docData is BrfDocumentData) {
                 rawPageButton.selection = true
@@ -504,7 +502,7 @@ class PrintPreview private constructor(
         protected fun getTotalOffset(pageIndex: Int): Int {
             val currentPageIndex = max(pageIndex, 0) // handle -1 page
 
-            return pageRanges[currentPageIndex].first
+            return pages.pageRange(currentPageIndex).first
         }
 
         abstract val totalOffset: Int
@@ -519,16 +517,14 @@ class PrintPreview private constructor(
 
         abstract fun goToOffset(totalOffset: Int)
 
-        protected fun getPageRangeIndexFromOffset(totalOffset: Int): Int {
-            val index = pageRanges.indexOfFirst { totalOffset < it.last }
-            if (index >= 0) {
-                return index
-            } else {
-                throw RuntimeException("Offset " + totalOffset + " not found, total: " + brfOutput.length)
-            }
-        }
+        protected fun getPageRangeIndexFromOffset(totalOffset: Int): Int = pages.pageIndexOfOffset(totalOffset)
 
         abstract fun doJumpToAdjacentPage(direction: Int)
+
+        /**
+         * Pages may still be generating, so the next page may have become available
+         */
+        abstract fun updateNavigation()
     }
 
     private inner class DualViewMode : ViewMode() {
@@ -584,9 +580,8 @@ class PrintPreview private constructor(
             }
 
             if (pageRangeIndex != -1) {
-                leftPageRange = pageRanges[pageRangeIndex]
-                viewLeft.text =
-                    brfOutput.substring(leftPageRange!!.first, leftPageRange!!.last)
+                leftPageRange = pages.pageRange(pageRangeIndex)
+                viewLeft.text = pages.pageText(pageRangeIndex)
                 viewLeft.background = viewColorDefault
             } else {
                 leftPageRange = null
@@ -594,10 +589,9 @@ class PrintPreview private constructor(
                 viewLeft.background = viewColorDisabled
             }
 
-            if (pageRangeIndex + 1 <= pageRanges.size - 1) {
-                rightPageRange = pageRanges[pageRangeIndex + 1]
-                viewRight.text =
-                    brfOutput.substring(rightPageRange!!.first, rightPageRange!!.last)
+            if (awaitingPages { pages.awaitPage(pageRangeIndex + 1) }) {
+                rightPageRange = pages.pageRange(pageRangeIndex + 1)
+                viewRight.text = pages.pageText(pageRangeIndex + 1)
                 viewRight.background = viewColorDefault
             } else {
                 rightPageRange = null
@@ -612,13 +606,16 @@ class PrintPreview private constructor(
                 viewRight.setFocus()
             }
 
-            nextPageButton.isEnabled =
-                pageRangeIndex < pageRanges.size -  /* to 0-index */1 -  /* ignore second panel */1
+            updateNavigation()
             previousPageButton.isEnabled = pageRangeIndex > 0
 
             updateCurrentPage()
         }
 
+        override fun updateNavigation() {
+            nextPageButton.isEnabled = hasPage(pageRangeIndex +  /* ignore second panel */2)
+        }
+
         override fun onGenerate() {
             onDualViewPageChange()
         }
@@ -642,9 +639,7 @@ class PrintPreview private constructor(
                 // On first page and trying to go to beginning
                 viewRight.caretOffset = 0
                 viewRight.forceFocus()
-            } else if (pageRangeIndex >= pageRanges.size -  /* to 0-index */1 -  /* ignore second panel */1
-                && direction > 0
-            ) {
+            } else if (direction > 0 && !awaitingPages { pages.awaitPage(pageRangeIndex +  /* ignore second panel */2) }) {
                 if (viewRight.background === viewColorDisabled) {
                     viewLeft.caretOffset = 0
                     viewLeft.forceFocus()
@@ -684,10 +679,10 @@ class PrintPreview private constructor(
         private fun onSingleViewPageChange() {
             log.debug("Page range index set to {}", pageRangeIndex)
 
-            pageRange = pageRanges[pageRangeIndex]
-            viewLeft.text = brfOutput.substring(pageRange!!.first, pageRange!!.last)
+            pageRange = pages.pageRange(pageRangeIndex)
+            viewLeft.text = pages.pageText(pageRangeIndex)
 
-            nextPageButton.isEnabled = pageRangeIndex < pageRanges.size -  /* to 0-index */1
+            updateNavigation()
             previousPageButton.isEnabled = pageRangeIndex > 0
 
             viewLeft.setFocus()
@@ -695,6 +690,10 @@ class PrintPreview private constructor(
             updateCurrentPage()
         }
 
+        override fun updateNavigation() {
+            nextPageButton.isEnabled = hasPage(pageRangeIndex + 1)
+        }
+
         override fun onGenerate() {
             onSingleViewPageChange()
         }
@@ -721,7 +720,7 @@ class PrintPreview private constructor(
                 // On first page and trying to go to beginning
                 viewLeft.caretOffset = 0
                 viewLeft.forceFocus()
-            } else if (pageRangeIndex >= pageRanges.size -  /* to 0-index */1 && direction > 0) {
+            } else if (direction > 0 && !awaitingPages { pages.awaitPage(pageRangeIndex + 1) }) {
                 // on last page
                 viewLeft.caretOffset = 0
                 viewLeft.forceFocus()
@@ -746,29 +745,72 @@ class PrintPreview private constructor(
     fun updateCurrentPage() {
         val offset: Int = currentViewMode.totalOffset
 
-        // When we pass the offset we just entered the current page
         if (rawPageButton.selection) {
-            for (curPageRange in pageRanges) {
-                if (offset < curPageRange.last) {
-                    val pageNum = pageRanges.indexOf(curPageRange)
-                    curPage.text = "" + (pageNum + 1)
-                    break
-                }
-            }
+            curPage.text = "" + (pages.pageIndexOfOffset(offset) + 1)
         } else {
-            // Find the offset relating to the end of the current page.
-            val pageEnd = pageRanges.filter { e -> offset in e }.map { e -> e.last }.firstOrNull() ?: offset
-            val lookup: Map<String, Int> = if (brlPageButton.selection) brlPageOffsets else printPageOffsets
             // Find the last page before the end of the current page.
-            lookup.entries
-                .filter { (_,v) -> v <= pageEnd }
-                .reduceOrNull { _: Map.Entry<String, Int>?, b: Map.Entry<String, Int>? -> b }
-                ?.let { (k, _) -> curPage.text = k }
+            pages.pageLabelAt(offset, brlPageButton.selection)?.let { curPage.text = it }
         }
 
         updatePPStatusBar()
     }
 
+    /**
+     * Run an action that may wait for pages still being generated, showing a busy cursor
+     * meanwhile so a large BRF does not look hung
+     */
+    private fun <T> awaitingPages(action: () -> T): T {
+        if (pages.isComplete) {
+            return action()
+        }
+        var result: Result<T>? = null
+        BusyIndicator.showWhile(shell.display) { result = runCatching(action) }
+        return result!!.getOrThrow()
+    }
+
+    private fun hasPage(pageIndex: Int): Boolean = pageIndex < pages.pageCount || !pages.isComplete
+
+    private fun updatePageTotal() {
+        if (shell.isDisposed) return
+        pageTotal.text = "" + pages.pageCount + if (pages.isComplete) "" else "+"
+        pageTotal.parent.layout()
+        currentViewMode.updateNavigation()
+    }
+
+    /**
+     * Generate pages in the background, returning once the first screen of pages is available.
+     * Later pages are waited for on demand if the user navigates to them before they are generated.
+     */
+    private fun startGeneration(generator: (BrfPageIndex) -> Unit) {
+        pages.close()
+        val display = shell.display
+        val newPages = BrfPageIndex { pageCount ->
+            if (pageCount % PAGE_TOTAL_UPDATE_INTERVAL == 0) {
+                display.asyncExec { updatePageTotal() }
+            }
+        }
+        pages = newPages
+        thread(name = "PrintPreview", isDaemon = true) {
+            try {
+                generator(newPages)
+                newPages.finish()
+                log.info("Generated {} pages", newPages.pageCount)
+            } catch (e: CancellationException) {
+                log.debug("Preview generation cancelled")
+                newPages.fail(e)
+            } catch (e: Exception) {
+                newPages.fail(e)
+            }
+            display.asyncExec {
+                if (pages === newPages) {
+                    updatePageTotal()
+                }
+            }
+        }
+        // Both panels of dual view
+        newPages.awaitPage(1)
+    }
+
     @Throws(IOException::class)
     private fun generateOutput() {
         setFontsInView()
@@ -783,55 +825,26 @@ class PrintPreview private constructor(
     @Throws(IOException::class)
     private fun generateOutputDoc(docData: BBDocumentData) {
         log.info("Dumping dom to BRF")
-        pageStartOffsets.clear()
-        brlPageOffsets.clear()
-        printPageOffsets.clear()
-        pageRanges.clear()
-        // First page starts at offset 0
-        pageStartOffsets.add(0)
-
-        // Load settings
-
-        // Lambdas...
-        val output = StringBuilder()
-        //		uncomment the lines below to add margin to printpreview on bbx file
-        docData.utdManager.engine.toBRF(
-            docData.document, { onChar: Char ->
-                if (onChar == BRFWriter.PAGE_SEPARATOR) {
-                    val lastPageStart = pageStartOffsets[pageStartOffsets.size - 1]
-                    // Don't include page seperator text in ranges so dual view doesn't have to
-                    // strip them out
-                    val lastPageEnd = output.length
-                    pageRanges.add(lastPageStart..lastPageEnd)
-                    pageStartOffsets.add(output.length)
-                    //				setMarginTopLines(output, addMargin);
-//				setMarginLeftCells(output, addMargin);
-//			} else if (onChar == BRFWriter.NEWLINE) {
-//				output.append(BRFWriter.NEWLINE);
-//				setMarginLeftCells(output, addMargin);
-                } else {
-                    output.append(onChar)
-                }
-            }, if (unicodeMenuItem.selection) BRFWriter.OPTS_OUTPUT_UNICODE else BRFWriter.OPTS_DEFAULT,
-            object : PageListener {
-                override fun onBrlPageNum(brlPageBraille: String, brlPageOrig: String) {
-                    log.trace("At length {} braille page {}", output.length, brlPageOrig)
-                    brlPageOffsets[brlPageOrig] = output.length
-                }
-
-                override fun onPrintPageNum(printPageBraille: String, printPageOrig: String) {
-                    log.trace(
-                        "At length {} print braille {} orig {}", output.length, printPageBraille,
-                        printPageOrig
-                    )
-                    printPageOffsets[printPageOrig] = output.length
-                }
-            })
-
-        // Remove EOF page sep as its confusing to the user and logic
-        pageStartOffsets.removeAt(pageStartOffsets.size - 1)
+        val opts = if (unicodeMenuItem.selection) BRFWriter.OPTS_OUTPUT_UNICODE else BRFWriter.OPTS_DEFAULT
+        startGeneration { output ->
+            docData.utdManager.engine.toBRF(
+                docData.document, output, opts,
+                object : PageListener {
+                    override fun onBrlPageNum(brlPageBraille: String, brlPageOrig: String) {
+                        log.trace("At length {} braille page {}", output.currentOffset, brlPageOrig)
+                        output.onBrlPageNum(brlPageOrig)
+                    }
 
-        brfOutput = output.toString()
+                    override fun onPrintPageNum(printPageBraille: String, printPageOrig: String) {
+                        log.trace(
+                            "At length {} print braille {} orig {}", output.currentOffset, printPageBraille,
+                            printPageOrig
+                        )
+                        output.onPrintPageNum(printPageOrig)
+                    }
+                }, false
+            )
+        }
 
         currentViewMode.onGenerate()
 
@@ -842,39 +855,24 @@ class PrintPreview private constructor(
     @Throws(IOException::class)
     private fun generateOutputBrf(docData: BrfDocumentData) {
         log.info("Parsing brf file")
-        pageStartOffsets.clear()
-        brlPageOffsets.clear()
-        printPageOffsets.clear()
-        pageRanges.clear()
-
-        brfOutput = docData.brfFile.readText(Charsets.UTF_8)
-        //		uncomment the two lines below to add margin to printpreview on brf file
-        var pageStart = 0
-        var pageEnd: Int
-        while ((brfOutput.indexOf(BRFWriter.PAGE_SEPARATOR, pageStart).also { pageEnd = it }) != -1) {
-            pageRanges.add(pageStart..pageEnd)
-            pageStart = pageEnd + 1
-            pageStartOffsets.add(pageStart)
-        }
-
-
-        // Issue #6469: Single page files may not have any at all
-        if (pageStartOffsets.isEmpty()) {
-            pageStartOffsets.add(0)
-            pageRanges.add(0..(brfOutput.length))
-        }
-
-
-        // Add start at 0, liblouis files have this
-        if (pageStartOffsets[0] != 0) {
-            pageStartOffsets.add(0, 0)
+        startGeneration { output ->
+            docData.brfFile.bufferedReader(Charsets.UTF_8).use { reader ->
+                val buffer = CharArray(8192)
+                var read: Int
+                while (reader.read(buffer).also { read = it } != -1) {
+                    for (i in 0 until read) {
+                        output.accept(buffer[i])
+                    }
+                }
+            }
         }
 
         currentViewMode.onGenerate()
 
-        // Not 100% reliable but better than nothing
+        // Not 100% reliable but better than nothing. Only checks the pages loaded so far
+        val loadedText = (0 until pages.pageCount).asSequence().flatMap { pages.pageText(it).asSequence() }
         var uppercaseMode: Boolean? = null
-        for (element in brfOutput) {
+        for (element in loadedText) {
             when (element) {
                 '\r', '\n' -> continue
             }
@@ -900,7 +898,7 @@ class PrintPreview private constructor(
         search(
             searchNext = true, nested = false, startIndex = currentViewMode.searchGetStart()
         ) { needle: String?, startIndex: Int ->
-            brfOutput.indexOf(
+            pages.indexOf(
                 needle!!,
                 startIndex +  /* don't match selection again */1
             )
@@ -911,9 +909,7 @@ class PrintPreview private constructor(
         search(
             searchNext = false, nested = false, startIndex = currentViewMode.searchGetStart()
         ) { needle: String?, startIndex: Int ->
-            brfOutput
-                .substring(0, if (startIndex <= 0) 0 else (startIndex -  /* don't match selection again */1))
-                .lastIndexOf(needle!!)
+            pages.lastIndexOf(needle!!, if (startIndex <= 0) 0 else (startIndex -  /* don't match selection again */1))
         }
     }
 
@@ -952,7 +948,7 @@ class PrintPreview private constructor(
             needle = String(charMap)
         }
 
-        val foundOffset = startIndexToFoundOffset.apply(needle, startIndex)
+        val foundOffset = awaitingPages { startIndexToFoundOffset.apply(needle, startIndex) }
         if (foundOffset == -1) {
             log.info("Text '{}' not found from startIndex {}", needle, startIndex)
             val newStartIndex = if (nested) {
@@ -960,7 +956,8 @@ class PrintPreview private constructor(
             } else if (searchNext) {
                 0
             } else {
-                brfOutput.length
+                awaitingPages { pages.awaitComplete() }
+                pages.length
             }
             search(searchNext, true, newStartIndex, startIndexToFoundOffset)
             return
@@ -983,7 +980,7 @@ class PrintPreview private constructor(
             // Compute the number of lines and cells per page.
             // This is reliant on the first page of the brf being representative of the rest of the document.
             //Split the first page of text into lines, then find the longest line.
-            val firstPage = brfOutput.substring(0, pageRanges.first().last)
+            val firstPage = pages.pageText(0)
             val lines = firstPage.lines()
             val longestLine = lines.maxByOrNull { it.length } ?: ""
             //I'm assuming there's a check somewhere along the way to prevent embossing a blank brf.
@@ -1012,6 +1009,7 @@ class PrintPreview private constructor(
     }
 
     private fun close() {
+        pages.close()
         shell.dispose()
     }
 
@@ -1042,5 +1040,6 @@ class PrintPreview private constructor(
         private const val SETTINGS_KEY_SEARCH_SIX_KEY = "printpreview.searchSixKey"
         private const val MARGIN_LINES = 2
         private const val MARGIN_CELLS = 3
+        private const val PAGE_TOTAL_UPDATE_INTERVAL = 50
     }
 }
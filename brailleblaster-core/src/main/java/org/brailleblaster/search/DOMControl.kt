@@ -24,6 +24,11 @@ class DOMControl(private val click: Click) {
     val possiblesCorrectAttributes: MutableList<Node> = ArrayList()
     private val possiblesPastStart: MutableList<Node> = ArrayList()
 
+    /**
+     * For membership checks, XOM nodes use identity equality
+     */
+    val possiblesCorrectAttributesSet: Set<Node> by lazy { HashSet(possiblesCorrectAttributes) }
+
     init {
         val allNodes = FastXPath.following(click.initialView.mapElement.node).filterIsInstance<Text>()
         possiblesPastStart += allNodes
@@ -63,24 +63,24 @@ class Find {
       return false
     } else {
       val totalSections = m.sectionList.size
+      val phrase = SearchUtils.compilePhrase(click, false)
+      val possibles = domCon.possiblesCorrectAttributesSet
       for (i in click.initialView.section until totalSections) {
         // find the section with the first text match. searching
         // by view is way too long, only do it once.
-        val array: List<Node> =
-          if (i == click.initialView.section) {
-            // start with current node
-            viewCon.nodeFromCurrent
-          } else {
-            // start at the beginning
-            viewCon.getNodeFromBeginning(i)
+        if (i == click.initialView.section) {
+          // start with current node, already in the view
+          val array: List<Node> = viewCon.nodeFromCurrent
+          val s1 = domCon.searchNoView(array)
+          val s2 = domCon.searchNoViewNoSpaces(array)
+          if (phrase.matcher(s1).find() || phrase.matcher(s2).find()) {
+            if (viewCon.findInSection(i, possibles)) {
+              return true
+            }
           }
-
-        val s1 = domCon.searchNoView(array)
-        val s2 = domCon.searchNoViewNoSpaces(array)
-        if (SearchUtils.matchPhrase(s1, click, false).hasNext()
-          || SearchUtils.matchPhrase(s2, click, false).hasNext()
-        ) {
-          if (viewCon.findInSection(i, domCon.possiblesCorrectAttributes)) {
+        } else if (viewCon.sectionHasMatch(i, phrase, possibles)) {
+          // Only switch sections once there is a real hit
+          if (viewCon.findInSection(i, possibles)) {
             return true
           }
         }
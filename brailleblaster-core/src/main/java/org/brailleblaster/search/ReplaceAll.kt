@@ -17,18 +17,28 @@ package org.brailleblaster.search
 
 import nu.xom.Element
 import nu.xom.Node
+import nu.xom.ParentNode
 import nu.xom.Text
-import nu.xom.XPathContext
 import org.brailleblaster.bbx.BBX
+import org.brailleblaster.bbx.findBlockOrNull
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.messages.Sender
 import org.brailleblaster.perspectives.braille.stylers.StyleHandler
 import org.brailleblaster.perspectives.mvc.events.ModifyEvent
 import org.brailleblaster.search.SearchCriteria.StyleFormatting
-import org.brailleblaster.utd.internal.xml.XMLHandler
+import org.brailleblaster.utd.properties.UTDElements
 import org.brailleblaster.utd.utils.stripUTDRecursive
+import java.util.Collections
+import java.util.IdentityHashMap
 
-class ReplaceAll(private val man: Manager, private val click: Click) {
+/**
+ * @param progress Called periodically with a status message while walking large documents
+ */
+class ReplaceAll(
+    private val man: Manager,
+    private val click: Click,
+    private val progress: (String) -> Unit = {}
+) {
     private var numberReplaceAlls = 0
     var tableDoubles: Int = 0
         private set
@@ -43,8 +53,13 @@ class ReplaceAll(private val man: Manager, private val click: Click) {
             numberReplaceAlls = nodeArray.size
         }
 
+        // Several replaced text nodes commonly share a parent
+        val strippedParents = Collections.newSetFromMap(IdentityHashMap<Element, Boolean>())
         for (node in nodeArray) {
-            (node.parent as Element).stripUTDRecursive()
+            val parent = node.parent as Element
+            if (strippedParents.add(parent)) {
+                parent.stripUTDRecursive()
+            }
         }
 
         click.settings.replaceStyleFormatting?.let {
@@ -64,74 +79,20 @@ class ReplaceAll(private val man: Manager, private val click: Click) {
             return -1
         }
 
-        man.simpleManager.dispatchEvent(ModifyEvent(Sender.SEARCH, nodeArray, true))
+        val blocks = changedBlocks(nodeArray)
+        if (blocks.size >= PROGRESS_BLOCKS) {
+            progress("Translating ${blocks.size} changed blocks")
+        }
+        man.simpleManager.dispatchEvent(ModifyEvent(Sender.SEARCH, blocks, true))
         man.waitForFormatting(true)
         return numberReplaceAlls
     }
 
-    private fun replaceAllText(): ArrayList<Node> {
-        tableDoubles = 0
-
-        if (!click.settings.replaceHasText() && click.settings.replaceHasAttributes()) {
-            click.settings.replaceString = click.settings.findString
-        }
-
-        val namespace = man.doc.rootElement.namespaceURI
-        val xpathContext = XPathContext("dtb", namespace)
-
-        val replaceAllNodes = man.doc.query("//text()", xpathContext)
-        if (replaceAllNodes.size() == 0) {
-            return ArrayList()
-        }
-        val nodeArray = ArrayList<Node>()
-        for (i in 0 until replaceAllNodes.size()) {
-            var tn = replaceAllNodes[i] as Text
-            if (!SearchUtils.checkCorrectAttributes(replaceAllNodes[i], click)) {
-                continue
-            }
-            if ((replaceAllNodes[i].parent as Element).localName == "doctitle") {
-                continue
-            }
-            var nodeValue = tn.value
-            var matches = SearchUtils.matchPhrase(nodeValue, click, false)
-            var loops = 0
-            val initialMatches = matches.indices.size
-            numberReplaceAlls += initialMatches
-            if (XMLHandler.ancestorVisitor(tn.parent) { node: Node? -> BBX.CONTAINER.TABLE.isA(node) } != null) {
-                tableDoubles += initialMatches
-                continue
-            } else if (SearchUtils.isUneditable(tn)) {
-                continue
-            }
-            var add = false
-            while (matches.hasNext()) {
-                add = true
-                /*
-         * loop to replace multiple matches in a single text node
-         */
-                if (loops >= initialMatches) {
-                    break
-                }
-                val pair = matches.next
-                val start = pair.start
-                val end = pair.end
-                nodeValue = tn.value
-                SearchUtils.dealWithReplaceCase(click, replaceAllNodes[i].value)
-                val before = nodeValue.take(start)
-                val after = nodeValue.drop(end)
-                val value = before + click.settings.replaceString + after
-                tn.value = value
-                loops++
-                tn = replaceAllNodes[i] as Text
-                nodeValue = tn.value
-                matches = SearchUtils.matchPhrase(nodeValue, click, false)
-            }
-            if (add) {
-                nodeArray.add(replaceAllNodes[i])
-            }
-        }
-        numberReplaceAlls -= tableDoubles
-        tableDoubles = (tableDoubles / 2)
+    private fun replaceAllText(): List<Node> {
+        val text = ReplaceAllText(click, progress)
+        val nodeArray = text.replace(man.doc)
+        numberReplaceAlls = text.numberReplaceAlls
+        tableDoubles = text.tableDoubles
         return nodeArray
     }
 
@@ -226,4 +187,137 @@ class ReplaceAll(private val man: Manager, private val click: Click) {
         }
         return newArray
     }
+
+    companion object {
+        private const val PROGRESS_BLOCKS = 500
+
+        /**
+         * Retranslate each affected block once instead of once per replaced text node
+         */
+        internal fun changedBlocks(nodeArray: List<Node>): List<Node> {
+            val blocks = LinkedHashSet<Node>()
+            for (node in nodeArray) {
+                if (node.document != null) {
+                    blocks.add(node.findBlockOrNull() ?: node)
+                }
+            }
+            return blocks.toList()
+        }
+    }
+}
+
+/**
+ * Text pass of [ReplaceAll], replacing every match below a root without touching the views
+ */
+internal class ReplaceAllText(
+    private val click: Click,
+    private val progress: (String) -> Unit = {}
+) {
+    var numberReplaceAlls = 0
+        private set
+    var tableDoubles = 0
+        private set
+    private var textNodesVisited = 0
+
+    fun replace(root: ParentNode): List<Node> {
+        numberReplaceAlls = 0
+        tableDoubles = 0
+        textNodesVisited = 0
+
+        if (!click.settings.replaceHasText() && click.settings.replaceHasAttributes()) {
+            click.settings.replaceString = click.settings.findString
+        }
+
+        val nodeArray = ArrayList<Node>()
+        val phrase = SearchUtils.compilePhrase(click, false)
+        val replaceString = requireNotNull(click.settings.replaceString)
+        replaceAllText(root, false, phrase, replaceString, nodeArray)
+        numberReplaceAlls -= tableDoubles
+        tableDoubles = (tableDoubles / 2)
+        return nodeArray
+    }
+
+    /**
+     * Single document walk carrying the table state down instead of checking ancestors per text node
+     */
+    private fun replaceAllText(
+        parent: ParentNode,
+        inTable: Boolean,
+        phrase: SearchUtils.PhrasePattern,
+        replaceString: String,
+        nodeArray: MutableList<Node>
+    ) {
+        for (i in 0 until parent.childCount) {
+            when (val child = parent.getChild(i)) {
+                // Braille is never replaced
+                is Element -> if (!UTDElements.BRL.isA(child)) replaceAllText(
+                    child,
+                    inTable || BBX.CONTAINER.TABLE.isA(child),
+                    phrase,
+                    replaceString,
+                    nodeArray
+                )
+
+                is Text -> {
+                    if (++textNodesVisited % PROGRESS_INTERVAL == 0) {
+                        progress("Replacing... searched $textNodesVisited text nodes")
+                    }
+                    if (replaceInText(child, inTable, phrase, replaceString)) {
+                        nodeArray.add(child)
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply every match in the text node in one rebuild
+     *
+     * @return true if the node was modified
+     */
+    private fun replaceInText(tn: Text, inTable: Boolean, phrase: SearchUtils.PhrasePattern, replaceString: String): Boolean {
+        val nodeValue = tn.value
+        val matcher = phrase.matcher(nodeValue)
+        if (!matcher.find()) {
+            return false
+        }
+        // Only matching nodes pay for the ancestor checks
+        if (!SearchUtils.checkCorrectAttributes(tn, click)) {
+            return false
+        }
+        if ((tn.parent as Element).localName == "doctitle") {
+            return false
+        }
+        if (inTable) {
+            do {
+                numberReplaceAlls++
+                tableDoubles++
+            } while (matcher.find())
+            return false
+        }
+        if (SearchUtils.isUneditable(tn)) {
+            do {
+                numberReplaceAlls++
+            } while (matcher.find())
+            return false
+        }
+
+        val value = StringBuilder(nodeValue.length)
+        var last = 0
+        do {
+            numberReplaceAlls++
+            val adjusted = SearchUtils.matchReplaceCase(nodeValue.substring(matcher.start(), matcher.end()), replaceString)
+            value.append(nodeValue, last, matcher.start()).append(adjusted)
+            last = matcher.end()
+            // Later steps match against the replace string as it was last cased
+            click.settings.replaceString = adjusted
+        } while (matcher.find())
+        value.append(nodeValue, last, nodeValue.length)
+        tn.value = value.toString()
+        return true
+    }
+
+    companion object {
+        private const val PROGRESS_INTERVAL = 5000
+    }
 }
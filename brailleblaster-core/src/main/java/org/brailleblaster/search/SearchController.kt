@@ -30,8 +30,9 @@ class SearchController(private val m: Manager, private val click: Click) {
         logIt(clicks.toString())
     }
 
-    fun replaceAll(): Int {
-        replaceAll = ReplaceAll(m, click)
+    @JvmOverloads
+    fun replaceAll(progress: (String) -> Unit = {}): Int {
+        replaceAll = ReplaceAll(m, click, progress)
         return replaceAll!!.replaceAll(click)
     }
 
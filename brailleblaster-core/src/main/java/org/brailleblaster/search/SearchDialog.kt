@@ -18,6 +18,7 @@ package org.brailleblaster.search
 import org.brailleblaster.utils.localization.LocaleHandler.Companion.getBanaStyles
 import org.brailleblaster.utils.localization.LocaleHandler.Companion.getDefault
 import org.brailleblaster.perspectives.braille.Manager
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.SimpleEvent
 import org.brailleblaster.perspectives.mvc.events.BuildMenuEvent
@@ -39,6 +40,7 @@ import org.brailleblaster.utd.Style
 import org.brailleblaster.utd.properties.EmphasisType.Companion.getEmphasisType
 import org.brailleblaster.util.Notify
 import org.brailleblaster.util.Notify.notify
+import org.brailleblaster.util.WorkingDialog
 import org.brailleblaster.utils.swt.EasySWT
 import org.brailleblaster.utils.swt.EasySWT.addSelectionListener
 import org.brailleblaster.utils.swt.EasySWT.makeCheckBox
@@ -86,6 +88,9 @@ class SearchDialog(parent: Shell?, style: Int) : Dialog(parent, style),
         text = "SWT Dialog"
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             val searchTool: MenuTool = object : MenuTool {
@@ -700,7 +705,20 @@ class SearchDialog(parent: Shell?, style: Int) : Dialog(parent, style),
 
         val sr = SearchController(m!!, click!!)
 
-        val numberReplaceAlls = sr.replaceAll()
+        // Only large documents report progress, don't flash a dialog for small ones
+        var workingDialog: WorkingDialog? = null
+        val numberReplaceAlls = try {
+            sr.replaceAll { message ->
+                val dialog = workingDialog
+                if (dialog == null) {
+                    workingDialog = WorkingDialog(message)
+                } else {
+                    dialog.updateMessage(message)
+                }
+            }
+        } finally {
+            workingDialog?.finished()
+        }
 
         if (numberReplaceAlls == -1 && sr.tableDoubles < 1) {
             SearchNotices().wordNotFoundMessage(parent, findCombo)
@@ -32,6 +32,7 @@ import org.brailleblaster.utils.xom.childNodes
 import org.brailleblaster.util.Notify
 import org.brailleblaster.util.Notify.notify
 import java.util.*
+import java.util.regex.Matcher
 import java.util.regex.Pattern
 import kotlin.math.min
 
@@ -65,15 +66,22 @@ object SearchUtils {
     @JvmStatic
     fun matchPhrase(viewString: String, click: Click, matchReplace: Boolean): MatchObject {
         //System.out.println("SearchUtils.MatchPhrase " + (matchReplace ? " Replacing " : "") + view);
-        var view = viewString
+        return compilePhrase(click, matchReplace).matchAll(viewString)
+    }
+
+    /**
+     * Build the matcher used by [matchPhrase] once so it can be reused across many text nodes
+     */
+    @JvmStatic
+    fun compilePhrase(click: Click, matchReplace: Boolean): PhrasePattern {
         var phrase =
             requireNotNull(if (matchReplace) click.settings.replaceString else click.settings.findString)
-        if (!click.settings.isFindCaseSensitive) {
-            view = view.lowercase(Locale.getDefault())
+        val caseSensitive = click.settings.isFindCaseSensitive
+        if (!caseSensitive) {
             phrase = phrase.lowercase(Locale.getDefault())
         }
-        if (phrase.contains('\'')) {
-            view = view.replace("\u2019".toRegex(), "'")
+        val normalizeApostrophe = phrase.contains('\'')
+        if (normalizeApostrophe) {
             phrase = phrase.replace("'".toRegex(), "'")
         }
         //Had a nice fix to this jumbled code; got lost in my git mixup...
@@ -102,16 +110,7 @@ object SearchUtils {
             }
         }
 
-        val pattern = Pattern.compile(s.toString())
-        val matcher = pattern.matcher(view)
-        val matches = MatchObject(view)
-        if (matcher.find()) {
-            matches.add(StartEndPair(matcher.start(), matcher.end()))
-        }
-        while (matcher.find()) { //Why a while loop here?
-            matches.add(StartEndPair(matcher.start(), matcher.end()))
-        }
-        return matches
+        return PhrasePattern(Pattern.compile(s.toString()), caseSensitive, normalizeApostrophe)
     }
 
     /**
@@ -365,10 +364,16 @@ On node $node"""
         val findString = Objects.requireNonNull(click.settings.findString)
         val start = nodeString.lowercase(Locale.getDefault()).indexOf(findString!!.lowercase(Locale.getDefault()))
         val foundString = nodeString.substring(start, start + findString.length)
-        val replaceString = Objects.requireNonNull(click.settings.replaceString)
+        click.settings.replaceString = matchReplaceCase(foundString, requireNotNull(click.settings.replaceString))
+    }
+
+    /**
+     * Case the replace string like the found text, see [dealWithReplaceCase]
+     */
+    internal fun matchReplaceCase(foundString: String, replaceString: String): String {
         val newReplaceString = StringBuilder()
         var allcaps = true
-        val stop = min(replaceString!!.length.toDouble(), foundString.length.toDouble()).toInt()
+        val stop = min(replaceString.length.toDouble(), foundString.length.toDouble()).toInt()
 
         for (findchar in foundString.toCharArray()) {
             if (!Character.isUpperCase(findchar) && Character.isAlphabetic(findchar.code)) {
@@ -410,7 +415,7 @@ On node $node"""
                 m++
             }
         }
-        click.settings.replaceString = (newReplaceString.toString())
+        return newReplaceString.toString()
     }
 
     /**
@@ -555,4 +560,34 @@ On node $node"""
     }
 
     class StartEndPair internal constructor(@JvmField val start: Int, @JvmField val end: Int)
+
+    /**
+     * Compiled find or replace phrase, applies the same case and apostrophe folding to the text
+     * being searched as [matchPhrase]
+     */
+    class PhrasePattern internal constructor(
+        private val pattern: Pattern,
+        private val caseSensitive: Boolean,
+        private val normalizeApostrophe: Boolean
+    ) {
+        fun matcher(viewString: String): Matcher {
+            var view = viewString
+            if (!caseSensitive) {
+                view = view.lowercase(Locale.getDefault())
+            }
+            if (normalizeApostrophe) {
+                view = view.replace('\u2019', '\'')
+            }
+            return pattern.matcher(view)
+        }
+
+        fun matchAll(viewString: String): MatchObject {
+            val matcher = matcher(viewString)
+            val matches = MatchObject(viewString)
+            while (matcher.find()) {
+                matches.add(StartEndPair(matcher.start(), matcher.end()))
+            }
+            return matches
+        }
+    }
 }
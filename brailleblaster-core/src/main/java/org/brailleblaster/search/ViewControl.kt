@@ -19,10 +19,12 @@ import nu.xom.*
 import org.brailleblaster.bbx.BBX
 import org.brailleblaster.bbx.BBXUtils
 import org.brailleblaster.bbx.findBlock
+import org.brailleblaster.bbx.findBlockOrNull
 import org.brailleblaster.math.mathml.MathMLElement
 import org.brailleblaster.perspectives.braille.Manager
 import org.brailleblaster.perspectives.braille.mapping.elements.TableTextMapElement
 import org.brailleblaster.perspectives.braille.mapping.elements.TextMapElement
+import org.brailleblaster.perspectives.braille.mapping.elements.WhiteSpaceElement
 import org.brailleblaster.perspectives.braille.mapping.maps.MapList
 import org.brailleblaster.search.SavedSearches.lastMemory
 import org.brailleblaster.search.SearchController.Companion.logIt
@@ -198,7 +200,14 @@ class ViewControl(val m: Manager, val click: Click) {
         return false
     }
 
-    fun findInSection(section: Int, possiblesCorrectAttributes: List<Node?>): Boolean {
+    /**
+     * Check a section for a match without switching to it, see [Companion.sectionHasMatch]
+     */
+    fun sectionHasMatch(section: Int, phrase: SearchUtils.PhrasePattern, possiblesCorrectAttributes: Set<Node>): Boolean {
+        return sectionHasMatch(m.sectionList[section].list, phrase, possiblesCorrectAttributes)
+    }
+
+    fun findInSection(section: Int, possiblesCorrectAttributes: Set<Node>): Boolean {
         var buffer = 0
         val view: String
         if (section == click.initialView.section) {
@@ -246,18 +255,6 @@ class ViewControl(val m: Manager, val click: Click) {
         return false
     }
 
-    fun getNodeFromBeginning(section: Int): List<Node> {
-        val array: MutableList<Node> = ArrayList()
-        val sectionElement = m.sectionList[section]
-        val maplist = sectionElement.list
-        for (textMapElement in maplist) {
-            if (textMapElement.node != null) {
-                array.add(textMapElement.node)
-            }
-        }
-        return array
-    }
-
     val nodeFromCurrent: List<Node>
         get() {
             val array: MutableList<Node> = ArrayList()
@@ -353,4 +350,52 @@ class ViewControl(val m: Manager, val click: Click) {
 
         return theNode
     }
+
+    companion object {
+        /**
+         * Never part of a find phrase
+         */
+        private const val NO_MATCH = '\u0000'
+
+        /**
+         * Check map elements for a match using their text instead of the rebuilt text view.
+         * Elements [findInSection] would reject break the text so matches cannot span them,
+         * white space such as line breaks is kept as a new line like in the view.
+         * The node text joined without separators is still checked as before so a section
+         * the view text would match is never skipped.
+         */
+        internal fun sectionHasMatch(
+            mapElements: Iterable<TextMapElement>,
+            phrase: SearchUtils.PhrasePattern,
+            possiblesCorrectAttributes: Set<Node>
+        ): Boolean {
+            val sectionText = StringBuilder()
+            val noSpaces = StringBuilder()
+            var lastBlock: Node? = null
+            for (mapElement in mapElements) {
+                val node = mapElement.node
+                if (node != null) {
+                    noSpaces.append(node.value)
+                }
+                if (node == null || node.document == null || mapElement is WhiteSpaceElement) {
+                    sectionText.append('\n')
+                    lastBlock = null
+                } else if (possiblesCorrectAttributes.contains(node)
+                    || mapElement is TableTextMapElement || mapElement is MathMLElement
+                ) {
+                    // Text of inline elements is contiguous in the view, blocks are on new lines
+                    val block = node.findBlockOrNull()
+                    if (block == null || block !== lastBlock) {
+                        sectionText.append('\n')
+                        lastBlock = block
+                    }
+                    sectionText.append(mapElement.text)
+                } else {
+                    sectionText.append(NO_MATCH)
+                    lastBlock = null
+                }
+            }
+            return phrase.matcher(sectionText.toString()).find() || phrase.matcher(noSpaces.toString()).find()
+        }
+    }
 }
@@ -20,9 +20,9 @@ import com.google.common.base.CaseFormat
 import nu.xom.*
 import org.brailleblaster.BBIni
 import org.brailleblaster.bbx.BBX.*
-import org.brailleblaster.bbx.BBX.PreFormatterMarker.ATTRIB_PRE_FORMATTER_MARKER
 import org.brailleblaster.bbx.BBXUtils
 import org.brailleblaster.bbx.BBXUtils.ListStyleData
+import org.brailleblaster.bbx.PreFormatterMarkerRegistry
 import org.brailleblaster.bbx.fixers.NodeTreeSplitter
 import org.brailleblaster.bbx.utd.BBXDynamicOptionStyleMap
 import org.brailleblaster.bbx.utd.BBXStyleMap
@@ -76,6 +76,11 @@ class UTDManager @JvmOverloads constructor(styleDefs: StyleDefinitions = loadSty
     var overrideActionMap: IActionMap? = null
     var mathMap: IActionMap? = null
 
+    /**
+     * Markers set while applying styles, cleared before the next translation
+     */
+    val preFormatterMarkers = PreFormatterMarkerRegistry()
+
     init {
         engine = newEngine()
         val translator = engine.brailleTranslator
@@ -299,9 +304,9 @@ class UTDManager @JvmOverloads constructor(styleDefs: StyleDefinitions = loadSty
                             // must split the list ourselves
                             log.debug("UTDMgr splitting list")
                             wrapperList = CONTAINER.LIST.create(itemStyleData.listType)
-                            ATTRIB_PRE_FORMATTER_MARKER[wrapperList] =
-                                PreFormatterMarker.LIST_SPLIT
-                            NodeTreeSplitter.split(parentList, element)
+                            preFormatterMarkers.mark(wrapperList, PreFormatterMarker.LIST_SPLIT)
+                            // Splitting a previously split list copies its marker
+                            NodeTreeSplitter.split(parentList, element)?.let { preFormatterMarkers.track(it) }
                             element.parent.replaceChild(element, wrapperList)
                             wrapperList.appendChild(element)
                             CONTAINER.LIST.ATTRIB_LIST_LEVEL[wrapperList] = itemStyleData.runoverLevel
@@ -15,6 +15,7 @@
  */
 package org.brailleblaster.tools
 
+import org.brailleblaster.perspectives.mvc.BBSimpleManager
 import org.brailleblaster.perspectives.mvc.BBSimpleManager.SimpleListener
 import org.brailleblaster.perspectives.mvc.menu.MenuManager
 import org.brailleblaster.perspectives.mvc.menu.BBSelectionData
@@ -78,6 +79,9 @@ interface CheckMenuTool : ToggleTool, MenuTool, IBBCheckMenuItem {
 interface MenuToolModule : MenuTool, SimpleListener {
     val visible: Boolean
         get() = true
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent && visible) {
             MenuManager.add(this)
@@ -103,6 +107,9 @@ interface SubMenuModule : IBBSubMenu, SimpleListener {
             override val visible: Boolean = this@SubMenuModule.visible
         }
     }
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = BBSimpleManager.MENU_EVENTS
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent && visible) {
             MenuManager.add(this)
@@ -78,6 +78,9 @@ class ProseBuilder : MenuToolModule {
         enableToolbar(bbData.manager)
     }
 
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(BuildMenuEvent::class.java, BuildToolBarEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is BuildMenuEvent) {
             MenuManager.add(this)
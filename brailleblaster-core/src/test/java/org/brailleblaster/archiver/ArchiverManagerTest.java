@@ -21,6 +21,7 @@ import org.brailleblaster.archiver2.*;
 import org.brailleblaster.bbx.BBX;
 import org.brailleblaster.testrunners.TestXMLUtils;
 import org.brailleblaster.utd.UTDTranslationEngine;
+import org.brailleblaster.utd.internal.xml.XMLRootSniffer;
 import org.brailleblaster.utd.exceptions.NodeException;
 import org.brailleblaster.exceptions.BBNotifyException;
 import org.hamcrest.MatcherAssert;
@@ -227,6 +228,32 @@ public class ArchiverManagerTest {
 		}
 	}
 	
+	@Test
+	public void text_startsLikeXml() throws Exception {
+		Path tmpFile = Files.createTempFile("bbTest", "text_startsLikeXml.txt");
+		Files.write(tmpFile, List.of("<b>Bold</b> heading", "then <i>unclosed text"));
+
+		ArchiverFactory.ParseData parseData = new ArchiverFactory.ParseData(
+				ArchiverFactory.Types.XML, XMLRootSniffer.INSTANCE.sniff(tmpFile), tmpFile);
+		Assert.assertTrue(parseData.isMalformed());
+
+		try (Archiver2 archive = archiverManager.load(tmpFile)) {
+			String text = BBX.getRoot(archive.getBbxDocument()).getValue();
+			Assert.assertTrue(text.contains("unclosed text"), text);
+		}
+	}
+
+	@Test
+	public void xml_notMalformed() throws Exception {
+		Path tmpFile = Files.createTempFile("bbTest", "xml_notMalformed.xml");
+		Files.write(tmpFile, List.of("<book><p>text</p></book>"));
+
+		ArchiverFactory.ParseData parseData = new ArchiverFactory.ParseData(
+				ArchiverFactory.Types.XML, XMLRootSniffer.INSTANCE.sniff(tmpFile), tmpFile);
+		Assert.assertFalse(parseData.isMalformed());
+		Assert.assertEquals(parseData.getDoc().getRootElement().getLocalName(), "book");
+	}
+
 	@Test(enabled =false)
 	public void saveZipAgain_issue6359() throws IOException {
 		try (Archiver2 archive = archiverManager.load(createTempZip())) {
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.archiver2;
+
+import nu.xom.Element;
+import org.brailleblaster.bbx.BBX;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class TextArchiveLoaderTest {
+	@DataProvider
+	public Object[][] texts() {
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			longText.append("paragraph ").append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+			if (i % 7 == 0) {
+				longText.append(TextArchiveLoader.FORM_FEED);
+			}
+			if (i % 11 == 0) {
+				longText.append("   \n");
+			}
+		}
+		return new Object[][]{
+				{"one line"},
+				{"first\nsecond\r\nthird\rfourth\n"},
+				{"page one" + TextArchiveLoader.FORM_FEED + "page two\n\n\n  \t\nlast"},
+				{"\n\n"},
+				{""},
+				{longText.toString()},
+		};
+	}
+
+	@Test(dataProvider = "texts")
+	public void streamedBlocksMatchLines(String text) throws IOException {
+		Element root = BBX.SECTION.ROOT.create();
+		int blocks = TextArchiveLoader.Companion.getINSTANCE().appendBlocks(new StringReader(text), root);
+
+		List<String> expected = new ArrayList<>();
+		for (String line : text.split("\r\n|\r|\n")) {
+			for (String part : line.split(String.valueOf(TextArchiveLoader.FORM_FEED))) {
+				if (!part.isBlank()) {
+					expected.add(part);
+				}
+			}
+		}
+		assertEquals(blocks, expected.size());
+		assertEquals(root.getChildCount(), expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(root.getChild(i).getValue(), expected.get(i));
+		}
+	}
+
+	@Test
+	public void progressReportsCharsRead() throws IOException {
+		String text = "a\n".repeat(10000);
+		List<Long> progress = new ArrayList<>();
+		TextArchiveLoader.Companion.getINSTANCE().appendBlocks(new StringReader(text), BBX.SECTION.ROOT.create(), read -> {
+			progress.add(read);
+			return null;
+		});
+		assertEquals((long) progress.get(progress.size() - 1), text.length());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.bbx;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Node;
+import org.brailleblaster.utd.internal.xml.FastXPath;
+import org.brailleblaster.utd.internal.xml.XMLHandler;
+import org.brailleblaster.utils.xml.NamespacesKt;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class BBXTypeCheckTest {
+	private static final String NIMAS_BOOK = "src/test/resources/org/brailleblaster/bbx/fixers/9781946636171NIMAS.bbx";
+
+	private static List<Element> loadElements() {
+		Document doc = new XMLHandler().load(new File(NIMAS_BOOK));
+		List<Element> elements = new ArrayList<>();
+		for (Node node : (Iterable<Node>) FastXPath.descendant(doc)::iterator) {
+			if (node instanceof Element element && BBX.isA(element)
+					&& BBX.getType(element).getSubTypeOrNull(
+					element.getAttributeValue(BBX._ATTRIB_TYPE.name, NamespacesKt.BB_NS)) != null) {
+				elements.add(element);
+			}
+		}
+		return elements;
+	}
+
+	private static List<BBX.SubType> allSubTypes() {
+		List<BBX.SubType> subTypes = new ArrayList<>();
+		for (BBX.CoreType coreType : BBX.CORE_TYPES) {
+			subTypes.addAll(coreType.getSubTypes());
+		}
+		return subTypes;
+	}
+
+	/**
+	 * Type check as done by validate() before the allocation free isA
+	 */
+	private static boolean referenceIsA(BBX.SubType subType, Element element) {
+		return subType.coreType.validate(element) == null
+				&& subType.name.equals(BBX._ATTRIB_TYPE.get(element));
+	}
+
+	@Test
+	public void isAMatchesValidate() {
+		List<Element> elements = loadElements();
+		Assert.assertFalse(elements.isEmpty());
+		for (Element element : elements) {
+			for (BBX.CoreType coreType : BBX.CORE_TYPES) {
+				Assert.assertEquals(coreType.isA(element), coreType.validate(element) == null, element.toXML());
+			}
+			for (BBX.SubType subType : allSubTypes()) {
+				Assert.assertEquals(subType.isA(element), referenceIsA(subType, element), subType + " " + element.toXML());
+			}
+		}
+	}
+
+	@Test
+	public void internTypeKeepsTypes() {
+		List<Element> elements = loadElements();
+		List<BBX.SubType> before = new ArrayList<>();
+		for (Element element : elements) {
+			before.add(BBX.getType(element).getSubType(element));
+		}
+
+		int interned = 0;
+		for (Element element : elements) {
+			if (BBX.internType(element)) {
+				interned++;
+			}
+		}
+		Assert.assertTrue(interned > 0);
+		for (int i = 0; i < elements.size(); i++) {
+			Element element = elements.get(i);
+			BBX.SubType subType = before.get(i);
+			Assert.assertSame(BBX.getType(element).getSubType(element), subType);
+			Assert.assertSame(BBX._ATTRIB_TYPE.get(element), subType.name);
+			Assert.assertFalse(BBX.internType(element));
+		}
+	}
+
+	@Test
+	public void internedIsAMatchesValidate() {
+		List<Element> elements = loadElements();
+		List<BBX.SubType> subTypes = allSubTypes();
+		elements.forEach(BBX::internType);
+
+		int matches = 0;
+		for (Element element : elements) {
+			for (BBX.SubType subType : subTypes) {
+				boolean isA = subType.isA(element);
+				Assert.assertEquals(isA, referenceIsA(subType, element), subType + " " + element.toXML());
+				if (isA) {
+					matches++;
+				}
+			}
+		}
+		Assert.assertTrue(matches >= elements.size());
+	}
+}
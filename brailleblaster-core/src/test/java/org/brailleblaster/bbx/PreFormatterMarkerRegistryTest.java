@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.bbx;
+
+import nu.xom.Document;
+import nu.xom.Element;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.brailleblaster.bbx.BBX.PreFormatterMarker.ATTRIB_PRE_FORMATTER_MARKER;
+
+public class PreFormatterMarkerRegistryTest {
+	@Test
+	public void firstClearScansDocument() {
+		Document doc = BBX.newDocument();
+		Element root = BBX.SECTION.ROOT.create();
+		doc.getRootElement().appendChild(root);
+		Element loaded = BBX.CONTAINER.LIST.create(BBX.ListType.NORMAL);
+		ATTRIB_PRE_FORMATTER_MARKER.set(loaded, BBX.PreFormatterMarker.LIST_SPLIT);
+		root.appendChild(loaded);
+
+		PreFormatterMarkerRegistry registry = new PreFormatterMarkerRegistry();
+		Assert.assertEquals(registry.clear(doc), 1);
+		Assert.assertFalse(ATTRIB_PRE_FORMATTER_MARKER.has(loaded));
+	}
+
+	@Test
+	public void clearsMarkedAndCopied() {
+		Document doc = BBX.newDocument();
+		Element root = BBX.SECTION.ROOT.create();
+		doc.getRootElement().appendChild(root);
+		PreFormatterMarkerRegistry registry = new PreFormatterMarkerRegistry();
+		registry.clear(doc);
+
+		Element list = BBX.CONTAINER.LIST.create(BBX.ListType.NORMAL);
+		root.appendChild(list);
+		registry.mark(list, BBX.PreFormatterMarker.LIST_SPLIT);
+		Element copy = list.copy();
+		root.appendChild(copy);
+		registry.track(copy);
+
+		Assert.assertEquals(registry.clear(doc), 2);
+		Assert.assertFalse(ATTRIB_PRE_FORMATTER_MARKER.has(list));
+		Assert.assertFalse(ATTRIB_PRE_FORMATTER_MARKER.has(copy));
+		Assert.assertEquals(registry.clear(doc), 0);
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.bbx.fixer2;
+
+import nu.xom.Document;
+import nu.xom.Element;
+import org.brailleblaster.bbx.BBX;
+import org.brailleblaster.bbx.fixers2.BBXTo6Upgrader;
+import org.brailleblaster.bbx.fixers2.BBXUpgradePipeline;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BBXUpgradePipelineTest {
+	@Test
+	public void stagesRunInOrder() {
+		Document doc = BBX.newDocument();
+		Element root = BBX.SECTION.ROOT.create();
+		doc.getRootElement().appendChild(root);
+		Element block = BBX.BLOCK.DEFAULT.create();
+		block.appendChild("tab\tseparated");
+		root.appendChild(block);
+		root.appendChild(BBX.CONTAINER.LIST.create(BBX.ListType.NORMAL));
+
+		List<String> order = new ArrayList<>();
+		BBXUpgradePipeline pipeline = new BBXUpgradePipeline();
+		pipeline.afterLiveFixer("check", () -> {
+			order.add("afterLiveFixer");
+			return null;
+		});
+		pipeline.beforeWalk("before", () -> {
+			order.add("beforeWalk");
+			return null;
+		});
+		pipeline.onNode("visit", node -> {
+			if (order.isEmpty() || !order.get(order.size() - 1).equals("walk")) {
+				order.add("walk");
+			}
+		});
+		BBXTo6Upgrader.INSTANCE.register(pipeline, doc);
+		pipeline.run(doc);
+
+		Assert.assertEquals(order, List.of("beforeWalk", "walk", "afterLiveFixer"));
+		Assert.assertEquals(block.getValue(), "tab separated");
+		Assert.assertEquals(BBX.getFormatVersion(doc), 6);
+		// empty list removed by the LiveFixer
+		Assert.assertEquals(root.getChildCount(), 1);
+		Assert.assertEquals(new ArrayList<>(pipeline.getTimings().keySet()),
+				List.of("before", "walk visit, tabCleanup", "format version 6", "LiveFixer", "check"));
+	}
+}
@@ -15,14 +15,26 @@
  */
 package org.brailleblaster.bbx.fixer2;
 
+import nu.xom.Document;
 import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.Text;
 import org.brailleblaster.bbx.BBX;
 import org.brailleblaster.bbx.fixers2.LiveFixer;
 import org.brailleblaster.testrunners.BBXDocFactory;
 import org.brailleblaster.testrunners.XMLElementAssert;
+import org.brailleblaster.utd.internal.xml.FastXPath;
+import org.brailleblaster.utd.internal.xml.XMLHandler;
 import org.brailleblaster.utd.properties.EmphasisType;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class LiveFixerTest {
 	@Test
 	public void doc_blockWithSpaces_StartEndAndEmpty() {
@@ -184,4 +196,80 @@ public class LiveFixerTest {
 						).noNextChild()
 				).noNextChild();
 	}
+
+	@DataProvider
+	public Object[][] testDocuments() {
+		return new Object[][]{
+				{"printView/oz.bbx"},
+				{"printView/testMatrix.bbx"},
+				{"printView/blankLineGauntlet.bbx"},
+				{"printView/BoxLineSelectionTests.bbx"},
+				{"printView/TransNoteEmphasisTest.bbx"},
+				{"easierxml/toc-complete.bbx"},
+				{"utd/ProseWithLineNumbers.bbx"},
+				{"bbx/fixers/9781946636171NIMAS.bbx"},
+		};
+	}
+
+	private static List<Element> blocks(Document doc) {
+		List<Element> blocks = new ArrayList<>();
+		for (Node node : (Iterable<Node>) FastXPath.descendant(doc)::iterator) {
+			if (BBX.BLOCK.isA(node)) {
+				blocks.add((Element) node);
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * Edit the block the same way in both copies
+	 *
+	 * @return the changed node
+	 */
+	private static Node mutate(Element block, int kind) {
+		switch (kind) {
+			case 0:
+				block.appendChild("  ");
+				return block;
+			case 1:
+				block.insertChild(" ", 0);
+				return block;
+			case 2:
+				block.removeChildren();
+				block.appendChild(" ");
+				// report the container as modules removing content often do
+				return block.getParent() instanceof Element parent && BBX.CONTAINER.isA(parent) ? parent : block;
+			default:
+				block.appendChild(new Text(""));
+				return block.getChildCount() > 1 ? block.getChild(0) : block;
+		}
+	}
+
+	@Test(dataProvider = "testDocuments")
+	public void fixChangedMatchesFullFix(String resource) {
+		Document fixed = new XMLHandler().load(new File("src/test/resources/org/brailleblaster/" + resource));
+		LiveFixer.fix(BBX.getRoot(fixed));
+
+		Document again = fixed.copy();
+		LiveFixer.fix(BBX.getRoot(again));
+		Assert.assertEquals(again.toXML(), fixed.toXML(), "fix is not idempotent");
+
+		Random random = new Random(resource.hashCode());
+		for (int i = 0; i < 20; i++) {
+			Document full = fixed.copy();
+			Document scoped = fixed.copy();
+			List<Element> fullBlocks = blocks(full);
+			if (fullBlocks.isEmpty()) {
+				return;
+			}
+			int index = random.nextInt(fullBlocks.size());
+			int kind = random.nextInt(4);
+			mutate(fullBlocks.get(index), kind);
+			Node changed = mutate(blocks(scoped).get(index), kind);
+
+			LiveFixer.fix(BBX.getRoot(full));
+			LiveFixer.fixChanged(List.of(changed));
+			Assert.assertEquals(scoped.toXML(), full.toXML(), resource + " block " + index + " edit " + kind);
+		}
+	}
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.pandoc
+
+import nu.xom.XPathContext
+import org.brailleblaster.utils.xml.BB_NS
+import org.brailleblaster.utils.xml.MATHML_NS
+import org.testng.Assert.assertEquals
+import org.testng.annotations.Test
+import java.io.File
+
+class FixerTest {
+    private val context = XPathContext().apply {
+        addNamespace("bb", BB_NS)
+        addNamespace("m", MATHML_NS)
+    }
+
+    private fun item(text: String, vararg children: String) =
+        """<BLOCK bb:type="LIST_ITEM" bb:itemLevel="0">$text${children.joinToString("")}</BLOCK>"""
+
+    private fun list(vararg items: String) =
+        """<CONTAINER bb:type="LIST" bb:listLevel="0">${items.joinToString("")}</CONTAINER>"""
+
+    /**
+     * Three levels of nesting with math in the nested items, followed by an adjacent list to merge
+     */
+    private fun nestedListFile(): File {
+        val math = """<m:math><m:mi>x</m:mi><m:mo>+</m:mo><m:mn>1</m:mn></m:math>"""
+        val xml = """<bbdoc xmlns="$BB_NS" xmlns:bb="$BB_NS" xmlns:m="$MATHML_NS">""" +
+                """<SECTION bb:type="ROOT">""" +
+                list(
+                    item("one", list(item("one a $math"), item("one b", list(item("deep $math"))))),
+                    item("two")
+                ) +
+                list(item("adjacent")) +
+                """<BLOCK bb:type="DEFAULT">$math</BLOCK>""" +
+                "</SECTION></bbdoc>"
+        val file = File.createTempFile("bb-fixer-test-", ".bbx")
+        file.deleteOnExit()
+        file.writeText(xml)
+        return file
+    }
+
+    @Test
+    fun fusedWalkMatchesSequentialPasses() {
+        val sequential = Fixer(nestedListFile().path)
+        val sequentialFixers = listOf(FixMathML(), FixNestedList())
+        for (f in sequentialFixers) {
+            sequential.addFixer(f)
+        }
+        for (f in sequentialFixers) {
+            f.process()
+        }
+
+        val fused = Fixer(nestedListFile().path)
+        fused.addFixer(FixMathML())
+        fused.addFixer(FixNestedList())
+        fused.processFixers()
+
+        assertEquals(fused.document.toXML(), sequential.document.toXML())
+
+        // Both actually changed the document
+        val doc = fused.document
+        assertEquals(doc.query("//bb:CONTAINER[@bb:type='LIST']", context).size(), 1)
+        assertEquals(doc.query("//bb:BLOCK[@bb:type='LIST_ITEM']", context).size(), 6)
+        assertEquals(doc.query("//bb:BLOCK//bb:CONTAINER", context).size(), 0)
+        assertEquals(doc.query("//m:math[@alttext]", context).size(), 3)
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.pandoc
+
+import org.brailleblaster.BBIni
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertFalse
+import org.testng.Assert.assertNotEquals
+import org.testng.Assert.assertTrue
+import org.testng.annotations.AfterClass
+import org.testng.annotations.AfterMethod
+import org.testng.annotations.BeforeMethod
+import org.testng.annotations.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import kotlin.io.path.listDirectoryEntries
+import kotlin.io.path.readText
+import kotlin.io.path.writeText
+
+class PandocCacheTest {
+    private lateinit var dataDir: Path
+
+    @BeforeMethod
+    fun createDataDir() {
+        dataDir = Files.createTempDirectory("bb-pandoc-cache-test")
+        PandocCache.userProgramDataPath = { dataDir }
+    }
+
+    @AfterMethod(alwaysRun = true)
+    fun deleteDataDir() {
+        dataDir.toFile().deleteRecursively()
+    }
+
+    @AfterClass(alwaysRun = true)
+    fun restore() {
+        PandocCache.userProgramDataPath = { BBIni.userProgramDataPath }
+    }
+
+    private fun tempFile(content: String): Path =
+        Files.createTempFile(dataDir, "source", ".txt").also { it.writeText(content) }
+
+    @Test
+    fun keyChangesWithInputs() {
+        val luaDir = Files.createTempDirectory(dataDir, "lua")
+        val lua = luaDir.resolve("bbx.lua").also { it.writeText("return {}") }
+        val source = tempFile("# Heading")
+        val key = PandocCache.key(source, listOf("--from=markdown"), luaDir)
+
+        assertEquals(PandocCache.key(source, listOf("--from=markdown"), luaDir), key)
+        assertNotEquals(PandocCache.key(source, listOf("--from=html"), luaDir), key)
+        assertNotEquals(PandocCache.key(tempFile("# Other"), listOf("--from=markdown"), luaDir), key)
+
+        lua.writeText("return { changed = true }")
+        assertNotEquals(PandocCache.key(source, listOf("--from=markdown"), luaDir), key)
+    }
+
+    @Test
+    fun keySeparatesArguments() {
+        val luaDir = Files.createTempDirectory(dataDir, "lua")
+        val source = tempFile("text")
+
+        assertNotEquals(
+            PandocCache.key(source, listOf("--a", "b"), luaDir),
+            PandocCache.key(source, listOf("--ab"), luaDir)
+        )
+        assertNotEquals(
+            PandocCache.key(source, listOf("ab", "c"), luaDir),
+            PandocCache.key(source, listOf("a", "bc"), luaDir)
+        )
+    }
+
+    @Test
+    fun getAfterPut() {
+        val output = Files.createTempFile(dataDir, "output", ".bbx")
+        assertFalse(PandocCache.get("missingEntry", output))
+
+        PandocCache.put("storedEntry", tempFile("<bbdoc/>"))
+        assertTrue(PandocCache.get("storedEntry", output))
+        assertEquals(output.readText(), "<bbdoc/>")
+    }
+
+    @Test
+    fun pruneLeastRecentlyUsed() {
+        val source = tempFile("<bbdoc/>")
+        val old = FileTime.fromMillis(System.currentTimeMillis() - 60_000)
+        for (name in listOf("usedEntry", "unusedEntry")) {
+            PandocCache.put(name, source)
+            Files.setLastModifiedTime(PandocCache.cacheDir.resolve("$name.bbx"), old)
+        }
+        // Reading an entry marks it as recently used
+        assertTrue(PandocCache.get("usedEntry", Files.createTempFile(dataDir, "output", ".bbx")))
+
+        for (i in 1 until PandocCache.MAX_ENTRIES) {
+            PandocCache.put("entry$i", source)
+        }
+
+        val entries = PandocCache.cacheDir.listDirectoryEntries("*.bbx").map { it.fileName.toString() }
+        assertEquals(entries.size, PandocCache.MAX_ENTRIES)
+        assertTrue("usedEntry.bbx" in entries, entries.toString())
+        assertFalse("unusedEntry.bbx" in entries, entries.toString())
+    }
+}
@@ -72,6 +72,18 @@ public class FindReplaceReplaceAllTest {
         TestUtils.getInnerSection(bb).textChildCount(2).child(0).nextChildIsText("success success success success");
     }
 
+    @Test(enabled = false)
+    public void replaceAllReplacementContainsFind() {
+        BBTestRunner bb = new BBTestRunner(multiples);
+        FindReplaceBotHelper.openDialog(bb);
+        SWTBot bot = bb.bot.activeShell().bot();
+        bot = FindAndReplaceTest.cleanSettings(bot, bb);
+        bot.comboBox(0).setText("word");
+        bot.comboBox(1).setText("words");
+        FindReplaceBotHelper.clickReplaceAll(bb);
+        TestUtils.getInnerSection(bb).textChildCount(2).child(0).nextChildIsText("words words words words");
+    }
+
     @Test(enabled = false)
     public void replaceAllWithEmphasis() {
         BBTestRunner bb = new BBTestRunner(emphasis);
@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.braille.mapping.maps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kotlin.Pair;
+import nu.xom.Attribute;
+import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.Text;
+import org.brailleblaster.bbx.BBX;
+import org.brailleblaster.perspectives.braille.mapping.elements.BrailleMapElement;
+import org.brailleblaster.perspectives.braille.mapping.elements.BraillePageBrlMapElement;
+import org.brailleblaster.perspectives.braille.mapping.elements.NewPageBrlMapElement;
+import org.brailleblaster.perspectives.braille.mapping.elements.PageIndicatorTextMapElement;
+import org.brailleblaster.perspectives.braille.mapping.elements.PrintPageBrlMapElement;
+import org.brailleblaster.perspectives.braille.mapping.elements.SectionElement;
+import org.brailleblaster.perspectives.braille.mapping.elements.TextMapElement;
+import org.brailleblaster.utd.properties.UTDElements;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PageNumberIndexTest {
+	private final List<SectionElement> sections = new ArrayList<>();
+	private final PageNumberIndex index = new PageNumberIndex();
+
+	private SectionElement section(TextMapElement... elements) {
+		SectionElement section = new SectionElement(mapList(elements));
+		sections.add(section);
+		return section;
+	}
+
+	private static MapList mapList(TextMapElement... elements) {
+		MapList list = new MapList(null);
+		list.addAll(List.of(elements));
+		return list;
+	}
+
+	private static PageIndicatorTextMapElement printIndicator(String printPage) {
+		Element pageNum = BBX.BLOCK.PAGE_NUM.create();
+		Element brl = UTDElements.BRL.create();
+		brl.addAttribute(new Attribute("printPage", printPage));
+		Text brailleText = new Text(printPage);
+		brl.appendChild(brailleText);
+		pageNum.appendChild(new Text(printPage));
+		pageNum.appendChild(brl);
+		PageIndicatorTextMapElement element = new PageIndicatorTextMapElement(pageNum);
+		element.brailleList.add(new BrailleMapElement(brailleText));
+		return element;
+	}
+
+	private static TextMapElement text(String text, BrailleMapElement... braille) {
+		TextMapElement element = new TextMapElement(new Text(text));
+		element.brailleList.addAll(List.of(braille));
+		return element;
+	}
+
+	private static PrintPageBrlMapElement printPageBrl(String printPage, String braillePage) {
+		Element printPageNum = UTDElements.PRINT_PAGE_NUM.create();
+		printPageNum.addAttribute(new Attribute("printPage", printPage));
+		printPageNum.appendChild(braillePage);
+		return new PrintPageBrlMapElement(printPageNum);
+	}
+
+	private static NewPageBrlMapElement newPage(String untranslated) {
+		Element newPage = UTDElements.NEW_PAGE.create();
+		newPage.addAttribute(new Attribute("untranslated", untranslated));
+		return new NewPageBrlMapElement(newPage);
+	}
+
+	private static BraillePageBrlMapElement braillePage(String page) {
+		Element brlPageNum = UTDElements.BRL_PAGE_NUM.create();
+		brlPageNum.appendChild(page);
+		return new BraillePageBrlMapElement(brlPageNum);
+	}
+
+	/*
+	 * The scans over every map element the index replaced, from Manager
+	 */
+
+	private Pair<Integer, TextMapElement> scanPrintPage(String printPageNumber) {
+		for (SectionElement curSection : sections) {
+			for (TextMapElement curElement : curSection.list) {
+				if (!(curElement instanceof PageIndicatorTextMapElement))
+					continue;
+
+				Node brl = curElement.brailleList.getFirst().getNode();
+				while (!UTDElements.BRL.isA(brl)) {
+					brl = brl.getParent();
+				}
+				String brlPageNum = ((Element) brl).getAttributeValue("printPage");
+				if (pageNumberEquals(brlPageNum, printPageNumber)) {
+					return new Pair<>(sections.indexOf(curSection), curElement);
+				}
+			}
+		}
+
+		for (SectionElement curSection : sections) {
+			for (TextMapElement curElement : curSection.list) {
+				for (BrailleMapElement curBrailleElement : curElement.brailleList) {
+					if (!(curBrailleElement instanceof PrintPageBrlMapElement))
+						continue;
+					String origPage = ((Element) curBrailleElement.getNode()).getAttributeValue("printPage");
+					String braillePage = curBrailleElement.getNode().getValue();
+					if (pageNumberEquals(origPage, printPageNumber) || pageNumberEquals(braillePage, printPageNumber))
+						return new Pair<>(sections.indexOf(curSection), curElement);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean pageNumberEquals(String orig, String compareTo) {
+		if (orig.equalsIgnoreCase(compareTo)) {
+			return true;
+		} else if (orig.contains("-")) {
+			String[] parts = orig.split("-", 2);
+			return parts[0].equals(compareTo) || parts[1].equals(compareTo);
+		} else {
+			return false;
+		}
+	}
+
+	private Pair<Integer, TextMapElement> scanUntranslatedBraillePage(String untranslatedBraillePage, Node startNode) {
+		boolean afterStartNode = false;
+		for (SectionElement curSection : sections) {
+			for (TextMapElement curElement : curSection.list) {
+				if (startNode != null && !afterStartNode) {
+					if (curElement.getNode() == startNode) {
+						afterStartNode = true;
+					} else {
+						continue;
+					}
+				}
+
+				for (BrailleMapElement curBrailleElement : curElement.brailleList) {
+					if (!(curBrailleElement instanceof NewPageBrlMapElement))
+						continue;
+					String page = ((Element) curBrailleElement.getNode()).getAttributeValue("untranslated");
+					if (untranslatedBraillePage.equalsIgnoreCase(page))
+						return new Pair<>(sections.indexOf(curSection), curElement);
+				}
+			}
+		}
+		return null;
+	}
+
+	private Pair<Integer, TextMapElement> scanBraillePage(int rawPageIndex) {
+		int counter = 0;
+		for (SectionElement curSection : sections) {
+			for (TextMapElement curElement : curSection.list) {
+				for (BrailleMapElement curBrailleElement : curElement.brailleList) {
+					if (!(curBrailleElement instanceof BraillePageBrlMapElement))
+						continue;
+					if (counter == rawPageIndex)
+						return new Pair<>(sections.indexOf(curSection), curElement);
+					counter++;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static void assertSameResult(Pair<Integer, TextMapElement> actual, Pair<Integer, TextMapElement> expected, String message) {
+		if (expected == null) {
+			Assert.assertNull(actual, message);
+		} else {
+			Assert.assertNotNull(actual, message);
+			Assert.assertEquals(actual.getFirst(), expected.getFirst(), message);
+			Assert.assertSame(actual.getSecond(), expected.getSecond(), message);
+		}
+	}
+
+	private void assertPrintPages(String... pages) {
+		for (String page : pages) {
+			assertSameResult(index.findPrintPage(sections, page), scanPrintPage(page), "print page " + page);
+		}
+	}
+
+	private void assertBraillePages(int pageCount) {
+		for (int i = -1; i <= pageCount + 1; i++) {
+			assertSameResult(index.findBraillePage(sections, i), scanBraillePage(i), "braille page " + i);
+		}
+	}
+
+	private void assertUntranslatedBraillePages(String... pages) {
+		List<TextMapElement> starts = new ArrayList<>();
+		starts.add(null);
+		for (SectionElement section : sections) {
+			starts.addAll(section.list);
+		}
+		for (TextMapElement start : starts) {
+			Pair<Integer, Integer> startIndex = null;
+			if (start != null) {
+				for (int i = 0; i < sections.size(); i++) {
+					int listIndex = sections.get(i).list.indexOf(start);
+					if (listIndex != -1) {
+						startIndex = new Pair<>(i, listIndex);
+						break;
+					}
+				}
+			}
+			for (String page : pages) {
+				assertSameResult(
+						index.findUntranslatedBraillePage(sections, page, startIndex),
+						scanUntranslatedBraillePage(page, start == null ? null : start.getNode()),
+						"braille page " + page + " from " + startIndex
+				);
+			}
+		}
+	}
+
+	@Test
+	public void printPages() {
+		section(text("title"), printIndicator("1"), text("one"), printIndicator("ii"));
+		section(text("para", printPageBrl("7", "#g")), printIndicator("3-4"), text("more"));
+		section(printIndicator("5"), text("para", printPageBrl("6", "#f"), printPageBrl("1", "#a")));
+
+		assertPrintPages("1", "ii", "II", "3", "4", "3-4", "5", "6", "#f", "7", "#G", "8", "-", "");
+	}
+
+	@Test
+	public void printPagesCombined() {
+		// Issue #3814: either half of a combined page matches, whichever comes first
+		section(text("para", printPageBrl("9-10", "#i-#aj")), printIndicator("12-13"));
+		section(printIndicator("11-12"), printIndicator("b-c"), printIndicator("B"));
+		section(text("para", printPageBrl("14", "#ad-#ae")));
+
+		assertPrintPages("9", "10", "9-10", "11", "12", "13", "11-12", "12-13", "b", "B", "c", "C", "B-C",
+				"#i", "#aj", "#ad", "#ae", "14");
+	}
+
+	@Test
+	public void braillePagesSkipSectionsWithoutPages() {
+		section(text("a", braillePage("a")), text("b", braillePage("b")));
+		section(text("no pages"));
+		section();
+		section(text("c", braillePage("c"), braillePage("d")));
+		section(text("no pages"));
+		section(text("e", braillePage("e")));
+		section();
+
+		assertBraillePages(5);
+	}
+
+	@Test
+	public void braillePagesNone() {
+		section(text("no pages"));
+		section();
+
+		assertBraillePages(0);
+	}
+
+	@Test
+	public void untranslatedBraillePagesFromStart() {
+		section(text("a", newPage("1")), text("b"), text("c", newPage("2")));
+		section(text("d"), text("e", newPage("1"), newPage("P1")));
+		section();
+		section(text("f", newPage("2")), text("g", newPage("p1")), text("h"));
+
+		assertUntranslatedBraillePages("1", "2", "p1", "P1", "3");
+	}
+
+	@Test
+	public void reindexAfterMapListRebuilt() {
+		section(text("a", braillePage("a"), newPage("1")), printIndicator("1"));
+		section(text("b", braillePage("b"), newPage("2")), printIndicator("2"));
+		section(text("c", braillePage("c"), newPage("3")), printIndicator("3"));
+		assertPrintPages("1", "2", "3", "4");
+		assertBraillePages(3);
+		assertUntranslatedBraillePages("1", "2", "3", "4");
+
+		// Section replaced with a new map list, as done by a reformat
+		sections.set(1, new SectionElement(mapList(
+				text("b", braillePage("b"), braillePage("b2"), newPage("4")), printIndicator("4")
+		)));
+		assertPrintPages("1", "2", "3", "4");
+		assertBraillePages(4);
+		assertUntranslatedBraillePages("1", "2", "3", "4");
+
+		// Map list modified in place
+		sections.get(2).list.clear();
+		sections.get(0).list.add(text("z", braillePage("z"), newPage("3")));
+		sections.get(0).list.add(printIndicator("3"));
+		assertPrintPages("1", "2", "3", "4");
+		assertBraillePages(4);
+		assertUntranslatedBraillePages("1", "2", "3", "4");
+
+		// Sections added and removed
+		section(text("y", braillePage("y"), newPage("5")), printIndicator("5"));
+		sections.remove(0);
+		assertPrintPages("1", "2", "3", "4", "5");
+		assertBraillePages(4);
+		assertUntranslatedBraillePages("1", "2", "3", "4", "5");
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.braille.mapping.maps
+
+import org.brailleblaster.abstractClasses.BBEditorView
+import org.brailleblaster.perspectives.braille.mapping.elements.PaintedElement
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertNotSame
+import org.testng.Assert.assertSame
+import org.testng.Assert.assertTrue
+import org.testng.annotations.Test
+
+class PaintedElementsListTest {
+    private val lineLists = listOf(
+        listOf(),
+        listOf(0),
+        listOf(5),
+        listOf(0, 25, 50, 75),
+        listOf(3, 3, 10, 10, 10, 40),
+        (0 until 100).map { it * 7 }
+    )
+
+    private fun firstIndex(lines: List<Int>, line: Int): Int =
+        PaintedElementsList.firstIndexOnOrAfter(lines, line) { it }
+
+    /**
+     * Linear scan of Manager.findPrintPage
+     */
+    private fun scanPrintPageIndex(lines: List<Int>, line: Int): Int {
+        var index = -1
+        var i = 0
+        while (i < lines.size && line > lines[i]) {
+            index = i
+            i++
+        }
+        return index
+    }
+
+    /**
+     * Linear scan of TextView.getPreviousPageIndicator
+     */
+    private fun scanPrevious(lines: List<Int>, line: Int): Int? {
+        var prev = lines.firstOrNull()
+        for (pi in lines) {
+            if (pi >= line) {
+                return prev
+            }
+            prev = pi
+        }
+        return prev
+    }
+
+    /**
+     * Linear scan of TextView.getNextPageIndicator
+     */
+    private fun scanNext(lines: List<Int>, line: Int): Int? = lines.firstOrNull { it >= line }
+
+    @Test
+    fun matchesLinearScan() {
+        for (lines in lineLists) {
+            for (line in -1..(lines.lastOrNull() ?: 0) + 2) {
+                val index = firstIndex(lines, line)
+                val message = "line $line of $lines"
+                // Manager.findPrintPage and findBraillePage
+                assertEquals(index - 1, scanPrintPageIndex(lines, line), message)
+                // TextView.getPreviousPageIndicator and getNextPageIndicator
+                assertEquals(lines.getOrNull((index - 1).coerceAtLeast(0)), scanPrevious(lines, line), message)
+                assertEquals(lines.getOrNull(index), scanNext(lines, line), message)
+            }
+        }
+    }
+
+    @Test
+    fun pageIndicatorsCachedUntilModified() {
+        val list = PaintedElementsList()
+        list.add(painted())
+        val pageIndicators = list.pageIndicators
+        assertTrue(pageIndicators.isEmpty())
+        assertSame(list.pageIndicators, pageIndicators)
+        assertEquals(list.firstPageIndicatorIndex(10), 0)
+
+        list.add(painted())
+        assertNotSame(list.pageIndicators, pageIndicators)
+        list.clear()
+        assertTrue(list.pageIndicators.isEmpty())
+    }
+
+    private fun painted() = object : PaintedElement {
+        override fun removeListener(view: BBEditorView) {}
+    }
+}
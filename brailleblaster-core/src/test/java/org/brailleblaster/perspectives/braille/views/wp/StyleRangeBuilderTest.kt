@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.braille.views.wp
+
+import org.eclipse.swt.SWT
+import org.eclipse.swt.custom.StyleRange
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertSame
+import org.testng.annotations.Test
+
+class StyleRangeBuilderTest {
+    private fun range(start: Int, length: Int, fontStyle: Int): StyleRange =
+        StyleRange().also {
+            it.start = start
+            it.length = length
+            it.fontStyle = fontStyle
+        }
+
+    private fun StyleRange.summary() = Triple(start, length, fontStyle)
+
+    @Test
+    fun disjointUnchanged() {
+        val builder = StyleRangeBuilder()
+        val first = range(0, 3, SWT.BOLD)
+        builder.add(first)
+        builder.add(range(5, 0, SWT.ITALIC))
+        builder.add(range(5, 2, SWT.ITALIC))
+        val built = builder.build()
+        assertEquals(built.size, 2)
+        assertSame(built[0], first)
+        assertEquals(built[1].summary(), Triple(5, 2, SWT.ITALIC))
+    }
+
+    @Test
+    fun laterRangeReplacesOverlap() {
+        val builder = StyleRangeBuilder()
+        builder.add(range(0, 10, SWT.BOLD))
+        builder.add(range(12, 4, SWT.ITALIC))
+        // eg nbsp highlights added after emphasis
+        builder.add(range(3, 2, SWT.NORMAL))
+        builder.add(range(9, 4, SWT.NORMAL))
+        val built = builder.build().map { it.summary() }
+        assertEquals(
+            built, listOf(
+                Triple(0, 3, SWT.BOLD),
+                Triple(3, 2, SWT.NORMAL),
+                Triple(5, 4, SWT.BOLD),
+                Triple(9, 4, SWT.NORMAL),
+                Triple(13, 3, SWT.ITALIC),
+            )
+        )
+    }
+
+    @Test
+    fun earlierRangeResumesAfterNested() {
+        val builder = StyleRangeBuilder()
+        builder.add(range(4, 2, SWT.ITALIC))
+        builder.add(range(0, 3, SWT.BOLD))
+        builder.add(range(1, 1, SWT.NORMAL))
+        val built = builder.build().map { it.summary() }
+        assertEquals(
+            built, listOf(
+                Triple(0, 1, SWT.BOLD),
+                Triple(1, 1, SWT.NORMAL),
+                Triple(2, 1, SWT.BOLD),
+                Triple(4, 2, SWT.ITALIC),
+            )
+        )
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.mvc;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class EditProfilerTest {
+	private static void spin(long millis) {
+		long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		while (System.nanoTime() < end) {
+			Thread.onSpinWait();
+		}
+	}
+
+	@BeforeMethod
+	@AfterMethod
+	public void reset() {
+		EditProfiler.setEnabled(false);
+		EditProfiler.INSTANCE.clear();
+	}
+
+	@Test
+	public void disabled() {
+		Assert.assertFalse(EditProfiler.beginEdit("edit"));
+		Assert.assertEquals(EditProfiler.start(), 0L);
+		EditProfiler.record(EditStage.TRANSLATE, 0L);
+		Assert.assertTrue(EditProfiler.INSTANCE.edits().isEmpty());
+	}
+
+	@Test
+	public void nestedStagesCountSelfTime() {
+		EditProfiler.setEnabled(true);
+		long editStart = System.nanoTime();
+		Assert.assertTrue(EditProfiler.beginEdit("edit"));
+		long handlerStart = EditProfiler.start();
+		spin(5);
+		long translateStart = EditProfiler.start();
+		spin(20);
+		EditProfiler.record(EditStage.TRANSLATE, translateStart);
+		// Nested edits are part of the outer edit
+		Assert.assertTrue(EditProfiler.beginEdit("nested"));
+		long fixStart = EditProfiler.start();
+		spin(10);
+		EditProfiler.record(EditStage.LIVE_FIXER, fixStart);
+		EditProfiler.endEdit();
+		EditProfiler.record(EditStage.MODIFY_HANDLER, handlerStart);
+		spin(5);
+		EditProfiler.endEdit();
+		long elapsed = System.nanoTime() - editStart;
+
+		List<EditProfile> edits = EditProfiler.INSTANCE.edits();
+		Assert.assertEquals(edits.size(), 1);
+		EditProfile edit = edits.get(0);
+		Assert.assertEquals(edit.getDescription(), "edit");
+		long ms = TimeUnit.MILLISECONDS.toNanos(1);
+		Assert.assertTrue(edit.nanos(EditStage.TRANSLATE) >= 20 * ms);
+		Assert.assertTrue(edit.nanos(EditStage.LIVE_FIXER) >= 10 * ms);
+		Assert.assertTrue(edit.nanos(EditStage.MODIFY_HANDLER) >= 5 * ms);
+		Assert.assertTrue(edit.nanos(EditStage.LISTENERS) >= 5 * ms);
+		Assert.assertTrue(edit.getTotalNanos() >= 40 * ms);
+		// Counting nested stages in the handler too would add up to more than the edit took
+		Assert.assertTrue(edit.getTotalNanos() <= elapsed, edit.getTotalNanos() + " > " + elapsed);
+
+		String report = EditProfiler.INSTANCE.report();
+		for (EditStage stage : EditStage.values()) {
+			Assert.assertTrue(report.contains(stage.getLabel()), stage.getLabel());
+		}
+		Assert.assertTrue(report.contains("#" + edit.getId() + " edit"), report);
+	}
+
+	@Test
+	public void recordingLeavesEnabledAlone() {
+		EditProfiler.INSTANCE.startRecording();
+		try {
+			Assert.assertFalse(EditProfiler.getEnabled());
+			Assert.assertTrue(EditProfiler.INSTANCE.isActive());
+			Assert.assertTrue(EditProfiler.beginEdit("recorded"));
+			EditProfiler.endEdit();
+		} finally {
+			EditProfiler.INSTANCE.stopRecording(null);
+		}
+		Assert.assertFalse(EditProfiler.getEnabled());
+		Assert.assertFalse(EditProfiler.INSTANCE.isActive());
+		Assert.assertFalse(EditProfiler.beginEdit("after"));
+		Assert.assertEquals(EditProfiler.INSTANCE.edits().size(), 1);
+	}
+
+	@Test
+	public void keepsLastEdits() {
+		EditProfiler.setEnabled(true);
+		for (int i = 0; i < EditProfiler.MAX_EDITS + 10; i++) {
+			EditProfiler.beginEdit("edit " + i);
+			EditProfiler.record(EditStage.FORMAT, EditProfiler.start());
+			EditProfiler.endEdit();
+		}
+		List<EditProfile> edits = EditProfiler.INSTANCE.edits();
+		Assert.assertEquals(edits.size(), EditProfiler.MAX_EDITS);
+		Assert.assertEquals(edits.get(0).getDescription(), "edit 10");
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.perspectives.mvc;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyStatsTest {
+	@Test
+	public void record() {
+		LatencyStats stats = new LatencyStats("edit");
+		Assert.assertEquals(stats.getMeanNanos(), 0L);
+
+		stats.record(30);
+		stats.record(10);
+		stats.record(20);
+
+		Assert.assertEquals(stats.getCalls(), 3L);
+		Assert.assertEquals(stats.getTotalNanos(), 60L);
+		Assert.assertEquals(stats.getMaxNanos(), 30L);
+		Assert.assertEquals(stats.getLastNanos(), 20L);
+		Assert.assertEquals(stats.getMeanNanos(), 20L);
+	}
+
+	@Test
+	public void recordSince() {
+		LatencyStats stats = new LatencyStats("edit", TimeUnit.SECONDS.toNanos(10));
+		long start = System.nanoTime();
+
+		stats.recordSince(start);
+
+		Assert.assertEquals(stats.getCalls(), 1L);
+		Assert.assertTrue(stats.getLastNanos() >= 0);
+		Assert.assertEquals(stats.getMaxNanos(), stats.getLastNanos());
+	}
+
+	@Test
+	public void reset() {
+		LatencyStats stats = new LatencyStats("edit");
+		stats.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+		stats.reset();
+
+		Assert.assertEquals(stats.getCalls(), 0L);
+		Assert.assertEquals(stats.getTotalNanos(), 0L);
+		Assert.assertEquals(stats.getMaxNanos(), 0L);
+		Assert.assertEquals(stats.getLastNanos(), 0L);
+		Assert.assertEquals(stats.toString(), "edit calls 0 mean 0 ms max 0 ms last 0 ms");
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.printers
+
+import org.brailleblaster.utd.BRFWriter
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertFalse
+import org.testng.Assert.assertNull
+import org.testng.Assert.assertTrue
+import org.testng.annotations.Test
+import kotlin.concurrent.thread
+
+class BrfPageIndexTest {
+    private fun index(vararg pages: String): BrfPageIndex {
+        val index = BrfPageIndex()
+        for (page in pages) {
+            page.forEach { index.accept(it) }
+            index.accept(BRFWriter.PAGE_SEPARATOR)
+        }
+        index.finish()
+        return index
+    }
+
+    @Test
+    fun pageRanges() {
+        index("abc\n", "de\n", "", "fgh\n").use { index ->
+            assertEquals(index.pageCount, 4)
+            assertEquals(index.pageText(0), "abc\n")
+            assertEquals(index.pageText(3), "fgh\n")
+            assertEquals(index.pageRange(1), 4..7)
+            assertEquals(index.length, 11)
+            assertEquals(index.pageIndexOfOffset(0), 0)
+            assertEquals(index.pageIndexOfOffset(5), 1)
+            // Empty page is skipped
+            assertEquals(index.pageIndexOfOffset(7), 3)
+        }
+    }
+
+    @Test
+    fun unicodeAndTrailingPage() {
+        val index = BrfPageIndex()
+        "⠁⠃\n".forEach { index.accept(it) }
+        index.accept(BRFWriter.PAGE_SEPARATOR)
+        "⠉⠙".forEach { index.accept(it) }
+        index.finish()
+        index.use {
+            assertEquals(it.pageCount, 2)
+            assertEquals(it.pageText(0), "⠁⠃\n")
+            assertEquals(it.pageText(1), "⠉⠙")
+        }
+    }
+
+    @Test
+    fun search() {
+        index("one two\n", "three one\n", "four\n").use { index ->
+            assertEquals(index.indexOf("one", 0), 0)
+            assertEquals(index.indexOf("one", 1), 14)
+            assertEquals(index.indexOf("one", 15), -1)
+            assertEquals(index.lastIndexOf("one", index.length), 14)
+            assertEquals(index.lastIndexOf("one", 13), 0)
+            assertEquals(index.lastIndexOf("four", 5), -1)
+        }
+    }
+
+    @Test
+    fun pageLabels() {
+        val index = BrfPageIndex()
+        index.onBrlPageNum("1")
+        index.onPrintPageNum("a")
+        "abc\n".forEach { index.accept(it) }
+        index.accept(BRFWriter.PAGE_SEPARATOR)
+        index.onBrlPageNum("2")
+        "def\n".forEach { index.accept(it) }
+        index.accept(BRFWriter.PAGE_SEPARATOR)
+        index.finish()
+        index.use {
+            assertEquals(it.brlPageOffset("2"), 4)
+            assertEquals(it.printPageOffset("A"), 0)
+            assertNull(it.brlPageOffset("3"))
+            assertEquals(it.pageLabelAt(5, true), "2")
+            assertEquals(it.pageLabelAt(5, false), "a")
+        }
+    }
+
+    @Test
+    fun backgroundGeneration() {
+        BrfPageIndex().use { index ->
+            val generator = thread {
+                repeat(500) {
+                    "page $it\n".forEach { c -> index.accept(c) }
+                    index.accept(BRFWriter.PAGE_SEPARATOR)
+                }
+                index.finish()
+            }
+            assertTrue(index.awaitPage(1))
+            assertEquals(index.pageText(1), "page 1\n")
+            assertEquals(index.pageText(499), "page 499\n")
+            assertFalse(index.awaitPage(500))
+            generator.join()
+            assertEquals(index.pageCount, 500)
+        }
+    }
+}
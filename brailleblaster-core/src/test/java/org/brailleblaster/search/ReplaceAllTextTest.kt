@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.search
+
+import nu.xom.Element
+import nu.xom.Text
+import org.brailleblaster.bbx.BBX
+import org.brailleblaster.perspectives.braille.mapping.elements.TextMapElement
+import org.brailleblaster.utd.properties.EmphasisType
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertSame
+import org.testng.Assert.assertTrue
+import org.testng.annotations.Test
+
+/**
+ * Replace All text pass without the views, see [ReplaceAllText]
+ */
+class ReplaceAllTextTest {
+    private val doc = BBX.newDocument()
+    private val root = BBX.SECTION.ROOT.create().also { doc.rootElement.appendChild(it) }
+
+    private fun block(vararg children: Any): Element {
+        val block = BBX.BLOCK.DEFAULT.create()
+        for (child in children) {
+            when (child) {
+                is String -> block.appendChild(Text(child))
+                is Element -> block.appendChild(child)
+            }
+        }
+        root.appendChild(block)
+        return block
+    }
+
+    private fun bold(text: String): Element {
+        val emphasis = BBX.INLINE.EMPHASIS.create(EmphasisType.BOLD)
+        emphasis.appendChild(text)
+        return emphasis
+    }
+
+    private fun click(find: String, replace: String, caseSensitive: Boolean = false): Click {
+        val settings = SearchCriteria()
+        settings.findString = find
+        settings.replaceString = replace
+        settings.isFindCaseSensitive = caseSensitive
+        return Click(settings, ViewState(0, 0, TextMapElement(root)), true)
+    }
+
+    @Test
+    fun replacementContainsFind() {
+        val block = block("word, word and word")
+        val text = ReplaceAllText(click("word", "words"))
+
+        val replaced = text.replace(doc)
+
+        // Each original match is replaced once, the inserted text is never matched again
+        assertEquals(block.value, "words, words and words")
+        assertEquals(text.numberReplaceAlls, 3)
+        assertEquals(replaced.size, 1)
+    }
+
+    @Test
+    fun replacementKeepsCase() {
+        val block = block("word Word WORD")
+        val text = ReplaceAllText(click("word", "success"))
+
+        text.replace(doc)
+
+        assertEquals(block.value, "success Success SUCCESS")
+        assertEquals(text.numberReplaceAlls, 3)
+    }
+
+    @Test
+    fun caseSensitiveOnlyReplacesExactCase() {
+        val block = block("word Word WORD")
+
+        ReplaceAllText(click("Word", "Success", caseSensitive = true)).replace(doc)
+
+        assertEquals(block.value, "word Success WORD")
+    }
+
+    @Test
+    fun matchInsideEmphasis() {
+        val emphasis = bold("a word here")
+        val block = block("first word then ", emphasis)
+
+        val replaced = ReplaceAllText(click("word", "term")).replace(doc)
+
+        assertEquals(block.value, "first term then a term here")
+        assertSame(emphasis.parent, block)
+        assertTrue(BBX.INLINE.EMPHASIS.isA(emphasis))
+        assertEquals(emphasis.value, "a term here")
+        assertEquals(replaced.size, 2)
+    }
+
+    @Test
+    fun matchSpanningEmphasisIsNotReplaced() {
+        val block = block("a big ", bold("word"), " here")
+        val text = ReplaceAllText(click("big word", "small term"))
+
+        val replaced = text.replace(doc)
+
+        // Matching is per text node so a phrase split by an inline element is left alone
+        assertEquals(block.value, "a big word here")
+        assertTrue(replaced.isEmpty())
+        assertEquals(text.numberReplaceAlls, 0)
+    }
+
+    @Test
+    fun changedBlocksGroupsTextNodes() {
+        val first = block("word ", bold("word"), " word")
+        val second = block("word")
+        block("nothing")
+
+        val replaced = ReplaceAllText(click("word", "term")).replace(doc)
+
+        assertEquals(replaced.size, 4)
+        assertEquals(ReplaceAll.changedBlocks(replaced), listOf(first, second))
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.search
+
+import nu.xom.Element
+import nu.xom.Node
+import nu.xom.Text
+import org.brailleblaster.bbx.BBX
+import org.brailleblaster.perspectives.braille.mapping.elements.LineBreakElement
+import org.brailleblaster.perspectives.braille.mapping.elements.TextMapElement
+import org.brailleblaster.utd.properties.EmphasisType
+import org.brailleblaster.utd.properties.UTDElements
+import org.testng.Assert.assertFalse
+import org.testng.Assert.assertTrue
+import org.testng.annotations.Test
+
+/**
+ * Find check of sections other than the current one, see [ViewControl.Companion.sectionHasMatch]
+ */
+class SectionHasMatchTest {
+    private val doc = BBX.newDocument()
+    private val root = BBX.SECTION.ROOT.create().also { doc.rootElement.appendChild(it) }
+
+    private fun block(vararg children: Any): Element {
+        val block = BBX.BLOCK.DEFAULT.create()
+        for (child in children) {
+            when (child) {
+                is String -> block.appendChild(Text(child))
+                is Element -> block.appendChild(child)
+            }
+        }
+        root.appendChild(block)
+        return block
+    }
+
+    private fun bold(text: String): Element {
+        val emphasis = BBX.INLINE.EMPHASIS.create(EmphasisType.BOLD)
+        emphasis.appendChild(text)
+        return emphasis
+    }
+
+    /**
+     * Map elements in document order, like the map list of a section
+     */
+    private fun mapElements(vararg blocks: Element): List<TextMapElement> {
+        val mapElements = mutableListOf<TextMapElement>()
+        fun add(node: Node) {
+            when {
+                node is Text -> mapElements.add(TextMapElement(node))
+                UTDElements.NEW_LINE.isA(node) -> mapElements.add(LineBreakElement(node as Element))
+                else -> for (i in 0 until node.childCount) add(node.getChild(i))
+            }
+        }
+        blocks.forEach { add(it) }
+        return mapElements
+    }
+
+    private fun hasMatch(find: String, mapElements: List<TextMapElement>, possibles: Set<Node>): Boolean {
+        val settings = SearchCriteria()
+        settings.findString = find
+        val click = Click(settings, ViewState(0, 0, TextMapElement(root)), true)
+        return ViewControl.sectionHasMatch(mapElements, SearchUtils.compilePhrase(click, false), possibles)
+    }
+
+    private fun allPossible(mapElements: List<TextMapElement>): Set<Node> =
+        mapElements.mapNotNull { it.node }.filterIsInstance<Text>().toSet()
+
+    @Test
+    fun matchAcrossInlineElements() {
+        val section = mapElements(block("a big ", bold("word"), " here"))
+
+        assertTrue(hasMatch("big word", section, allPossible(section)))
+        assertTrue(hasMatch("BIG WORD HERE", section, allPossible(section)))
+        assertFalse(hasMatch("small word", section, allPossible(section)))
+    }
+
+    @Test
+    fun matchAcrossBlocks() {
+        val section = mapElements(block("the end"), block("start here"))
+
+        // Blocks are on separate lines in the view, which a space in the phrase matches
+        assertTrue(hasMatch("end start", section, allPossible(section)))
+        assertTrue(hasMatch("the end", section, allPossible(section)))
+    }
+
+    @Test
+    fun matchAcrossLineBreak() {
+        val section = mapElements(block("first line", UTDElements.NEW_LINE.create(), "second line"))
+
+        assertTrue(hasMatch("line second", section, allPossible(section)))
+        assertTrue(hasMatch("second line", section, allPossible(section)))
+    }
+
+    @Test
+    fun rejectedElementBreaksMatch() {
+        val section = mapElements(block("a big "), block("odd"), block("word"))
+        val possibles = allPossible(section).filter { it.value != "odd" }.toSet()
+
+        // Find would reject the odd element in the middle of the match
+        assertFalse(hasMatch("big word", section, possibles))
+        assertTrue(hasMatch("word", section, possibles))
+    }
+
+    @Test
+    fun sectionWithoutMatchIsSkipped() {
+        val first = mapElements(block("nothing to see"))
+        val second = mapElements(block("the phrase ", bold("is here")))
+
+        assertFalse(hasMatch("phrase is", first, allPossible(first)))
+        assertTrue(hasMatch("phrase is", second, allPossible(second)))
+    }
+
+    @Test
+    fun nodeTextFallback() {
+        val section = mapElements(block("some", bold("thing")), block("else"))
+
+        // Node text without separators is still checked like before
+        assertTrue(hasMatch("thingelse", section, allPossible(section)))
+        assertTrue(hasMatch("something", section, allPossible(section)))
+    }
+}
@@ -17,6 +17,7 @@ package org.brailleblaster.debug
 
 import org.brailleblaster.BBIni
 import org.brailleblaster.utils.localization.LocaleHandler
+import org.brailleblaster.perspectives.mvc.EditProfiler
 import org.brailleblaster.perspectives.mvc.ViewManager
 import org.brailleblaster.perspectives.mvc.menu.BBSelectionData
 import org.brailleblaster.perspectives.mvc.modules.views.DebugModule.DebugFatalException
@@ -31,6 +32,7 @@ import org.eclipse.swt.widgets.FileDialog
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import java.io.File
+import java.nio.file.Paths
 
 object DebugTool {
     val tools = listOf(
@@ -38,6 +40,9 @@ object DebugTool {
         MapListViewerTool,
         StyleViewerTool,
         PageNumberViewerTool,
+        EditProfilingTool,
+        EditProfileReportTool,
+        EditProfileRecordingTool,
         SaveWithBrlTool,
         SaveFormattedWithBrlTool,
         SaveFormattedWithoutBrlTool,
@@ -85,6 +90,38 @@ object PageNumberViewerTool : DebugMenuToolModule {
         PageNumberDebugger(bbData.manager)
     }
 }
+object EditProfilingTool : CheckMenuTool, DebugMenuToolModule {
+    override val title = "Profile Edits"
+    override val active = false
+    override fun onRun(bbData: BBSelectionData) {
+        EditProfiler.enabled = bbData.menuItem!!.selection
+    }
+}
+object EditProfileReportTool : DebugMenuToolModule {
+    override val title = "Edit Profile Report"
+    override fun onRun(bbData: BBSelectionData) {
+        EditProfileDebugger(bbData.manager)
+    }
+}
+object EditProfileRecordingTool : CheckMenuTool, DebugMenuToolModule {
+    override val title = "Record Edit Profile (JFR)"
+    override val active = false
+    override fun onRun(bbData: BBSelectionData) {
+        if (bbData.menuItem!!.selection) {
+            EditProfiler.startRecording()
+        } else {
+            val path = FileDialog(bbData.wpManager.shell, SWT.SAVE).run {
+                setFilterExtensions("*.jfr")
+                fileName = "edit-profile.jfr"
+                open()
+            }
+            if (path == null) {
+                log.debug("Discarded edit profile recording")
+            }
+            EditProfiler.stopRecording(path?.let { Paths.get(it) })
+        }
+    }
+}
 object SaveWithBrlTool : DebugMenuToolModule {
     override val title = "Save Document w/ <brl>"
     override fun onRun(bbData: BBSelectionData) {
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.debug
+
+import org.brailleblaster.perspectives.braille.Manager
+import org.brailleblaster.perspectives.mvc.EditProfiler
+import org.brailleblaster.utils.swt.EasySWT
+import org.eclipse.swt.SWT
+import org.eclipse.swt.custom.StyledText
+import org.eclipse.swt.graphics.Font
+import org.eclipse.swt.layout.GridData
+import org.eclipse.swt.layout.GridLayout
+import org.eclipse.swt.widgets.Button
+import org.eclipse.swt.widgets.FileDialog
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.util.concurrent.TimeUnit
+
+/**
+ * Edit profile report with the listener timings of the manager, can be saved to attach to a bug report
+ */
+class EditProfileDebugger(private val manager: Manager) {
+    private val reportText: StyledText
+
+    init {
+        val shell = EasySWT.makeDialogFloating(manager.wpManager.shell)
+        shell.text = "Debug: Edit Profile"
+        shell.layout = GridLayout(3, false)
+        reportText = StyledText(shell, SWT.READ_ONLY or SWT.V_SCROLL or SWT.H_SCROLL)
+        reportText.layoutData = GridData(SWT.FILL, SWT.FILL, true, true, 3, 1)
+        val font = Font(shell.display, "Courier New", 10, SWT.NORMAL)
+        shell.addDisposeListener { font.dispose() }
+        reportText.font = font
+
+        val refreshButton = Button(shell, SWT.PUSH)
+        refreshButton.text = "Refresh"
+        EasySWT.addSelectionListener(refreshButton) { update() }
+        val clearButton = Button(shell, SWT.PUSH)
+        clearButton.text = "Clear"
+        EasySWT.addSelectionListener(clearButton) {
+            EditProfiler.clear()
+            manager.editLatency.reset()
+            update()
+        }
+        val saveButton = Button(shell, SWT.PUSH)
+        saveButton.text = "Save Report"
+        EasySWT.addSelectionListener(saveButton) {
+            val path = FileDialog(shell, SWT.SAVE).run {
+                setFilterExtensions("*.txt")
+                fileName = "edit-profile.txt"
+                open()
+            }
+            if (path != null) {
+                Files.writeString(Paths.get(path), reportText.text)
+            }
+        }
+
+        update()
+        EasySWT.setLargeDialogSize(shell)
+        shell.open()
+    }
+
+    private fun update() {
+        val report = StringBuilder(EditProfiler.report())
+        report.append('\n').append(manager.editLatency).append('\n')
+        report.append("\nListeners by total time\n")
+        for (timing in manager.simpleManager.listenerTimings.sortedByDescending { it.totalNanos }) {
+            if (timing.totalNanos >= TimeUnit.MILLISECONDS.toNanos(1)) {
+                report.append(timing).append('\n')
+            }
+        }
+        reportText.text = report.toString()
+    }
+}
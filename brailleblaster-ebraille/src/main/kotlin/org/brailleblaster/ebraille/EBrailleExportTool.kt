@@ -16,7 +16,6 @@
 package org.brailleblaster.ebraille
 
 import nu.xom.Document
-import org.brailleblaster.ebraille.bbx2html.BBX2HTML
 import org.brailleblaster.perspectives.mvc.menu.BBSelectionData
 import org.brailleblaster.perspectives.mvc.menu.TopMenu
 import org.brailleblaster.perspectives.mvc.modules.views.DebugModule
@@ -31,8 +30,7 @@ import kotlin.io.path.Path
 import kotlin.io.path.nameWithoutExtension
 
 internal fun createEbraille(outputPath: Path, docs: List<Document>, title: String, engine: ITranslationEngine) {
-    val html = docs.map { BBX2HTML.convertBbxToHtml(it) }
-    EBraillePackager.createEbraillePackage(outputPath, html, title = title, engine)
+    EBraillePackager.createStreamingEbraillePackage(outputPath, docs, title = title, translationEngine = engine)
 }
 object EBrailleExportTool : MenuTool {
     override val topMenu = TopMenu.FILE
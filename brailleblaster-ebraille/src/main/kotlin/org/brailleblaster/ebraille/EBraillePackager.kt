@@ -15,20 +15,30 @@
  */
 package org.brailleblaster.ebraille
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder
 import nu.xom.Serializer
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream
+import org.brailleblaster.ebraille.bbx2html.BBX2HTML
 import org.brailleblaster.utd.ITranslationEngine
 import org.brailleblaster.utd.UTDTranslationEngine
 import org.jsoup.nodes.Document
+import org.slf4j.LoggerFactory
 import java.io.OutputStream
 import java.nio.channels.FileChannel
 import java.nio.file.Path
 import java.nio.file.StandardOpenOption
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
 
 private const val OPF_PATH = "package.opf"
 
+private val DEFAULT_THREADS = Runtime.getRuntime().availableProcessors().coerceIn(1, 4)
+
 object EBraillePackager {
+    private val log = LoggerFactory.getLogger(EBraillePackager::class.java)
     private val RESOURCE_ITEMS = buildList {
         javaClass.getResource("/org/brailleblaster/ebraille/css/default.css")?.let {
             add(ResourceItem("ebraille/css/default.css", it, "text/css"))
@@ -39,8 +49,60 @@ object EBraillePackager {
         val navDoc = XHtmlItem("index.html", NavigationHtml.createNavigationHtml(docItems, title = title, translationEngine = translationEngine), properties = "nav")
         packageDocument(outPath, docItems + RESOURCE_ITEMS + navDoc)
     }
+
+    /**
+     * Convert the BBX documents a section at a time and write each HTML part into the package as
+     * it is produced, instead of building the HTML of the whole book first. Parts are converted
+     * on up to [threads] threads and only the parts waiting to be written are held in memory.
+     */
+    fun createStreamingEbraillePackage(
+        outPath: Path,
+        bbxDocs: List<nu.xom.Document>,
+        title: String = "-",
+        translationEngine: ITranslationEngine = UTDTranslationEngine(),
+        threads: Int = DEFAULT_THREADS
+    ) {
+        val parts = bbxDocs.flatMap { doc -> BBX2HTML.splitParts(doc).map { doc to it } }
+        val navigation = NavigationBuilder()
+        val entries = mutableListOf<PackageEntry>()
+        val executor = Executors.newFixedThreadPool(threads.coerceAtLeast(1), ThreadFactoryBuilder().setNameFormat("ebraille-%d").setDaemon(true).build())
+        try {
+            openPackage(outPath).use { zos ->
+                zos.writeMimetype()
+                val pending = ArrayDeque<Future<Document>>()
+                var submitted = 0
+                for (i in parts.indices) {
+                    // Keep one part converting per thread ahead of the writer
+                    while (submitted < parts.size && submitted <= i + threads) {
+                        val (doc, part) = parts[submitted++]
+                        pending.addLast(executor.submit(Callable { BBX2HTML.convertPart(doc, part) }))
+                    }
+                    val item = XHtmlItem("ebraille/document${i}.html", pending.removeFirst().get())
+                    navigation.addDocument(item.path, item.document)
+                    zos.writeItems(listOf(item))
+                    entries.add(WrittenEntry(item))
+                }
+                zos.writeItems(RESOURCE_ITEMS)
+                entries.addAll(RESOURCE_ITEMS)
+                val navDoc = XHtmlItem("index.html", navigation.build(title, translationEngine), properties = "nav")
+                zos.writeItems(listOf(navDoc))
+                entries.add(WrittenEntry(navDoc))
+                zos.writeOpf(entries)
+                zos.writeContainer()
+                zos.closeArchiveEntry()
+            }
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        } finally {
+            executor.shutdownNow()
+        }
+        log.info("Wrote {} eBraille parts to {}", parts.size, outPath)
+    }
+
+    private fun openPackage(outPath: Path) = ZipArchiveOutputStream(FileChannel.open(outPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+
     private fun packageDocument(outPath: Path, packageItems: List<PackageItem>) {
-        ZipArchiveOutputStream(FileChannel.open(outPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)).use { zos ->
+        openPackage(outPath).use { zos ->
             zos.writeMimetype()
             zos.writeItems(packageItems)
             zos.writeOpf(packageItems)
@@ -66,7 +128,7 @@ private fun ZipArchiveOutputStream.writeItems(items: List<PackageItem>) {
     }
 }
 
-private fun ZipArchiveOutputStream.writeOpf(docItems: List<PackageItem>) {
+private fun ZipArchiveOutputStream.writeOpf(docItems: List<PackageEntry>) {
     putArchiveEntry(ZipArchiveEntry(OPF_PATH))
     createXomSerializer(this).write(createOpf(docItems))
 }
@@ -20,16 +20,50 @@ import org.jsoup.Jsoup
 import org.jsoup.nodes.Document
 import org.jsoup.nodes.Element
 
-private data class ElementRef(val path: String, val element: Element)
+internal data class NavTarget(val path: String, val id: String, val text: String)
 
 private val HEADINGS_LEVEL_MAP = mapOf("h1" to 0, "h2" to 1, "h3" to 2, "h4" to 3, "h5" to 4, "h6" to 5)
 
+private val HEADINGS_SELECTOR = HEADINGS_LEVEL_MAP.keys.joinToString(separator = ", ")
+
 private val ID_RANGE = 0..Long.MAX_VALUE
 
 private class IdGenerator {
     private val generatorMap = mutableMapOf<String, Iterator<Long>>()
     fun nextId(path: String): Long = generatorMap.getOrPut(path) { ID_RANGE.iterator() }.next()
 }
+
+/**
+ * Collects the headings and pages of each document as it is produced, so the documents don't
+ * need to be kept until the navigation document is built.
+ */
+class NavigationBuilder {
+    private val headingIds = IdGenerator()
+    private val pageIds = IdGenerator()
+    private val headings = mutableListOf<ListItem<NavTarget>>()
+    private val pages = mutableListOf<ListItem<NavTarget>>()
+
+    /**
+     * Gives headings and page breaks without an id one, call before writing the document
+     */
+    fun addDocument(path: String, document: Document) {
+        for (heading in document.select(HEADINGS_SELECTOR)) {
+            if (heading.id().isEmpty()) {
+                heading.id("h_${headingIds.nextId(path)}")
+            }
+            headings.add(ListItem(NavTarget(path, heading.id(), heading.text()), HEADINGS_LEVEL_MAP.getOrDefault(heading.tagName(), 0)))
+        }
+        for (page in document.select("""span[role="doc-pagebreak"]""")) {
+            if (page.id().isEmpty()) {
+                page.id("page_${pageIds.nextId(path)}")
+            }
+            pages.add(ListItem(level = 0, element = NavTarget(path, page.id(), page.text())))
+        }
+    }
+
+    fun build(title: String, translationEngine: ITranslationEngine): Document = NavigationHtml.createNavigationHtml(headings, pages, title, translationEngine)
+}
+
 object NavigationHtml {
     private val FALLBACK_TEMPLATE = """
             <!DOCTYPE html>
@@ -41,34 +75,28 @@ object NavigationHtml {
             <body></body>
             </html>
         """.trimIndent()
-    fun createNavigationHtml(docs: Iterable<XHtmlItem>, title: String, translationEngine: ITranslationEngine): Document {
+    fun createNavigationHtml(docs: Iterable<XHtmlItem>, title: String, translationEngine: ITranslationEngine): Document =
+        NavigationBuilder().apply {
+            for (doc in docs) {
+                addDocument(doc.path, doc.document)
+            }
+        }.build(title, translationEngine)
+
+    internal fun createNavigationHtml(headings: List<ListItem<NavTarget>>, pages: List<ListItem<NavTarget>>, title: String, translationEngine: ITranslationEngine): Document {
         val titleBrl: String = translateToBraille(title, translationEngine)
         val template = javaClass.getResourceAsStream("/org/brailleblaster/ebraille/index_template.html")?.bufferedReader(Charsets.UTF_8)?.readText() ?: FALLBACK_TEMPLATE
         val html = Jsoup.parse(template)
         html.title(title)
         html.body().appendChild(Element("h1").appendText(titleBrl))
-        html.body().appendChild(createHeadingsList(docs, headingBrl = translateToBraille("Table of contents", translationEngine)))
-        html.body().appendChild(createPageList(docs, headingBrl = translateToBraille("List of pages", translationEngine)))
+        html.body().appendChild(createHeadingsList(headings, headingBrl = translateToBraille("Table of contents", translationEngine)))
+        html.body().appendChild(createPageList(pages, headingBrl = translateToBraille("List of pages", translationEngine)))
         return html
     }
-    private fun createHeadingsList(docs: Iterable<XHtmlItem>, headingBrl: String = "⠠⠞⠁⠼ ⠷ ⠒⠞⠢⠞⠎"): Element = Element("nav").attr("role", "doc-toc").attr("aria-label", "Contents").attr("epub:type", "toc").appendChild(Element("h2").appendText(headingBrl)).apply {
-        val idGenerator = IdGenerator()
-        val headings = docs.flatMap { doc -> doc.document.select(HEADINGS_LEVEL_MAP.keys.joinToString(separator = ", ")).map {
-            if (it.id().isEmpty()) {
-                it.id("h_${idGenerator.nextId(doc.path)}")
-            }
-            ListItem(ElementRef(doc.path, it), HEADINGS_LEVEL_MAP.getOrDefault(it.tagName(), 0))
-        } }
-        appendChild(headings.toHtml(level = 0, containerFactory = { Element("ol") }, itemFactory = { listOf(Element("li").appendChild(Element("a").attr("href", "${it.element.path}#${it.element.element.id()}").appendText(it.element.element.text()))) }))
+    private fun createHeadingsList(headings: List<ListItem<NavTarget>>, headingBrl: String = "⠠⠞⠁⠼ ⠷ ⠒⠞⠢⠞⠎"): Element = Element("nav").attr("role", "doc-toc").attr("aria-label", "Contents").attr("epub:type", "toc").appendChild(Element("h2").appendText(headingBrl)).apply {
+        appendChild(headings.toHtml(level = 0, containerFactory = { Element("ol") }, itemFactory = { listOf(it.element.toLink()) }))
     }
-    private fun createPageList(docs: Iterable<XHtmlItem>, headingBrl: String = "⠠⠇⠊⠌ ⠷ ⠏⠁⠛⠑⠎"): Element = Element("nav").attr("role", "doc-pagelist").attr("epub:type", "page-list").attr("aria-label", "Page list").attr("hidden", "").appendChild(Element("h2").appendText(headingBrl)).apply {
-        val idGenerator = IdGenerator()
-        val pages = docs.flatMap { doc -> doc.document.select("""span[role="doc-pagebreak"]""").map {
-            if (it.id().isEmpty()) {
-                it.id("page_${idGenerator.nextId(doc.path)}")
-            }
-            ListItem(level = 0, element = ElementRef(doc.path, it))
-        } }
-        appendChild(pages.toHtml(level = 0, containerFactory = { Element("ol") }, itemFactory = { listOf(Element("li").appendChild(Element("a").attr("href", "${it.element.path}#${it.element.element.id()}").appendText(it.element.element.text())))}))
+    private fun createPageList(pages: List<ListItem<NavTarget>>, headingBrl: String = "⠠⠇⠊⠌ ⠷ ⠏⠁⠛⠑⠎"): Element = Element("nav").attr("role", "doc-pagelist").attr("epub:type", "page-list").attr("aria-label", "Page list").attr("hidden", "").appendChild(Element("h2").appendText(headingBrl)).apply {
+        appendChild(pages.toHtml(level = 0, containerFactory = { Element("ol") }, itemFactory = { listOf(it.element.toLink()) }))
     }
+    private fun NavTarget.toLink(): Element = Element("li").appendChild(Element("a").attr("href", "${path}#${id}").appendText(text))
 }
@@ -31,7 +31,7 @@ import kotlin.uuid.ExperimentalUuidApi
 import kotlin.uuid.Uuid
 
 @OptIn(ExperimentalUuidApi::class)
-fun createOpf(items: List<PackageItem>): Document = Document(Element("package", OPF_NS).apply {
+fun createOpf(items: List<PackageEntry>): Document = Document(Element("package", OPF_NS).apply {
     val itemMap = items.mapIndexed { i, item -> "file${i}" to item }.toMap()
     addNamespaceDeclaration("dc", DC_NS)
     addAttribute(Attribute("version", "3.0"))
@@ -87,14 +87,25 @@ fun createOpf(items: List<PackageItem>): Document = Document(Element("package",
     })
 })
 
-interface PackageItem {
+/**
+ * Manifest details of an item, all the OPF needs once the item is written
+ */
+interface PackageEntry {
     val path: String
     val mediaType: String
     val includeInSpine: Boolean
     val properties: String?
+}
+
+interface PackageItem : PackageEntry {
     fun write(output: OutputStream)
 }
 
+data class WrittenEntry(override val path: String, override val mediaType: String, override val includeInSpine: Boolean,
+                        override val properties: String?) : PackageEntry {
+    constructor(item: PackageEntry) : this(item.path, item.mediaType, item.includeInSpine, item.properties)
+}
+
 data class XHtmlItem(override val path: String, val document: org.jsoup.nodes.Document, override val includeInSpine: Boolean = true,
                      override val properties: String? = null) : PackageItem {
     override val mediaType: String = "application/xhtml+xml"
@@ -31,14 +31,60 @@ object BBX2HTML {
             <body></body>
             </html>
         """.trimIndent()
+    private val template: String by lazy {
+        javaClass.getResourceAsStream("/org/brailleblaster/ebraille/document_template.html")?.bufferedReader(Charsets.UTF_8)?.readText() ?: FALLBACK_TEMPLATE
+    }
     fun convertBbxToHtml(document: Document): org.jsoup.nodes.Document {
+        val bbxRoot = checkBbxRoot(document)
+        return createHtml(bbxRoot).apply {
+            body().appendChildren(bbxRoot.childElements.filter { BBX.SECTION.ROOT.isA(it) }.flatMap { it.processChildren() })
+        }
+    }
+
+    /**
+     * Split the book into parts that can be converted independently, each section is a part
+     * and content between nested sections is a part of its own
+     */
+    fun splitParts(document: Document): List<List<Element>> {
+        val bbxRoot = checkBbxRoot(document)
+        val parts = mutableListOf<List<Element>>()
+        fun split(section: Element) {
+            var run = mutableListOf<Element>()
+            for (child in section.childElements) {
+                if (BBX.SECTION.isA(child)) {
+                    if (run.isNotEmpty()) {
+                        parts.add(run)
+                        run = mutableListOf()
+                    }
+                    split(child)
+                } else {
+                    run.add(child)
+                }
+            }
+            if (run.isNotEmpty()) {
+                parts.add(run)
+            }
+        }
+        bbxRoot.childElements.filter { BBX.SECTION.ROOT.isA(it) }.forEach { split(it) }
+        return parts
+    }
+
+    /**
+     * Convert a part from [splitParts], only reads the BBX so parts can be converted in parallel
+     */
+    fun convertPart(document: Document, part: List<Element>): org.jsoup.nodes.Document =
+        createHtml(checkBbxRoot(document)).apply {
+            body().appendChildren(part.processElements())
+        }
+
+    private fun checkBbxRoot(document: Document): Element {
         val bbxRoot = requireNotNull(document.rootElement) { "BBX document must have a root element" }
         require(bbxRoot.namespaceURI == BB_NS && bbxRoot.localName == "bbdoc") { "Document must be a BBX document." }
-        val template = javaClass.getResourceAsStream("/org/brailleblaster/ebraille/document_template.html")?.bufferedReader(Charsets.UTF_8)?.readText() ?: FALLBACK_TEMPLATE
-        val htmlDoc = Jsoup.parse(template)
-        htmlDoc.head().appendChildren(bbxRoot.getFirstChildElement("head", BB_NS)?.processHead() ?: listOf())
-        htmlDoc.body().appendChildren(bbxRoot.childElements.filter { BBX.SECTION.ROOT.isA(it) }.flatMap { it.processChildren() })
-        return htmlDoc
+        return bbxRoot
+    }
+
+    private fun createHtml(bbxRoot: Element): org.jsoup.nodes.Document = Jsoup.parse(template).apply {
+        head().appendChildren(bbxRoot.getFirstChildElement("head", BB_NS)?.processHead() ?: listOf())
     }
 }
 
@@ -48,7 +94,9 @@ internal val Element.style: String?
 @Suppress("UnusedReceiverParameter")
 private fun Element.processHead(): Collection<Node> = listOf()
 
-internal fun Element.processChildren(): Collection<Node> = childElements.flatMap {
+internal fun Element.processChildren(): Collection<Node> = childElements.processElements()
+
+private fun Iterable<Element>.processElements(): Collection<Node> = flatMap {
     when(BBX.getTypeOrNull(it)) {
         BBX.SECTION -> it.processSection()
         BBX.CONTAINER -> it.processContainer()
@@ -26,6 +26,9 @@ import org.eclipse.jface.dialogs.MessageDialogWithToggle
 import org.eclipse.swt.widgets.Display
 
 object JavaCheckerModule : SimpleListener {
+    override val subscribedEvents: Set<Class<out SimpleEvent>>
+        get() = setOf(AppStartedEvent::class.java)
+
     override fun onEvent(event: SimpleEvent) {
         if (event is AppStartedEvent) {
             val minVersion = Runtime.Version.parse("21")
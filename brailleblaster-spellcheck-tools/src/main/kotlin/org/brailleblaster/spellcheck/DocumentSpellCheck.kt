@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.spellcheck
+
+/**
+ * A word the spell check dialog stops at
+ *
+ * @param splitPos Position in the word of punctuation probably missing a space after it, or 0
+ * @param capitalize Word is spelled correctly but starts a sentence in lower case
+ */
+class SpellingIssue(val start: Int, val end: Int, val word: String, val splitPos: Int, val capitalize: Boolean)
+
+/**
+ * Checks all words of the text in one pass so the dialog only steps through the results
+ */
+object DocumentSpellCheck {
+    /**
+     * @param from Offset to start checking at, eg after an edit
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun scan(text: String, isCorrect: (String) -> Boolean, ignored: Collection<String>, from: Int = 0): List<SpellingIssue> {
+        val issues = ArrayList<SpellingIssue>()
+        val tokenizer = Tokenizer(text, from, 0)
+        while (tokenizer.next()) {
+            val word = tokenizer.currentWord
+            if (word in ignored) {
+                continue
+            }
+            if (!isCorrect(word)) {
+                issues.add(SpellingIssue(tokenizer.startPos, tokenizer.endPos, word, tokenizer.splitPos, false))
+            } else if (tokenizer.capFlag) {
+                // Something needs capitalization
+                tokenizer.capFlag = false
+                if (tokenizer.next()) {
+                    issues.add(SpellingIssue(tokenizer.startPos, tokenizer.endPos, tokenizer.currentWord, 0, true))
+                }
+            }
+        }
+        return issues
+    }
+
+    /**
+     * @return start and end offsets of each occurrence of the word from the given offset
+     */
+    @JvmStatic
+    fun findWord(text: String, word: String, from: Int): List<IntRange> {
+        val found = ArrayList<IntRange>()
+        val tokenizer = Tokenizer(text, from, 0)
+        while (tokenizer.next()) {
+            if (tokenizer.currentWord == word) {
+                found.add(tokenizer.startPos until tokenizer.endPos)
+            }
+        }
+        return found
+    }
+}
@@ -0,0 +1,668 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.spellcheck
+
+import org.slf4j.LoggerFactory
+import java.io.BufferedReader
+import java.io.Reader
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Hunspell compatible dictionary checked in the JVM, loaded from the same .dic and .aff files
+ * as the native library.
+ *
+ * Supports the affix file features used by the bundled dictionaries: prefixes and suffixes with
+ * conditions and cross products, COMPOUNDRULE, ONLYINCOMPOUND, NOSUGGEST, FORBIDDENWORD,
+ * NEEDAFFIX, ICONV, REP and TRY. Stems are kept in a compact trie and check results are
+ * memoised, so checking a whole document mostly hits the cache after the first few pages.
+ */
+class HunspellDictionary private constructor(private val affixes: AffixData, private val stems: StemTrie) {
+    private val checked = ConcurrentHashMap<String, Boolean>()
+    private val added = ConcurrentHashMap<String, CharArray>()
+
+    fun isCorrect(word: String): Boolean {
+        if (word.isEmpty()) {
+            return true
+        }
+        checked[word]?.let { return it }
+        val result = findStemAnyCase(affixes.convertInput(word)) != null
+        if (checked.size >= MAX_CHECKED) {
+            checked.clear()
+        }
+        checked[word] = result
+        return result
+    }
+
+    /**
+     * Add a word for the life of this dictionary, callers persist it to the .dic themselves
+     */
+    fun add(word: String) {
+        added[affixes.convertInput(word)] = CharArray(0)
+        checked.clear()
+    }
+
+    /**
+     * @return correctly spelled words close to the given word, best first
+     */
+    @JvmOverloads
+    fun suggest(word: String, limit: Int = MAX_SUGGESTIONS): List<String> {
+        val input = affixes.convertInput(word)
+        val result = LinkedHashSet<String>()
+        fun offer(candidate: String) {
+            if (result.size < limit && candidate != input && candidate !in result && isSuggestable(candidate)) {
+                result.add(candidate)
+            }
+        }
+
+        for ((from, to) in affixes.replacements) {
+            var index = input.indexOf(from)
+            while (index >= 0) {
+                offer(input.substring(0, index) + to + input.substring(index + from.length))
+                index = input.indexOf(from, index + 1)
+            }
+        }
+        offer(input.lowercase(Locale.ROOT))
+        offer(capitalize(input.lowercase(Locale.ROOT)))
+        val chars = input.toCharArray()
+        for (i in 0 until chars.size - 1) {
+            swap(chars, i, i + 1)
+            offer(String(chars))
+            swap(chars, i, i + 1)
+        }
+        for (i in input.indices) {
+            for (c in affixes.tryChars) {
+                if (c != input[i]) {
+                    offer(input.substring(0, i) + c + input.substring(i + 1))
+                }
+            }
+        }
+        for (i in input.indices) {
+            offer(input.removeRange(i, i + 1))
+        }
+        for (i in 0..input.length) {
+            for (c in affixes.tryChars) {
+                offer(input.substring(0, i) + c + input.substring(i))
+            }
+        }
+        for (i in 1 until input.length) {
+            offer(input.substring(0, i) + " " + input.substring(i))
+        }
+        return result.toList()
+    }
+
+    private fun isSuggestable(candidate: String): Boolean {
+        for (part in candidate.split(' ')) {
+            val flags = findStemAnyCase(part) ?: return false
+            if (affixes.noSuggest != NO_FLAG && affixes.noSuggest in flags) {
+                return false
+            }
+        }
+        return true
+    }
+
+    /**
+     * Flags of the stem that makes this word valid, trying the lower case forms hunspell accepts
+     * for capitalized and upper case words
+     */
+    private fun findStemAnyCase(word: String): CharArray? {
+        if (isNumber(word)) {
+            return EMPTY_FLAGS
+        }
+        findStem(word)?.let { return it }
+        val lower = word.lowercase(Locale.ROOT)
+        if (lower == word) {
+            return null
+        }
+        return if (word.uppercase(Locale.ROOT) == word) {
+            findStem(lower) ?: findStem(capitalize(lower))
+        } else if (capitalize(lower) == word) {
+            findStem(lower)
+        } else {
+            null
+        }
+    }
+
+    private fun findStem(word: String): CharArray? {
+        val stemFlags = stemFlags(word, 0, word.length)
+        if (stemFlags != null) {
+            if (affixes.forbidden in stemFlags) {
+                return null
+            }
+            if (affixes.isValidAlone(stemFlags)) {
+                return stemFlags
+            }
+        }
+        return findSuffixed(word, null)
+            ?: findPrefixed(word)
+            ?: findCompound(word)
+    }
+
+    private fun findSuffixed(word: String, prefix: Affix?): CharArray? {
+        for (length in 0..minOf(affixes.maxSuffixLength, word.length - 1)) {
+            val suffixes = affixes.suffixes[word.substring(word.length - length)] ?: continue
+            val rest = word.substring(0, word.length - length)
+            for (suffix in suffixes) {
+                if (prefix != null && !suffix.crossProduct) {
+                    continue
+                }
+                val base = rest + suffix.strip
+                if (!suffix.condition.matchesEnd(base)) {
+                    continue
+                }
+                val flags = stemFlags(base, 0, base.length) ?: continue
+                if (suffix.flag in flags && (prefix == null || prefix.flag in flags) && affixes.isValidAffixed(flags)) {
+                    return flags
+                }
+            }
+        }
+        return null
+    }
+
+    private fun findPrefixed(word: String): CharArray? {
+        for (length in 0..minOf(affixes.maxPrefixLength, word.length - 1)) {
+            val prefixes = affixes.prefixes[word.substring(0, length)] ?: continue
+            val rest = word.substring(length)
+            for (prefix in prefixes) {
+                val base = prefix.strip + rest
+                if (!prefix.condition.matchesStart(base)) {
+                    continue
+                }
+                val flags = stemFlags(base, 0, base.length)
+                if (flags != null && prefix.flag in flags && affixes.isValidAffixed(flags)) {
+                    return flags
+                }
+                if (prefix.crossProduct) {
+                    findSuffixed(base, prefix)?.let { return it }
+                }
+            }
+        }
+        return null
+    }
+
+    private fun findCompound(word: String): CharArray? {
+        for (rule in affixes.compoundRules) {
+            if (matchRule(word, 0, rule, 0, 0)) {
+                return EMPTY_FLAGS
+            }
+        }
+        return null
+    }
+
+    private fun matchRule(word: String, start: Int, rule: Array<RuleElement>, element: Int, parts: Int): Boolean {
+        if (start == word.length) {
+            return parts >= 2 && (element until rule.size).all { rule[it].optional }
+        }
+        if (element == rule.size) {
+            return false
+        }
+        val current = rule[element]
+        if (current.optional && matchRule(word, start, rule, element + 1, parts)) {
+            return true
+        }
+        return stems.anyPrefix(word, start) { end, id ->
+            end - start >= affixes.compoundMin
+                    && current.flag in affixes.flagSets[id]
+                    && matchRule(word, end, rule, if (current.repeat) element else element + 1, parts + 1)
+        }
+    }
+
+    private fun stemFlags(word: String, start: Int, end: Int): CharArray? {
+        val id = stems.get(word, start, end)
+        if (id >= 0) {
+            return affixes.flagSets[id]
+        }
+        return if (added.isEmpty()) null else added[word.substring(start, end)]
+    }
+
+    internal class Affix(
+        val flag: Char,
+        val strip: String,
+        val append: String,
+        val condition: Condition,
+        val crossProduct: Boolean
+    )
+
+    internal class RuleElement(val flag: Char, val optional: Boolean, val repeat: Boolean)
+
+    /**
+     * Hunspell affix condition, a sequence of characters, "." or character classes matched
+     * against the start of the stem for prefixes or its end for suffixes
+     */
+    internal class Condition private constructor(private val classes: Array<String>, private val negated: BooleanArray) {
+        private fun matches(c: Char, index: Int): Boolean {
+            val chars = classes[index]
+            return if (chars.isEmpty()) true else (chars.indexOf(c) >= 0) != negated[index]
+        }
+
+        fun matchesStart(word: String): Boolean {
+            if (word.length < classes.size) {
+                return false
+            }
+            return classes.indices.all { matches(word[it], it) }
+        }
+
+        fun matchesEnd(word: String): Boolean {
+            if (word.length < classes.size) {
+                return false
+            }
+            val offset = word.length - classes.size
+            return classes.indices.all { matches(word[offset + it], it) }
+        }
+
+        companion object {
+            val ANY = Condition(emptyArray(), BooleanArray(0))
+
+            fun parse(condition: String): Condition {
+                if (condition == ".") {
+                    return ANY
+                }
+                val classes = ArrayList<String>()
+                val negated = ArrayList<Boolean>()
+                var i = 0
+                while (i < condition.length) {
+                    val c = condition[i]
+                    if (c == '[') {
+                        val end = condition.indexOf(']', i).let { if (it < 0) condition.length else it }
+                        val negate = i + 1 < end && condition[i + 1] == '^'
+                        classes.add(condition.substring(if (negate) i + 2 else i + 1, end))
+                        negated.add(negate)
+                        i = end + 1
+                    } else {
+                        // "." is stored as an empty class that matches anything
+                        classes.add(if (c == '.') "" else c.toString())
+                        negated.add(false)
+                        i++
+                    }
+                }
+                return Condition(classes.toTypedArray(), negated.toBooleanArray())
+            }
+        }
+    }
+
+    internal class AffixData {
+        var flagType = FlagType.SINGLE
+        var tryChars = ""
+        var noSuggest = NO_FLAG
+        var forbidden = NO_FLAG
+        var needAffix = NO_FLAG
+        var onlyInCompound = NO_FLAG
+        var compoundMin = 3
+        val compoundRules = ArrayList<Array<RuleElement>>()
+        val replacements = ArrayList<Pair<String, String>>()
+        val inputConversions = ArrayList<Pair<String, String>>()
+        val prefixes = HashMap<String, MutableList<Affix>>()
+        val suffixes = HashMap<String, MutableList<Affix>>()
+        var maxPrefixLength = 0
+        var maxSuffixLength = 0
+
+        /** Distinct flag sets of the stems, the trie stores an index into this list */
+        val flagSets = ArrayList<CharArray>()
+
+        fun isValidAlone(flags: CharArray) = needAffix !in flags && onlyInCompound !in flags
+
+        fun isValidAffixed(flags: CharArray) = forbidden !in flags && onlyInCompound !in flags
+
+        fun convertInput(word: String): String {
+            var result = word
+            for ((from, to) in inputConversions) {
+                result = result.replace(from, to)
+            }
+            return result
+        }
+
+        fun parseFlags(flags: String): CharArray = when (flagType) {
+            FlagType.SINGLE -> flags.toCharArray()
+            FlagType.LONG -> CharArray(flags.length / 2) {
+                ((flags[it * 2].code shl 8) or flags[it * 2 + 1].code).toChar()
+            }
+            FlagType.NUM -> flags.split(',').filter { it.isNotBlank() }
+                .map { it.trim().toInt().toChar() }
+                .toCharArray()
+        }
+
+        fun parseRule(rule: String): Array<RuleElement> {
+            val elements = ArrayList<RuleElement>()
+            var i = 0
+            while (i < rule.length) {
+                val flag = if (rule[i] == '(') {
+                    val end = rule.indexOf(')', i)
+                    parseFlags(rule.substring(i + 1, end)).first().also { i = end + 1 }
+                } else {
+                    rule[i++]
+                }
+                val quantifier = if (i < rule.length) rule[i] else ' '
+                if (quantifier == '*' || quantifier == '?') {
+                    i++
+                }
+                elements.add(RuleElement(flag, quantifier == '*' || quantifier == '?', quantifier == '*'))
+            }
+            return elements.toTypedArray()
+        }
+
+        fun load(reader: BufferedReader) {
+            // Affix groups still expecting entries, by type and flag
+            val remaining = HashMap<String, Int>()
+            val crossProducts = HashMap<String, Boolean>()
+            var tableRemaining = 0
+            reader.lineSequence().forEach { rawLine ->
+                val fields = rawLine.trim().split(WHITESPACE)
+                if (fields.isEmpty() || fields[0].isEmpty() || fields[0].startsWith("#")) {
+                    return@forEach
+                }
+                when (fields[0]) {
+                    "FLAG" -> flagType = when (fields.getOrNull(1)) {
+                        "long" -> FlagType.LONG
+                        "num" -> FlagType.NUM
+                        else -> FlagType.SINGLE
+                    }
+                    "TRY" -> tryChars = fields.getOrElse(1) { "" }
+                    "NOSUGGEST" -> noSuggest = parseFlags(fields[1]).first()
+                    "FORBIDDENWORD" -> forbidden = parseFlags(fields[1]).first()
+                    "NEEDAFFIX" -> needAffix = parseFlags(fields[1]).first()
+                    "ONLYINCOMPOUND" -> onlyInCompound = parseFlags(fields[1]).first()
+                    "COMPOUNDMIN" -> compoundMin = fields[1].toInt()
+                    "COMPOUNDRULE", "REP", "ICONV" -> {
+                        // The first line of these tables is the entry count
+                        if (tableRemaining == 0 && fields.size == 2 && fields[1].all { it.isDigit() }) {
+                            tableRemaining = fields[1].toInt()
+                        } else {
+                            tableRemaining--
+                            when (fields[0]) {
+                                "COMPOUNDRULE" -> compoundRules.add(parseRule(fields[1]))
+                                "REP" -> replacements.add(fields[1].replace('_', ' ') to fields[2].replace('_', ' '))
+                                else -> inputConversions.add(fields[1] to fields[2])
+                            }
+                        }
+                    }
+                    "PFX", "SFX" -> {
+                        val key = fields[0] + fields[1]
+                        val left = remaining[key] ?: 0
+                        if (left == 0) {
+                            crossProducts[key] = fields[2] == "Y"
+                            remaining[key] = fields[3].toInt()
+                        } else {
+                            remaining[key] = left - 1
+                            addAffix(fields, crossProducts[key]!!)
+                        }
+                    }
+                }
+            }
+        }
+
+        private fun addAffix(fields: List<String>, crossProduct: Boolean) {
+            val isPrefix = fields[0] == "PFX"
+            val strip = fields[2].let { if (it == "0") "" else it }
+            // Continuation flags after the / are not used by the bundled dictionaries
+            val append = fields[3].substringBefore('/').let { if (it == "0") "" else it }
+            val condition = Condition.parse(fields.getOrElse(4) { "." })
+            val affix = Affix(parseFlags(fields[1]).first(), strip, append, condition, crossProduct)
+            if (isPrefix) {
+                prefixes.getOrPut(append) { ArrayList() }.add(affix)
+                maxPrefixLength = maxOf(maxPrefixLength, append.length)
+            } else {
+                suffixes.getOrPut(append) { ArrayList() }.add(affix)
+                maxSuffixLength = maxOf(maxSuffixLength, append.length)
+            }
+        }
+    }
+
+    internal enum class FlagType {
+        SINGLE, LONG, NUM
+    }
+
+    /**
+     * Read only trie of the stems. Nodes are stored breadth first in flat arrays with the
+     * children of each node contiguous and sorted by character, each node's value is the index
+     * of the stem's flag set or -1.
+     */
+    internal class StemTrie(sortedWords: List<String>, flagIds: IntArray) {
+        private var labels = CharArray(INITIAL_NODES)
+        private var firstChild = IntArray(INITIAL_NODES)
+        private var childCount = IntArray(INITIAL_NODES)
+        private var values = IntArray(INITIAL_NODES)
+        var size = 1
+            private set
+
+        init {
+            // Range of words below each node, only needed while building
+            var lows = IntArray(INITIAL_NODES)
+            var highs = IntArray(INITIAL_NODES)
+            highs[0] = sortedWords.size
+            var depth = 0
+            var levelEnd = 1
+            var node = 0
+            while (node < size) {
+                if (node == levelEnd) {
+                    depth++
+                    levelEnd = size
+                }
+                var i = lows[node]
+                val high = highs[node]
+                values[node] = -1
+                if (i < high && sortedWords[i].length == depth) {
+                    values[node] = flagIds[i]
+                    i++
+                }
+                firstChild[node] = size
+                while (i < high) {
+                    val c = sortedWords[i][depth]
+                    var j = i + 1
+                    while (j < high && sortedWords[j][depth] == c) {
+                        j++
+                    }
+                    if (size == labels.size) {
+                        val newSize = size * 2
+                        labels = labels.copyOf(newSize)
+                        firstChild = firstChild.copyOf(newSize)
+                        childCount = childCount.copyOf(newSize)
+                        values = values.copyOf(newSize)
+                        lows = lows.copyOf(newSize)
+                        highs = highs.copyOf(newSize)
+                    }
+                    labels[size] = c
+                    lows[size] = i
+                    highs[size] = j
+                    size++
+                    i = j
+                }
+                childCount[node] = size - firstChild[node]
+                node++
+            }
+            labels = labels.copyOf(size)
+            firstChild = firstChild.copyOf(size)
+            childCount = childCount.copyOf(size)
+            values = values.copyOf(size)
+        }
+
+        private fun child(node: Int, c: Char): Int {
+            var low = firstChild[node]
+            var high = low + childCount[node] - 1
+            while (low <= high) {
+                val mid = (low + high) ushr 1
+                val label = labels[mid]
+                if (label < c) {
+                    low = mid + 1
+                } else if (label > c) {
+                    high = mid - 1
+                } else {
+                    return mid
+                }
+            }
+            return -1
+        }
+
+        /**
+         * @return flag set index of word.substring(start, end) or -1
+         */
+        fun get(word: String, start: Int, end: Int): Int {
+            var node = 0
+            for (i in start until end) {
+                node = child(node, word[i])
+                if (node < 0) {
+                    return -1
+                }
+            }
+            return values[node]
+        }
+
+        /**
+         * Call onStem for each stem that word continues from start, shortest first, until it returns true
+         */
+        inline fun anyPrefix(word: String, start: Int, onStem: (end: Int, flagSet: Int) -> Boolean): Boolean {
+            var node = 0
+            for (i in start until word.length) {
+                node = childOf(node, word[i])
+                if (node < 0) {
+                    return false
+                }
+                val value = valueOf(node)
+                if (value >= 0 && onStem(i + 1, value)) {
+                    return true
+                }
+            }
+            return false
+        }
+
+        @PublishedApi
+        internal fun childOf(node: Int, c: Char) = child(node, c)
+
+        @PublishedApi
+        internal fun valueOf(node: Int) = values[node]
+
+        companion object {
+            private const val INITIAL_NODES = 1 shl 16
+        }
+    }
+
+    companion object {
+        private val log = LoggerFactory.getLogger(HunspellDictionary::class.java)
+        private val WHITESPACE = Regex("\\s+")
+        private val EMPTY_FLAGS = CharArray(0)
+        private const val NO_FLAG = '\u0000'
+        private const val MAX_SUGGESTIONS = 15
+
+        /** Checked words to remember before starting over */
+        private const val MAX_CHECKED = 200_000
+
+        /** Last dictionary loaded by [loadCached] and the .dic and .aff it came from */
+        private var cached: Pair<Pair<Path, Path>, HunspellDictionary>? = null
+
+        /**
+         * Return the last dictionary loaded from the same .dic and .aff, so opening spell check
+         * again doesn't parse the .dic again. The dictionary is shared, so only add words to it
+         * that are also appended to the .dic.
+         */
+        @JvmStatic
+        @Synchronized
+        fun loadCached(dicPath: Path, affPath: Path): HunspellDictionary {
+            val key = dicPath to affPath
+            cached?.let { (cachedKey, dictionary) ->
+                if (cachedKey == key) {
+                    return dictionary
+                }
+            }
+            return load(dicPath, affPath).also { cached = key to it }
+        }
+
+        @JvmStatic
+        fun load(dicPath: Path, affPath: Path): HunspellDictionary {
+            val start = System.nanoTime()
+            val charset = affixCharset(affPath)
+            val dictionary = Files.newBufferedReader(affPath, charset).use { aff ->
+                Files.newBufferedReader(dicPath, charset).use { dic -> load(dic, aff) }
+            }
+            log.info(
+                "Loaded dictionary {} with {} trie nodes in {} ms",
+                dicPath, dictionary.stems.size, (System.nanoTime() - start) / 1_000_000
+            )
+            return dictionary
+        }
+
+        @JvmStatic
+        fun load(dic: Reader, aff: Reader): HunspellDictionary {
+            val affixes = AffixData()
+            affixes.load(if (aff is BufferedReader) aff else BufferedReader(aff))
+
+            val words = HashMap<String, CharArray>()
+            val dicReader = if (dic is BufferedReader) dic else BufferedReader(dic)
+            dicReader.lineSequence().forEachIndexed { index, rawLine ->
+                // First line is the approximate word count, anything after a tab is morphology
+                val line = rawLine.substringBefore('\t').trimEnd()
+                if (line.isEmpty() || (index == 0 && line.all { it.isDigit() })) {
+                    return@forEachIndexed
+                }
+                val slash = line.indexOf('/', 1)
+                val word = if (slash < 0) line else line.substring(0, slash)
+                val flags = if (slash < 0) EMPTY_FLAGS else affixes.parseFlags(line.substring(slash + 1))
+                // Homonyms get the union of their flags
+                words.merge(word, flags) { a, b -> (a + b).distinct().toCharArray() }
+            }
+
+            val sortedWords = words.keys.sorted()
+            val flagSetIds = HashMap<String, Int>()
+            val flagIds = IntArray(sortedWords.size) { i ->
+                val flags = words.getValue(sortedWords[i])
+                flagSetIds.getOrPut(String(flags)) {
+                    affixes.flagSets.add(flags)
+                    affixes.flagSets.size - 1
+                }
+            }
+            return HunspellDictionary(affixes, StemTrie(sortedWords, flagIds))
+        }
+
+        /**
+         * Encoding from the SET line, the rest of the file can only be read after finding it
+         */
+        private fun affixCharset(affPath: Path): Charset {
+            Files.newBufferedReader(affPath, StandardCharsets.ISO_8859_1).use { reader ->
+                for (line in reader.lineSequence()) {
+                    if (line.startsWith("SET ")) {
+                        return runCatching { Charset.forName(line.substring(4).trim()) }
+                            .getOrDefault(StandardCharsets.UTF_8)
+                    }
+                }
+            }
+            return StandardCharsets.UTF_8
+        }
+
+        private fun isNumber(word: String): Boolean {
+            if (word.isEmpty() || !word[0].isDigit() || !word[word.length - 1].isDigit()) {
+                return false
+            }
+            for (i in word.indices) {
+                val c = word[i]
+                if (!c.isDigit() && !((c == '.' || c == ',' || c == '-') && word[i - 1].isDigit())) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        private fun capitalize(word: String) =
+            if (word.isEmpty()) word else word.substring(0, 1).uppercase(Locale.ROOT) + word.substring(1)
+
+        private fun swap(chars: CharArray, i: Int, j: Int) {
+            val temp = chars[i]
+            chars[i] = chars[j]
+            chars[j] = temp
+        }
+    }
+}
@@ -30,6 +30,7 @@ import java.nio.file.FileSystems
 import java.nio.file.Files
 import java.nio.file.Paths
 import java.util.*
+import kotlin.concurrent.thread
 
 private val localeHandler = getDefault()
 
@@ -37,7 +38,6 @@ object SpellCheckTool : MenuToolModule {
   override val topMenu: TopMenu = TopMenu.TOOLS
   override val title: String = localeHandler["&SpellCheck"]
   override val accelerator: Int = SWT.F7
-  override val enabled: Boolean = false
   override fun onRun(bbData: BBSelectionData) {
     SpellCheckManager(bbData.manager).open()
   }
@@ -46,12 +46,13 @@ object SpellCheckTool : MenuToolModule {
 class SpellCheckManager(private var m: Manager) {
   private var sc: SpellChecker? = null
   private var view: SpellCheckView? = null
-  private var tokenizer: Tokenizer? = null
   private val ignoreList = Vector<String>()
   private lateinit var dictPath: String
   private lateinit var affPath: String
   private var dictLang: String? = null
-  private var correctSpelling = false
+  private var issues: List<SpellingIssue> = emptyList()
+  private var current = -1
+  private val suggestions = HashMap<String, Array<String>>()
 
   fun open() {
     ignoreList.addAll(m.ignoreList)
@@ -62,76 +63,99 @@ class SpellCheckManager(private var m: Manager) {
       if (dictPath != null && affPath != null) {
         this.dictPath = dictPath
         this.affPath = affPath
-        sc = SpellChecker(dictPath, affPath)
-        if (sc!!.isActive) {
-          view = SpellCheckView(m.wpManager.shell, this)
-          tokenizer = Tokenizer(m.text.view.text.replace("\n", " "))
-          checkWord()
-        } else {
-          Notify.notify(localeHandler["spellCheckError"], Notify.ALERT_SHELL_NAME)
+        // Load the dictionary and check the whole document off the UI thread
+        val text = viewText()
+        val display = m.wpManager.shell.display
+        thread(name = "SpellCheck", isDaemon = true) {
+          try {
+            val checker = SpellChecker(dictPath, affPath)
+            val found = if (checker.isActive) scan(checker, text, 0) else emptyList()
+            display.asyncExec { onScanned(checker, text, found) }
+          } catch (e: Throwable) {
+            log.error("Failed to check spelling", e)
+            display.asyncExec { Notify.notify(ExceptionUtils.getRootCauseMessage(e), Notify.EXCEPTION_SHELL_NAME) }
+          }
         }
       } else Notify.notify(localeHandler["spellCheckError"], Notify.ALERT_SHELL_NAME)
     } catch (e: Throwable) {
-      log.error("Failed to load hunspell", e)
+      log.error("Failed to load dictionary", e)
       Notify.notify(ExceptionUtils.getRootCauseMessage(e), Notify.EXCEPTION_SHELL_NAME)
     }
   }
 
-  private fun setWord(word: String?, suggestions: Array<String>) {
-    view!!.setWord(word, suggestions)
-    m.text.highlight(tokenizer!!.startPos, tokenizer!!.endPos)
+  private fun onScanned(checker: SpellChecker, text: String, found: List<SpellingIssue>) {
+    if (m.wpManager.shell.isDisposed) {
+      return
+    }
+    sc = checker
+    if (!checker.isActive) {
+      Notify.notify(localeHandler["spellCheckError"], Notify.ALERT_SHELL_NAME)
+      return
+    }
+    // Words are memoised so checking again after an edit during the scan is quick
+    issues = if (viewText() == text) found else scan(checker, viewText(), 0)
+    current = -1
+    view = SpellCheckView(m.wpManager.shell, this)
+    checkWord()
+  }
+
+  private fun scan(checker: SpellChecker, text: String, from: Int): List<SpellingIssue> =
+    DocumentSpellCheck.scan(text, checker::checkSpelling, ignoreList, from)
+
+  private fun viewText(): String = m.text.view.text.replace('\n', ' ')
+
+  /**
+   * Forget the results after the current word and check again from the given offset
+   */
+  private fun rescanFrom(offset: Int) {
+    issues = issues.subList(0, current + 1) + scan(sc!!, viewText(), offset)
+  }
+
+  private fun setWord(issue: SpellingIssue, suggestions: Array<String>) {
+    view!!.setWord(issue.word, suggestions)
+    m.text.highlight(issue.start, issue.end)
   }
 
+  /**
+   * Move to the next word that needs attention, closing the dialog after the last
+   */
   fun checkWord() {
-    correctSpelling = true
-    while (correctSpelling && tokenizer!!.next()) {
-      if (tokenizer!!.currentWord !in ignoreList) {
-        correctSpelling = sc!!.checkSpelling(tokenizer!!.currentWord)
-        if (!correctSpelling) {
-          val suggestions = sc!!.getSuggestions(tokenizer!!.currentWord)
-          if (tokenizer!!.splitPos != 0
-            && tokenizer!!.splitPos != tokenizer!!.currentWord.length
-          ) {
-            // Caught a word that probably needs a space
-            var word2: String
-            val punc = ".?!"
-            val word1: String = tokenizer!!.currentWord.substring(0, tokenizer!!.splitPos)
-            word2 = if (punc.contains(
-                tokenizer!!.currentWord[tokenizer!!.splitPos - 1].toString()
-              )
-            ) {
-              // If we're splitting a word at a . ! or ? the
-              // second word should be capitalized.
-              tokenizer!!.currentWord[tokenizer!!.splitPos].uppercaseChar()
-                .toString() + tokenizer!!.currentWord.substring(
-                tokenizer!!.splitPos + 1
-              )
-            } else {
-              tokenizer!!.currentWord.substring(tokenizer!!.splitPos)
-            }
-            // Make a new suggestions array that includes existing
-            // words with space
-            val newSuggestions = arrayOf("$word1 $word2", *suggestions)
-            setWord(tokenizer!!.currentWord, newSuggestions)
-          } else {
-            setWord(tokenizer!!.currentWord, suggestions)
-          }
-        } else { // correctSpelling == true
-          if (tokenizer!!.capFlag) { // Something needs capitalization
-            tokenizer!!.next()
-            correctSpelling = false
-            val capsSuggestion = arrayOf((tokenizer!!.currentWord.first().uppercase(Locale.getDefault())
-                + tokenizer!!.currentWord.substring(1)))
-            setWord(tokenizer!!.currentWord, capsSuggestion)
-            tokenizer!!.capFlag = false
-          }
+    while (++current < issues.size) {
+      val issue = issues[current]
+      if (issue.capitalize) {
+        val capsSuggestion = arrayOf((issue.word.first().uppercase(Locale.getDefault())
+            + issue.word.substring(1)))
+        setWord(issue, capsSuggestion)
+        return
+      }
+      // Skip words ignored or added to the dictionary since the scan
+      if (issue.word in ignoreList || sc!!.checkSpelling(issue.word)) {
+        continue
+      }
+      val wordSuggestions = suggestions.getOrPut(issue.word) { sc!!.getSuggestions(issue.word) }
+      if (issue.splitPos != 0 && issue.splitPos != issue.word.length) {
+        // Caught a word that probably needs a space
+        var word2: String
+        val punc = ".?!"
+        val word1: String = issue.word.substring(0, issue.splitPos)
+        word2 = if (punc.contains(issue.word[issue.splitPos - 1])) {
+          // If we're splitting a word at a . ! or ? the
+          // second word should be capitalized.
+          issue.word[issue.splitPos].uppercaseChar().toString() + issue.word.substring(issue.splitPos + 1)
+        } else {
+          issue.word.substring(issue.splitPos)
         }
+        // Make a new suggestions array that includes existing
+        // words with space
+        val newSuggestions = arrayOf("$word1 $word2", *wordSuggestions)
+        setWord(issue, newSuggestions)
+      } else {
+        setWord(issue, wordSuggestions)
       }
+      return
     }
-    if (tokenizer!!.isComplete) {
-      view!!.close()
-      Notify.notify(localeHandler["checkComplete"], Notify.ALERT_SHELL_NAME)
-    }
+    view!!.close()
+    Notify.notify(localeHandler["checkComplete"], Notify.ALERT_SHELL_NAME)
   }
 
   fun addWord(word: String) {
@@ -152,7 +176,8 @@ class SpellCheckManager(private var m: Manager) {
       FileUtils.create(affPath)
       FileUtils.copyFile(oldAffPath, affPath)
       FileUtils.appendToFile(dictPath, word)
-      sc!!.addToDictionary(word)
+      // Load the user copy, the dictionary of the bundled .dic is shared and must not get the word
+      sc = SpellChecker(dictPath, affPath)
     }
     m.newIgnore(word)
   }
@@ -163,24 +188,21 @@ class SpellCheckManager(private var m: Manager) {
   }
 
   fun replace(text: String) {
-    m.text.copyAndPaste(text, tokenizer!!.startPos, tokenizer!!.endPos)
-    tokenizer!!.resetText(m.text.view.text.replace("\n", " "))
+    val issue = issues[current]
+    m.text.copyAndPaste(text, issue.start, issue.end)
+    rescanFrom(issue.start + text.length)
   }
 
   fun replaceAll(oldWord: String, newWord: String) {
-    sc!!.addToDictionary(newWord)
+    // Accepted for this session only, the shared dictionary only gets words saved to the .dic
+    ignoreList.add(newWord)
     if (oldWord != newWord) {
-      val tk = Tokenizer(
-        m.text.view.text.replace("\n", " "), tokenizer!!.startPos, tokenizer!!.endPos
-      )
-      do {
-        if (tk.currentWord == oldWord) {
-          m.text.copyAndPaste(newWord, tk.startPos, tk.endPos)
-          tk.resetText(m.text.view.text.replace("\n", " "))
-        }
-        tk.next()
-      } while (!tk.isComplete)
-      tokenizer!!.resetText(m.text.view.text.replace("\n", " "))
+      val issue = issues[current]
+      // Last first so the offsets of earlier words stay valid
+      for (range in DocumentSpellCheck.findWord(viewText(), oldWord, issue.start).asReversed()) {
+        m.text.copyAndPaste(newWord, range.first, range.last + 1)
+      }
+      rescanFrom(issue.start + newWord.length)
     }
   }
 
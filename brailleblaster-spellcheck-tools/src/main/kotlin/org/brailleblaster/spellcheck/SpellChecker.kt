@@ -15,89 +15,50 @@
  */
 package org.brailleblaster.spellcheck
 
-import org.brailleblaster.BBIni
-import org.brailleblaster.utils.Architecture
-import org.brailleblaster.utils.OS
-import org.brailleblaster.utils.arch
 import org.brailleblaster.utils.localization.LocaleHandler.Companion.getDefault
-import org.brailleblaster.utils.os
 import org.slf4j.LoggerFactory
+import java.nio.file.Paths
 
 class SpellChecker(private val dictPath: String, private val affPath: String) {
-    var isActive: Boolean
+    var isActive: Boolean = false
+    private var dictionary: HunspellDictionary? = null
 
     init {
-
-        //TODO: Remove when better hunspell library is chosen
-        if (OS.Windows != os) {
-            throw RuntimeException("Hunspell Spell Check is currently only supported on Windows.")
-        }
-        try {
-            val path = BBIni.nativeLibraryPath.resolve("bbhunspell_"
-                    + (if (Architecture.X86_64 == arch) "x86-64" else "x86")
-                    + BBIni.nativeLibrarySuffix
-            ).toString()
-            log.debug("Loading hunspell library at $path")
-            System.load(path)
-        } catch (e: Exception) {
-            throw RuntimeException("Could not load library", e)
-        }
-        val result = open(dictPath, affPath)
-        isActive = result == 1
-    }
-
-    private fun open(dictPath: String, affPath: String): Int {
-        return try {
-            openDict(dictPath, affPath)
-        } catch (e: UnsatisfiedLinkError) {
-            log.error("openDict Unsatisfied Link Error", e)
-            -1
-        }
+        open()
     }
 
     fun open() {
-        open(dictPath, affPath)
+        dictionary = try {
+            HunspellDictionary.loadCached(Paths.get(dictPath), Paths.get(affPath))
+        } catch (e: Exception) {
+            log.error("Failed to load dictionary $dictPath", e)
+            null
+        }
+        isActive = dictionary != null
     }
 
     fun close() {
-        closeDict()
+        isActive = false
     }
 
     fun checkSpelling(word: String): Boolean {
-        val result = checkWord(word)
-        return result > 0
+        return dictionary!!.isCorrect(word)
     }
 
-    //hunspell's addWord function only adds to the runtime dictionary
+    //Only adds to the loaded dictionary, callers append the word to the .dic file
     fun addToDictionary(word: String) {
-        addWord(word)
+        dictionary!!.add(word)
     }
 
     fun getSuggestions(word: String): Array<String> {
-        val s = checkSug(word)
-        return s.makeArray()
-    }
-
-    companion object {
-        private val log = LoggerFactory.getLogger(SpellChecker::class.java)
-        private external fun openDict(dictPath: String, affPath: String): Int
-        private external fun checkWord(wd: String): Int
-        private external fun addWord(wd: String): Int
-        private external fun checkSug(wd: String): Suggestions
-        private external fun closeDict()
-    }
-}
-
-internal class Suggestions {
-    var suggestionList: String? = null
-    fun makeArray(): Array<String> {
-        val sl = suggestionList
-        return if (sl.isNullOrEmpty()) {
+        val suggestions = dictionary!!.suggest(word)
+        return if (suggestions.isEmpty()) {
             arrayOf(localeHandler["noSuggestion"])
-        } else sl.split(" ".toRegex()).dropLastWhile { it.isEmpty() }.toTypedArray()
+        } else suggestions.toTypedArray()
     }
 
     companion object {
+        private val log = LoggerFactory.getLogger(SpellChecker::class.java)
         private val localeHandler = getDefault()
     }
 }
@@ -31,14 +31,14 @@ class Tokenizer {
         startPos = 0
         endPos = 0
         capFlag = false
-        this.text = text.replace("\u2019".toRegex(), "'")
+        this.text = text.replace('\u2019', '\'')
         isComplete = false
     }
 
     constructor(text: String, startPos: Int, endPos: Int) {
         this.startPos = startPos
         this.endPos = endPos
-        this.text = text.replace("\u2019".toRegex(), "'")
+        this.text = text.replace('\u2019', '\'')
         isComplete = false
     }
 
@@ -57,7 +57,7 @@ class Tokenizer {
         while (endPos < text.length && (Character.isLetter(text[endPos]) || Character.isDigit(text[endPos]) || text[endPos] == '\'')) {
             endPos++
             if (endPos + 2 < text.length - 1) {
-                if (punctuation.contains(text[endPos].toString())) { //We are at a punctuation mark.
+                if (punctuation.contains(text[endPos])) { //We are at a punctuation mark.
                     if (text[endPos + 1] != ' ') {
                         //If the next character isn't a space, something might be wrong
                         if (text[endPos + 2] != '.') {
@@ -69,7 +69,7 @@ class Tokenizer {
                             }
                         }
                     } else { //If it is a space, the following character needs to be capitalized
-                        if (sentenceEnd.contains(text[endPos].toString())) { //Make sure it isn't a comma
+                        if (sentenceEnd.contains(text[endPos])) { //Make sure it isn't a comma
                             if (Character.isLowerCase(text[endPos + 2])) {
                                 capFlag = true
                             }
@@ -81,7 +81,7 @@ class Tokenizer {
     }
 
     fun resetText(text: String) {
-        this.text = text.replace("\u2019".toRegex(), "'")
+        this.text = text.replace('\u2019', '\'')
         setEndPos()
     }
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.spellcheck
+
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertFalse
+import org.testng.Assert.assertNotSame
+import org.testng.Assert.assertSame
+import org.testng.Assert.assertTrue
+import org.testng.annotations.Test
+import java.io.StringReader
+import java.nio.file.Files
+import java.nio.file.Paths
+
+class HunspellDictionaryTest {
+    private val affix = """
+        SET UTF-8
+        TRY esianrtolcdugmphbyfvkwz
+        ICONV 1
+        ICONV ’ '
+        NOSUGGEST !
+        ONLYINCOMPOUND c
+        COMPOUNDMIN 1
+        COMPOUNDRULE 1
+        COMPOUNDRULE n*1t
+        REP 1
+        REP f ph
+
+        PFX U Y 1
+        PFX U   0     un         .
+
+        SFX S Y 2
+        SFX S   y     ies        [^aeiou]y
+        SFX S   0     s          [^y]
+
+        SFX D Y 2
+        SFX D   0     d          e
+        SFX D   0     ed         [^e]
+    """.trimIndent()
+
+    private val words = """
+        10
+        cat/S
+        fly/S
+        lock/UD
+        bake/D
+        phone/S
+        Paris
+        darn/S!
+        don't
+        1/n1
+        1th/tc
+    """.trimIndent()
+
+    private fun dictionary() = HunspellDictionary.load(StringReader(words), StringReader(affix))
+
+    @Test
+    fun affixes() {
+        val dictionary = dictionary()
+        for (word in listOf("cat", "cats", "flies", "locked", "unlock", "unlocked", "baked", "don't", "don’t")) {
+            assertTrue(dictionary.isCorrect(word), word)
+        }
+        for (word in listOf("cates", "flys", "bakeed", "unbake", "unfly", "dont", "paris")) {
+            assertFalse(dictionary.isCorrect(word), word)
+        }
+    }
+
+    @Test
+    fun capitalization() {
+        val dictionary = dictionary()
+        assertTrue(dictionary.isCorrect("Cats"))
+        assertTrue(dictionary.isCorrect("CATS"))
+        assertTrue(dictionary.isCorrect("PARIS"))
+        assertFalse(dictionary.isCorrect("cAts"))
+    }
+
+    @Test
+    fun numbersAndCompounds() {
+        val dictionary = dictionary()
+        assertTrue(dictionary.isCorrect("1,000.5"))
+        assertTrue(dictionary.isCorrect("11th"))
+        assertTrue(dictionary.isCorrect("111th"))
+        assertFalse(dictionary.isCorrect("1th"))
+    }
+
+    @Test
+    fun suggestions() {
+        val dictionary = dictionary()
+        assertEquals(dictionary.suggest("fone").first(), "phone")
+        assertTrue("cat" in dictionary.suggest("cta"))
+        assertTrue("cats" in dictionary.suggest("cat"))
+        // NOSUGGEST words are correct but never suggested
+        assertTrue(dictionary.isCorrect("darn"))
+        assertFalse("darn" in dictionary.suggest("darm"))
+    }
+
+    @Test
+    fun addedWords() {
+        val dictionary = dictionary()
+        assertFalse(dictionary.isCorrect("brailleblaster"))
+        dictionary.add("brailleblaster")
+        assertTrue(dictionary.isCorrect("brailleblaster"))
+        assertTrue(dictionary.isCorrect("Brailleblaster"))
+    }
+
+    @Test
+    fun bundledDictionary() {
+        val dictionaries = Paths.get("../brailleblaster-core/src/main/dist/programData/dictionaries")
+        val dictionary = HunspellDictionary.load(dictionaries.resolve("en_US.dic"), dictionaries.resolve("en_US.aff"))
+        val text = "The quick brown fox jumped over the lazy dog's kennels on the 21st of March, " +
+                "while Mr. Smith's children weren't watching. Thier recieved teh books."
+        val issues = DocumentSpellCheck.scan(text, dictionary::isCorrect, emptyList())
+        assertEquals(issues.map { it.word }, listOf("Thier", "recieved", "teh"))
+        assertTrue("received" in dictionary.suggest("recieved"))
+        assertTrue("the" in dictionary.suggest("teh"))
+    }
+
+    @Test
+    fun scanFindsSplitAndCapitalization() {
+        val dictionary = dictionary()
+        val text = "cat fly.cats lock. cat"
+        val issues = DocumentSpellCheck.scan(text, dictionary::isCorrect, emptyList())
+        assertEquals(issues.size, 2)
+        assertEquals(issues[0].word, "fly.cats")
+        assertEquals(issues[0].splitPos, 4)
+        assertTrue(issues[1].capitalize)
+        assertEquals(text.substring(issues[1].start, issues[1].end), "cat")
+        assertEquals(DocumentSpellCheck.findWord(text, "cat", 1).map { it.first }, listOf(19))
+    }
+
+    @Test
+    fun cachedByDicAndAff() {
+        val dir = Files.createTempDirectory("dictionaries")
+        try {
+            val dic = Files.writeString(dir.resolve("test.dic"), words)
+            val aff = Files.writeString(dir.resolve("test.aff"), affix)
+            val otherAff = Files.writeString(dir.resolve("other.aff"), affix)
+
+            val dictionary = HunspellDictionary.loadCached(dic, aff)
+            assertSame(HunspellDictionary.loadCached(dic, aff), dictionary)
+            assertNotSame(HunspellDictionary.loadCached(dic, otherAff), dictionary)
+            assertNotSame(HunspellDictionary.loadCached(dic, aff), dictionary)
+            assertTrue(HunspellDictionary.loadCached(dic, aff).isCorrect("cats"))
+        } finally {
+            dir.toFile().deleteRecursively()
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd;
+
+import org.jspecify.annotations.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Encode whole BRF pages straight to UTF-8 bytes and write them to a channel, replacing the
+ * per-character OutputCharStream to Writer chain for file output.
+ */
+public class BRFChannelOutput implements BRFWriter.OutputPageStream {
+    /**
+     * ASCII to the byte written to the BRF, lowercase ascii braille is written as uppercase
+     */
+    private static final byte[] BRF_CHARS = new byte[128];
+    private static final byte[] ASCII_CHARS = new byte[128];
+
+    static {
+        for (int i = 0; i < 128; i++) {
+            ASCII_CHARS[i] = (byte) i;
+            BRF_CHARS[i] = (byte) (i >= 0x60 ? i - 0x20 : i);
+        }
+    }
+
+    private final @NonNull WritableByteChannel channel;
+    private final boolean convertLineEndings;
+    private final byte[] asciiTable;
+    private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+    /**
+     * @param convertLineEndings Issue #6646: BRFs must use Windows line endings
+     * @param convertToBrfChars  Output ascii braille in uppercase
+     */
+    public BRFChannelOutput(@NonNull WritableByteChannel channel, boolean convertLineEndings, boolean convertToBrfChars) {
+        this.channel = channel;
+        this.convertLineEndings = convertLineEndings;
+        this.asciiTable = convertToBrfChars ? BRF_CHARS : ASCII_CHARS;
+    }
+
+    @Override
+    public void acceptPage(char @NonNull [] page, int length) throws IOException {
+        // Worst case is 3 UTF-8 bytes per char, or 2 for a rewritten newline
+        int maxBytes = length * 3;
+        if (buffer.capacity() < maxBytes) {
+            buffer = ByteBuffer.allocate(maxBytes);
+        }
+        final byte[] bytes = buffer.array();
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = page[i];
+            if (c < 0x80) {
+                if (c == BRFWriter.NEWLINE && convertLineEndings) {
+                    bytes[pos++] = '\r';
+                }
+                bytes[pos++] = asciiTable[c];
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(page[i + 1])) {
+                int codePoint = Character.toCodePoint(c, page[++i]);
+                bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired, same replacement as the JDK encoder
+                bytes[pos++] = '?';
+            } else {
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        buffer.position(0).limit(pos);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
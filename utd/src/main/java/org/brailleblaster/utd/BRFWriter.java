@@ -68,6 +68,12 @@ public class BRFWriter {
      */
     private int curLine;
     private final OutputCharStream output;
+    /**
+     * When set, pages are assembled in {@link #pageBuffer} and handed over whole instead of char by char
+     */
+    private final OutputPageStream pageOutput;
+    private final char[] pageBuffer;
+    private int pageBufferLength;
     public int brlPage = -1;
     public final @NonNull UTDTranslationEngine engine;
     private boolean afterBookStart = false;
@@ -92,10 +98,23 @@ public class BRFWriter {
     };
 
     public BRFWriter(@NonNull UTDTranslationEngine engine, OutputCharStream output, int opts, @NonNull PageListener outputPageListener) {
+        this(engine, output, null, opts, outputPageListener);
+    }
+
+    /**
+     * Write whole pages at a time. Note that the page listener callbacks are made while the page is
+     * being assembled, so before that page is given to the pageOutput.
+     */
+    public BRFWriter(@NonNull UTDTranslationEngine engine, @NonNull OutputPageStream pageOutput, int opts, @NonNull PageListener outputPageListener) {
+        this(engine, null, pageOutput, opts, outputPageListener);
+    }
+
+    private BRFWriter(@NonNull UTDTranslationEngine engine, OutputCharStream output, OutputPageStream pageOutput, int opts, @NonNull PageListener outputPageListener) {
         this.opts = opts;
         this.outputPageListener = outputPageListener;
         this.engine = engine;
         this.output = output;
+        this.pageOutput = pageOutput;
 
         PageSettings pageSettings = engine.getPageSettings();
         BrlCell cell = engine.getBrailleSettings().getCellType();
@@ -106,6 +125,8 @@ public class BRFWriter {
 
         log.debug("Created BrfGrid {}x{}", maxCells, maxLines);
         this.grid = new char[maxLines][maxCells];
+        //Every cell, a newline per line, then the page separator
+        this.pageBuffer = pageOutput == null ? null : new char[maxLines * (maxCells + 1) + 1];
     }
 
     /**
@@ -265,26 +286,30 @@ public class BRFWriter {
 
     private void flush(char[][] grid) {
         log.trace("Flushing grid");
+        pageBufferLength = 0;
+        final boolean debugOutput = (OPTS_DEBUG_OUTPUT & opts) == OPTS_DEBUG_OUTPUT;
         try {
             int flushLine = 0;
             for (char[] curGridLine : grid) {
                 int flushCell = 0;
                 boolean ignore = false;
+                //Everything from here is whitespace in the String.trim() sense
+                final int contentEnd = contentEnd(curGridLine);
                 for (char curGridCell : curGridLine) {
                     if (!ignore) {
                         if (curGridCell == '\0') {
                             //This character hasn't been set yet
-                            if ((OPTS_DEBUG_OUTPUT & opts) == OPTS_DEBUG_OUTPUT)
+                            if (debugOutput)
                                 //Helpful debug for the non-transcriber
-                                output.accept('.');
-                            else if (String.valueOf(curGridLine, flushCell, curGridLine.length - flushCell).trim().isEmpty())
+                                put('.');
+                            else if (flushCell >= contentEnd)
                                 //Don't output whitespace at end of line
                                 ignore = true;
                             else
-                                output.accept(' ');
+                                put(' ');
                         } else
                             //This character was set
-                            output.accept(curGridCell);
+                            put(curGridCell);
                     }
 
                     //Notify page number listener
@@ -299,12 +324,15 @@ public class BRFWriter {
 
                     flushCell++;
                 }
-                output.accept(NEWLINE);
+                put(NEWLINE);
                 flushLine++;
             }
 
             //Page seperator is literally ascii page seperator character, always appended
-            output.accept(PAGE_SEPARATOR);
+            put(PAGE_SEPARATOR);
+            if (pageOutput != null) {
+                pageOutput.acceptPage(pageBuffer, pageBufferLength);
+            }
 
             inputPageListenerImpl.onAfterFlush(this);
             outputPageListener.onAfterFlush(this);
@@ -313,6 +341,25 @@ public class BRFWriter {
         }
     }
 
+    private void put(char c) throws Exception {
+        if (pageOutput != null) {
+            pageBuffer[pageBufferLength++] = c;
+        } else {
+            output.accept(c);
+        }
+    }
+
+    /**
+     * @return index after the last char that would survive String.trim(), 0 if the line is blank
+     */
+    private static int contentEnd(char[] line) {
+        int end = line.length;
+        while (end > 0 && line[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
     @NonNull
     public PageListener getInputPageListener() {
         return inputPageListenerImpl;
@@ -375,6 +422,15 @@ public class BRFWriter {
         void accept(char curChar) throws Exception;
     }
 
+    /**
+     * Bulk alternative to {@link OutputCharStream}, receives each page at once including the
+     * trailing page separator. The buffer is reused for the next page.
+     */
+    @FunctionalInterface
+    public interface OutputPageStream {
+        void acceptPage(char @NonNull [] page, int length) throws Exception;
+    }
+
     /**
      * Issue #6646: BRFs must use Windows line endings. However to keep the
      * simple char stream API, rewrite the characters when needed
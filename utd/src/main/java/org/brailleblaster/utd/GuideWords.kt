@@ -16,7 +16,9 @@
 package org.brailleblaster.utd
 
 import nu.xom.Document
+import nu.xom.Element
 import nu.xom.Node
+import nu.xom.ParentNode
 import org.brailleblaster.utd.matchers.XPathMatcher
 
 class GuideWords {
@@ -36,6 +38,9 @@ class GuideWords {
      * The first and last dt in a dl will always be guide words.
      * The dt's before and after a newpage MAY be a guide word.
      *
+     * The children of the dl are visited once, tracking whether a newpage has been passed,
+     * instead of querying an XPath expression per candidate.
+     *
      * @param node
      * @param engine
      */
@@ -46,146 +51,139 @@ class GuideWords {
          *  The other guide words could potentially be those <dt>'s that
          *  are present before or after a <newpage> element.
          */
+        val children = node.childElements()
+        val terms = children.filter { it.qualifiedName == DT }
+        if (terms.isEmpty()) {
+            return
+        }
+
+        val preceding = ArrayList<Element>()
+        val following = ArrayList<Element>()
+        // Terms containing a newpage, and the first term after each
+        val termBreaks = ArrayList<Pair<Element, Element?>>()
+        // Definitions containing a newpage, and the terms after and before each
+        val definitionBreaks = ArrayList<Triple<Element, Element?, Element?>>()
+
+        var afterNewPage = hasPrecedingNewPage(node)
+        var previousTerm: Element? = null
+        for ((i, child) in children.withIndex()) {
+            val containsNewPage = containsNewPage(child)
+            when (child.qualifiedName) {
+                DT -> {
+                    if (afterNewPage) {
+                        if (i > 0 && children[i - 1].qualifiedName != DD) {
+                            preceding.add(child)
+                        }
+                        if (i + 2 < children.size && children[i + 2].qualifiedName != DT) {
+                            following.add(child)
+                        }
+                    }
+                    if (containsNewPage) {
+                        termBreaks.add(child to nextTerm(children, i))
+                    }
+                    previousTerm = child
+                }
+
+                DD -> if (containsNewPage) {
+                    definitionBreaks.add(Triple(child, nextTerm(children, i), previousTerm))
+                }
+            }
+            if (containsNewPage || child.qualifiedName == NEWPAGE) {
+                afterNewPage = true
+            }
+        }
 
         //First and Last
+        mapGuideWordStyle("$DT_XPATH[1]", engine, terms.first())
+        mapGuideWordStyle("$DT_XPATH[last()]", engine, terms.last())
 
-        styleMapper("child::*[name()='dt'][1]", engine, node)
-        styleMapper("child::*[name()='dt'][last()]", engine, node)
-
-        //		Nodes firstLast = node.query("child::*[name()='dt'][position() = 1 or position() = last()]");
-//		for (int i = 0; i < firstLast.size(); i++){
-//			Element incNode = (Element) firstLast.get(i);
-//			Style style = (Style) styleMap.findValue(incNode);
-//			style.setGuideWords(true);
-//			styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-//		}
-//		
-        //Preceding
-        var xpathMain = ("child::*[name()='dt'][preceding::*[name()='newpage']]"
-                + "[preceding-sibling::*[1][name()!='dd']]")
-        var foundNodes = node.query(xpathMain)
-        var xpath: String
-        for (i in 0 until foundNodes.size()) {
-            xpath = xpathMain + "[" + (i + 1) + "]"
-            styleMapper(xpath, engine, node)
+        for ((i, term) in preceding.withIndex()) {
+            mapGuideWordStyle("$PRECEDING_XPATH[${i + 1}]", engine, term)
         }
-        //		
-//		
-////		String xpathPre = "child::*[name()='dt'][preceding::*[name()='newpage']]"
-////				+ "[preceding-sibling::*[1][name()!='dd']]";
-////		Nodes preceding = node.query(xpathPre);
-////		for (int i = 0; i < preceding.size(); i++){
-////			Element incNode = (Element) preceding.get(i);
-////			Style style = (Style) styleMap.findValue(incNode);
-////			style.setGuideWords(true);
-////			styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-////		}
-//		
-//		//Following
-        xpathMain = ("child::*[name()='dt'][preceding::*[name()='newpage']]"
-                + "[following-sibling::*[2][name()!='dt']]")
-        foundNodes = node.query(xpathMain)
-        for (i in 0 until foundNodes.size()) {
-            xpath = xpathMain + "[" + (i + 1) + "]"
-            styleMapper(xpath, engine, node)
+        for ((i, term) in following.withIndex()) {
+            mapGuideWordStyle("$FOLLOWING_XPATH[${i + 1}]", engine, term)
         }
-        //		
-////		String xpathFoll = "child::*[name()='dt'][following::*[name()='newpage']]"
-////				+ "[following-sibling::*[2][name()!='dt']]";
-////		Nodes following = node.query(xpathFoll);
-////		for (int i = 0; i < following.size(); i++){
-////			Element incNode = (Element) following.get(i);
-////			Style style = (Style) styleMap.findValue(incNode);
-////			style.setGuideWords(true);
-////			styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-////		}
-//		
-//		/*
-//		 * 	Descendants of <dt> or <dd>
-//		 * 	If the <newpage> is a descendant of a <dt>, set the style of that element
-//		 * 	to isGuideWords==true. Find the following <dt> and set the style accordingly.
-//		 * 
-//		 * 	If the <newpage> is a descendant of a <dd>, set the style of the <dt>s
-//		 * 	preceding and following that <dd> to reflect isGuideWords==true.
-//		 */
-        xpathMain = "child::*[name()='dt'][descendant::*[name()='newpage']]"
-        foundNodes = node.query(xpathMain)
-        for (i in 0 until foundNodes.size()) {
-            xpath = xpathMain + "[" + (i + 1) + "]"
-            styleMapper(xpath, engine, node)
-
-            val xpathSib = "following-sibling::*[name()='dt'][1]"
-            styleMapper(xpathSib, engine, foundNodes[i])
+
+        /*
+         * 	Descendants of <dt> or <dd>
+         * 	If the <newpage> is a descendant of a <dt>, set the style of that element
+         * 	to isGuideWords==true. Find the following <dt> and set the style accordingly.
+         *
+         * 	If the <newpage> is a descendant of a <dd>, set the style of the <dt>s
+         * 	preceding and following that <dd> to reflect isGuideWords==true.
+         */
+        for ((i, termBreak) in termBreaks.withIndex()) {
+            mapGuideWordStyle("$DT_NEWPAGE_XPATH[${i + 1}]", engine, termBreak.first)
+            termBreak.second?.let { mapGuideWordStyle(FOLLOWING_DT_XPATH, engine, it) }
         }
-        //		
-//		
-////		String xpathDesc = "child::*[name()='dt'][descendant::*[name()='newpage']]";
-////		Nodes descendant = node.query(xpathDesc);
-////		for (int i = 0; i < descendant.size(); i++) {
-////			Element incNode = (Element) descendant.get(i);
-////			Style style = (Style) styleMap.findValue(incNode);
-////			style.setGuideWords(true);
-////			styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-////			
-////			String xpathSib = "following-sibling::*[name()='dt'][1]";
-////			Nodes sibling = descendant.get(0).query(xpathSib);
-////			for (int j = 0; j < sibling.size(); j++) {
-////				incNode = (Element) sibling.get(j);
-////				style = (Style) styleMap.findValue(incNode);
-////				style.setGuideWords(true);
-////				styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-////			}
-////		}
-//		
-        xpathMain = "child::*[name()='dd'][descendant::*[name()='newpage']]"
-        foundNodes = node.query(xpathMain)
-        for (i in 0 until foundNodes.size()) {
-            xpath = xpathMain + "[" + (i + 1) + "]"
-            styleMapper(xpath, engine, node)
-
-            var xpathSib = "following-sibling::*[name()='dt'][1]"
-            styleMapper(xpathSib, engine, foundNodes[i])
-
-            xpathSib = "preceding-sibling::*[name()='dt'][1]"
-            styleMapper(xpathSib, engine, foundNodes[i])
+        for ((i, definitionBreak) in definitionBreaks.withIndex()) {
+            mapGuideWordStyle("$DD_NEWPAGE_XPATH[${i + 1}]", engine, definitionBreak.first)
+            definitionBreak.second?.let { mapGuideWordStyle(FOLLOWING_DT_XPATH, engine, it) }
+            definitionBreak.third?.let { mapGuideWordStyle(PRECEDING_DT_XPATH, engine, it) }
         }
-
-        //		String xpathDesc2 = "child::*[name()='dd'][descendant::*[name()='newpage']]";
-//		Nodes DDdescendant = node.query(xpathDesc2);
-//		for (int i = 0; i < DDdescendant.size(); i++) {
-//			Element incNode = (Element) DDdescendant.get(i);
-//			Style style = (Style) styleMap.findValue(incNode);
-//			style.setGuideWords(true);
-//			styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-//			
-//			String xpathSib = "following-sibling::*[name()='dt'][1]";
-//			Nodes siblingF = DDdescendant.get(i).query(xpathSib);
-//			for (int j = 0; j < siblingF.size(); j++) {
-//				incNode = (Element) siblingF.get(j);
-//				style = (Style) styleMap.findValue(incNode);
-//				style.setGuideWords(true);
-//				styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-//			}
-//			
-//			String xpathSib2 = "preceding-sibling::*[name()='dt'][1]";
-//			Nodes siblingD = DDdescendant.get(i).query(xpathSib2);
-//			for (int j = 0; j < siblingD.size(); j++) {
-//				incNode = (Element) siblingD.get(j);
-//				style = (Style) styleMap.findValue(incNode);
-//				style.setGuideWords(true);
-//				styleMap.put(new NodeNameMatcher(incNode.getLocalName(), incNode.getNamespaceURI()), style);
-//			}
-//		}
     }
 
     fun styleMapper(xpath: String?, engine: ITranslationEngine, parentNode: Node) {
-        val styleMap = engine.styleMap
-        //		IStyle defaultValue = new Style();
-        val incNode = parentNode.query(xpath)[0]
+        mapGuideWordStyle(xpath, engine, parentNode.query(xpath)[0])
+    }
 
-        //		Style style = (Style) styleMap.getOrDefault(incNode, defaultValue);
+    /**
+     * @param incNode The node the xpath finds, already located by the caller
+     */
+    private fun mapGuideWordStyle(xpath: String?, engine: ITranslationEngine, incNode: Node) {
+        val styleMap = engine.styleMap
         val style = styleMap.findValueOrDefault(incNode) as Style
         style.setGuideWords(true)
         styleMap[XPathMatcher(xpath)] = style
     }
+
+    private fun Node.childElements(): List<Element> =
+        (0 until childCount).map { getChild(it) }.filterIsInstance<Element>()
+
+    private fun nextTerm(children: List<Element>, index: Int): Element? =
+        children.subList(index + 1, children.size).firstOrNull { it.qualifiedName == DT }
+
+    private fun containsNewPage(node: Node): Boolean {
+        for (i in 0 until node.childCount) {
+            val child = node.getChild(i)
+            if (child is Element && (child.qualifiedName == NEWPAGE || containsNewPage(child))) {
+                return true
+            }
+        }
+        return false
+    }
+
+    /**
+     * Equivalent to preceding::*[name()='newpage'], which excludes ancestors
+     */
+    private fun hasPrecedingNewPage(node: Node): Boolean {
+        var cur = node
+        var parent: ParentNode? = cur.parent
+        while (parent != null) {
+            for (i in 0 until parent.indexOf(cur)) {
+                val sibling = parent.getChild(i)
+                if (sibling is Element && (sibling.qualifiedName == NEWPAGE || containsNewPage(sibling))) {
+                    return true
+                }
+            }
+            cur = parent
+            parent = cur.parent
+        }
+        return false
+    }
+
+    companion object {
+        private const val DT = "dt"
+        private const val DD = "dd"
+        private const val NEWPAGE = "newpage"
+        private const val DT_XPATH = "child::*[name()='dt']"
+        private const val PRECEDING_XPATH =
+            "child::*[name()='dt'][preceding::*[name()='newpage']][preceding-sibling::*[1][name()!='dd']]"
+        private const val FOLLOWING_XPATH =
+            "child::*[name()='dt'][preceding::*[name()='newpage']][following-sibling::*[2][name()!='dt']]"
+        private const val DT_NEWPAGE_XPATH = "child::*[name()='dt'][descendant::*[name()='newpage']]"
+        private const val DD_NEWPAGE_XPATH = "child::*[name()='dd'][descendant::*[name()='newpage']]"
+        private const val FOLLOWING_DT_XPATH = "following-sibling::*[name()='dt'][1]"
+        private const val PRECEDING_DT_XPATH = "preceding-sibling::*[name()='dt'][1]"
+    }
 }
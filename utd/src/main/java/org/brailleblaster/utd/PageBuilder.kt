@@ -23,11 +23,12 @@ import org.brailleblaster.utd.actions.TransNoteAction.Companion.getEnd
 import org.brailleblaster.utd.actions.TransNoteAction.Companion.getStart
 import org.brailleblaster.utd.exceptions.CellOccupiedException
 import org.brailleblaster.utd.exceptions.NoLineBreakPointException
-import org.brailleblaster.utd.internal.DocumentOrderComparator
+import org.brailleblaster.utd.internal.DocumentOrderKeys
 import org.brailleblaster.utd.internal.elements.*
 import org.brailleblaster.utd.pagelayout.*
 import org.brailleblaster.utd.properties.*
 import org.brailleblaster.utd.utils.PageBuilderHelper
+import org.brailleblaster.utd.utils.PageDecorationTranslator
 import org.brailleblaster.utd.utils.TextTranslator
 import org.brailleblaster.utd.utils.findCurrentVolumeNumber
 import org.brailleblaster.utd.utils.getDescendantBrlFast
@@ -326,13 +327,12 @@ class PageBuilder {
         get() = engine!!.brailleSettings
     val brlElementsOnPage: Set<Element>
         get() {
-            val brls: MutableSet<Element> = TreeSet(DocumentOrderComparator())
-            val nodes: MutableList<Node> = ArrayList()
+            val brls: MutableSet<Element> = LinkedHashSet()
+            val nodes: MutableSet<Node> = HashSet()
             for (i in 0 until pageGrid.height) {
                 for (j in 0 until pageGrid.width) {
                     val node = pageGrid.getCell(j, i)?.node
-                    if (node != null && !nodes.contains(node)) {
-                        nodes.add(node)
+                    if (node != null && nodes.add(node)) {
                         val parent = node.parent
                         if (parent != null && UTDElements.BRL.isA(parent)) {
                             brls.add(parent as Element)
@@ -340,7 +340,10 @@ class PageBuilder {
                     }
                 }
             }
-            return brls
+            // Sort once with cached keys rather than comparing on every TreeSet insert
+            val sorted = brls.toMutableList()
+            DocumentOrderKeys.sortInDocumentOrder(sorted)
+            return LinkedHashSet(sorted)
         }
 
     /**
@@ -1717,7 +1720,7 @@ class PageBuilder {
             var brlPage = braillePage
 
             //Convert before returning
-            brlPage = TextTranslator.translateText(brlPage, engine!!)
+            brlPage = PageDecorationTranslator.translate(brlPage, engine!!)
             return brlPage
         }
 
@@ -3764,8 +3767,8 @@ class PageBuilder {
             printGW += " (cont.)"
         }
         guideWords.addAttribute(Attribute("printIndicator", printGW))
-        startGuideWord = TextTranslator.translateText(startGuideWord.trim { it <= ' ' }, engine!!)
-        endGuideWord = TextTranslator.translateText(endGuideWord.trim { it <= ' ' }, engine!!)
+        startGuideWord = PageDecorationTranslator.translate(startGuideWord.trim { it <= ' ' }, engine!!)
+        endGuideWord = PageDecorationTranslator.translate(endGuideWord.trim { it <= ' ' }, engine!!)
         val printPos = PageBuilderHelper.getPrintPageNumberAt(pageSettings, braillePageNumber.pageNumber)
         val brlPos = PageBuilderHelper.getBraillePageNumberAt(pageSettings, braillePageNumber.pageNumber)
         var length = cellsPerLine - padding * 2
@@ -3789,7 +3792,7 @@ class PageBuilder {
             dash.append("--")
         }
         if (!engine!!.brailleSettings.isUseAsciiBraille) {
-            val newDash = TextTranslator.translateText(dash.toString(), engine!!)
+            val newDash = PageDecorationTranslator.translate(dash.toString(), engine!!)
             dash = StringBuilder()
             dash.append(newDash)
         }
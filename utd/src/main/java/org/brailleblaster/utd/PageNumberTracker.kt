@@ -16,7 +16,7 @@
 package org.brailleblaster.utd
 
 import org.brailleblaster.utd.properties.PageNumberType
-import org.brailleblaster.utd.utils.TextTranslator
+import org.brailleblaster.utd.utils.PageDecorationTranslator
 import java.util.*
 
 /**
@@ -106,7 +106,7 @@ class PageNumberTracker {
     fun getBraillePageNumber(engine: ITranslationEngine): String {
         return when (pageNumberType) {
             PageNumberType.P_PAGE, PageNumberType.T_PAGE, PageNumberType.NORMAL -> {
-                TextTranslator.translateText(pageNumberType.getFormattedPageNumber(this.pageNumber), engine)
+                PageDecorationTranslator.translate(pageNumberType.getFormattedPageNumber(this.pageNumber), engine)
             }
 
         }
@@ -18,7 +18,7 @@ package org.brailleblaster.utd
 import jakarta.xml.bind.annotation.*
 import org.brailleblaster.utd.utils.Page
 import org.brailleblaster.utd.properties.PageNumberPosition
-import org.brailleblaster.utd.utils.TextTranslator
+import org.brailleblaster.utd.utils.PageDecorationTranslator
 import org.brailleblaster.utils.LengthUtils
 
 @XmlRootElement(name = "pageSettings")
@@ -180,7 +180,7 @@ data class PageSettings(
     }
 
     fun getRunningHead(engine: ITranslationEngine): String {
-        return if (runningHead.isEmpty()) runningHead else TextTranslator.translateText(runningHead, engine)
+        return PageDecorationTranslator.translate(runningHead, engine)
     }
     enum class RunningHeadOptions {
         NONE, DEFAULT, TEXT
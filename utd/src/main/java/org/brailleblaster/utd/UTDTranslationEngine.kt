@@ -26,6 +26,7 @@ import org.brailleblaster.utd.exceptions.NodeException
 import org.brailleblaster.utd.internal.xml.XMLHandler
 import org.brailleblaster.utd.properties.PageNumberType.Companion.equivalentPage
 import org.brailleblaster.utd.properties.UTDElements
+import org.brailleblaster.utd.utils.PageDecorationTranslator
 import org.brailleblaster.utd.utils.getDescendantBrlFast
 import org.brailleblaster.utd.utils.stripUTDRecursive
 import org.brailleblaster.utils.xml.UTD_NS
@@ -35,7 +36,9 @@ import org.mwhapples.jlouis.TranslationException
 import org.mwhapples.jlouis.TranslationResult
 import org.slf4j.LoggerFactory
 import java.io.*
-import java.nio.charset.StandardCharsets
+import java.nio.channels.FileChannel
+import java.nio.channels.WritableByteChannel
+import java.nio.file.StandardOpenOption
 import java.util.*
 
 /**
@@ -43,14 +46,18 @@ import java.util.*
  */
 open class UTDTranslationEngine(
     override val brailleTranslator: Louis,
-    override var brailleSettings: BrailleSettings,
+    brailleSettings: BrailleSettings,
     override var pageSettings: PageSettings,
     override var actionMap: IActionMap,
     override var styleMap: IStyleMap,
     override var styleDefinitions: StyleDefinitions,
     override var shortcutDefinitions: ShortcutDefinitions
 ) : ITranslationEngine {
-
+    override var brailleSettings: BrailleSettings = brailleSettings
+        set(value) {
+            field = value
+            PageDecorationTranslator.invalidate(this)
+        }
 
     private var _tableID = 0
     override val tableID: String
@@ -221,62 +228,85 @@ open class UTDTranslationEngine(
     /**
      * Get translation blocks of input elements, removing nested translation blocks
      *
+     * Blocks are in the order of the first input element resolving to them, except a block
+     * containing an earlier block takes its place at the end. Elements inside an already found
+     * block are skipped.
+     *
      * @param inputElements
      * @return
      */
     fun findTranslationBlocks(inputElements: List<Element>): List<Element> {
-        //Clean up input which might have elements inside of elements
-        val pendingElements = LinkedList(inputElements)
-        val toTranslateBlocks: MutableList<Element> = ArrayList()
-        while (!pendingElements.isEmpty()) {
-            val curElement = pendingElements.removeFirst()
-            log.trace("Current element: " + curElement.toXML())
+        // Block of every node passed while climbing, so siblings only climb to a shared ancestor
+        val blockOf = IdentityHashMap<Node, Element>()
+        // Insertion ordered, a block is only ever added once as its descendants are then skipped.
+        // XOM nodes use identity equality
+        val found = LinkedHashSet<Element>()
+        var skipped = 0
+        for ((index, curElement) in inputElements.withIndex()) {
+            if (log.isTraceEnabled) {
+                log.trace("Current element: {}", curElement.toXML())
+            }
             if (curElement.document == null) {
-                throw NodeException(
-                    "Node " + inputElements.indexOf(curElement) + " is not attached to document",
-                    curElement
-                )
+                throw NodeException("Node $index is not attached to document", curElement)
             }
-            val block = findTranslationBlock(curElement) as Element
-            log.trace("Translation block: " + block.toXML())
-            XMLHandler.childrenRecursiveVisitor(block) { curBlockChild: Element ->
-                run {
-                    val itr = pendingElements.iterator()
-                    while (itr.hasNext()) {
-                        val toTranslateElement = itr.next()
-                        if (toTranslateElement === curBlockChild) {
-                            log.warn(
-                                "Removing already translated element {}/{} {}",
-                                inputElements.indexOf(toTranslateElement),
-                                inputElements.size,
-                                toTranslateElement.toXML()
-                            )
-                            itr.remove()
-                        }
-                    }
-                }
-
-                //We might of already added a very nested element but now are on a higher parent
-                val itr = toTranslateBlocks.iterator()
-                while (itr.hasNext()) {
-                    val toTranslateBlock = itr.next()
-                    if (toTranslateBlock === curBlockChild) {
-                        log.warn(
-                            "Removing already translated element {}/{} {}",
-                            inputElements.indexOf(toTranslateBlock),
-                            inputElements.size,
-                            toTranslateBlock.toXML()
-                        )
-                        itr.remove()
-                    }
-                }
-                false
+            if (isInside(curElement, found)) {
+                skipped++
+                continue
             }
-            toTranslateBlocks.add(block)
+            val block = findTranslationBlock(curElement, blockOf)
+            if (log.isTraceEnabled) {
+                log.trace("Translation block: {}", block.toXML())
+            }
+            found.add(block)
+        }
+
+        // A block found before an ancestor block was is translated as part of the ancestor
+        val toTranslateBlocks = found.filter { !isInside(it.parent, found) }
+        skipped += found.size - toTranslateBlocks.size
+        if (skipped != 0) {
+            log.debug("Skipped {} of {} elements already inside a translation block", skipped, inputElements.size)
         }
         return toTranslateBlocks
     }
 
+    /**
+     * Same as [findTranslationBlock], recording the block of every node passed
+     */
+    private fun findTranslationBlock(inputNode: Node, blockOf: MutableMap<Node, Element>): Element {
+        var node = inputNode
+        val path = ArrayList<Node>()
+        while (true) {
+            val known = blockOf[node]
+            if (known != null) {
+                path.forEach { blockOf[it] = known }
+                return known
+            }
+            path.add(node)
+            val parentNode: Node? = node.parent
+            if (parentNode == null || parentNode is Document || actionMap.findValueOrDefault(node) is IBlockAction) {
+                break
+            }
+            node = parentNode
+        }
+        val block = node as Element
+        path.forEach { blockOf[it] = block }
+        return block
+    }
+
+    /**
+     * @return true if the node or one of its ancestors is in elements
+     */
+    private fun isInside(node: Node?, elements: Set<Element>): Boolean {
+        var cur = node
+        while (cur != null) {
+            if (cur is Element && cur in elements) {
+                return true
+            }
+            cur = cur.parent
+        }
+        return false
+    }
+
     override fun getStyle(node: Node): IStyle? {
         val members = node.query("ancestor-or-self::*")
         var style: IStyle? = null
@@ -304,11 +334,29 @@ open class UTDTranslationEngine(
         convertToBrfChars: Boolean = true
     ) {
         log.debug("Writing BRL output to " + brfOutputFile.absolutePath)
-        //On windows the default encoding is windows-1252/Cp1252 which doesn't like braille
-        val writer = OutputStreamWriter(
-            FileOutputStream(brfOutputFile), StandardCharsets.UTF_8
-        )
-        BufferedWriter(writer).use { brlOutput -> toBRF(utdDocument, brlOutput, opts, outputPageListener, true, convertToBrfChars) }
+        FileChannel.open(
+            brfOutputFile.toPath(),
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        ).use { channel -> toBRF(utdDocument, channel, opts, outputPageListener, true, convertToBrfChars) }
+    }
+
+    /**
+     * Write **translated** document as UTF-8 to the channel a page at a time, which avoids the per-character
+     * overhead of [OutputCharStream] for large documents.
+     */
+    @Throws(IOException::class)
+    fun toBRF(
+        utdDocument: Document,
+        channel: WritableByteChannel,
+        opts: Int,
+        outputPageListener: PageListener,
+        convertLineEndings: Boolean,
+        convertToBrfChars: Boolean
+    ) {
+        val output = BRFChannelOutput(channel, convertLineEndings, convertToBrfChars)
+        writeBRF(utdDocument, BRFWriter(this, output, opts, outputPageListener), outputPageListener)
     }
 
     @JvmOverloads
@@ -341,7 +389,10 @@ open class UTDTranslationEngine(
     @Throws(IOException::class)
     override fun toBRF(utdDocument: Document, ocs: OutputCharStream, opts: Int, outputPageListener: PageListener, convertToBrfChars: Boolean) {
         val writer = if (convertToBrfChars) OutputCharStream { ocs.accept(it + if (it in '\u0060'..'\u007f') -0x20 else 0) } else ocs
-        val grid = BRFWriter(this, writer, opts, outputPageListener)
+        writeBRF(utdDocument, BRFWriter(this, writer, opts, outputPageListener), outputPageListener)
+    }
+
+    private fun writeBRF(utdDocument: Document, grid: BRFWriter, outputPageListener: PageListener) {
         val cellType = brailleSettings.cellType
         utdDocument.getDescendantBrlFast { curBrl: Element ->
             log.trace("Begin brl")
@@ -24,8 +24,7 @@ import org.brailleblaster.utd.TextSpan
 import org.brailleblaster.utd.exceptions.UTDTranslateException
 import org.brailleblaster.utd.properties.UTDElements
 import org.brailleblaster.utils.xml.UTD_NS
-import org.brailleblaster.utils.xom.NodeContext
-import org.brailleblaster.utils.xom.nodeCache
+import org.brailleblaster.utils.xom.SiblingIndex
 import java.util.*
 
 /**
@@ -71,12 +70,12 @@ open class GenericAction : IAction {
                 }
             }
         }
-        val parentContext = nodeCache.getUnchecked(node)
+        // Positions are known for free here, later document order sorting reuses them
+        val siblings = SiblingIndex.forNode(node)
         var i = 0
         while (i < node.childCount) {
             val child = node.getChild(i)
-            val nodeContext = NodeContext(child, parentContext, i)
-            nodeCache.put(child, nodeContext)
+            siblings.record(child, i)
             val action = context.actionMap.findValueOrDefault(child)
             val childTextSpans = action.applyTo(child, context)
             addActionAttributes(child, action)
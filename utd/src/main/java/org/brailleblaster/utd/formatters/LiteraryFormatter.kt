@@ -83,22 +83,15 @@ open class LiteraryFormatter : Formatter() {
                     mutPageBuilders.addAll(handlePageIndicator(pageBuilder, brl, style, formatSelector))
                     pageBuilder = mutPageBuilders.last()
                 } else {
+                    val ancestors = AncestorAttributes(node)
                     // Catch for guide words
                     if (style.isGuideWords && pageBuilder.engine!!.pageSettings.isGuideWords) {
-                        var go = true
                         // Check for first ancestor that says guideWords=true/false
-                        val guideWords = node.query("ancestor::*[@guideWords][1]")
-                        if (guideWords.size() > 0) {
-                            val guideWordParent = guideWords.firstOrNull() as Element?
-                            if (guideWordParent != null && guideWordParent.getAttributeValue("guideWords") == "false") {
-                                go = false
-                            }
-                        }
+                        val go = ancestors.guideWords != "false"
 
                         // Check if it has an ancestor with spacing value
-                        if (node.query("ancestor::*[@spacing][1]").size() > 0) {
-                            val spacingAttr = brl.query("ancestor::node()[@spacing][1]")[0] as Element
-                            val spacing = spacingAttr.getAttributeValue("spacing").toInt() - 1
+                        if (ancestors.spacing != null) {
+                            val spacing = ancestors.spacing!!.toInt() - 1
                             brl.addAttribute(Attribute("spacing", spacing.toString()))
                         }
 
@@ -125,15 +118,14 @@ open class LiteraryFormatter : Formatter() {
                     }
 
                     // Check if it has an ancestor with type=pronunciation
-                    if (node.query("ancestor::*[@type='pronunciation'][1]").size() > 0) {
-                        val pronunciation = node.query("ancestor::*[@type='pronunciation'][1]")[0] as Element
-
+                    val pronunciation = ancestors.pronunciation
+                    if (pronunciation != null) {
                         brl.addAttribute(Attribute("type", "pronunciation"))
                         brl.addAttribute(Attribute("term", pronunciation.getAttributeValue("term")))
                     }
 
                     // Check if it has an ancestor with spaced=true
-                    if (node.query("ancestor::*[@spaced='true'][1]").size() > 0) {
+                    if (ancestors.spaced) {
                         brl.addAttribute(Attribute("spaced", "true"))
                     }
 
@@ -310,4 +302,27 @@ open class LiteraryFormatter : Formatter() {
         pageBuilders.addAll(postFormat(node, pageBuilder, style, formatSelector.styleMap))
         return pageBuilders
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Attributes of the nearest ancestors that change how a brl is laid out, found in one walk up
+ * the tree rather than an XPath ancestor query for each attribute on every text node.
+ */
+internal class AncestorAttributes(node: Node) {
+    /** guideWords of the nearest ancestor that has one */
+    var guideWords: String? = null
+    var spacing: String? = null
+    var pronunciation: Element? = null
+    var spaced = false
+
+    init {
+        var cur = node.parent
+        while (cur is Element) {
+            if (guideWords == null) guideWords = cur.getAttributeValue("guideWords")
+            if (spacing == null) spacing = cur.getAttributeValue("spacing")
+            if (pronunciation == null && cur.getAttributeValue("type") == "pronunciation") pronunciation = cur
+            if (cur.getAttributeValue("spaced") == "true") spaced = true
+            cur = cur.parent
+        }
+    }
+}
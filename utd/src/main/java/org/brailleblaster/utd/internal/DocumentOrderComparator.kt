@@ -16,10 +16,9 @@
 package org.brailleblaster.utd.internal
 
 import nu.xom.Node
-import nu.xom.Nodes
 import nu.xom.ParentNode
+import org.brailleblaster.utils.xom.SiblingIndex
 import java.io.Serializable
-import kotlin.math.min
 
 /**
  * Comparator for determining the document order of nodes.
@@ -36,56 +35,43 @@ class DocumentOrderComparator : Comparator<Node>, Serializable {
         if (o1 == o2) {
             return 0
         }
-        // Get the ancestors of each node
-        // could use xpath but this may be faster.
-        val o1Ancestors = Nodes()
-        var node: Node? = o1
-        while (node != null) {
-            o1Ancestors.insert(node, 0)
-            node = node.parent
+        // Walk both nodes up to the same depth, an ancestor comes first
+        val depth1 = depth(o1)
+        val depth2 = depth(o2)
+        var node1: Node = o1
+        var node2: Node = o2
+        repeat(depth1 - depth2) { node1 = node1.parent!! }
+        repeat(depth2 - depth1) { node2 = node2.parent!! }
+        if (node1 === node2) {
+            return if (depth1 < depth2) -1 else 1
         }
-        val o2Ancestors = Nodes()
-        node = o2
-        while (node != null) {
-            o2Ancestors.insert(node, 0)
-            node = node.parent
+        // Then up together until the children of the common ancestor
+        while (node1.parent !== node2.parent) {
+            node1 = node1.parent ?: break
+            node2 = node2.parent!!
         }
-        // Initially based result on number of ancestors
-        var result = 0
-        if (o1Ancestors.size() < o2Ancestors.size()) {
-            result = -1
-        } else if (o1Ancestors.size() > o2Ancestors.size()) {
-            result = 1
-        }
-        val searchDepth = min(o1Ancestors.size(), o2Ancestors.size())
-        var parent: ParentNode? = null
-        for (i in 0 until searchDepth) {
-            val node1 = o1Ancestors[i]
-            val node2 = o2Ancestors[i]
-            if (node1 !== node2) {
-                if (parent == null) {
-                    // TODO: We probably should do something else as throwing a RuntimeException from a
-                    // comparator is not the best idea.
-                    // http://www.ibm.com/developerworks/library/j-ce/
-                    // As of the time of writing this comparator it should not be that nodes from different
-                    // node trees will be compared, so is a low priority to correct.
-                    // Possible alternative solutions would be to sort unrelated nodes first or last in a
-                    // particular order (eg. determined by the value string) or we may need to create an
-                    // alternative implementation.
-                    throw RuntimeException("Nodes do not belong to the same tree of nodes")
-                }
-                val n1Index = parent.indexOf(node1)
-                val n2Index = parent.indexOf(node2)
-                result = if (n1Index < n2Index) {
-                    -1
-                } else {
-                    1
-                }
-                break
-            } else {
-                parent = node1 as ParentNode
-            }
+        val parent: ParentNode = node1.parent
+            // TODO: We probably should do something else as throwing a RuntimeException from a
+            // comparator is not the best idea.
+            // http://www.ibm.com/developerworks/library/j-ce/
+            // As of the time of writing this comparator it should not be that nodes from different
+            // node trees will be compared, so is a low priority to correct.
+            // Possible alternative solutions would be to sort unrelated nodes first or last in a
+            // particular order (eg. determined by the value string) or we may need to create an
+            // alternative implementation.
+            ?: throw RuntimeException("Nodes do not belong to the same tree of nodes")
+        // For sorting many nodes use DocumentOrderKeys which computes each path once
+        val siblings = SiblingIndex.forNode(parent)
+        return if (siblings.indexOf(parent, node1) < siblings.indexOf(parent, node2)) -1 else 1
+    }
+
+    private fun depth(node: Node): Int {
+        var depth = 0
+        var parent = node.parent
+        while (parent != null) {
+            depth++
+            parent = parent.parent
         }
-        return result
+        return depth
     }
-}
\ No newline at end of file
+}
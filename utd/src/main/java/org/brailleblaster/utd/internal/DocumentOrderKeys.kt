@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.internal
+
+import nu.xom.Node
+import org.brailleblaster.utils.xom.SiblingIndex
+import java.util.Arrays
+import java.util.IdentityHashMap
+
+/**
+ * Document order keys computed lazily for a single pass, eg sorting a set of changed nodes.
+ *
+ * A node's key is the path of child indexes from the root. Keys of ancestors are cached so nodes
+ * sharing ancestors only compute their own index, and comparing two keys is a compare of small
+ * int arrays instead of walking the tree as [DocumentOrderComparator] does. Ordering matches
+ * [DocumentOrderComparator]: ancestors come before their descendants.
+ *
+ * Keys are not updated on mutation, create a new instance after modifying the document.
+ */
+class DocumentOrderKeys : Comparator<Node> {
+    private class Key(val root: Node, val path: IntArray)
+
+    private val keys = IdentityHashMap<Node, Key>()
+    private var siblings: SiblingIndex? = null
+
+    private fun keyOf(node: Node): Key {
+        keys[node]?.let { return it }
+        val parent = node.parent
+        val key = if (parent == null) {
+            Key(node, IntArray(0))
+        } else {
+            val siblingIndex = siblings ?: SiblingIndex.forNode(node).also { siblings = it }
+            val parentKey = keyOf(parent)
+            val path = parentKey.path.copyOf(parentKey.path.size + 1)
+            path[parentKey.path.size] = siblingIndex.indexOf(parent, node)
+            Key(parentKey.root, path)
+        }
+        keys[node] = key
+        return key
+    }
+
+    override fun compare(o1: Node, o2: Node): Int {
+        if (o1 === o2) {
+            return 0
+        }
+        val key1 = keyOf(o1)
+        val key2 = keyOf(o2)
+        if (key1.root !== key2.root) {
+            throw RuntimeException("Nodes do not belong to the same tree of nodes")
+        }
+        // Lexicographic, an ancestor's path is a prefix of its descendants so sorts first
+        return Arrays.compare(key1.path, key2.path)
+    }
+
+    /**
+     * Sort in place, computing each key once
+     */
+    fun <N : Node> sort(nodes: MutableList<N>) {
+        if (nodes.size > 1) {
+            nodes.sortWith(this)
+        }
+    }
+
+    companion object {
+        /**
+         * Sort a list of nodes from the same document in document order
+         */
+        @JvmStatic
+        fun <N : Node> sortInDocumentOrder(nodes: MutableList<N>) {
+            DocumentOrderKeys().sort(nodes)
+        }
+    }
+}
@@ -20,6 +20,7 @@ import nu.xom.Element
 import nu.xom.Node
 import org.brailleblaster.utd.exceptions.NodeException
 import org.brailleblaster.utd.internal.xml.XMLHandler.Companion.nodeToElementOrParentOrDocRoot
+import org.brailleblaster.utils.xom.SiblingIndex
 import org.brailleblaster.utils.xom.childNodes
 import java.util.concurrent.atomic.AtomicReference
 import java.util.function.Predicate
@@ -86,10 +87,12 @@ object FastXPath {
 
     @JvmStatic
     fun following(startNode: Node): Sequence<Node> {
+        val siblings = SiblingIndex.forNode(startNode)
         return nodeSequence(
-            itrNextNode(startNode, null, true),
+            itrNextNode(startNode, null, true, siblings),
             stayInsideStartNode = false,
-            forward = true
+            forward = true,
+            siblings
         )
     }
 
@@ -106,10 +109,12 @@ object FastXPath {
      * because it will match ancestors.
      */
     fun preceding(startNode: Node): Iterable<Node> {
+        val siblings = SiblingIndex.forNode(startNode)
         return nodeSequence(
-            itrNextNode(startNode, null, false),
+            itrNextNode(startNode, null, false, siblings),
             stayInsideStartNode = false,
-            forward = false
+            forward = false,
+            siblings
         ).asIterable()
     }
 
@@ -137,18 +142,29 @@ object FastXPath {
         return generateSequence(startNode) { it.parent }
     }
 
-    private fun nodeSequence(startNode: Node?, stayInsideStartNode: Boolean, forward: Boolean): Sequence<Node> =
-        generateSequence(startNode) { node ->
+    private fun nodeSequence(
+        startNode: Node?,
+        stayInsideStartNode: Boolean,
+        forward: Boolean,
+        siblingIndex: SiblingIndex? = null
+    ): Sequence<Node> {
+        if (startNode == null) {
+            return emptySequence()
+        }
+        val siblings = siblingIndex ?: SiblingIndex.forNode(startNode)
+        return generateSequence(startNode) { node ->
             if (node.childCount != 0) {
                 node.getChild(if (forward) 0 else node.childCount - 1)
             } else {
                 itrNextNode(
                     node,
                     if (stayInsideStartNode) startNode else null,
-                    forward
+                    forward,
+                    siblings
                 )
             }
         }
+    }
 
     /**
      * Safe following node impl that stops once outside of the given start node
@@ -156,12 +172,13 @@ object FastXPath {
      * @param stopNode     Parent we are not escaping from
      * @param inputCurNode Assumed to be some (maybe nested) child of startNode
      */
-    private fun itrNextNode(inputCurNode: Node, stopNode: Node?, forward: Boolean): Node? {
+    private fun itrNextNode(inputCurNode: Node, stopNode: Node?, forward: Boolean, siblings: SiblingIndex): Node? {
         var curNode: Node = inputCurNode
         //TODO: This will break if inputCurNode is not descendant from stopNode
         while (stopNode == null || stopNode !== curNode) {
             val parent = curNode.parent ?: break
-            val index = parent.indexOf(curNode)
+            // ParentNode.indexOf is a linear scan, quadratic over wide elements
+            val index = siblings.indexOf(parent, curNode)
             if (forward && index != parent.getChildCount() - 1) {
                 return parent.getChild(index + 1)
             } else if (!forward && index > 0) {
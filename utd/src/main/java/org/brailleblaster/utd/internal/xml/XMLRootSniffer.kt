@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.internal.xml
+
+import org.apache.commons.io.ByteOrderMark
+import org.apache.commons.io.input.BOMInputStream
+import java.io.BufferedInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.InputStreamReader
+import java.io.Reader
+import java.nio.charset.Charset
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+/**
+ * Reads the root element of an XML file without parsing the document, for choosing a loader
+ * before the one real parse.
+ *
+ * Only the prolog (XML declaration, comments, processing instructions and the doctype with its
+ * internal subset) and the root start tag are read, external DTDs are never fetched. This is
+ * not a well-formedness check, a document with a broken body is only found by the full parse.
+ */
+object XMLRootSniffer {
+    /**
+     * Internal DTD subsets, eg of NIMAS books, are small but may declare many entities
+     */
+    const val MAX_PROLOG_CHARS = 1 shl 20
+    private const val DECLARATION_BYTES = 256
+
+    data class Root(val localName: String, val prefix: String, val namespaceURI: String) {
+        val qualifiedName: String
+            get() = if (prefix.isEmpty()) localName else "$prefix:$localName"
+    }
+
+    /**
+     * @return null when the file does not start like an XML document
+     */
+    @Throws(IOException::class)
+    fun sniff(path: Path): Root? = Files.newInputStream(path).use { sniff(it) }
+
+    @Throws(IOException::class)
+    fun sniff(input: InputStream): Root? {
+        val bomInput = BOMInputStream.builder()
+            .setInputStream(input)
+            .setByteOrderMarks(ByteOrderMark.UTF_8, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_16LE)
+            .get()
+        val buffered = BufferedInputStream(bomInput)
+        val charset = bomInput.bomCharsetName?.let { Charset.forName(it) } ?: detectCharset(buffered)
+        return sniff(InputStreamReader(buffered, charset))
+    }
+
+    /**
+     * UTF-16 without a byte order mark, otherwise the encoding of the XML declaration
+     */
+    private fun detectCharset(input: BufferedInputStream): Charset {
+        input.mark(DECLARATION_BYTES)
+        val header = input.readNBytes(DECLARATION_BYTES)
+        input.reset()
+        if (header.size >= 2 && header[0].toInt() == 0 && header[1].toInt() == '<'.code) {
+            return StandardCharsets.UTF_16BE
+        } else if (header.size >= 2 && header[0].toInt() == '<'.code && header[1].toInt() == 0) {
+            return StandardCharsets.UTF_16LE
+        }
+        val declaration = String(header, StandardCharsets.ISO_8859_1)
+        if (declaration.startsWith("<?xml")) {
+            val encoding = ENCODING.find(declaration.substringBefore("?>"))?.groupValues?.get(2)
+            if (encoding != null) {
+                runCatching { Charset.forName(encoding) }.getOrNull()?.let { return it }
+            }
+        }
+        return StandardCharsets.UTF_8
+    }
+
+    @Throws(IOException::class)
+    fun sniff(reader: Reader): Root? = Tokenizer(reader).readRoot()
+
+    private val ENCODING = Regex("""encoding\s*=\s*(["'])([A-Za-z0-9._\-]+)\1""")
+
+    private class Tokenizer(private val reader: Reader) {
+        private var read = 0
+        private var pushedBack = -1
+
+        private fun next(): Int {
+            if (pushedBack != -1) {
+                return pushedBack.also { pushedBack = -1 }
+            }
+            if (++read > MAX_PROLOG_CHARS) {
+                return -1
+            }
+            return reader.read()
+        }
+
+        private fun pushBack(c: Int) {
+            pushedBack = c
+        }
+
+        private fun skipWhitespace(): Int {
+            var c = next()
+            while (c != -1 && isWhitespace(c)) {
+                c = next()
+            }
+            return c
+        }
+
+        /**
+         * Consume up to and including terminator
+         */
+        private fun skipPast(terminator: String): Boolean {
+            val window = StringBuilder()
+            while (!window.contentEquals(terminator)) {
+                val c = next()
+                if (c == -1) {
+                    return false
+                }
+                window.append(c.toChar())
+                if (window.length > terminator.length) {
+                    window.deleteCharAt(0)
+                }
+            }
+            return true
+        }
+
+        private fun expect(text: String): Boolean = text.all { next() == it.code }
+
+        /**
+         * Skip the doctype after "<!DOCTYPE", quoted ids and the internal subset may contain '>'
+         */
+        private fun skipDoctype(): Boolean {
+            var inSubset = false
+            while (true) {
+                when (val c = next()) {
+                    -1 -> return false
+                    '"'.code, '\''.code -> if (!skipPast(c.toChar().toString())) return false
+                    '['.code -> inSubset = true
+                    ']'.code -> inSubset = false
+                    '>'.code -> if (!inSubset) return true
+                    '<'.code -> if (inSubset) {
+                        when (next()) {
+                            '?'.code -> if (!skipPast("?>")) return false
+                            '!'.code -> {
+                                val d = next()
+                                if (d == '-'.code) {
+                                    if (next() != '-'.code || !skipPast("-->")) return false
+                                } else {
+                                    pushBack(d)
+                                }
+                            }
+                            -1 -> return false
+                        }
+                    }
+                }
+            }
+        }
+
+        private fun readName(first: Int): String? {
+            if (first == -1 || !isNameStart(first)) {
+                return null
+            }
+            val name = StringBuilder()
+            name.append(first.toChar())
+            var c = next()
+            while (c != -1 && isNameChar(c)) {
+                name.append(c.toChar())
+                c = next()
+            }
+            pushBack(c)
+            return name.toString()
+        }
+
+        private fun readAttributeValue(): String? {
+            val quote = next()
+            if (quote != '"'.code && quote != '\''.code) {
+                return null
+            }
+            val value = StringBuilder()
+            var c = next()
+            while (c != quote) {
+                if (c == -1 || c == '<'.code) {
+                    return null
+                }
+                value.append(c.toChar())
+                c = next()
+            }
+            return decodeReferences(value.toString())
+        }
+
+        fun readRoot(): Root? {
+            while (true) {
+                if (skipWhitespace() != '<'.code) {
+                    return null
+                }
+                when (val c = next()) {
+                    '?'.code -> if (!skipPast("?>")) return null
+                    '!'.code -> {
+                        val d = next()
+                        if (d == '-'.code) {
+                            if (next() != '-'.code || !skipPast("-->")) return null
+                        } else if (d != 'D'.code || !expect("OCTYPE") || !skipDoctype()) {
+                            return null
+                        }
+                    }
+                    else -> return readStartTag(c)
+                }
+            }
+        }
+
+        private fun readStartTag(first: Int): Root? {
+            val name = readName(first) ?: return null
+            val namespaces = HashMap<String, String>()
+            while (true) {
+                var c = next()
+                if (c == '>'.code || c == '/'.code) {
+                    break
+                } else if (c == -1 || !isWhitespace(c)) {
+                    return null
+                }
+                c = skipWhitespace()
+                if (c == '>'.code || c == '/'.code) {
+                    break
+                }
+                val attribute = readName(c) ?: return null
+                if (skipWhitespace() != '='.code) {
+                    return null
+                }
+                pushBack(skipWhitespace())
+                val value = readAttributeValue() ?: return null
+                if (attribute == "xmlns") {
+                    namespaces[""] = value
+                } else if (attribute.startsWith("xmlns:")) {
+                    namespaces[attribute.substring(6)] = value
+                }
+            }
+            val prefix = name.substringBefore(':', "")
+            val namespaceURI = namespaces[prefix] ?: if (prefix == "xml") XML_NS else ""
+            return Root(name.substringAfter(':'), prefix, namespaceURI)
+        }
+    }
+
+    private const val XML_NS = "http://www.w3.org/XML/1998/namespace"
+
+    private fun isWhitespace(c: Int) = c == ' '.code || c == '\t'.code || c == '\n'.code || c == '\r'.code
+
+    private fun isNameStart(c: Int) = Character.isLetter(c) || c == '_'.code || c == ':'.code
+
+    private fun isNameChar(c: Int) =
+        isNameStart(c) || Character.isDigit(c) || c == '-'.code || c == '.'.code || c == 0xB7
+
+    private fun decodeReferences(value: String): String {
+        if (!value.contains('&')) {
+            return value
+        }
+        val decoded = StringBuilder()
+        var i = 0
+        while (i < value.length) {
+            val end = value.indexOf(';', i)
+            if (value[i] == '&' && end != -1) {
+                val reference = value.substring(i + 1, end)
+                val replacement = when {
+                    reference == "amp" -> "&"
+                    reference == "lt" -> "<"
+                    reference == "gt" -> ">"
+                    reference == "quot" -> "\""
+                    reference == "apos" -> "'"
+                    reference.startsWith("#x") -> reference.substring(2).toIntOrNull(16)?.let { Character.toString(it) }
+                    reference.startsWith("#") -> reference.substring(1).toIntOrNull()?.let { Character.toString(it) }
+                    else -> null
+                }
+                if (replacement != null) {
+                    decoded.append(replacement)
+                    i = end + 1
+                    continue
+                }
+            }
+            decoded.append(value[i])
+            i++
+        }
+        return decoded.toString()
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.utils
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheLoader
+import com.google.common.cache.LoadingCache
+import org.brailleblaster.utd.ITranslationEngine
+import org.brailleblaster.utd.properties.BrailleTableType
+
+/**
+ * Translation of the text decorating each page: braille page numbers, running heads and guide
+ * words. Every page asks for these, often several times while laying out, and they are nearly
+ * always a string already translated for an earlier page, so results are cached per engine by
+ * table and text instead of calling liblouis each time.
+ */
+object PageDecorationTranslator {
+    private const val MAX_CACHED = 10_000L
+
+    private data class Key(
+        val table: String,
+        val asciiBraille: Boolean,
+        val text: String
+    )
+
+    /**
+     * Translations of each engine, weak keys so they are dropped along with the engine
+     */
+    private val engineTranslations: LoadingCache<ITranslationEngine, Cache<Key, String>> = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build(object : CacheLoader<ITranslationEngine, Cache<Key, String>>() {
+            override fun load(engine: ITranslationEngine): Cache<Key, String> = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED)
+                .build()
+        })
+
+    @JvmStatic
+    @JvmOverloads
+    fun translate(
+        text: String,
+        engine: ITranslationEngine,
+        tableType: BrailleTableType = BrailleTableType.LITERARY
+    ): String {
+        if (text.isEmpty()) {
+            return text
+        }
+        val brailleSettings = engine.brailleSettings
+        val key = Key(
+            tableType.getTableName(brailleSettings),
+            brailleSettings.isUseAsciiBraille,
+            text
+        )
+        val translations = engineTranslations.getUnchecked(engine)
+        translations.getIfPresent(key)?.let { return it }
+        val translated = TextTranslator.translateText(text, engine, tableType = tableType)
+        translations.put(key, translated)
+        return translated
+    }
+
+    /**
+     * Drop the translations cached for an engine. Call when its braille settings are replaced or
+     * its tables are reloaded, as a table edited on disk keeps the same name.
+     */
+    @JvmStatic
+    fun invalidate(engine: ITranslationEngine) {
+        engineTranslations.invalidate(engine)
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static org.testng.Assert.assertEquals;
+
+public class BRFChannelOutputTest {
+    @DataProvider
+    public Object[][] optionsDataProvider() {
+        return new Object[][]{
+                new Object[]{false, false},
+                new Object[]{true, false},
+                new Object[]{false, true},
+                new Object[]{true, true},};
+    }
+
+    @Test(dataProvider = "optionsDataProvider")
+    public void matchesCharStream(boolean convertLineEndings, boolean convertToBrfChars) throws Exception {
+        UTDTranslationEngine engine = new UTDTranslationEngine();
+        engine.getBrailleSettings().setUseAsciiBraille(true);
+        Consumer<BRFWriter> pages = brfWriter -> {
+            brfWriter.newPage(1);
+            brfWriter.append("first ,page");
+            brfWriter.moveTo(4, 2);
+            brfWriter.append("⠁⠃ ab{|}~");
+            brfWriter.newPage(2);
+            brfWriter.moveTo(2, 1);
+            brfWriter.append("second");
+            brfWriter.onEndOfFile();
+        };
+
+        StringBuilder expected = new StringBuilder();
+        BRFWriter.OutputCharStream charStream = expected::append;
+        if (convertLineEndings) {
+            charStream = BRFWriter.lineEndingRewriter(charStream);
+        }
+        if (convertToBrfChars) {
+            BRFWriter.OutputCharStream dest = charStream;
+            charStream = c -> dest.accept((char) (c + (c >= '`' && c <= '\u007f' ? -0x20 : 0)));
+        }
+        pages.accept(new BRFWriter(engine, charStream, BRFWriter.OPTS_DEFAULT, BRFWriter.EMPTY_PAGE_LISTENER));
+
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        BRFChannelOutput channelOutput = new BRFChannelOutput(Channels.newChannel(actual), convertLineEndings, convertToBrfChars);
+        pages.accept(new BRFWriter(engine, channelOutput, BRFWriter.OPTS_DEFAULT, BRFWriter.EMPTY_PAGE_LISTENER));
+
+        assertEquals(actual.toString(StandardCharsets.UTF_8), expected.toString());
+    }
+}
@@ -19,6 +19,9 @@ import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.assertEquals;
 
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import nu.xom.Document;
 import nu.xom.Element;
@@ -26,6 +29,7 @@ import nu.xom.Node;
 import nu.xom.Nodes;
 import nu.xom.Builder;
 
+import org.brailleblaster.utd.matchers.INodeMatcher;
 import org.brailleblaster.utd.matchers.XPathMatcher;
 import org.testng.annotations.Test;
 
@@ -289,4 +293,91 @@ public class GuideWordsTest {
         }
     }
 
+    /**
+     * The XPath queries findGuideWords ran before it visited the dl children once
+     */
+    private static void referenceFindGuideWords(Node node, ITranslationEngine engine) {
+        GuideWords guide = new GuideWords();
+        guide.styleMapper("child::*[name()='dt'][1]", engine, node);
+        guide.styleMapper("child::*[name()='dt'][last()]", engine, node);
+
+        String xpathMain = "child::*[name()='dt'][preceding::*[name()='newpage']]"
+                + "[preceding-sibling::*[1][name()!='dd']]";
+        Nodes foundNodes = node.query(xpathMain);
+        for (int i = 0; i < foundNodes.size(); i++) {
+            guide.styleMapper(xpathMain + "[" + (i + 1) + "]", engine, node);
+        }
+        xpathMain = "child::*[name()='dt'][preceding::*[name()='newpage']]"
+                + "[following-sibling::*[2][name()!='dt']]";
+        foundNodes = node.query(xpathMain);
+        for (int i = 0; i < foundNodes.size(); i++) {
+            guide.styleMapper(xpathMain + "[" + (i + 1) + "]", engine, node);
+        }
+        xpathMain = "child::*[name()='dt'][descendant::*[name()='newpage']]";
+        foundNodes = node.query(xpathMain);
+        for (int i = 0; i < foundNodes.size(); i++) {
+            guide.styleMapper(xpathMain + "[" + (i + 1) + "]", engine, node);
+            guide.styleMapper("following-sibling::*[name()='dt'][1]", engine, foundNodes.get(i));
+        }
+        xpathMain = "child::*[name()='dd'][descendant::*[name()='newpage']]";
+        foundNodes = node.query(xpathMain);
+        for (int i = 0; i < foundNodes.size(); i++) {
+            guide.styleMapper(xpathMain + "[" + (i + 1) + "]", engine, node);
+            guide.styleMapper("following-sibling::*[name()='dt'][1]", engine, foundNodes.get(i));
+            guide.styleMapper("preceding-sibling::*[name()='dt'][1]", engine, foundNodes.get(i));
+        }
+    }
+
+    private static List<String> matcherExpressions(ITranslationEngine engine) {
+        List<String> expressions = new ArrayList<>();
+        for (INodeMatcher matcher : ((StyleMap) engine.getStyleMap()).keyList()) {
+            expressions.add(matcher instanceof XPathMatcher xpath ? xpath.getExpression() : matcher.toString());
+        }
+        return expressions;
+    }
+
+    private static void assertSameAsReference(Document document) {
+        Node dl = document.query("descendant::dl").get(0);
+        UTDTranslationEngine expected = new UTDTranslationEngine();
+        referenceFindGuideWords(dl, expected);
+        UTDTranslationEngine actual = new UTDTranslationEngine();
+        new GuideWords().findGuideWords(dl, actual);
+
+        assertEquals(matcherExpressions(actual), matcherExpressions(expected));
+        Nodes elements = document.query("descendant::*");
+        for (int i = 0; i < elements.size(); i++) {
+            assertEquals(
+                    actual.getStyleMap().findValueOrDefault(elements.get(i)).isGuideWords(),
+                    expected.getStyleMap().findValueOrDefault(elements.get(i)).isGuideWords(),
+                    elements.get(i).toXML()
+            );
+        }
+    }
+
+    @Test
+    public void sameAsXPathQueries() throws Exception {
+        documentBuilder();
+        assertSameAsReference(document);
+
+        try (InputStream in = getClass().getResourceAsStream(XML_DATA_PATH)) {
+            assertSameAsReference(new Builder().build(in));
+        }
+
+        String[] documents = {
+                // newpage before the dl
+                "<root><rearmatter><newpage/><dl><dt>a</dt><dd>x</dd><dt>b</dt><dt>c</dt><dd>y</dd>"
+                        + "<dt>d</dt><dd>z</dd></dl></rearmatter></root>",
+                // newpage nested in a dd and a dt, and between terms
+                "<root><dl><dt>a</dt><dd><p>x<span><newpage/></span></p></dd><dt>b</dt><dd>y</dd><newpage/>"
+                        + "<dt>c</dt><dt>d<newpage/></dt><dt>e</dt><dd>z</dd><dt>f</dt></dl></root>",
+                // newpage in an earlier sibling of an ancestor
+                "<root><level><p>text<newpage/></p></level><level><dl><dt>a</dt><dd>x</dd><dt>b</dt>"
+                        + "<dd>y</dd><dt>c</dt><dd>z</dd></dl></level></root>",
+                // no newpage
+                "<root><dl><dt>a</dt><dd>x</dd><dt>b</dt><dd>y</dd></dl></root>"
+        };
+        for (String xml : documents) {
+            assertSameAsReference(new Builder().build(new StringReader(xml)));
+        }
+    }
 }
@@ -385,4 +385,100 @@ public class UTDTranslationEngineTest {
                 XMLTester.getTestIdElement(doc, "inner")
         ));
     }
+
+    private static UTDTranslationEngine blockEngine() {
+        UTDTranslationEngine engine = new UTDTranslationEngine();
+        ActionMap actionMap = new ActionMap();
+        actionMap.put(new NodeNameMatcher("p"), new GenericBlockAction());
+        engine.setActionMap(actionMap);
+        return engine;
+    }
+
+    /**
+     * Blocks of inline elements, every 10th block also containing a nested block
+     */
+    private static Document blocksDocument(int blocks) {
+        Element root = new Element("book");
+        for (int i = 0; i < blocks; i++) {
+            Element p = new Element("p");
+            for (int j = 0; j < 3; j++) {
+                Element b = new Element("b");
+                Element em = new Element("i");
+                em.appendChild("text " + i + " " + j);
+                b.appendChild(em);
+                p.appendChild(b);
+            }
+            if (i % 10 == 0) {
+                Element nested = new Element("p");
+                nested.appendChild(new Element("b"));
+                p.appendChild(nested);
+            }
+            root.appendChild(p);
+        }
+        return new Document(root);
+    }
+
+    private static List<Element> allElements(Document doc, long seed) {
+        List<Element> elements = new ArrayList<>();
+        for (Node node : doc.query("/book//*")) {
+            elements.add((Element) node);
+        }
+        Collections.shuffle(elements, new Random(seed));
+        return elements;
+    }
+
+    /**
+     * Previous implementation, scanning pending elements and found blocks for each descendant
+     */
+    private static List<Element> findTranslationBlocksReference(UTDTranslationEngine engine, List<Element> inputElements) {
+        LinkedList<Element> pendingElements = new LinkedList<>(inputElements);
+        List<Element> toTranslateBlocks = new ArrayList<>();
+        while (!pendingElements.isEmpty()) {
+            Element block = (Element) engine.findTranslationBlock(pendingElements.removeFirst());
+            XMLHandler.Companion.childrenRecursiveVisitor(block, child -> {
+                pendingElements.removeIf(e -> e == child);
+                toTranslateBlocks.removeIf(e -> e == child);
+                return false;
+            });
+            toTranslateBlocks.add(block);
+        }
+        return toTranslateBlocks;
+    }
+
+    @Test
+    public void findTranslationBlocksMatchesReference() {
+        UTDTranslationEngine engine = blockEngine();
+        Document doc = blocksDocument(200);
+        for (long seed = 0; seed < 5; seed++) {
+            List<Element> input = allElements(doc, seed);
+            List<Element> expected = findTranslationBlocksReference(engine, input);
+            List<Element> actual = engine.findTranslationBlocks(input);
+            assertEquals(actual.size(), expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(actual.get(i), expected.get(i), "seed " + seed + " index " + i);
+            }
+        }
+    }
+
+    /**
+     * A large change set, eg Replace All over a book, finds each top level block once
+     */
+    @Test
+    public void findTranslationBlocksLargeChangeSet() {
+        UTDTranslationEngine engine = blockEngine();
+        int blocks = 5000;
+        Document doc = blocksDocument(blocks);
+        List<Element> input = allElements(doc, 42);
+
+        List<Element> result = engine.findTranslationBlocks(input);
+
+        assertEquals(result.size(), blocks);
+        Set<Element> topLevel = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < blocks; i++) {
+            topLevel.add((Element) doc.getRootElement().getChild(i));
+        }
+        for (Element block : result) {
+            assertTrue(topLevel.contains(block));
+        }
+    }
 }
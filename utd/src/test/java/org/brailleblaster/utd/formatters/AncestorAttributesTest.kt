@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.formatters
+
+import nu.xom.Builder
+import nu.xom.Element
+import nu.xom.Node
+import org.testng.Assert
+import org.testng.annotations.Test
+import java.io.StringReader
+
+class AncestorAttributesTest {
+    private val document = Builder().build(
+        StringReader(
+            """<root guideWords="true" spacing="3">
+                |<dl guideWords="false"><dt>term<span spaced="true">spaced</span></dt>
+                |<dd type="pronunciation" term="outer"><p spacing="2">said
+                |<span type="pronunciation" term="inner" guideWords="true">inner</span>
+                |<span type="other" spaced="false">other</span></p></dd></dl>
+                |<p>plain<span spaced="true"><b spaced="false">nested</b></span></p>
+                |</root>""".trimMargin()
+        )
+    )
+
+    @Test
+    fun sameAsXPathQueries() {
+        val texts = document.query("descendant::text()")
+        Assert.assertTrue(texts.size() > 0)
+        for (i in 0 until texts.size()) {
+            val node = texts[i]
+            val ancestors = AncestorAttributes(node)
+            val message = "text '${node.value}'"
+
+            Assert.assertEquals(
+                ancestors.guideWords,
+                first(node, "ancestor::*[@guideWords][1]")?.getAttributeValue("guideWords"),
+                message
+            )
+            Assert.assertEquals(
+                ancestors.spacing,
+                first(node, "ancestor::*[@spacing][1]")?.getAttributeValue("spacing"),
+                message
+            )
+            Assert.assertSame(ancestors.pronunciation, first(node, "ancestor::*[@type='pronunciation'][1]"), message)
+            Assert.assertEquals(ancestors.spaced, node.query("ancestor::*[@spaced='true'][1]").size() > 0, message)
+        }
+    }
+
+    private fun first(node: Node, xpath: String): Element? = node.query(xpath).firstOrNull() as Element?
+}
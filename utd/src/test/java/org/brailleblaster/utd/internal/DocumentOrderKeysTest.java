@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.internal;
+
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Node;
+import nu.xom.Text;
+import org.brailleblaster.utd.internal.xml.FastXPath;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+public class DocumentOrderKeysTest {
+    private static Document generateDocument() {
+        Element root = new Element("root");
+        for (int i = 0; i < 20; i++) {
+            Element p = new Element("p");
+            for (int j = 0; j < 5; j++) {
+                p.appendChild(new Text("text " + i + " " + j));
+                Element span = new Element("span");
+                span.appendChild(new Text("span " + i + " " + j));
+                p.appendChild(span);
+            }
+            root.appendChild(p);
+        }
+        return new Document(root);
+    }
+
+    @Test
+    public void sortMatchesDocumentOrder() {
+        Document doc = generateDocument();
+        List<Node> expected = new ArrayList<>();
+        FastXPath.descendant(doc.getRootElement()).iterator().forEachRemaining(expected::add);
+
+        List<Node> shuffled = new ArrayList<>(expected);
+        Collections.shuffle(shuffled, new Random(42));
+        DocumentOrderKeys.sortInDocumentOrder(shuffled);
+        assertEquals(shuffled.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(shuffled.get(i), expected.get(i));
+        }
+    }
+
+    @Test
+    public void matchesComparator() {
+        Document doc = generateDocument();
+        List<Node> nodes = new ArrayList<>();
+        FastXPath.descendantOrSelf(doc.getRootElement()).iterator().forEachRemaining(nodes::add);
+        DocumentOrderKeys keys = new DocumentOrderKeys();
+        DocumentOrderComparator comparator = new DocumentOrderComparator();
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            Node n1 = nodes.get(random.nextInt(nodes.size()));
+            Node n2 = nodes.get(random.nextInt(nodes.size()));
+            assertEquals(Integer.signum(keys.compare(n1, n2)), Integer.signum(comparator.compare(n1, n2)),
+                    n1.toXML() + " " + n2.toXML());
+        }
+    }
+
+    @Test
+    public void ancestorFirst() {
+        Document doc = generateDocument();
+        Element p = (Element) doc.getRootElement().getChild(3);
+        Node text = p.getChild(1).getChild(0);
+        assertTrue(new DocumentOrderKeys().compare(p, text) < 0);
+        assertTrue(new DocumentOrderKeys().compare(text, p) > 0);
+        assertTrue(new DocumentOrderComparator().compare(text, p) > 0);
+    }
+
+    @Test
+    public void differentTrees() {
+        Node n1 = generateDocument().getRootElement().getChild(0);
+        Node n2 = generateDocument().getRootElement().getChild(0);
+        expectThrows(RuntimeException.class, () -> new DocumentOrderKeys().compare(n1, n2));
+        expectThrows(RuntimeException.class, () -> new DocumentOrderComparator().compare(n1, n2));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.internal.xml
+
+import org.testng.Assert
+import org.testng.annotations.Test
+import java.io.ByteArrayInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.SequenceInputStream
+import java.nio.charset.StandardCharsets
+
+class XMLRootSnifferTest {
+    private fun sniff(xml: String) = XMLRootSniffer.sniff(ByteArrayInputStream(xml.toByteArray(StandardCharsets.UTF_8)))
+
+    @Test
+    fun plainRoot() {
+        Assert.assertEquals(sniff("<bbdoc><head/></bbdoc>"), XMLRootSniffer.Root("bbdoc", "", ""))
+        Assert.assertEquals(sniff("\n  <dtbook/>"), XMLRootSniffer.Root("dtbook", "", ""))
+    }
+
+    @Test
+    fun namespaces() {
+        Assert.assertEquals(
+            sniff("<bbdoc xmlns=\"http://brailleblaster.org/ns/bb\" xmlns:m='http://www.w3.org/1998/Math/MathML'>"),
+            XMLRootSniffer.Root("bbdoc", "", "http://brailleblaster.org/ns/bb")
+        )
+        val root = sniff("<opf:package\n\tversion=\"2.0\" xmlns:opf=\"http://www.idpf.org/2007/opf?a=1&amp;b=2\">")!!
+        Assert.assertEquals(root.localName, "package")
+        Assert.assertEquals(root.qualifiedName, "opf:package")
+        Assert.assertEquals(root.namespaceURI, "http://www.idpf.org/2007/opf?a=1&b=2")
+    }
+
+    @Test
+    fun nimasProlog() {
+        val xml = """<?xml version="1.0" encoding="UTF-8"?>
+            <!DOCTYPE dtbook PUBLIC "-//NISO//DTD dtbook 2005-3//EN" "http://www.daisy.org/z3986/2005/dtbook-2005-3.dtd" [
+            <!ENTITY % MATHML.prefixed "INCLUDE" >
+            <!ENTITY % mathML3 PUBLIC "-//W3C//DTD MathML 3.0//EN" "http://www.w3.org/Math/DTD/mathml3/mathml3.dtd"><!--don't > stop-->
+            %mathML3;
+            <!ENTITY % externalFlow "| m:math">
+            <!ENTITY gt2 '>]>'>
+            <?pi ] > ?>
+            ]>
+            <!-- comment with <tags> -->
+            <?xml-stylesheet href="dtbook.css" type="text/css"?>
+            <dtbook version="2005-3" xml:lang="en" xmlns="http://www.daisy.org/z3986/2005/dtbook/"><head/></dtbook>"""
+        Assert.assertEquals(
+            sniff(xml),
+            XMLRootSniffer.Root("dtbook", "", "http://www.daisy.org/z3986/2005/dtbook/")
+        )
+    }
+
+    @Test
+    fun encodings() {
+        val xml = "<?xml version=\"1.0\"?><bé:résumé xmlns:bé=\"urn:x\"/>"
+        val expected = XMLRootSniffer.Root("résumé", "bé", "urn:x")
+        val utf8Bom = byteArrayOf(0xEF.toByte(), 0xBB.toByte(), 0xBF.toByte()) + xml.toByteArray(StandardCharsets.UTF_8)
+        Assert.assertEquals(XMLRootSniffer.sniff(ByteArrayInputStream(utf8Bom)), expected)
+        val utf16 = xml.toByteArray(StandardCharsets.UTF_16)
+        Assert.assertEquals(XMLRootSniffer.sniff(ByteArrayInputStream(utf16)), expected)
+        val utf16LE = xml.toByteArray(StandardCharsets.UTF_16LE)
+        Assert.assertEquals(XMLRootSniffer.sniff(ByteArrayInputStream(utf16LE)), expected)
+        val latin1 = xml.replace("<?xml version=\"1.0\"?>", "<?xml version=\"1.0\" encoding='ISO-8859-1'?>")
+            .toByteArray(StandardCharsets.ISO_8859_1)
+        Assert.assertEquals(XMLRootSniffer.sniff(ByteArrayInputStream(latin1)), expected)
+    }
+
+    @Test
+    fun notXml() {
+        Assert.assertNull(sniff(""))
+        Assert.assertNull(sniff("Plain text file"))
+        Assert.assertNull(sniff("  ,,,,,,, brf text"))
+        Assert.assertNull(sniff("<!-- never closed <root/>"))
+        Assert.assertNull(sniff("<!DOCTYPE root [ <!ENTITY a \"b\"> "))
+        Assert.assertNull(sniff("<1root/>"))
+        Assert.assertNull(sniff("<root attr=unquoted>"))
+        Assert.assertNull(sniff("<root"))
+    }
+
+    @Test
+    fun readsOnlyTheProlog() {
+        val prolog = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<dtbook xmlns=\"urn:book\">"
+        // Fails the test if the body is read past the first buffers
+        val body = object : InputStream() {
+            private var read = 0
+
+            override fun read(): Int {
+                if (++read > 64 * 1024) {
+                    throw IOException("Read past the prolog")
+                }
+                return 'a'.code
+            }
+        }
+        val input = SequenceInputStream(ByteArrayInputStream(prolog.toByteArray(StandardCharsets.UTF_8)), body)
+        Assert.assertEquals(XMLRootSniffer.sniff(input), XMLRootSniffer.Root("dtbook", "", "urn:book"))
+    }
+}
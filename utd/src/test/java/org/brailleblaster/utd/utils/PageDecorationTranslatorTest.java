@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utd.utils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.brailleblaster.utd.ActionMap;
+import org.brailleblaster.utd.ITranslationEngine;
+import org.brailleblaster.utd.PageSettings;
+import org.brailleblaster.utd.StyleMap;
+import org.brailleblaster.utd.UTDTranslationEngine;
+import org.brailleblaster.utd.config.ShortcutDefinitions;
+import org.brailleblaster.utd.config.StyleDefinitions;
+import org.brailleblaster.utd.testutils.MockTranslatorFactory;
+import org.mwhapples.jlouis.Louis.TypeForms;
+import org.mwhapples.jlouis.TranslationException;
+import org.testng.annotations.Test;
+
+public class PageDecorationTranslatorTest {
+    @Test
+    public void translatesOnce() throws TranslationException {
+        short[] typeForms = new short[2];
+        Arrays.fill(typeForms, TypeForms.PLAIN_TEXT);
+        ITranslationEngine engine = MockTranslatorFactory.createTranslationEngine("p5", ";p#e", "0 0 1 1", "0 2", typeForms);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(PageDecorationTranslator.translate("p5", engine), ";p#e");
+        }
+        verify(engine.getBrailleTranslator(), times(1)).translate(anyString(), anyString(), any(short[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void emptyNotTranslated() throws TranslationException {
+        ITranslationEngine engine = MockTranslatorFactory.createTranslationEngine("a", "a", "0", "0", new short[1]);
+
+        assertEquals(PageDecorationTranslator.translate("", engine), "");
+        verify(engine.getBrailleTranslator(), times(0)).translate(anyString(), anyString(), any(short[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void cachedPerEngine() throws TranslationException {
+        short[] typeForms = new short[2];
+        Arrays.fill(typeForms, TypeForms.PLAIN_TEXT);
+        ITranslationEngine first = MockTranslatorFactory.createTranslationEngine("p5", ";p#e", "0 0 1 1", "0 2", typeForms);
+        ITranslationEngine second = MockTranslatorFactory.createTranslationEngine("p5", ";p#e", "0 0 1 1", "0 2", typeForms);
+
+        assertEquals(PageDecorationTranslator.translate("p5", first), ";p#e");
+        assertEquals(PageDecorationTranslator.translate("p5", second), ";p#e");
+        verify(first.getBrailleTranslator(), times(1)).translate(anyString(), anyString(), any(short[].class), anyInt(), anyInt());
+        verify(second.getBrailleTranslator(), times(1)).translate(anyString(), anyString(), any(short[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void translatesAgainAfterInvalidate() throws TranslationException {
+        short[] typeForms = new short[2];
+        Arrays.fill(typeForms, TypeForms.PLAIN_TEXT);
+        ITranslationEngine engine = MockTranslatorFactory.createTranslationEngine("p5", ";p#e", "0 0 1 1", "0 2", typeForms);
+
+        assertEquals(PageDecorationTranslator.translate("p5", engine), ";p#e");
+        PageDecorationTranslator.invalidate(engine);
+        assertEquals(PageDecorationTranslator.translate("p5", engine), ";p#e");
+        assertEquals(PageDecorationTranslator.translate("p5", engine), ";p#e");
+        verify(engine.getBrailleTranslator(), times(2)).translate(anyString(), anyString(), any(short[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void settingsChangeInvalidates() throws TranslationException {
+        short[] typeForms = new short[2];
+        Arrays.fill(typeForms, TypeForms.PLAIN_TEXT);
+        ITranslationEngine mock = MockTranslatorFactory.createTranslationEngine("p5", ";p#e", "0 0 1 1", "0 2", typeForms);
+        UTDTranslationEngine engine = new UTDTranslationEngine(mock.getBrailleTranslator(), mock.getBrailleSettings(),
+                new PageSettings(), new ActionMap(), new StyleMap(), new StyleDefinitions(), new ShortcutDefinitions());
+
+        assertEquals(PageDecorationTranslator.translate("p5", engine), ";p#e");
+        engine.setBrailleSettings(engine.getBrailleSettings());
+        assertEquals(PageDecorationTranslator.translate("p5", engine), ";p#e");
+        verify(engine.getBrailleTranslator(), times(2)).translate(anyString(), anyString(), any(short[].class), anyInt(), anyInt());
+    }
+}
@@ -82,251 +82,308 @@ object MathMLConverter {
     const val TABLE_ANGLED_BEGIN = "\uf616"
     const val TABLE_ANGLED_END = "\uf617"
     const val TABLE_BAR = "\uf618"
-    private fun getSiblingsName(siblings: Elements, index: Int): String {
-        return try {
-            val element = siblings[index]
-            element.localName
-        } catch (exception: Exception) {
-            "ERROR"
-        }
-    }
+    private const val MAX_CACHED = 4096
+    private const val MAX_KEY_LENGTH = 256
+    private const val KEY_OPEN = '\u0001'
+    private const val KEY_CLOSE = '\u0002'
+    private const val KEY_TEXT = '\u0003'
+    private const val KEY_EMPTY = '\u0004'
+    private const val KEY_BEVELLED = '\u0005'
 
-    private fun getSiblingsValue(siblings: Elements, index: Int): String? {
-        return try {
-            val element = siblings[index]
-            val node = element.getChild(0)
-            (node as? Text)?.value
-        } catch (exception: Exception) {
-            null
-        }
+    /**
+     * Conversions of small expressions keyed by [canonicalKey], math-heavy books repeat the same
+     * variables and simple fractions thousands of times
+     */
+    private val cache = object : LinkedHashMap<String, String>(256, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, String>?): Boolean = size > MAX_CACHED
     }
 
-    private fun convert1WithIndicators(
-        elements: Elements, begin: String, end: String, indicators: Array<String>?): String? {
-        val string: String = convertElement(elements[0], elements, 0, indicators) ?: return null
-        return "$begin$string$end"
+    private fun nameAt(siblings: Elements, index: Int): String? =
+        if (index >= 0 && index < siblings.size()) siblings[index].localName else null
+
+    private fun leadingTextAt(siblings: Elements, index: Int): String? {
+        if (index < 0 || index >= siblings.size()) return null
+        val element = siblings[index]
+        return if (element.childCount == 0) null else (element.getChild(0) as? Text)?.value
     }
 
-    private fun convert1WithIndicators(
-        element: Element, begin: String, end: String, indicators: Array<String>?): String? {
+    /**
+     * Append begin, the first child element, end
+     */
+    private fun append1(
+        out: StringBuilder, element: Element, begin: String, end: String, indicators: Array<String>?): Boolean {
         val elements = element.childElements
-        return if (elements.size() < 1) null else convert1WithIndicators(elements, begin, end, indicators)
+        if (elements.size() < 1) return false
+        out.append(begin)
+        if (!appendElement(out, elements[0], elements, 0, indicators)) return false
+        out.append(end)
+        return true
     }
 
-    private fun convert2WithIndicators(
-        elements: Elements, begin: String?, separator: String, end: String?, indicators: Array<String>?): String? {
-        val stringBuilder = StringBuilder()
-        stringBuilder.append(begin)
+    /**
+     * Append the first two elements, for roots the index is written first (fix for bug 30891) - MNS
+     */
+    private fun append2(
+        out: StringBuilder,
+        elements: Elements,
+        begin: String,
+        separator: String,
+        end: String,
+        indicators: Array<String>?,
+        reversed: Boolean = false
+    ): Boolean {
+        if (elements.size() < 2) return false
+        out.append(begin)
+        if (!appendElement(out, elements[if (reversed) 1 else 0], elements, 0, indicators)) return false
+        out.append(separator)
+        if (!appendElement(out, elements[if (reversed) 0 else 1], elements, 1, indicators)) return false
+        out.append(end)
+        return true
+    }
 
-        val zero: Element
-        val one: Element
-        //For Root, reverse the element order (fix for bug 30891) - MNS
-        if (begin.equals(ROOT_BEGIN) && end.equals(ROOT_END) && separator == ROOT_SEPARATOR){
-            zero = elements[1]
-            one = elements[0]
-        }
-        else{
-            zero = elements[0]
-            one = elements[1]
-        }
-        var string: String? = convertElement(zero, elements, 0, indicators) ?: return null
-        stringBuilder.append(string).append(separator)
-        string = convertElement(one, elements, 1, indicators)
-        if (string == null) return null
-        stringBuilder.append(string).append(end)
-        return stringBuilder.toString()
+    private fun append3(
+        out: StringBuilder, element: Element, begin: String, separator: String, end: String, indicators: Array<String>?): Boolean {
+        val elements = element.childElements
+        if (elements.size() < 3) return false
+        out.append(begin)
+        if (!appendElement(out, elements[0], elements, 0, indicators)) return false
+        out.append(separator)
+        if (!appendElement(out, elements[1], elements, 1, indicators)) return false
+        out.append(separator)
+        // The third element has always been converted as if it were the second
+        if (!appendElement(out, elements[2], elements, 1, indicators)) return false
+        out.append(end)
+        return true
     }
 
-    private fun convert2WithIndicators(
-        element: Element, begin: String, separator: String, end: String, indicators: Array<String>?): String? {
+    private fun appendFraction(
+        out: StringBuilder, element: Element, siblings: Elements, index: Int, indicators: Array<String>?): Boolean {
         val elements = element.childElements
-        return if (elements.size() < 2) null else convert2WithIndicators(elements, begin, separator, end, indicators)
+        if (elements.size() < 2) return false
+        var begin = FRACTION_BEGIN
+        var separator = FRACTION_SEPARATOR
+        var bevelled = FRACTION_SEPARATOR_BEVELLED
+        var end = FRACTION_END
+        val numerator = elements[0].localName
+        val denominator = elements[1].localName
+        if (numerator == "mn" && denominator == "mn") {
+            val mixed = when (nameAt(siblings, index - 1)) {
+                "mn" -> true
+                "mo" -> {
+                    val node = siblings[index - 1].getChild(0) as? Text ?: return false
+                    if (node.value == "\u2064") true else null
+                }
+                else -> false
+            }
+            if (mixed == true) {
+                begin = FRACTION_MIXED_BEGIN
+                separator = FRACTION_MIXED_SEPARATOR
+                bevelled = FRACTION_MIXED_SEPARATOR_BEVELLED
+                end = FRACTION_MIXED_END
+            } else if (mixed == false) {
+                begin = FRACTION_SIMPLE_BEGIN
+                separator = FRACTION_SIMPLE_SEPARATOR
+                bevelled = FRACTION_SIMPLE_SEPARATOR_BEVELLED
+                end = FRACTION_SIMPLE_END
+            }
+        } else if (numerator == "mfrac" || denominator == "mfrac") {
+            begin = FRACTION_COMPLEX_BEGIN
+            separator = FRACTION_COMPLEX_SEPARATOR
+            bevelled = FRACTION_COMPLEX_SEPARATOR_BEVELLED
+            end = FRACTION_COMPLEX_END
+        }
+        if (element.getAttributeValue("bevelled") == "true") separator = bevelled
+        return append2(out, elements, begin, separator, end, indicators)
     }
 
-    private fun convert3WithIndicators(
-        elements: Elements, begin: String, separator: String, end: String, indicators: Array<String>?): String? {
-        var string: String? = convertElement(elements[0], elements, 0, indicators) ?: return null
-        val stringBuilder = StringBuilder()
-        stringBuilder.append(begin).append(string).append(separator)
-        string = convertElement(elements[1], elements, 1, indicators)
-        if (string == null) return null
-        stringBuilder.append(string).append(separator)
-        string = convertElement(elements[2], elements, 1, indicators)
-        if (string == null) return null
-        stringBuilder.append(string).append(end)
-        return stringBuilder.toString()
+    private fun appendTable(out: StringBuilder, element: Element, siblings: Elements, index: Int): Boolean {
+        val begin = leadingTextAt(siblings, index - 1) ?: return false
+        val end = leadingTextAt(siblings, index + 1) ?: return false
+        val tableOps = arrayOf(when (begin) {
+            "(" -> TABLE_ROUND_BEGIN
+            "[" -> TABLE_SQUARE_BEGIN
+            "{" -> TABLE_CURLY_BEGIN
+            "<" -> TABLE_ANGLED_BEGIN
+            "|" -> TABLE_BAR
+            else -> begin
+        },
+        when (end) {
+            "(" -> TABLE_ROUND_END
+            "[" -> TABLE_SQUARE_END
+            "{" -> TABLE_CURLY_END
+            "<" -> TABLE_ANGLED_END
+            "|" -> TABLE_BAR
+            else -> end
+        })
+        out.append(TABLE_BEGIN)
+        appendNestedChildren(out, element, tableOps)
+        out.append(TABLE_END)
+        return true
     }
 
-    private fun convert3WithIndicators(
-        element: Element, begin: String, separator: String, end: String, indicators: Array<String>?): String? {
-        val elements = element.childElements
-        return if (elements.size() < 3) null else convert3WithIndicators(elements, begin, separator, end, indicators)
+    /**
+     * Append the children of a container element. A child that cannot be converted does not fail
+     * the container, it has always been written as "null" in place of the children.
+     */
+    private fun appendNestedChildren(out: StringBuilder, parent: Element, indicators: Array<String>?) {
+        val start = out.length
+        if (!appendChildren(out, parent, indicators)) {
+            out.setLength(start)
+            out.append("null")
+        }
     }
 
-    fun convertElement(element: Element, siblings: Elements, index: Int, indicators: Array<String>?): String? {
-        val elements: Elements
-        val sibling: Element
-        val node: Node
-        var bevelled: String
-        var begin: String?
-        var separator: String
-        var end: String?
-        val string: String
-        return when (element.localName) {
-            "mrow" -> EXPRESSION_BEGIN + convertElementChildren(element, indicators) + EXPRESSION_END
-            "mn", "mi" -> {
-                node = element.getChild(0)
-                (node as? Text)?.value
+    /**
+     * Convert element in place into out. Siblings are the child elements of its parent and index
+     * its position among them, used for the context dependent operators, fractions and tables.
+     *
+     * @return false when the element cannot be converted, out then holds a partial conversion
+     */
+    private fun appendElement(
+        out: StringBuilder, element: Element, siblings: Elements, index: Int, indicators: Array<String>?): Boolean {
+        when (element.localName) {
+            "mrow" -> {
+                out.append(EXPRESSION_BEGIN)
+                appendNestedChildren(out, element, indicators)
+                out.append(EXPRESSION_END)
             }
+            "mn", "mi" -> out.append((element.getChild(0) as? Text ?: return false).value)
             "mo" -> {
-                node = element.getChild(0)
-                if (node !is Text) return null
-
-                //  deal with ASCIIMath failures
-                if (node.value == "-") {
-                    if (index > 0 && getSiblingsName(siblings, index - 1) != "mo") return "\u2212"
-                }
-                if (node.value == ":") "\u2236" else node.value
+                val value = (element.getChild(0) as? Text ?: return false).value
+                out.append(when {
+                    //  deal with ASCIIMath failures
+                    value == "-" && index > 0 && nameAt(siblings, index - 1) != "mo" -> "\u2212"
+                    value == ":" -> "\u2236"
+                    else -> value
+                })
             }
-            "msub" -> convert2WithIndicators(
-                    element, SUBSCRIPT_BEGIN, SUBSCRIPT_SEPARATOR, SUBSCRIPT_END, indicators)
-            "msup" -> convert2WithIndicators(
-                    element, SUPERSCRIPT_BEGIN, SUPERSCRIPT_SEPARATOR, SUPERSCRIPT_END, indicators)
-            "msubsup" -> convert3WithIndicators(
+            "msub" -> return append2(
+                    out, element.childElements, SUBSCRIPT_BEGIN, SUBSCRIPT_SEPARATOR, SUBSCRIPT_END, indicators)
+            "msup" -> return append2(
+                    out, element.childElements, SUPERSCRIPT_BEGIN, SUPERSCRIPT_SEPARATOR, SUPERSCRIPT_END, indicators)
+            "msubsup" -> return append3(
+                    out,
                     element,
                     SUBSUPERSCRIPT_BEGIN,
                     SUBSUPERSCRIPT_SEPARATOR,
                     SUBSUPERSCRIPT_END,
                     indicators)
-            "munder" -> convert2WithIndicators(
-                    element, UNDERSCRIPT_BEGIN, UNDERSCRIPT_SEPARATOR, UNDERSCRIPT_END, indicators)
-            "mover" -> convert2WithIndicators(
-                    element, OVERSCRIPT_BEGIN, OVERSCRIPT_SEPARATOR, OVERSCRIPT_END, indicators)
-            "munderover" -> convert3WithIndicators(
+            "munder" -> return append2(
+                    out, element.childElements, UNDERSCRIPT_BEGIN, UNDERSCRIPT_SEPARATOR, UNDERSCRIPT_END, indicators)
+            "mover" -> return append2(
+                    out, element.childElements, OVERSCRIPT_BEGIN, OVERSCRIPT_SEPARATOR, OVERSCRIPT_END, indicators)
+            "munderover" -> return append3(
+                    out,
                     element,
                     UNDEROVERSCRIPT_BEGIN,
                     UNDEROVERSCRIPT_SEPARATOR,
                     UNDEROVERSCRIPT_END,
                     indicators)
-            "mroot" -> convert2WithIndicators(element, ROOT_BEGIN, ROOT_SEPARATOR, ROOT_END, indicators)
-            "msqrt" -> convert1WithIndicators(element, SQRT_BEGIN, SQRT_END, indicators)
-            "mfrac" -> {
-                elements = element.childElements
-                if (elements.size() < 2) return null
-                begin = FRACTION_BEGIN
-                separator = FRACTION_SEPARATOR
-                bevelled = FRACTION_SEPARATOR_BEVELLED
-                end = FRACTION_END
-                if (elements[0].localName == "mn" && elements[1].localName == "mn") {
-                    if (index > 0) {
-                        sibling = siblings[index - 1]
-                        if (sibling.localName == "mn") {
-                            begin = FRACTION_MIXED_BEGIN
-                            separator = FRACTION_MIXED_SEPARATOR
-                            bevelled = FRACTION_MIXED_SEPARATOR_BEVELLED
-                            end = FRACTION_MIXED_END
-                        } else if (sibling.localName == "mo") {
-                            node = sibling.getChild(0)
-                            if (node !is Text) return null
-                            if (node.value == "\u2064") {
-                                begin = FRACTION_MIXED_BEGIN
-                                separator = FRACTION_MIXED_SEPARATOR
-                                bevelled = FRACTION_MIXED_SEPARATOR_BEVELLED
-                                end = FRACTION_MIXED_END
-                            }
-                        } else {
-                            begin = FRACTION_SIMPLE_BEGIN
-                            separator = FRACTION_SIMPLE_SEPARATOR
-                            bevelled = FRACTION_SIMPLE_SEPARATOR_BEVELLED
-                            end = FRACTION_SIMPLE_END
-                        }
-                    } else {
-                        begin = FRACTION_SIMPLE_BEGIN
-                        separator = FRACTION_SIMPLE_SEPARATOR
-                        bevelled = FRACTION_SIMPLE_SEPARATOR_BEVELLED
-                        end = FRACTION_SIMPLE_END
-                    }
-                } else if (elements[0].localName == "mfrac" || elements[1].localName == "mfrac") {
-                    begin = FRACTION_COMPLEX_BEGIN
-                    separator = FRACTION_COMPLEX_SEPARATOR
-                    bevelled = FRACTION_COMPLEX_SEPARATOR_BEVELLED
-                    end = FRACTION_COMPLEX_END
-                }
-                val attribute = element.getAttribute("bevelled")
-                if (attribute != null) {
-                    string = attribute.value
-                    if (string == "true") separator = bevelled
-                }
-                convert2WithIndicators(elements, begin, separator, end, indicators)
-            }
-            "mtable" -> {
-                begin = getSiblingsValue(siblings, index - 1)
-                if (begin == null) return null
-                end = getSiblingsValue(siblings, index + 1)
-                if (end == null) return null
-                val tableOps = arrayOf(when (begin) {
-                    "(" -> TABLE_ROUND_BEGIN
-                    "[" -> TABLE_SQUARE_BEGIN
-                    "{" -> TABLE_CURLY_BEGIN
-                    "<" -> TABLE_ANGLED_BEGIN
-                    "|" -> TABLE_BAR
-                    else -> begin
-                },
-                when (end) {
-                    "(" -> TABLE_ROUND_END
-                    "[" -> TABLE_SQUARE_END
-                    "{" -> TABLE_CURLY_END
-                    "<" -> TABLE_ANGLED_END
-                    "|" -> TABLE_BAR
-                    else -> end
-                })
-                TABLE_BEGIN + convertElementChildren(element, tableOps) + TABLE_END
-            }
+            "mroot" -> return append2(
+                    out, element.childElements, ROOT_BEGIN, ROOT_SEPARATOR, ROOT_END, indicators, reversed = true)
+            "msqrt" -> return append1(out, element, SQRT_BEGIN, SQRT_END, indicators)
+            "mfrac" -> return appendFraction(out, element, siblings, index, indicators)
+            "mtable" -> return appendTable(out, element, siblings, index)
             "mtr" -> {
-                if (indicators == null) return null
-                if (indicators.size < 2) null else {
-                    TABLE_ROW_BEGIN + indicators[0] + convertElementChildren(element, indicators) + indicators[1] + TABLE_ROW_END
-                }
+                if (indicators == null || indicators.size < 2) return false
+                out.append(TABLE_ROW_BEGIN).append(indicators[0])
+                appendNestedChildren(out, element, indicators)
+                out.append(indicators[1]).append(TABLE_ROW_END)
             }
-            "mtd" -> TABLE_CELL_BEGIN + convertElementChildren(element, indicators) + TABLE_CELL_END
-            "mspace" -> " "
-            "mfenced", "menclose", "mphantom", "merrer" -> {
-                log.error("MathMLConverter:  " + element.localName + "?")
-                null
+            "mtd" -> {
+                out.append(TABLE_CELL_BEGIN)
+                appendNestedChildren(out, element, indicators)
+                out.append(TABLE_CELL_END)
             }
+            "mspace" -> out.append(' ')
             else -> {
                 log.error("MathMLConverter:  " + element.localName + "?")
-                null
+                return false
             }
         }
+        return true
     }
 
-    fun convertElementChildren(parent: Element, indicators: Array<String>?): String? {
-        var string: String?
-        val result = StringBuilder()
+    private fun appendChildren(out: StringBuilder, parent: Element, indicators: Array<String>?): Boolean {
         val children = parent.childElements
         for (i in 0 until children.size()) {
-            val element = children[i]
-            string = convertElement(element, children, i, indicators)
-            if (string == null) return null
-            result.append(string)
+            if (!appendElement(out, children[i], children, i, indicators)) return false
         }
-        return result.toString()
+        return true
     }
 
-    fun convertMathML(node: Node?): Text? {
-        if (node !is Element) return null
-        if (node.localName != "math") return null
-        var string = convertElementChildren(node, null)
-        if (string == null) {
+    fun convertElement(element: Element, siblings: Elements, index: Int, indicators: Array<String>?): String? {
+        val out = StringBuilder()
+        return if (appendElement(out, element, siblings, index, indicators)) out.toString() else null
+    }
+
+    fun convertElementChildren(parent: Element, indicators: Array<String>?): String? {
+        val out = StringBuilder()
+        return if (appendChildren(out, parent, indicators)) out.toString() else null
+    }
+
+    /**
+     * Everything the conversion reads from the MathML: element names, the leading text of each
+     * element and the bevelled attribute of fractions. The delimiters are control characters that
+     * cannot occur in XML text.
+     *
+     * @return null when the expression is too large to be worth caching
+     */
+    private fun canonicalKey(math: Element): String? {
+        val key = StringBuilder()
+        return if (appendKey(key, math)) key.toString() else null
+    }
+
+    private fun appendKey(key: StringBuilder, element: Element): Boolean {
+        val name = element.localName
+        key.append(name)
+        if (name == "mfrac") {
+            element.getAttributeValue("bevelled")?.let { key.append(KEY_BEVELLED).append(it) }
+        }
+        if (element.childCount == 0) {
+            key.append(KEY_EMPTY)
+        } else {
+            (element.getChild(0) as? Text)?.let { key.append(KEY_TEXT).append(it.value) }
+        }
+        key.append(KEY_OPEN)
+        val children = element.childElements
+        for (i in 0 until children.size()) {
+            if (key.length > MAX_KEY_LENGTH || !appendKey(key, children[i])) return false
+        }
+        key.append(KEY_CLOSE)
+        return key.length <= MAX_KEY_LENGTH
+    }
+
+    /**
+     * Convert a math element without the cache
+     */
+    internal fun convertToString(math: Element): String? {
+        val out = StringBuilder()
+        out.append(MATH_BEGIN)
+        if (!appendChildren(out, math, null)) {
             if (log.isErrorEnabled) {
-                log.error("MathMLConverter:  invalid MathML - " + node.toXML())
+                log.error("MathMLConverter:  invalid MathML - " + math.toXML())
             }
             return null
         }
+        out.append(MATH_END)
 
         //  deal with ASCIIMath generating improper mathml
-        if (string.contains("\u2236\u2236")) string = string.replace("\u2236\u2236", "\u2237")
-        return Text(MATH_BEGIN + string + MATH_END)
+        val string = out.toString()
+        return if (string.contains("\u2236\u2236")) string.replace("\u2236\u2236", "\u2237") else string
+    }
+
+    fun convertMathML(node: Node?): Text? {
+        if (node !is Element) return null
+        if (node.localName != "math") return null
+        val key = canonicalKey(node)
+        if (key != null) {
+            synchronized(cache) { cache[key] }?.let { return Text(it) }
+        }
+        val string = convertToString(node) ?: return null
+        if (key != null) {
+            synchronized(cache) { cache[key] = string }
+        }
+        return Text(string)
     }
-}
\ No newline at end of file
+}
@@ -36,6 +36,21 @@ object BrailleUnicodeConverter {
         .replace('@', '`')
         .lowercase(Locale.getDefault())
 
+    /**
+     * Offset into the braille unicode block for each ascii char, -1 if it isn't ascii braille.
+     * Avoids scanning the ascii map for every converted char.
+     */
+    private val UPPERCASE_ASCII_TO_DOTS = asciiToDotsTable(UPPERCASE_ASCII_BRAILLE)
+    private val LOWERCASE_ASCII_TO_DOTS = asciiToDotsTable(LOWERCASE_ASCII_BRAILLE)
+
+    private fun asciiToDotsTable(asciiMap: String) = IntArray(128) { asciiMap.indexOf(it.toChar()) }
+
+    private fun asciiToDotsTableFor(asciiMap: String?) = when {
+        asciiMap === LOWERCASE_ASCII_BRAILLE -> LOWERCASE_ASCII_TO_DOTS
+        asciiMap === UPPERCASE_ASCII_BRAILLE -> UPPERCASE_ASCII_TO_DOTS
+        else -> asciiToDotsTable(asciiMap!!)
+    }
+
     fun unicodeToAsciiUppercase(unicodeString: String): String {
         return unicodeToAscii(UPPERCASE_ASCII_BRAILLE, unicodeString)
     }
@@ -73,14 +88,16 @@ object BrailleUnicodeConverter {
                     // 8-dot braille for un-needed capitalization, throw away bits 7 and 8
                     val start = orig
                     orig = Char(orig.code and 0xC0.inv())
-                    log.trace(
-                        "Converted "
-                                + Character.getName(start.code)
-                                + " to "
-                                + Character.getName(orig.code)
-                                + " ascii "
-                                + asciiMap!![orig - '\u2800']
-                    )
+                    if (log.isTraceEnabled) {
+                        log.trace(
+                            "Converted "
+                                    + Character.getName(start.code)
+                                    + " to "
+                                    + Character.getName(orig.code)
+                                    + " ascii "
+                                    + asciiMap!![orig - '\u2800']
+                        )
+                    }
                 }
 
                 // Convert to ascii
@@ -122,14 +139,18 @@ object BrailleUnicodeConverter {
 
     /** This signature is useful in Reader  */
     private fun asciiToUnicode(asciiMap: String?, cbuf: CharArray, offset: Int, length: Int) {
+        val asciiToDots = asciiToDotsTableFor(asciiMap)
+        val trace = log.isTraceEnabled
         for (i in offset until offset + length) {
             var orig = cbuf[i].code
-            log.trace(
-                "----- Current char {} {} {}",
-                Integer.toHexString(orig),
-                cbuf[i],
-                Character.getName(orig)
-            )
+            if (trace) {
+                log.trace(
+                    "----- Current char {} {} {}",
+                    Integer.toHexString(orig),
+                    cbuf[i],
+                    Character.getName(orig)
+                )
+            }
             // hack for translated unicode characters in the format '\x1234'
             if (cbuf[i] == '\\' /*braille backslash/"REVERSE SOLIDUS"*/
                 && i >= offset + 1
@@ -148,18 +169,20 @@ object BrailleUnicodeConverter {
                 //				log.trace("upper case {} to upper case {}", Character.getName(before),
                 // Character.getName(orig));
             }
-            val brlOffset = asciiMap!!.indexOf(orig.toChar())
+            val brlOffset = if (orig < asciiToDots.size) asciiToDots[orig] else -1
             if (brlOffset != -1) {
                 // Shift to braille unicode range which is based on the ascii range
                 orig = brlOffset + 0x2800
                 cbuf[i] = orig.toChar()
-                log.trace(
-                    "Converted to brl {} - {} {}",
-                    brlOffset,
-                    Integer.toHexString(orig),
-                    Character.getName(orig)
-                )
-            } else {
+                if (trace) {
+                    log.trace(
+                        "Converted to brl {} - {} {}",
+                        brlOffset,
+                        Integer.toHexString(orig),
+                        Character.getName(orig)
+                    )
+                }
+            } else if (trace) {
                 log.trace("Ignoring " + " " + Integer.toHexString(orig) + " " + Character.getName(orig))
             }
         }
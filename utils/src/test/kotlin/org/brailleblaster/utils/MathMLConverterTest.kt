@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utils
+
+import nu.xom.Builder
+import nu.xom.Element
+import org.brailleblaster.utils.MathMLConverter.FRACTION_MIXED_BEGIN
+import org.brailleblaster.utils.MathMLConverter.FRACTION_MIXED_END
+import org.brailleblaster.utils.MathMLConverter.FRACTION_MIXED_SEPARATOR
+import org.brailleblaster.utils.MathMLConverter.FRACTION_SIMPLE_BEGIN
+import org.brailleblaster.utils.MathMLConverter.FRACTION_SIMPLE_END
+import org.brailleblaster.utils.MathMLConverter.FRACTION_SIMPLE_SEPARATOR_BEVELLED
+import org.brailleblaster.utils.MathMLConverter.MATH_BEGIN
+import org.brailleblaster.utils.MathMLConverter.MATH_END
+import org.brailleblaster.utils.MathMLConverter.ROOT_BEGIN
+import org.brailleblaster.utils.MathMLConverter.ROOT_END
+import org.brailleblaster.utils.MathMLConverter.ROOT_SEPARATOR
+import org.brailleblaster.utils.MathMLConverter.TABLE_BEGIN
+import org.brailleblaster.utils.MathMLConverter.TABLE_CELL_BEGIN
+import org.brailleblaster.utils.MathMLConverter.TABLE_CELL_END
+import org.brailleblaster.utils.MathMLConverter.TABLE_END
+import org.brailleblaster.utils.MathMLConverter.TABLE_ROUND_BEGIN
+import org.brailleblaster.utils.MathMLConverter.TABLE_ROW_BEGIN
+import org.brailleblaster.utils.MathMLConverter.TABLE_ROW_END
+import org.testng.Assert
+import org.testng.annotations.DataProvider
+import org.testng.annotations.Test
+import java.io.File
+
+class MathMLConverterTest {
+    private fun math(content: String): Element =
+        Builder().build("<m:math xmlns:m=\"$MATHML_NS\">$content</m:math>", null).rootElement
+
+    @DataProvider(name = "conversions")
+    fun conversions(): Array<Array<Any?>> {
+        return arrayOf(
+            arrayOf("<m:mi>x</m:mi><m:mo>-</m:mo><m:mn>1</m:mn>", "x\u22121"),
+            arrayOf("<m:mo>-</m:mo><m:mn>1</m:mn>", "-1"),
+            arrayOf("<m:mi>a</m:mi><m:mo>:</m:mo><m:mo>:</m:mo><m:mi>b</m:mi>", "a\u2237b"),
+            arrayOf(
+                "<m:mn>3</m:mn><m:mfrac><m:mn>1</m:mn><m:mn>2</m:mn></m:mfrac>",
+                "3${FRACTION_MIXED_BEGIN}1${FRACTION_MIXED_SEPARATOR}2$FRACTION_MIXED_END"
+            ),
+            arrayOf(
+                "<m:mfrac bevelled=\"true\"><m:mn>1</m:mn><m:mn>2</m:mn></m:mfrac>",
+                "${FRACTION_SIMPLE_BEGIN}1${FRACTION_SIMPLE_SEPARATOR_BEVELLED}2$FRACTION_SIMPLE_END"
+            ),
+            arrayOf(
+                "<m:mroot><m:mi>x</m:mi><m:mn>3</m:mn></m:mroot>",
+                "${ROOT_BEGIN}3${ROOT_SEPARATOR}x$ROOT_END"
+            ),
+            arrayOf(
+                "<m:mo>(</m:mo><m:mtable><m:mtr><m:mtd><m:mn>1</m:mn></m:mtd></m:mtr></m:mtable><m:mo>)</m:mo>",
+                "($TABLE_BEGIN$TABLE_ROW_BEGIN$TABLE_ROUND_BEGIN${TABLE_CELL_BEGIN}1$TABLE_CELL_END)" +
+                        "$TABLE_ROW_END$TABLE_END)"
+            ),
+            arrayOf("<m:mi>x</m:mi><m:mtext>unsupported</m:mtext>", null),
+        )
+    }
+
+    @Test(dataProvider = "conversions")
+    fun convert(content: String, expected: String?) {
+        val math = math(content)
+        val expectedText = expected?.let { MATH_BEGIN + it + MATH_END }
+        Assert.assertEquals(MathMLConverter.convertToString(math), expectedText)
+        // Once to fill the cache, again to read from it
+        Assert.assertEquals(MathMLConverter.convertMathML(math)?.value, expectedText)
+        val cached = MathMLConverter.convertMathML(math)
+        Assert.assertEquals(cached?.value, expectedText)
+        Assert.assertNull(cached?.parent)
+    }
+
+    @Test
+    fun keyDistinguishesContext() {
+        val mixed = math("<m:mn>3</m:mn><m:mfrac><m:mn>1</m:mn><m:mn>2</m:mn></m:mfrac>")
+        val simple = math("<m:mi>x</m:mi><m:mfrac><m:mn>1</m:mn><m:mn>2</m:mn></m:mfrac>")
+        val bevelled = math("<m:mi>x</m:mi><m:mfrac bevelled=\"true\"><m:mn>1</m:mn><m:mn>2</m:mn></m:mfrac>")
+        val results = listOf(mixed, simple, bevelled).map { MathMLConverter.convertMathML(it)!!.value }
+        Assert.assertEquals(results.toSet().size, 3)
+        Assert.assertEquals(MathMLConverter.convertMathML(simple)!!.value, MathMLConverter.convertToString(simple))
+    }
+
+    @Test
+    fun textbookMatchesUncached() {
+        val doc = Builder().build(File(MATH_BOOK))
+        val maths = ArrayList<Element>()
+        val pending = ArrayDeque<Element>()
+        pending.add(doc.rootElement)
+        while (pending.isNotEmpty()) {
+            val element = pending.removeFirst()
+            if (element.localName == "math" && element.namespaceURI == MATHML_NS) {
+                maths.add(element)
+            } else {
+                val children = element.childElements
+                for (i in 0 until children.size()) {
+                    pending.add(children[i])
+                }
+            }
+        }
+        Assert.assertTrue(maths.size > 500)
+        val uncached = maths.map { MathMLConverter.convertToString(it) }
+        // The second round is served from the cache
+        repeat(2) {
+            val cached = maths.map { MathMLConverter.convertMathML(it)?.value }
+            Assert.assertEquals(cached, uncached)
+        }
+        Assert.assertTrue(uncached.any { it != null })
+    }
+
+    companion object {
+        private const val MATHML_NS = "http://www.w3.org/1998/Math/MathML"
+        private const val MATH_BOOK =
+            "../brailleblaster-core/src/test/resources/org/brailleblaster/bbx/fixers/9781946636171NIMAS.bbx"
+    }
+}
@@ -15,13 +15,19 @@
  */
 package org.brailleblaster.utils.xom
 
-import com.google.common.cache.CacheBuilder
-import com.google.common.cache.CacheLoader
-import com.google.common.cache.LoadingCache
 import nu.xom.Node
 import nu.xom.ParentNode
 
-class NodeContext(val node: Node, parent: NodeContext?, index: Int) {
+/**
+ * Node with its position in the parent, the position is checked before use and looked up again
+ * through the document's [SiblingIndex] when the tree has changed.
+ */
+class NodeContext(
+    val node: Node,
+    parent: NodeContext?,
+    index: Int,
+    private val siblings: SiblingIndex = SiblingIndex.forNode(node)
+) {
     private var privIndex: Int = index
     var parent: NodeContext? = parent
         get() {
@@ -29,13 +35,13 @@ class NodeContext(val node: Node, parent: NodeContext?, index: Int) {
             if (nc == null) {
                 val parentNode = node.parent
                 if (parentNode != null) {
-                    field = NodeContext(parentNode, null, 0)
+                    field = NodeContext(parentNode, null, 0, siblings)
                 }
             } else {
                 val parentNode = nc.node
                 if (!(privIndex in 0 until parentNode.childCount && node == parentNode.getChild(privIndex))) {
                     val actualParentNode = node.parent
-                    field = if (actualParentNode == null) null else NodeContext(actualParentNode, null, -1)
+                    field = if (actualParentNode == null) null else NodeContext(actualParentNode, null, -1, siblings)
                 }
             }
             return field
@@ -48,7 +54,7 @@ class NodeContext(val node: Node, parent: NodeContext?, index: Int) {
                 privIndex = -1
             } else if (nc.node is ParentNode) {
                 if (!(i in 0 until nc.node.childCount && node == nc.node.getChild(i))) {
-                    privIndex = nc.node.indexOf(node)
+                    privIndex = siblings.indexOf(nc.node, node)
                 }
             } else {
                 // Something really bad has happened, parent node is not a ParentNode
@@ -58,21 +64,9 @@ class NodeContext(val node: Node, parent: NodeContext?, index: Int) {
             return privIndex
         }
         set(value) { privIndex = value }
-}
 
-val nodeContextLoader = object : CacheLoader<Node, NodeContext>() {
-    override fun load(key: Node): NodeContext {
-        val parentNode = key.parent
-        val parent: NodeContext?
-        val index: Int
-        if (parentNode != null) {
-            parent = nodeCache.getUnchecked(parentNode)
-            index = parentNode.indexOf(key)
-        } else {
-            parent = null
-            index = -1
-        }
-        return NodeContext(key, parent, index)
+    companion object {
+        @JvmStatic
+        fun of(node: Node): NodeContext = NodeContext(node, null, -1)
     }
 }
-val nodeCache: LoadingCache<Node, NodeContext> = CacheBuilder.newBuilder().maximumSize(10_000_000).build(nodeContextLoader)
\ No newline at end of file
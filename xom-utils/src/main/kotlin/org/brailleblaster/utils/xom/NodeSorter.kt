@@ -25,7 +25,7 @@ object NodeSorter {
     private fun getNodePath(startNode: Node, pathCache: MutableMap<Node, IntList>): IntList {
         val nodeParents: Deque<Pair<Node, Int>> = LinkedList()
         // Ensure the break condition here matches what is expected after, see comments after loop.
-        var nc: NodeContext? = nodeCache.getUnchecked(startNode)
+        var nc: NodeContext? = NodeContext.of(startNode)
         while (nc != null && !pathCache.containsKey(nc.node)) {
             if (nc.parent != null) {
                 nodeParents.push(nc.node to nc.index)
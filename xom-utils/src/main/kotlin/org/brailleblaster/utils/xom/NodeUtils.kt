@@ -73,9 +73,9 @@ val Element.attributes: Set<Attribute>
 fun Iterable<Node>.detachAll() = this.reversed().forEach { it.detach() }
 
 fun Node.previousSibling(predicate: (Node) -> Boolean = { true }): Node? = parent?.let { p ->
-    (p.indexOf(this) downTo 0).drop(1).map { p.getChild(it)!! }.firstOrNull(predicate)
+    (SiblingIndex.indexOfNode(this) downTo 0).drop(1).map { p.getChild(it)!! }.firstOrNull(predicate)
 }
 
 fun Node.nextSibling(predicate: (Node) -> Boolean = { true }): Node? = parent?.let { p ->
-    (p.indexOf(this) ..< p.childCount).drop(1).map { p.getChild(it)!! }.firstOrNull(predicate)
+    (SiblingIndex.indexOfNode(this) ..< p.childCount).drop(1).map { p.getChild(it)!! }.firstOrNull(predicate)
 }
\ No newline at end of file
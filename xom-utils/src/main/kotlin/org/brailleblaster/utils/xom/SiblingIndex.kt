@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utils.xom
+
+import nu.xom.Document
+import nu.xom.Node
+import nu.xom.ParentNode
+import java.util.WeakHashMap
+
+/**
+ * Remembers the position of nodes within their parent so sibling traversal doesn't need
+ * ParentNode.indexOf, which is a linear scan.
+ *
+ * There is one index per document. Nodes are weakly referenced so a closed document and its index
+ * can be garbage collected. A remembered position is checked against the parent before use; when
+ * it is stale (the parent was modified) all children of that parent are re-indexed in one pass.
+ */
+class SiblingIndex private constructor() {
+    private class Position(var index: Int)
+
+    private val positions = WeakHashMap<Node, Position>()
+
+    /**
+     * @return index of the node in its parent, or -1 if it has no parent
+     */
+    fun indexOf(child: Node): Int {
+        val parent = child.parent ?: return -1
+        return indexOf(parent, child)
+    }
+
+    fun indexOf(parent: ParentNode, child: Node): Int {
+        synchronized(this) {
+            val position = positions[child]
+            if (position != null && isAt(parent, child, position.index)) {
+                return position.index
+            }
+            var found = -1
+            for (i in 0 until parent.childCount) {
+                val curChild = parent.getChild(i)
+                record(curChild, i)
+                if (curChild === child) {
+                    found = i
+                }
+            }
+            return found
+        }
+    }
+
+    /**
+     * Record a known position, eg while already iterating over the children of a parent
+     */
+    fun record(child: Node, index: Int) {
+        synchronized(this) {
+            val position = positions[child]
+            if (position == null) {
+                positions[child] = Position(index)
+            } else {
+                position.index = index
+            }
+        }
+    }
+
+    private fun isAt(parent: ParentNode, child: Node, index: Int): Boolean =
+        index < parent.childCount && parent.getChild(index) === child
+
+    companion object {
+        private val documentIndexes = WeakHashMap<Document, SiblingIndex>()
+
+        /**
+         * Shared by all nodes not attached to a document
+         */
+        private val detachedIndex = SiblingIndex()
+
+        /**
+         * Index for the document containing the given node. Look this up once per traversal as
+         * finding the document walks up to the root.
+         */
+        @JvmStatic
+        fun forNode(node: Node): SiblingIndex {
+            val document = node.document ?: return detachedIndex
+            return synchronized(documentIndexes) {
+                documentIndexes.getOrPut(document) { SiblingIndex() }
+            }
+        }
+
+        /**
+         * Convenience for single lookups, see [forNode]
+         */
+        @JvmStatic
+        fun indexOfNode(node: Node): Int = forNode(node).indexOf(node)
+    }
+}
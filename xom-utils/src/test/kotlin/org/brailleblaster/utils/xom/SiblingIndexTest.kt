@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2025 American Printing House for the Blind
+ *
+ * This program is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.brailleblaster.utils.xom
+
+import nu.xom.Document
+import nu.xom.Element
+import nu.xom.Text
+import org.testng.Assert.assertEquals
+import org.testng.Assert.assertNotSame
+import org.testng.Assert.assertNull
+import org.testng.Assert.assertSame
+import org.testng.annotations.Test
+
+class SiblingIndexTest {
+    private fun wideDocument(children: Int): Element {
+        val root = Element("root")
+        repeat(children) { root.appendChild(Element("child$it")) }
+        Document(root)
+        return root
+    }
+
+    @Test
+    fun indexesAllChildren() {
+        val root = wideDocument(100)
+        val siblings = SiblingIndex.forNode(root)
+        for (i in 99 downTo 0) {
+            assertEquals(siblings.indexOf(root.getChild(i)), i)
+        }
+        assertEquals(siblings.indexOf(root), -1)
+    }
+
+    @Test
+    fun staleAfterModification() {
+        val root = wideDocument(10)
+        val siblings = SiblingIndex.forNode(root)
+        val last = root.getChild(9)
+        assertEquals(siblings.indexOf(last), 9)
+
+        root.insertChild(Text("new"), 0)
+        assertEquals(siblings.indexOf(last), 10)
+        root.removeChild(0)
+        root.removeChild(0)
+        assertEquals(siblings.indexOf(last), 8)
+
+        last.detach()
+        root.insertChild(last, 3)
+        assertEquals(siblings.indexOf(last), 3)
+        assertEquals(siblings.indexOf(root.getChild(4)), 4)
+    }
+
+    @Test
+    fun documentScoped() {
+        val root1 = wideDocument(2)
+        val root2 = wideDocument(2)
+        assertSame(SiblingIndex.forNode(root1.getChild(1)), SiblingIndex.forNode(root1))
+        assertNotSame(SiblingIndex.forNode(root1), SiblingIndex.forNode(root2))
+
+        val detached = Element("detached")
+        detached.appendChild(Text("a"))
+        detached.appendChild(Text("b"))
+        assertEquals(SiblingIndex.indexOfNode(detached.getChild(1)), 1)
+    }
+
+    @Test
+    fun siblingNavigation() {
+        val root = wideDocument(5)
+        val middle = root.getChild(2)
+        assertSame(middle.nextSibling(), root.getChild(3))
+        assertSame(middle.previousSibling(), root.getChild(1))
+        assertNull(root.getChild(4).nextSibling())
+    }
+}